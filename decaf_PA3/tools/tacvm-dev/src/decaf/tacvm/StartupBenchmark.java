@@ -0,0 +1,76 @@
+package decaf.tacvm;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import decaf.tacvm.parser.Errs;
+
+/**
+ * Compare the time to get a program ready to run from text TAC and from its
+ * binary image.
+ *
+ * usage: StartupBenchmark file.tac [rounds]
+ */
+public final class StartupBenchmark {
+
+	private static TacImage parse(String file) throws IOException {
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			TacImage image = TacImage.parse(input);
+			Errs.checkPoint(new PrintWriter(System.err));
+			return image;
+		} finally {
+			input.close();
+		}
+	}
+
+	private static double median(long[] nanos) {
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2] / 1e6;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: StartupBenchmark file.tac [rounds]");
+			System.exit(1);
+		}
+		String file = args[0];
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		File image = File.createTempFile("tacvm", ".tacb");
+		image.deleteOnExit();
+
+		long begin = System.nanoTime();
+		TacImage program = parse(file);
+		long firstText = System.nanoTime() - begin;
+		program.write(image.getPath());
+		begin = System.nanoTime();
+		TacImage.load(image.getPath());
+		long firstBinary = System.nanoTime() - begin;
+
+		long[] text = new long[rounds];
+		long[] binary = new long[rounds];
+		for (int i = 0; i < rounds; i++) {
+			begin = System.nanoTime();
+			parse(file);
+			text[i] = System.nanoTime() - begin;
+			begin = System.nanoTime();
+			TacImage.load(image.getPath());
+			binary[i] = System.nanoTime() - begin;
+		}
+
+		System.out.println("instructions:  " + program.insts.length);
+		System.out.println("text size:     " + new File(file).length()
+				+ " bytes");
+		System.out.println("binary size:   " + image.length() + " bytes");
+		System.out.printf("first load:    text %.2f ms, binary %.2f ms%n",
+				firstText / 1e6, firstBinary / 1e6);
+		System.out.printf("median of %d:  text %.2f ms, binary %.2f ms%n",
+				rounds, median(text), median(binary));
+	}
+}
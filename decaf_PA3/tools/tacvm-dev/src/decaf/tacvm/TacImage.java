@@ -0,0 +1,267 @@
+package decaf.tacvm;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import decaf.tacvm.exec.Executor;
+import decaf.tacvm.exec.Inst;
+import decaf.tacvm.parser.Lexer;
+import decaf.tacvm.parser.Parser;
+
+/**
+ * A parsed TAC program in binary form, so that it can be loaded again
+ * without going through the lexer and parser.
+ *
+ * Layout, fixed integers are 4 bytes big endian:
+ *
+ * <pre>
+ * "TACB" version enterPoint
+ * vtableLength vtable[vtableLength]
+ * stringCount  (length bytes[length])*   length -1 for null
+ * textCount    (length bytes[length])*   distinct instruction texts
+ * instCount    (opcode opr0 opr1 opr2 line column text)*
+ * </pre>
+ *
+ * Inside an instruction, opcode is one byte and the rest are zigzag
+ * varints: operands as they are, line as the difference to the line of the
+ * previous instruction (Integer.MIN_VALUE when there is no location, and
+ * then no column follows), and text as an index into the text pool, -1 for
+ * none.
+ */
+public final class TacImage {
+
+	private static final int MAGIC = 0x54414342; // "TACB"
+
+	private static final int VERSION = 1;
+
+	private static final Opcode[] OPCODES = Opcode.values();
+
+	public final List<String> stringTable;
+
+	public final Inst[] insts;
+
+	public final int[] vtable;
+
+	public final int enterPoint;
+
+	public TacImage(List<String> stringTable, Inst[] insts, int[] vtable,
+			int enterPoint) {
+		this.stringTable = stringTable;
+		this.insts = insts;
+		this.vtable = vtable;
+		this.enterPoint = enterPoint;
+	}
+
+	/**
+	 * Parse a program from TAC text. Syntax errors are left in Errs for the
+	 * caller to check, the returned image is only usable if there are none.
+	 */
+	public static TacImage parse(InputStream input) {
+		Lexer lexer = new Lexer(input);
+		Parser parser = new Parser();
+		lexer.setParser(parser);
+		parser.setLexer(lexer);
+		parser.parse();
+		return new TacImage(parser.getStringTable(), Executor
+				.translate(parser.getTacs()), parser.getVTables(), parser
+				.getEnterPoint());
+	}
+
+	/**
+	 * Whether the file starts with the magic number of a binary image.
+	 */
+	public static boolean isImage(String file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] head = new byte[4];
+			int n = 0;
+			while (n < head.length) {
+				int r = in.read(head, n, head.length - n);
+				if (r < 0) {
+					return false;
+				}
+				n += r;
+			}
+			return ByteBuffer.wrap(head).getInt() == MAGIC;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static void writeVarint(DataOutputStream out, int value)
+			throws IOException {
+		int v = (value << 1) ^ (value >> 31);
+		while ((v & ~0x7f) != 0) {
+			out.writeByte((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	public void write(String file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(enterPoint);
+			out.writeInt(vtable.length);
+			for (int v : vtable) {
+				out.writeInt(v);
+			}
+			out.writeInt(stringTable.size());
+			for (String s : stringTable) {
+				writeString(out, s);
+			}
+			Map<String, Integer> textIndex = new HashMap<String, Integer>();
+			List<String> texts = new ArrayList<String>();
+			for (Inst inst : insts) {
+				if (inst.tac != null && !textIndex.containsKey(inst.tac)) {
+					textIndex.put(inst.tac, texts.size());
+					texts.add(inst.tac);
+				}
+			}
+			out.writeInt(texts.size());
+			for (String s : texts) {
+				writeString(out, s);
+			}
+			out.writeInt(insts.length);
+			int line = 0;
+			for (Inst inst : insts) {
+				out.writeByte(inst.opc.ordinal());
+				writeVarint(out, inst.opr0);
+				writeVarint(out, inst.opr1);
+				writeVarint(out, inst.opr2);
+				if (inst.loc != null) {
+					writeVarint(out, inst.loc.getLine() - line);
+					writeVarint(out, inst.loc.getColumn());
+					line = inst.loc.getLine();
+				} else {
+					writeVarint(out, Integer.MIN_VALUE);
+				}
+				writeVarint(out, inst.tac != null ? textIndex.get(inst.tac) : -1);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static int readVarint(ByteBuffer buf) throws IOException {
+		int v = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = buf.get();
+			v |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return (v >>> 1) ^ -(v & 1);
+			}
+		}
+		throw new IOException("bad varint");
+	}
+
+	private static String readString(ByteBuffer buf, int length)
+			throws IOException {
+		if (length < 0) {
+			return null;
+		}
+		if (length > buf.remaining()) {
+			throw new IOException("truncated tac image");
+		}
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Map file into memory and decode it.
+	 */
+	public static TacImage load(String file) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(file),
+				StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			buf.order(ByteOrder.BIG_ENDIAN);
+			return decode(buf);
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static TacImage decode(ByteBuffer buf) throws IOException {
+		try {
+			if (buf.getInt() != MAGIC) {
+				throw new IOException("not a tac image");
+			}
+			int version = buf.getInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported tac image version "
+						+ version);
+			}
+			int enterPoint = buf.getInt();
+			int[] vtable = new int[buf.getInt()];
+			buf.asIntBuffer().get(vtable);
+			buf.position(buf.position() + vtable.length * 4);
+
+			int stringCount = buf.getInt();
+			List<String> stringTable = new ArrayList<String>(stringCount);
+			for (int i = 0; i < stringCount; i++) {
+				stringTable.add(readString(buf, buf.getInt()));
+			}
+
+			String[] texts = new String[buf.getInt()];
+			for (int i = 0; i < texts.length; i++) {
+				texts[i] = readString(buf, buf.getInt());
+			}
+
+			Inst[] insts = new Inst[buf.getInt()];
+			int line = 0;
+			for (int i = 0; i < insts.length; i++) {
+				Inst inst = new Inst();
+				inst.opc = OPCODES[buf.get()];
+				inst.opr0 = readVarint(buf);
+				inst.opr1 = readVarint(buf);
+				inst.opr2 = readVarint(buf);
+				int delta = readVarint(buf);
+				if (delta != Integer.MIN_VALUE) {
+					line += delta;
+					inst.loc = new Location(line, readVarint(buf));
+				}
+				int text = readVarint(buf);
+				if (text >= 0) {
+					inst.tac = texts[text];
+				}
+				insts[i] = inst;
+			}
+			return new TacImage(stringTable, insts, vtable, enterPoint);
+		} catch (RuntimeException e) {
+			// BufferUnderflowException or an index out of range
+			throw new IOException("corrupt tac image", e);
+		}
+	}
+}
@@ -1,29 +1,125 @@
 package decaf.tacvm;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import decaf.tacvm.exec.ConsoleIO;
+import decaf.tacvm.exec.ExecutionResult;
 import decaf.tacvm.exec.Executor;
+import decaf.tacvm.exec.Memory;
 import decaf.tacvm.parser.Errs;
-import decaf.tacvm.parser.Lexer;
-import decaf.tacvm.parser.Parser;
 
+/**
+ * Command line front end, and the entry point for running TAC programs
+ * inside another Java program: configure an instance, then call execute
+ * once per program. Every execution gets its own executor, heap and stack,
+ * so one TacVM may run programs on several threads at once.
+ */
 public final class TacVM {
 	private InputStream input = System.in;
 
+	private String inputFile;
+
+	private String emitBinary;
+
 	private int maxRunInsts = 100000;
 
+	private boolean threaded = true;
+
+	private boolean fusion = false;
+
+	private boolean gcEnabled = true;
+
+	private int maxHeapSize = Memory.DEFAULT_MAX_HEAP_SIZE;
+
+	private int gcTrigger = Memory.DEFAULT_GC_TRIGGER;
+
+	private boolean stats = false;
+
+	private boolean jit = false;
+
+	private int jitCallThreshold = 1000;
+
+	private int jitBackEdgeThreshold = 10000;
+
+	private int ioBufferSize = ConsoleIO.DEFAULT_BUFFER_SIZE;
+
+	private String profilePrefix;
+
+	private boolean batch = false;
+
+	private List<String> batchFiles = new ArrayList<String>();
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * A VM with the default options.
+	 */
+	public TacVM() {
+	}
+
 	public TacVM(String[] args) {
 		for (int i = 0; i < args.length; i++) {
 			if (args[i].equals("-m")) {
 				maxRunInsts = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-switch")) {
+				threaded = false;
+			} else if (args[i].equals("-fuse")) {
+				fusion = true;
+			} else if (args[i].equals("-nogc")) {
+				gcEnabled = false;
+			} else if (args[i].equals("-heap")) {
+				maxHeapSize = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-gc-trigger")) {
+				gcTrigger = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-stats")) {
+				stats = true;
+			} else if (args[i].equals("-jit")) {
+				jit = true;
+			} else if (args[i].equals("-jit-threshold")) {
+				jitCallThreshold = Integer.parseInt(args[++i]);
+				jitBackEdgeThreshold = jitCallThreshold * 10;
+			} else if (args[i].equals("-io-buffer")) {
+				ioBufferSize = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-unbuffered")) {
+				ioBufferSize = 0;
+			} else if (args[i].equals("-profile")) {
+				if (profilePrefix == null) {
+					profilePrefix = "tacvm";
+				}
+			} else if (args[i].equals("-profile-out")) {
+				profilePrefix = args[++i];
+			} else if (args[i].equals("-emit-binary")) {
+				emitBinary = args[++i];
+			} else if (args[i].equals("-batch")) {
+				batch = true;
+			} else if (args[i].equals("-j")) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (batch) {
+				batchFiles.add(args[i]);
 			} else {
 				try {
 					input = new BufferedInputStream(
 							new FileInputStream(args[i]));
+					inputFile = args[i];
 				} catch (FileNotFoundException e) {
 					System.err.println("File " + args[0] + " not found");
 					System.exit(1);
@@ -32,24 +128,230 @@ public final class TacVM {
 		}
 	}
 
-	public void run() {
-		Lexer lexer = new Lexer(input);
-		Parser parser = new Parser();
-		lexer.setParser(parser);
-		parser.setLexer(lexer);
-		parser.parse();
-		Errs.checkPoint(new PrintWriter(System.err));
+	public void setMaxRunInsts(int maxRunInsts) {
+		this.maxRunInsts = maxRunInsts;
+	}
+
+	public void setJit(boolean jit) {
+		this.jit = jit;
+	}
+
+	public void setStats(boolean stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Read a program from a text or binary TAC file.
+	 *
+	 * @throws IOException
+	 *             if it cannot be read, or has syntax errors; the message
+	 *             then holds the error lines
+	 */
+	public static TacImage load(String file) throws IOException {
+		if (TacImage.isImage(file)) {
+			return TacImage.load(file);
+		}
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			// drop what an earlier failed parse on this thread left behind
+			Errs.drain();
+			TacImage image = TacImage.parse(in);
+			List<String> errors = Errs.drain();
+			if (!errors.isEmpty()) {
+				StringBuilder sb = new StringBuilder();
+				for (String s : errors) {
+					sb.append(sb.length() > 0 ? "\n" : "").append(s);
+				}
+				throw new IOException(sb.toString());
+			}
+			return image;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Run a program to completion with the options of this VM.
+	 *
+	 * @param in
+	 *            read by _ReadInteger and _ReadLine
+	 * @param out
+	 *            written by the print intrinsics
+	 * @param err
+	 *            receives error reports and statistics, may be out
+	 */
+	public ExecutionResult execute(TacImage image, InputStream in,
+			PrintStream out, PrintStream err) {
+		return execute(image, in, out, err, profilePrefix);
+	}
+
+	private ExecutionResult execute(TacImage image, InputStream in,
+			PrintStream out, PrintStream err, String profilePrefix) {
 		Executor executor = new Executor();
+		executor.setStreams(in, out, err);
 		executor.setMaxRunInsts(maxRunInsts);
-		executor.init(parser.getStringTable(), parser.getTacs(), parser
-				.getVTables(), parser.getEnterPoint());
+		executor.setThreaded(threaded);
+		executor.setFusion(fusion);
+		executor.setGcEnabled(gcEnabled);
+		executor.setMaxHeapSize(maxHeapSize);
+		executor.setGcTrigger(gcTrigger);
+		executor.setStats(stats);
+		executor.setJit(jit);
+		executor.setJitThresholds(jitCallThreshold, jitBackEdgeThreshold);
+		executor.setIoBufferSize(ioBufferSize);
+		executor.setProfile(profilePrefix);
+		executor.init(image.stringTable, image.insts, image.vtable,
+				image.enterPoint);
 		//executor.dumpInsts();
-		executor.exec();
+		return executor.exec();
+	}
+
+	/**
+	 * Parse the input, or map it if it is a binary image.
+	 */
+	private TacImage load() throws IOException {
+		if (inputFile != null && TacImage.isImage(inputFile)) {
+			input.close();
+			return TacImage.load(inputFile);
+		}
+		TacImage image = TacImage.parse(input);
+		Errs.checkPoint(new PrintWriter(System.err));
+		return image;
+	}
+
+	public void run() {
+		if (batch) {
+			runBatch();
+			return;
+		}
+		TacImage image = null;
+		try {
+			image = load();
+		} catch (IOException e) {
+			System.err.println("File " + (inputFile != null ? inputFile
+					: "<stdin>") + ": " + e.getMessage());
+			System.exit(1);
+		}
+		if (emitBinary != null) {
+			try {
+				image.write(emitBinary);
+			} catch (IOException e) {
+				System.err.println("File " + emitBinary + ": "
+						+ e.getMessage());
+				System.exit(1);
+			}
+			return;
+		}
+		execute(image, System.in, System.out, System.err);
+	}
+
+	private static String baseName(String file) {
+		int dot = file.lastIndexOf('.');
+		if (dot > file.lastIndexOf(File.separatorChar)) {
+			return file.substring(0, dot);
+		}
+		return file;
+	}
+
+	/**
+	 * Run one program of a batch: input from base.in if there is one,
+	 * everything the program and the VM print goes to base.out.
+	 */
+	private String runOne(String file) throws IOException {
+		String base = baseName(file);
+		File inFile = new File(base + ".in");
+		InputStream in = inFile.isFile() ? new BufferedInputStream(
+				new FileInputStream(inFile)) : new ByteArrayInputStream(
+				new byte[0]);
+		PrintStream out = new PrintStream(new BufferedOutputStream(
+				new FileOutputStream(base + ".out")));
+		try {
+			TacImage image;
+			try {
+				image = load(file);
+			} catch (IOException e) {
+				out.println(e.getMessage());
+				return String.format("%-40s %s", file, "LOAD_ERROR");
+			}
+			ExecutionResult result = execute(image, in, out, out,
+					profilePrefix != null ? base : null);
+			return String.format("%-40s %-9s %12d insts %10.1f ms", file,
+					result.getStatus(), result.getInstructions(), result
+							.getElapsedNanos() / 1e6);
+		} finally {
+			out.close();
+			in.close();
+		}
+	}
+
+	/**
+	 * Run every file given after -batch on a pool of threads, then print one
+	 * line per program in the order they were given.
+	 */
+	private void runBatch() {
+		final AtomicInteger count = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+
+					@Override
+					public Thread newThread(Runnable r) {
+						// compiled Decaf calls nest on the JVM stack
+						Thread t = new Thread(null, r, "tacvm-"
+								+ count.incrementAndGet(), jit ? 1L << 30 : 0);
+						t.setDaemon(true);
+						return t;
+					}
+
+				});
+		long begin = System.nanoTime();
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for (final String file : batchFiles) {
+			results.add(pool.submit(new Callable<String>() {
+
+				@Override
+				public String call() throws IOException {
+					return runOne(file);
+				}
+
+			}));
+		}
+		for (int i = 0; i < results.size(); i++) {
+			try {
+				System.out.println(results.get(i).get());
+			} catch (ExecutionException e) {
+				System.out.println(String.format("%-40s %s: %s", batchFiles
+						.get(i), "VM_FAILURE", e.getCause()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		pool.shutdown();
+		System.out.printf("%d programs on %d threads in %.1f ms%n",
+				batchFiles.size(), threads, (System.nanoTime() - begin) / 1e6);
 	}
 
 	public static void main(String[] args) {
 		//args = new String[]{"D:/test.tac"};
-		TacVM vm = new TacVM(args);
-		vm.run();
+		final TacVM vm = new TacVM(args);
+		if (vm.jit && !vm.batch) {
+			// compiled Decaf calls nest on the JVM stack
+			Thread t = new Thread(null, new Runnable() {
+
+				@Override
+				public void run() {
+					vm.run();
+				}
+
+			}, "tacvm", 1L << 30);
+			t.start();
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		} else {
+			vm.run();
+		}
 	}
 }
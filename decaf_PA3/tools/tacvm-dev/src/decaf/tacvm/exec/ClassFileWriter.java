@@ -0,0 +1,435 @@
+package decaf.tacvm.exec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough of a class file assembler for the JIT: one class with a
+ * default constructor and any number of methods. Classes are emitted with
+ * major version 49, so the verifier infers types itself and no StackMapTable
+ * has to be computed.
+ */
+final class ClassFileWriter {
+
+	static final int ACC_PUBLIC = 0x0001;
+
+	static final int ACC_FINAL = 0x0010;
+
+	static final int ACC_SUPER = 0x0020;
+
+	private static final int VERSION = 49;
+
+	// a subset of the JVM opcodes, named after the mnemonics
+	static final int ICONST_0 = 0x03;
+
+	static final int ICONST_1 = 0x04;
+
+	static final int BIPUSH = 0x10;
+
+	static final int SIPUSH = 0x11;
+
+	static final int LDC_W = 0x13;
+
+	static final int ILOAD = 0x15;
+
+	static final int ALOAD = 0x19;
+
+	static final int IALOAD = 0x2e;
+
+	static final int AALOAD = 0x32;
+
+	static final int ISTORE = 0x36;
+
+	static final int ASTORE = 0x3a;
+
+	static final int IASTORE = 0x4f;
+
+	static final int POP = 0x57;
+
+	static final int DUP = 0x59;
+
+	static final int IADD = 0x60;
+
+	static final int ISUB = 0x64;
+
+	static final int IMUL = 0x68;
+
+	static final int IDIV = 0x6c;
+
+	static final int IREM = 0x70;
+
+	static final int INEG = 0x74;
+
+	static final int IAND = 0x7e;
+
+	static final int IOR = 0x80;
+
+	static final int IFEQ = 0x99;
+
+	static final int IFNE = 0x9a;
+
+	static final int IF_ICMPEQ = 0x9f;
+
+	static final int IF_ICMPNE = 0xa0;
+
+	static final int IF_ICMPLT = 0xa1;
+
+	static final int IF_ICMPGE = 0xa2;
+
+	static final int IF_ICMPGT = 0xa3;
+
+	static final int IF_ICMPLE = 0xa4;
+
+	static final int GOTO = 0xa7;
+
+	static final int LOOKUPSWITCH = 0xab;
+
+	static final int RETURN = 0xb1;
+
+	static final int GETFIELD = 0xb4;
+
+	static final int PUTFIELD = 0xb5;
+
+	static final int INVOKEVIRTUAL = 0xb6;
+
+	static final int INVOKESPECIAL = 0xb7;
+
+	static final int INVOKESTATIC = 0xb8;
+
+	static final int NEW = 0xbb;
+
+	static final int ATHROW = 0xbf;
+
+	static final int IFNULL = 0xc6;
+
+	private final String name;
+
+	private final String superName;
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+
+	private final Map<String, Integer> poolIndex = new HashMap<String, Integer>();
+
+	private int poolCount = 1;
+
+	private final List<byte[]> methods = new ArrayList<byte[]>();
+
+	ClassFileWriter(String name, String superName) {
+		this.name = name;
+		this.superName = superName;
+		MethodWriter init = new MethodWriter(ACC_PUBLIC, "<init>", "()V", 1, 1);
+		init.load(ALOAD, 0);
+		init.invoke(INVOKESPECIAL, superName, "<init>", "()V");
+		init.op(RETURN);
+		init.finish();
+	}
+
+	private int constant(String key, int tag, int a, int b, String utf8) {
+		Integer index = poolIndex.get(key);
+		if (index != null) {
+			return index;
+		}
+		try {
+			pool.writeByte(tag);
+			if (utf8 != null) {
+				pool.writeUTF(utf8);
+			} else if (tag == 3) {
+				pool.writeInt(a);
+			} else if (tag == 7) {
+				pool.writeShort(a);
+			} else {
+				pool.writeShort(a);
+				pool.writeShort(b);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		poolIndex.put(key, poolCount);
+		return poolCount++;
+	}
+
+	int utf8(String s) {
+		return constant("U" + s, 1, 0, 0, s);
+	}
+
+	int integer(int value) {
+		return constant("I" + value, 3, value, 0, null);
+	}
+
+	int classRef(String internalName) {
+		int n = utf8(internalName);
+		return constant("C" + internalName, 7, n, 0, null);
+	}
+
+	private int nameAndType(String name, String desc) {
+		int n = utf8(name);
+		int d = utf8(desc);
+		return constant("N" + name + ":" + desc, 12, n, d, null);
+	}
+
+	int fieldRef(String owner, String name, String desc) {
+		int c = classRef(owner);
+		int nt = nameAndType(name, desc);
+		return constant("F" + owner + "." + name + ":" + desc, 9, c, nt, null);
+	}
+
+	int methodRef(String owner, String name, String desc) {
+		int c = classRef(owner);
+		int nt = nameAndType(name, desc);
+		return constant("M" + owner + "." + name + ":" + desc, 10, c, nt, null);
+	}
+
+	MethodWriter method(int access, String name, String desc, int maxStack,
+			int maxLocals) {
+		return new MethodWriter(access, name, desc, maxStack, maxLocals);
+	}
+
+	byte[] toByteArray() {
+		int thisIndex = classRef(name);
+		int superIndex = classRef(superName);
+		int codeIndex = utf8("Code");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(poolCount);
+			pool.flush();
+			poolBytes.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisIndex);
+			out.writeShort(superIndex);
+			out.writeShort(0); // interfaces
+			out.writeShort(0); // fields
+			out.writeShort(methods.size());
+			for (byte[] m : methods) {
+				// patch the index of the "Code" attribute name
+				m[8] = (byte) (codeIndex >> 8);
+				m[9] = (byte) codeIndex;
+				out.write(m);
+			}
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	static final class Label {
+		private int position = -1;
+
+		private final List<int[]> fixups = new ArrayList<int[]>();
+	}
+
+	final class MethodWriter {
+
+		private final int access;
+
+		private final String name;
+
+		private final String desc;
+
+		private final int maxStack;
+
+		private final int maxLocals;
+
+		private byte[] code = new byte[256];
+
+		private int length = 0;
+
+		private final List<int[]> handlers = new ArrayList<int[]>();
+
+		private final List<Label[]> handlerLabels = new ArrayList<Label[]>();
+
+		private final List<Label> referenced = new ArrayList<Label>();
+
+		private MethodWriter(int access, String name, String desc,
+				int maxStack, int maxLocals) {
+			this.access = access;
+			this.name = name;
+			this.desc = desc;
+			this.maxStack = maxStack;
+			this.maxLocals = maxLocals;
+		}
+
+		int length() {
+			return length;
+		}
+
+		private void put(int b) {
+			if (length == code.length) {
+				code = Arrays.copyOf(code, code.length * 2);
+			}
+			code[length++] = (byte) b;
+		}
+
+		private void put2(int s) {
+			put(s >> 8);
+			put(s);
+		}
+
+		private void put4(int i) {
+			put2(i >> 16);
+			put2(i);
+		}
+
+		void op(int opcode) {
+			put(opcode);
+		}
+
+		void pushInt(int value) {
+			if (value >= -1 && value <= 5) {
+				put(ICONST_0 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				put(BIPUSH);
+				put(value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				put(SIPUSH);
+				put2(value);
+			} else {
+				put(LDC_W);
+				put2(integer(value));
+			}
+		}
+
+		void load(int opcode, int local) {
+			put(opcode);
+			put(local);
+		}
+
+		void store(int opcode, int local) {
+			put(opcode);
+			put(local);
+		}
+
+		void field(int opcode, String owner, String name, String desc) {
+			put(opcode);
+			put2(fieldRef(owner, name, desc));
+		}
+
+		void invoke(int opcode, String owner, String name, String desc) {
+			put(opcode);
+			put2(methodRef(owner, name, desc));
+		}
+
+		void type(int opcode, String internalName) {
+			put(opcode);
+			put2(classRef(internalName));
+		}
+
+		void mark(Label label) {
+			label.position = length;
+		}
+
+		private void offset16(Label label, int base) {
+			referenced.add(label);
+			label.fixups.add(new int[] { length, base, 2 });
+			put2(0);
+		}
+
+		private void offset32(Label label, int base) {
+			referenced.add(label);
+			label.fixups.add(new int[] { length, base, 4 });
+			put4(0);
+		}
+
+		void jump(int opcode, Label label) {
+			int base = length;
+			put(opcode);
+			offset16(label, base);
+		}
+
+		void lookupSwitch(int[] keys, Label[] targets, Label dflt) {
+			int base = length;
+			put(LOOKUPSWITCH);
+			while (length % 4 != 0) {
+				put(0);
+			}
+			offset32(dflt, base);
+			put4(keys.length);
+			// keys must be sorted
+			Integer[] order = new Integer[keys.length];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (x, y) -> Integer.compare(keys[x],
+					keys[y]));
+			for (int i : order) {
+				put4(keys[i]);
+				offset32(targets[i], base);
+			}
+		}
+
+		/**
+		 * Any Throwable raised in [start, end) is passed to handler.
+		 */
+		void tryCatch(Label start, Label end, Label handler) {
+			handlerLabels.add(new Label[] { start, end, handler });
+		}
+
+		void finish() {
+			resolve();
+			for (Label[] h : handlerLabels) {
+				if (h[0].position != h[1].position) {
+					handlers.add(new int[] { h[0].position, h[1].position,
+							h[2].position });
+				}
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			try {
+				out.writeShort(access);
+				out.writeShort(utf8(name));
+				out.writeShort(utf8(desc));
+				out.writeShort(1); // attributes
+				out.writeShort(0); // Code, patched in toByteArray
+				out.writeInt(12 + length + 8 * handlers.size());
+				out.writeShort(maxStack);
+				out.writeShort(maxLocals);
+				out.writeInt(length);
+				out.write(code, 0, length);
+				out.writeShort(handlers.size());
+				for (int[] h : handlers) {
+					out.writeShort(h[0]);
+					out.writeShort(h[1]);
+					out.writeShort(h[2]);
+					out.writeShort(0); // catch any
+				}
+				out.writeShort(0); // attributes
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			methods.add(bytes.toByteArray());
+		}
+
+		private void resolve() {
+			for (Label label : referenced) {
+				for (int[] f : label.fixups) {
+					int offset = label.position - f[1];
+					if (f[2] == 2) {
+						if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+							throw new IllegalStateException("branch too far");
+						}
+						code[f[0]] = (byte) (offset >> 8);
+						code[f[0] + 1] = (byte) offset;
+					} else {
+						code[f[0]] = (byte) (offset >> 24);
+						code[f[0] + 1] = (byte) (offset >> 16);
+						code[f[0] + 2] = (byte) (offset >> 8);
+						code[f[0] + 3] = (byte) offset;
+					}
+				}
+				label.fixups.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package decaf.tacvm.exec;
+
+import decaf.tacvm.Opcode;
+
+/**
+ * Pre-decoded instruction stream. Every instruction takes WIDTH ints: the
+ * opcode followed by its three operands, where stack operands are already
+ * turned into word slots relative to fp.
+ */
+final class Code {
+
+	static final int WIDTH = 4;
+
+	static final int ASSIGN = 0;
+
+	static final int ADD = 1;
+
+	static final int SUB = 2;
+
+	static final int MUL = 3;
+
+	static final int DIV = 4;
+
+	static final int MOD = 5;
+
+	static final int EQU = 6;
+
+	static final int NEQ = 7;
+
+	static final int LES = 8;
+
+	static final int LEQ = 9;
+
+	static final int GTR = 10;
+
+	static final int GEQ = 11;
+
+	static final int NEG = 12;
+
+	static final int LAND = 13;
+
+	static final int LOR = 14;
+
+	static final int LNOT = 15;
+
+	static final int BRANCH = 16;
+
+	static final int BEQZ = 17;
+
+	static final int BNEZ = 18;
+
+	static final int LIB_CALL = 19;
+
+	static final int DIRECT_CALL = 20;
+
+	static final int INDIRECT_CALL = 21;
+
+	static final int RETURN = 22;
+
+	static final int LOAD = 23;
+
+	static final int STORE = 24;
+
+	static final int LOAD_VTBL = 25;
+
+	static final int LOAD_IMM4 = 26;
+
+	static final int LOAD_STR = 27;
+
+	static final int ENTER_FUNC = 28;
+
+	static final int LEAVE_FUNC = 29;
+
+	static final int MOVE_FROM_RV = 30;
+
+	static final int PARM = 31;
+
+	// a LOAD of a method address that feeds an INDIRECT_CALL
+	static final int LOAD_METHOD = 32;
+
+	/*
+	 * Superinstructions. Each one stands in the slot of the first
+	 * instruction of a pair and runs both, the slot of the second one keeps
+	 * its own code for anything that branches to it.
+	 */
+
+	// LOAD_IMM4 t, k + ADD d, x, t (or d, t, x): c holds x
+	static final int ADD_IMM = 33;
+
+	// LOAD_IMM4 t, k + SUB d, x, t: c holds x
+	static final int SUB_IMM = 34;
+
+	// LOAD_IMM4 t, k + MUL d, x, t (or d, t, x): c holds x
+	static final int MUL_IMM = 35;
+
+	// LES t, x, y + BNEZ t, label
+	static final int BLT = 36;
+
+	// LES t, x, y + BEQZ t, label
+	static final int BGE = 37;
+
+	// LOAD_METHOD t, o, offset + INDIRECT_CALL t
+	static final int CALL_VIRTUAL = 38;
+
+	static final String[] FUSED_NAMES = { "ADD_IMM", "SUB_IMM", "MUL_IMM",
+			"BLT", "BGE", "CALL_VIRTUAL" };
+
+	static {
+		// the numbering above must follow the declaration order of Opcode
+		if (Opcode.values().length != PARM + 1
+				|| Opcode.PARM.ordinal() != PARM) {
+			throw new AssertionError("Code out of sync with Opcode");
+		}
+	}
+
+	private Code() {
+	}
+
+	private static int slot(int offset) {
+		return offset / 4;
+	}
+
+	static int[] decode(Inst[] insts) {
+		int[] code = new int[insts.length * WIDTH];
+		for (int i = 0; i < insts.length; i++) {
+			Inst inst = insts[i];
+			int op = inst.opc.ordinal();
+			int a = inst.opr0, b = inst.opr1, c = inst.opr2;
+			switch (inst.opc) {
+			case ADD:
+			case SUB:
+			case MUL:
+			case DIV:
+			case MOD:
+			case EQU:
+			case NEQ:
+			case LES:
+			case LEQ:
+			case GTR:
+			case GEQ:
+			case LAND:
+			case LOR:
+				a = slot(a);
+				b = slot(b);
+				c = slot(c);
+				break;
+			case ASSIGN:
+			case NEG:
+			case LNOT:
+			case PARM:
+				a = slot(a);
+				b = slot(b);
+				break;
+			case LOAD:
+			case STORE:
+				// the memory offset (opr2) stays in bytes
+				a = slot(a);
+				b = slot(b);
+				break;
+			case BEQZ:
+			case BNEZ:
+			case INDIRECT_CALL:
+			case RETURN:
+			case MOVE_FROM_RV:
+			case LOAD_VTBL:
+			case LOAD_IMM4:
+			case LOAD_STR:
+				a = slot(a);
+				break;
+			default:
+				break;
+			}
+			int base = i * WIDTH;
+			code[base] = op;
+			code[base + 1] = a;
+			code[base + 2] = b;
+			code[base + 3] = c;
+		}
+		markMethodLoads(code);
+		return code;
+	}
+
+	/**
+	 * For every INDIRECT_CALL, find the instruction defining its target
+	 * within the same function. If it is a LOAD, turn it into LOAD_METHOD so
+	 * that the load is served by an inline cache. This is only a hint: a
+	 * LOAD_METHOD behaves exactly like a LOAD on any base.
+	 */
+	private static void markMethodLoads(int[] code) {
+		int n = code.length / WIDTH;
+		for (int j = 0; j < n; j++) {
+			if (code[j * WIDTH] != INDIRECT_CALL) {
+				continue;
+			}
+			int target = code[j * WIDTH + 1];
+			for (int k = j - 1; k >= 0; k--) {
+				int op = code[k * WIDTH];
+				if (op == ENTER_FUNC) {
+					break;
+				}
+				if (op == LOAD && code[k * WIDTH + 1] == target) {
+					code[k * WIDTH] = LOAD_METHOD;
+					break;
+				}
+				if (definesSlot(op) && code[k * WIDTH + 1] == target) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rewrite the first instruction of every pair that has a superinstruction.
+	 * Compare-and-branch is only fused on backward branches if backEdges is
+	 * set, as the interpreter has to show those to the JIT.
+	 *
+	 * @return how many pairs of each kind were fused, indexed by
+	 *         opcode - ADD_IMM
+	 */
+	static int[] fuse(int[] code, boolean backEdges) {
+		int[] fused = new int[FUSED_NAMES.length];
+		int n = code.length / WIDTH;
+		for (int j = 0; j + 1 < n; j++) {
+			int i = j * WIDTH;
+			int next = i + WIDTH;
+			int op = code[i];
+			int nextOp = code[next];
+			int t = code[i + 1];
+			int fusedOp = -1;
+			if (op == LOAD_IMM4) {
+				int x = code[next + 2], y = code[next + 3];
+				if (nextOp == ADD || nextOp == MUL) {
+					fusedOp = nextOp == ADD ? ADD_IMM : MUL_IMM;
+					if (y == t) {
+						code[i + 3] = x;
+					} else if (x == t) {
+						code[i + 3] = y;
+					} else {
+						fusedOp = -1;
+					}
+				} else if (nextOp == SUB && y == t) {
+					fusedOp = SUB_IMM;
+					code[i + 3] = x;
+				}
+			} else if (op == LES && code[next + 1] == t
+					&& (backEdges || code[next + 2] > j + 1)) {
+				if (nextOp == BNEZ) {
+					fusedOp = BLT;
+				} else if (nextOp == BEQZ) {
+					fusedOp = BGE;
+				}
+			} else if (op == LOAD_METHOD && nextOp == INDIRECT_CALL
+					&& code[next + 1] == t) {
+				fusedOp = CALL_VIRTUAL;
+			}
+			if (fusedOp >= 0) {
+				code[i] = fusedOp;
+				fused[fusedOp - ADD_IMM]++;
+			}
+		}
+		return fused;
+	}
+
+	private static boolean definesSlot(int op) {
+		switch (op) {
+		case BRANCH:
+		case BEQZ:
+		case BNEZ:
+		case LIB_CALL:
+		case DIRECT_CALL:
+		case INDIRECT_CALL:
+		case RETURN:
+		case STORE:
+		case ENTER_FUNC:
+		case LEAVE_FUNC:
+		case PARM:
+			return false;
+		default:
+			return true;
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package decaf.tacvm.exec;
+
+/**
+ * A TAC function translated into JVM bytecode by {@link Jit}.
+ */
+abstract class CompiledFunction {
+
+	/**
+	 * Run the function until its LEAVE_FUNC. If entry is the index of the
+	 * ENTER_FUNC the frame is built here, otherwise entry is the target of a
+	 * backward branch and the interpreter has already built the frame (on
+	 * stack replacement).
+	 */
+	abstract void run(Executor vm, int entry);
+}
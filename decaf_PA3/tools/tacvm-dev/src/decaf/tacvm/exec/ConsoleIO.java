@@ -0,0 +1,266 @@
+package decaf.tacvm.exec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Buffered program I/O shared by all the intrinsics of one VM.
+ *
+ * _ReadInteger and _ReadLine read from the same input buffer, so input typed
+ * ahead of a read is never lost, and integers are parsed straight from the
+ * buffered bytes. Printed values are appended to an output buffer which is
+ * written out when it fills up, before the program blocks for input and when
+ * the VM stops.
+ */
+public final class ConsoleIO {
+
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	// Room for the longest int, "-2147483648"
+	private static final int MIN_OUTPUT_SIZE = 16;
+
+	private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+
+	private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+	private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+
+	private final InputStream in;
+
+	private final OutputStream out;
+
+	private final byte[] inBuf;
+
+	private int inPos = 0;
+
+	private int inLimit = 0;
+
+	private boolean eof = false;
+
+	private final byte[] outBuf;
+
+	private int outPos = 0;
+
+	// Flush after every print instead of when the buffer is full
+	private final boolean autoFlush;
+
+	private byte[] lineBuf = new byte[80];
+
+	// Encoded string table entries, filled in on first print
+	private byte[][] encoded = new byte[64][];
+
+	/**
+	 * @param bufferSize
+	 *            size in bytes of the input and output buffers; 0 reads the
+	 *            input a byte at a time and flushes after every print
+	 */
+	public ConsoleIO(InputStream in, OutputStream out, int bufferSize) {
+		this.in = in;
+		this.out = out;
+		autoFlush = bufferSize <= 0;
+		inBuf = new byte[Math.max(bufferSize, 1)];
+		outBuf = new byte[Math.max(bufferSize, MIN_OUTPUT_SIZE)];
+	}
+
+	private boolean fill() {
+		if (eof) {
+			return false;
+		}
+		// whatever the program printed so far is probably a prompt
+		flush();
+		try {
+			int n = in.read(inBuf, 0, inBuf.length);
+			if (n <= 0) {
+				eof = true;
+				return false;
+			}
+			inPos = 0;
+			inLimit = n;
+			return true;
+		} catch (IOException e) {
+			throw new ExecuteException(e);
+		}
+	}
+
+	private static boolean isSpace(int c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f'
+				|| c == 0x0b || (c >= 0x1c && c <= 0x1f);
+	}
+
+	/**
+	 * Read the next whitespace separated token as an int, with the same
+	 * outcome as Scanner.nextInt() on a decimal token.
+	 */
+	public int readInt() {
+		for (;;) {
+			if (inPos == inLimit && !fill()) {
+				throw new NoSuchElementException();
+			}
+			if (!isSpace(inBuf[inPos])) {
+				break;
+			}
+			inPos++;
+		}
+		boolean negative = false;
+		boolean valid = true;
+		int digits = 0;
+		int value = 0;
+		// accumulated negatively so that Integer.MIN_VALUE fits
+		int first = inBuf[inPos];
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			inPos++;
+		}
+		while (inPos < inLimit || fill()) {
+			int c = inBuf[inPos];
+			if (isSpace(c)) {
+				break;
+			}
+			inPos++;
+			if (c < '0' || c > '9') {
+				valid = false;
+				continue;
+			}
+			digits++;
+			int d = c - '0';
+			if (value < (Integer.MIN_VALUE + d) / 10) {
+				valid = false;
+			} else {
+				value = value * 10 - d;
+			}
+		}
+		if (!valid || digits == 0 || (!negative && value == Integer.MIN_VALUE)) {
+			throw new InputMismatchException();
+		}
+		return negative ? value : -value;
+	}
+
+	/**
+	 * Read up to the next "\n", "\r" or "\r\n", like BufferedReader.readLine().
+	 *
+	 * @return the line without its terminator, or null at end of input
+	 */
+	public String readLine() {
+		if (inPos == inLimit && !fill()) {
+			return null;
+		}
+		int length = 0;
+		while (inPos < inLimit || fill()) {
+			byte c = inBuf[inPos++];
+			if (c == '\n') {
+				break;
+			}
+			if (c == '\r') {
+				if ((inPos < inLimit || fill()) && inBuf[inPos] == '\n') {
+					inPos++;
+				}
+				break;
+			}
+			if (length == lineBuf.length) {
+				lineBuf = Arrays.copyOf(lineBuf, length * 2);
+			}
+			lineBuf[length++] = c;
+		}
+		return new String(lineBuf, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private void ensureRoom(int n) {
+		if (outPos + n > outBuf.length) {
+			writeOut();
+		}
+	}
+
+	private void printed() {
+		if (autoFlush) {
+			flush();
+		}
+	}
+
+	private void write(byte[] bytes) {
+		if (bytes.length > outBuf.length) {
+			writeOut();
+			try {
+				out.write(bytes);
+			} catch (IOException e) {
+				throw new ExecuteException(e);
+			}
+		} else {
+			ensureRoom(bytes.length);
+			System.arraycopy(bytes, 0, outBuf, outPos, bytes.length);
+			outPos += bytes.length;
+		}
+		printed();
+	}
+
+	public void printBool(boolean b) {
+		write(b ? TRUE : FALSE);
+	}
+
+	public void printInt(int value) {
+		ensureRoom(MIN_OUTPUT_SIZE);
+		// digits are produced from the right, negated to cover MIN_VALUE
+		int v = value < 0 ? value : -value;
+		int end = outPos + 11;
+		int p = end;
+		do {
+			outBuf[--p] = (byte) ('0' - v % 10);
+			v /= 10;
+		} while (v != 0);
+		if (value < 0) {
+			outBuf[--p] = '-';
+		}
+		int n = end - p;
+		System.arraycopy(outBuf, p, outBuf, outPos, n);
+		outPos += n;
+		printed();
+	}
+
+	/**
+	 * Print entry index of the string table. Entries never change once
+	 * added, so each one is encoded at most once.
+	 */
+	public void printString(List<String> stringTable, int index) {
+		String s = stringTable.get(index);
+		if (s == null) {
+			write(NULL);
+			return;
+		}
+		if (index >= encoded.length) {
+			encoded = Arrays.copyOf(encoded, Math.max(encoded.length * 2,
+					index + 1));
+		}
+		byte[] bytes = encoded[index];
+		if (bytes == null) {
+			bytes = s.getBytes(StandardCharsets.UTF_8);
+			encoded[index] = bytes;
+		}
+		write(bytes);
+	}
+
+	private void writeOut() {
+		if (outPos > 0) {
+			try {
+				out.write(outBuf, 0, outPos);
+			} catch (IOException e) {
+				throw new ExecuteException(e);
+			} finally {
+				outPos = 0;
+			}
+		}
+	}
+
+	public void flush() {
+		writeOut();
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new ExecuteException(e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package decaf.tacvm.exec;
+
+/**
+ * How a run of a TAC program ended.
+ */
+public final class ExecutionResult {
+
+	public enum Status {
+		// main returned
+		EXITED,
+		// the program called _Halt
+		HALTED,
+		// a runtime error, such as a bad memory access
+		ERROR,
+		// the VM itself failed
+		CRASH,
+		// the instruction limit was exceeded
+		DEAD_LOOP
+	}
+
+	private final Status status;
+
+	private final String message;
+
+	private final long instructions;
+
+	private final long elapsedNanos;
+
+	ExecutionResult(Status status, String message, long instructions,
+			long elapsedNanos) {
+		this.status = status;
+		this.message = message;
+		this.instructions = instructions;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * The first line of the error report, null if the program stopped
+	 * normally.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Instructions executed, as counted against the instruction limit.
+	 */
+	public long getInstructions() {
+		return instructions;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return message != null ? status + ": " + message : status.toString();
+	}
+}
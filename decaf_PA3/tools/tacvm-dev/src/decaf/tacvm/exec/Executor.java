@@ -1,12 +1,10 @@
 package decaf.tacvm.exec;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
 
 import decaf.tacvm.parser.Tac;
 
@@ -56,36 +54,28 @@ public final class Executor {
 
 		private void _Halt() {
 //			printStackTrace();
-			System.exit(0);
+			halt(ExecutionResult.Status.HALTED, null);
 		}
 
 		private void _PrintBool() {
-			System.out.print(stack[sp + 1] == 0 ? "false" : "true");
+			io.printBool(stack[sp + 1] != 0);
 		}
 
 		private void _PrintInt() {
-			System.out.print(stack[sp + 1]);
+			io.printInt(stack[sp + 1]);
 		}
 
 		private void _PrintString() {
-			System.out.print(stringTable.get(stack[sp + 1]));
+			io.printString(stringTable, stack[sp + 1]);
 		}
 
 		private int _ReadInteger() {
-			Scanner scanner = new Scanner(System.in);
-			return scanner.nextInt();
+			return io.readInt();
 		}
 
 		private int _ReadLine() {
-			BufferedReader br = new BufferedReader(new InputStreamReader(
-					System.in));
-			try {
-				String s = br.readLine();
-				stringTable.add(s);
-				return stringTable.size() - 1;
-			} catch (IOException e) {
-				throw new ExecuteException(e);
-			}
+			stringTable.add(io.readLine());
+			return stringTable.size() - 1;
 		}
 
 		private int _StringEqual() {
@@ -99,52 +89,172 @@ public final class Executor {
 
 	private int enterPoint;
 
-	private Memory memory;
+	Memory memory;
 
-	private Intrinsic intrinsic;
+	Intrinsic intrinsic;
 
 	private List<String> stringTable;
 
+	private ConsoleIO io;
+
+	private int ioBufferSize = ConsoleIO.DEFAULT_BUFFER_SIZE;
+
+	private String profilePrefix;
+
+	Profiler profiler;
+
 	private static final int DEFAULT_STACK_SIZE = 1024 * 1024;
 
-	private int fp = DEFAULT_STACK_SIZE - 1;
+	int fp = DEFAULT_STACK_SIZE - 1;
 
-	private int sp = DEFAULT_STACK_SIZE - 1;
+	int sp = DEFAULT_STACK_SIZE - 1;
 
-	private int ra = -1;
+	int ra = -1;
 
 	private int pc;
 
-	private int rv = -1;
+	int rv = -1;
 
-	private int[] stack = new int[DEFAULT_STACK_SIZE];
+	int[] stack = new int[DEFAULT_STACK_SIZE];
 
 	private int maxRunInsts = 100000;
 
+	private int[] code;
+
+	private boolean threaded = true;
+
+	private boolean fusion = false;
+
+	// number of pairs turned into each superinstruction
+	private int[] fused;
+
+	private boolean gcEnabled = true;
+
+	private int maxHeapSize = Memory.DEFAULT_MAX_HEAP_SIZE;
+
+	private int gcTrigger = Memory.DEFAULT_GC_TRIGGER;
+
+	private boolean stats = false;
+
+	private long startNanos;
+
+	private boolean jitEnabled = false;
+
+	private int jitCallThreshold = Jit.DEFAULT_CALL_THRESHOLD;
+
+	private int jitBackEdgeThreshold = Jit.DEFAULT_BACKEDGE_THRESHOLD;
+
+	Jit jit;
+
+	InlineCache inlineCache;
+
+	private int instCount;
+
+	private InputStream in = System.in;
+
+	private PrintStream out = System.out;
+
+	private PrintStream err = System.err;
+
+	/**
+	 * Streams of the program's console and of the VM's own reports, the
+	 * process streams by default.
+	 */
+	public void setStreams(InputStream in, PrintStream out, PrintStream err) {
+		this.in = in;
+		this.out = out;
+		this.err = err;
+	}
+
 	public void setMaxRunInsts(int maxRunInsts) {
 		this.maxRunInsts = maxRunInsts;
 	}
 
+	/**
+	 * Choose between the pre-decoded engine (default) and the original switch
+	 * interpreter over Inst objects.
+	 */
+	public void setThreaded(boolean threaded) {
+		this.threaded = threaded;
+	}
+
+	/**
+	 * Fuse frequent instruction pairs into superinstructions. Only affects
+	 * the pre-decoded engine, and is skipped while profiling. Off by default:
+	 * fewer dispatches do not always win against the way HotSpot lays out
+	 * the dispatch switch from its profile.
+	 */
+	public void setFusion(boolean fusion) {
+		this.fusion = fusion;
+	}
+
+	public void setGcEnabled(boolean gcEnabled) {
+		this.gcEnabled = gcEnabled;
+	}
+
+	public void setMaxHeapSize(int maxHeapSize) {
+		this.maxHeapSize = maxHeapSize;
+	}
+
+	public void setGcTrigger(int gcTrigger) {
+		this.gcTrigger = gcTrigger;
+	}
+
+	public void setStats(boolean stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Enable the JIT tier. Only takes effect with the pre-decoded engine.
+	 */
+	public void setJit(boolean jitEnabled) {
+		this.jitEnabled = jitEnabled;
+	}
+
+	public void setJitThresholds(int callThreshold, int backEdgeThreshold) {
+		this.jitCallThreshold = callThreshold;
+		this.jitBackEdgeThreshold = backEdgeThreshold;
+	}
+
+	/**
+	 * Size in bytes of the program's input and output buffers, 0 to flush
+	 * after every print.
+	 */
+	public void setIoBufferSize(int ioBufferSize) {
+		this.ioBufferSize = ioBufferSize;
+	}
+
+	/**
+	 * Profile the run and write prefix.prof and prefix.folded at exit, null
+	 * to turn profiling off. Profiled runs are never compiled by the JIT.
+	 */
+	public void setProfile(String prefix) {
+		this.profilePrefix = prefix;
+	}
+
 	private void checkStackAccess(int index) {
 		if (index >= stack.length) {
 			throw new ExecuteException("stack access index = " + index
 					+ " out of bounds");
 		}
 		if (index < 0) {
-			int[] newStack = new int[stack.length * 2];
-			System.arraycopy(stack, 0, newStack, stack.length, stack.length);
-			fp += stack.length;
-			sp += stack.length;
-			stack = newStack;
+			growStack();
 		}
 	}
 
-	public void init(List<String> stringTable, List<Tac> tacs, int[] vtable,
-			int enterPoint) {
-		memory = new Memory();
-		memory.setVTable(vtable);
-		this.stringTable = stringTable;
-		insts = new Inst[tacs.size()];
+	private void growStack() {
+		int[] newStack = new int[stack.length * 2];
+		System.arraycopy(stack, 0, newStack, stack.length, stack.length);
+		fp += stack.length;
+		sp += stack.length;
+		stack = newStack;
+	}
+
+	/**
+	 * Lower parsed tacs to the instructions the executor runs.
+	 */
+	public static Inst[] translate(List<Tac> tacs) {
+		Inst[] insts = new Inst[tacs.size()];
 		Iterator<Tac> iter = tacs.iterator();
 		for (int i = 0; iter.hasNext(); i++) {
 			Tac tac = iter.next();
@@ -162,16 +272,125 @@ public final class Executor {
 			insts[i].tac = tac.text;
 			insts[i].loc = tac.loc;
 		}
+		return insts;
+	}
+
+	public void init(List<String> stringTable, List<Tac> tacs, int[] vtable,
+			int enterPoint) {
+		init(stringTable, translate(tacs), vtable, enterPoint);
+	}
+
+	public void init(List<String> stringTable, Inst[] insts, int[] vtable,
+			int enterPoint) {
+		memory = new Memory();
+		memory.setVTable(vtable);
+		memory.setGcEnabled(gcEnabled);
+		memory.setMaxHeapSize(maxHeapSize);
+		memory.setGcTrigger(gcTrigger);
+		memory.setRootSet(new Memory.RootSet() {
+
+			@Override
+			public void scanRoots(Memory memory) {
+				// the live part of the stack grows down from its top to sp
+				for (int i = sp; i < stack.length; i++) {
+					memory.markValue(stack[i]);
+				}
+				memory.markValue(rv);
+			}
+
+		});
+		this.stringTable = stringTable;
+		io = new ConsoleIO(in, out, ioBufferSize);
+		this.insts = insts;
 		this.enterPoint = enterPoint;
 		this.intrinsic = new Intrinsic();
+		code = Code.decode(insts);
+		inlineCache = new InlineCache(insts);
+		if (profilePrefix != null) {
+			profiler = new Profiler(insts);
+		}
+		if (jitEnabled && threaded && profiler == null) {
+			jit = new Jit(insts, code);
+			jit.setCallThreshold(jitCallThreshold);
+			jit.setBackEdgeThreshold(jitBackEdgeThreshold);
+		}
+		if (fusion && threaded && profiler == null) {
+			// the JIT keeps translating from the plain code
+			code = code.clone();
+			fused = Code.fuse(code, jit == null);
+		}
 	}
 
-	public void exec() {
+	/**
+	 * Run the program until main returns or it stops on _Halt, an error or
+	 * the instruction limit. Output is flushed and statistics and the profile
+	 * are written in every case.
+	 */
+	public ExecutionResult exec() {
+		startNanos = System.nanoTime();
+		ExecutionResult.Status status = ExecutionResult.Status.EXITED;
+		String message = null;
+		try {
+			if (threaded) {
+				execDecoded();
+			} else {
+				execSwitch();
+			}
+		} catch (Halt h) {
+			status = h.status;
+			message = h.getMessage();
+		}
+		io.flush();
+		printStats();
+		finishProfile();
+		return new ExecutionResult(status, message, instCount,
+				System.nanoTime() - startNanos);
+	}
+
+	private void printStats() {
+		if (stats) {
+			memory.printStats(err, System.nanoTime() - startNanos);
+			if (threaded) {
+				inlineCache.printStats(err);
+			}
+			if (fused != null) {
+				printFusionStats();
+			}
+			if (jit != null) {
+				jit.printStats(err);
+			}
+		}
+	}
+
+	private void printFusionStats() {
+		err.println("=== superinstructions ===");
+		int total = 0;
+		for (int i = 0; i < fused.length; i++) {
+			err.printf("%-13s %d%n", Code.FUSED_NAMES[i] + ":",
+					fused[i]);
+			total += fused[i];
+		}
+		err.printf("fused pairs:  %d of %d instructions%n", total,
+				insts.length);
+	}
+
+	private void finishProfile() {
+		if (profiler != null) {
+			profiler.finish(profilePrefix, err);
+		}
+	}
+
+	private void halt(ExecutionResult.Status status, String message) {
+		throw new Halt(status, message);
+	}
+
+	private void execSwitch() {
 		pc = enterPoint;
 		rv = -1;
 
 		int instCount = 0;
 		while (pc != -1) {
+			int index = pc;
 			Inst inst = insts[pc++];
 //			if (inst.loc.getLine() == 113) {
 //				System.out.println("haha");
@@ -180,6 +399,9 @@ public final class Executor {
 			try {
 				switch (inst.opc) {
 				case ENTER_FUNC:
+					if (profiler != null) {
+						profiler.enter(index, instCount);
+					}
 					checkStackAccess(sp - 1);
 					stack[sp] = fp;
 					stack[sp - 1] = ra;
@@ -191,6 +413,9 @@ public final class Executor {
 					ra = stack[fp - 1];
 					fp = stack[fp];
 					pc = ra;
+					if (profiler != null) {
+						profiler.leave(instCount + 1);
+					}
 					break;
 				case INDIRECT_CALL:
 					ra = pc;
@@ -347,67 +572,450 @@ public final class Executor {
 							+ inst.opr1 / 4], inst.opr2);
 					break;
 				default:
+					io.flush();
+					String message;
 					if (inst.loc != null) {
-						System.err.println("***Error at " + inst.loc
-								+ ", tac = " + inst.tac + ": unknown tac");
+						message = "***Error at " + inst.loc + ", tac = "
+								+ inst.tac + ": unknown tac";
 					} else {
-						System.err.println("***Error, tac = " + inst.tac
-								+ ": unknown tac");
+						message = "***Error, tac = " + inst.tac
+								+ ": unknown tac";
 					}
+					err.println(message);
 //					printStackTrace();
-					System.exit(0);
+					halt(ExecutionResult.Status.ERROR, message);
 				}
+			} catch (Halt h) {
+				this.instCount = instCount;
+				throw h;
 			} catch (ExecuteException e) {
-				e.printStackTrace();
-				if (inst.loc != null) {
-					System.err.println("***Error at " + inst.loc + ", tac = "
-							+ inst.tac + ": " + e.getMessage());
-				} else {
-					System.err.println("***Error, tac = " + inst.tac + ": "
-							+ e.getMessage());
-				}
-//				printStackTrace();
-				System.exit(0);
+				this.instCount = instCount;
+				reportError(inst, e);
 			} catch (Exception e) {
-				if (inst.loc != null) {
-					System.err.println("vm crash at " + inst.loc + ", tac = "
-							+ inst.tac);
-					System.err.println("Caused by:");
-					e.printStackTrace(System.err);
-				} else {
-					System.err.println("vm crash, tac = " + inst.tac);
-					System.err.println("Caused by:");
-					e.printStackTrace(System.err);
-				}
-//				printStackTrace();
-				System.exit(0);
+				this.instCount = instCount;
+				reportCrash(inst, e);
+			}
+			if (profiler != null) {
+				profiler.counts[index]++;
 			}
 			instCount++;
 			if (instCount > maxRunInsts) {
-				System.err
-						.println("***Error: program has been run for a long time(more than 10W instructions)");
-				System.err.println("please check if there is a dead loop");
-//				printStackTrace();
-				System.exit(0);
+				this.instCount = instCount;
+				reportDeadLoop();
+			}
+		}
+		this.instCount = instCount;
+	}
+
+	private void reportError(Inst inst, ExecuteException e) {
+		io.flush();
+		e.printStackTrace(err);
+		String message;
+		if (inst.loc != null) {
+			message = "***Error at " + inst.loc + ", tac = " + inst.tac
+					+ ": " + e.getMessage();
+		} else {
+			message = "***Error, tac = " + inst.tac + ": " + e.getMessage();
+		}
+		err.println(message);
+//		printStackTrace();
+		halt(ExecutionResult.Status.ERROR, message);
+	}
+
+	private void reportCrash(Inst inst, Throwable e) {
+		io.flush();
+		String message;
+		if (inst.loc != null) {
+			message = "vm crash at " + inst.loc + ", tac = " + inst.tac;
+		} else {
+			message = "vm crash, tac = " + inst.tac;
+		}
+		err.println(message);
+		err.println("Caused by:");
+		e.printStackTrace(err);
+//		printStackTrace();
+		halt(ExecutionResult.Status.CRASH, message);
+	}
+
+	private void reportDeadLoop() {
+		io.flush();
+		String message = "***Error: program has been run for a long time(more than 10W instructions)";
+		err.println(message);
+		err.println("please check if there is a dead loop");
+//		printStackTrace();
+		halt(ExecutionResult.Status.DEAD_LOOP, message);
+	}
+
+	private void execDecoded() {
+		rv = -1;
+		instCount = 0;
+		interpret(enterPoint);
+	}
+
+	/**
+	 * Same semantics as execSwitch, but runs over the pre-decoded int code
+	 * stream with the machine registers cached in locals. They are written
+	 * back to the fields whenever an intrinsic, compiled code or an error
+	 * handler may look at them.
+	 *
+	 * Runs the function at entry until it returns, so that compiled code can
+	 * call back into the interpreter. The return address must be in ra.
+	 */
+	void interpret(int entry) {
+		final int[] code = this.code;
+		final Jit jit = this.jit;
+		int[] stack = this.stack;
+		int fp = this.fp;
+		int sp = this.sp;
+		int ra = this.ra;
+		int pc = entry;
+		int cur = pc;
+		int instCount = this.instCount;
+		int limit = maxRunInsts;
+		final Profiler profiler = this.profiler;
+		// ENTER_FUNC at entry will make the current sp the frame pointer
+		final int exitFp = sp;
+
+		try {
+			while (pc != -1) {
+				cur = pc;
+				int i = pc * Code.WIDTH;
+				pc++;
+				switch (code[i]) {
+				case Code.ENTER_FUNC:
+					if (profiler != null) {
+						profiler.enter(cur, instCount);
+					}
+					if (sp - 1 < 0) {
+						this.fp = fp;
+						this.sp = sp;
+						growStack();
+						stack = this.stack;
+						fp = this.fp;
+						sp = this.sp;
+					}
+					stack[sp] = fp;
+					stack[sp - 1] = ra;
+					fp = sp;
+					sp -= code[i + 1];
+					while (sp < 0) {
+						this.fp = fp;
+						this.sp = sp;
+						growStack();
+						stack = this.stack;
+						fp = this.fp;
+						sp = this.sp;
+					}
+					break;
+				case Code.LEAVE_FUNC: {
+					boolean last = fp == exitFp;
+					sp = fp;
+					ra = stack[fp - 1];
+					fp = stack[fp];
+					pc = ra;
+					if (profiler != null) {
+						profiler.leave(instCount + 1);
+					}
+					if (last) {
+						if (profiler != null) {
+							profiler.counts[cur]++;
+						}
+						this.instCount = instCount + 1;
+						this.fp = fp;
+						this.sp = sp;
+						this.ra = ra;
+						return;
+					}
+					break;
+				}
+				case Code.CALL_VIRTUAL:
+				case Code.INDIRECT_CALL:
+				case Code.DIRECT_CALL:
+					if (code[i] == Code.CALL_VIRTUAL) {
+						stack[fp + code[i + 1]] = inlineCache.load(memory, cur,
+								stack[fp + code[i + 2]], code[i + 3]);
+						// go on with the INDIRECT_CALL in the next slot, the
+						// instruction limit is checked once it has run too
+						instCount++;
+						cur = pc++;
+						i += Code.WIDTH;
+					}
+					ra = pc;
+					pc = code[i] == Code.DIRECT_CALL ? code[i + 1]
+							: stack[fp + code[i + 1]];
+					if (jit != null) {
+						CompiledFunction f = jit.onCall(pc);
+						if (f != null) {
+							this.fp = fp;
+							this.sp = sp;
+							this.ra = ra;
+							this.instCount = instCount + 1;
+							f.run(this, pc);
+							stack = this.stack;
+							fp = this.fp;
+							sp = this.sp;
+							ra = this.ra;
+							instCount = this.instCount - 1;
+							pc = ra;
+						}
+					}
+					break;
+				case Code.LIB_CALL:
+					this.sp = sp;
+					this.fp = fp;
+					rv = intrinsic.callIntrinsic(code[i + 1]);
+					break;
+				case Code.MOVE_FROM_RV:
+					stack[fp + code[i + 1]] = rv;
+					break;
+				case Code.RETURN:
+					rv = stack[fp + code[i + 1]];
+					break;
+				case Code.ASSIGN:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]];
+					break;
+				case Code.ADD:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]]
+							+ stack[fp + code[i + 3]];
+					break;
+				case Code.SUB:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]]
+							- stack[fp + code[i + 3]];
+					break;
+				case Code.MUL:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]]
+							* stack[fp + code[i + 3]];
+					break;
+				case Code.DIV:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]]
+							/ stack[fp + code[i + 3]];
+					break;
+				case Code.MOD:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]]
+							% stack[fp + code[i + 3]];
+					break;
+				case Code.NEG:
+					stack[fp + code[i + 1]] = -stack[fp + code[i + 2]];
+					break;
+				case Code.GTR:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]] > stack[fp
+							+ code[i + 3]] ? 1 : 0;
+					break;
+				case Code.GEQ:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]] >= stack[fp
+							+ code[i + 3]] ? 1 : 0;
+					break;
+				case Code.EQU:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]] == stack[fp
+							+ code[i + 3]] ? 1 : 0;
+					break;
+				case Code.NEQ:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]] != stack[fp
+							+ code[i + 3]] ? 1 : 0;
+					break;
+				case Code.LEQ:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]] <= stack[fp
+							+ code[i + 3]] ? 1 : 0;
+					break;
+				case Code.LES:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]] < stack[fp
+							+ code[i + 3]] ? 1 : 0;
+					break;
+				case Code.LAND:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]]
+							& stack[fp + code[i + 3]];
+					break;
+				case Code.LOR:
+					stack[fp + code[i + 1]] = stack[fp + code[i + 2]]
+							| stack[fp + code[i + 3]];
+					break;
+				case Code.LNOT:
+					stack[fp + code[i + 1]] = 1 - stack[fp + code[i + 2]];
+					break;
+				case Code.PARM:
+					stack[sp + code[i + 2]] = stack[fp + code[i + 1]];
+					break;
+				case Code.LOAD_VTBL:
+				case Code.LOAD_IMM4:
+				case Code.LOAD_STR:
+					stack[fp + code[i + 1]] = code[i + 2];
+					break;
+				case Code.ADD_IMM: {
+					int k = code[i + 2];
+					stack[fp + code[i + 1]] = k;
+					instCount++;
+					cur = pc++;
+					stack[fp + code[i + Code.WIDTH + 1]] = stack[fp
+							+ code[i + 3]] + k;
+					break;
+				}
+				case Code.SUB_IMM: {
+					int k = code[i + 2];
+					stack[fp + code[i + 1]] = k;
+					instCount++;
+					cur = pc++;
+					stack[fp + code[i + Code.WIDTH + 1]] = stack[fp
+							+ code[i + 3]] - k;
+					break;
+				}
+				case Code.MUL_IMM: {
+					int k = code[i + 2];
+					stack[fp + code[i + 1]] = k;
+					instCount++;
+					cur = pc++;
+					stack[fp + code[i + Code.WIDTH + 1]] = stack[fp
+							+ code[i + 3]] * k;
+					break;
+				}
+				case Code.BLT:
+				case Code.BGE: {
+					boolean less = stack[fp + code[i + 2]] < stack[fp
+							+ code[i + 3]];
+					stack[fp + code[i + 1]] = less ? 1 : 0;
+					instCount++;
+					cur = pc++;
+					if (less == (code[i] == Code.BLT)) {
+						// only fused where the JIT will not look at the branch
+						pc = code[i + Code.WIDTH + 2];
+					}
+					break;
+				}
+				case Code.BRANCH:
+				case Code.BEQZ:
+				case Code.BNEZ: {
+					int target;
+					if (code[i] == Code.BRANCH) {
+						target = code[i + 1];
+					} else if ((stack[fp + code[i + 1]] == 0) == (code[i] == Code.BEQZ)) {
+						target = code[i + 2];
+					} else {
+						break;
+					}
+					if (target <= cur && jit != null) {
+						CompiledFunction f = jit.onBackEdge(cur, target);
+						if (f != null) {
+							// on stack replacement: finish this call compiled
+							boolean last = fp == exitFp;
+							this.fp = fp;
+							this.sp = sp;
+							this.ra = ra;
+							this.instCount = instCount + 1;
+							f.run(this, target);
+							if (last) {
+								return;
+							}
+							stack = this.stack;
+							fp = this.fp;
+							sp = this.sp;
+							ra = this.ra;
+							instCount = this.instCount - 1;
+							target = ra;
+						}
+					}
+					pc = target;
+					break;
+				}
+				case Code.LOAD:
+					stack[fp + code[i + 1]] = memory.load(stack[fp
+							+ code[i + 2]], code[i + 3]);
+					break;
+				case Code.LOAD_METHOD:
+					stack[fp + code[i + 1]] = inlineCache.load(memory, cur,
+							stack[fp + code[i + 2]], code[i + 3]);
+					break;
+				case Code.STORE:
+					memory.store(stack[fp + code[i + 1]], stack[fp
+							+ code[i + 2]], code[i + 3]);
+					break;
+				default:
+					throw new ExecuteException("unknown tac");
+				}
+				if (profiler != null) {
+					profiler.counts[cur]++;
+				}
+				if (++instCount > limit) {
+					reportDeadLoop();
+				}
 			}
+		} catch (Halt h) {
+			// compiled callees keep the count in the field, which is then
+			// ahead of the local one
+			this.instCount = Math.max(this.instCount, instCount);
+			throw h;
+		} catch (JitFault e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ExecuteException) {
+				reportError(insts[e.index], (ExecuteException) cause);
+			} else {
+				reportCrash(insts[e.index], cause);
+			}
+		} catch (ExecuteException e) {
+			this.fp = fp;
+			this.sp = sp;
+			this.instCount = Math.max(this.instCount, instCount);
+			reportError(insts[cur], e);
+		} catch (Exception e) {
+			this.fp = fp;
+			this.sp = sp;
+			this.instCount = Math.max(this.instCount, instCount);
+			reportCrash(insts[cur], e);
+		}
+		this.fp = fp;
+		this.sp = sp;
+		this.ra = ra;
+		this.instCount = instCount;
+	}
+
+	void jitEnter(int frameSize) {
+		checkStackAccess(sp - 1);
+		stack[sp] = fp;
+		stack[sp - 1] = ra;
+		fp = sp;
+		sp -= frameSize;
+		while (sp < 0) {
+			growStack();
+		}
+		jitCount(1);
+	}
+
+	void jitLeave() {
+		sp = fp;
+		ra = stack[fp - 1];
+		fp = stack[fp];
+	}
+
+	void jitCount(int n) {
+		instCount += n;
+		if (instCount > maxRunInsts) {
+			reportDeadLoop();
+		}
+	}
+
+	// a call from compiled code, ra already holds the return address
+	void jitCall(int target) {
+		CompiledFunction f = jit.onCall(target);
+		if (f != null) {
+			f.run(this, target);
+		} else {
+			interpret(target);
 		}
 	}
 
 	/*private void printStackTrace() {
 		int fp = this.fp;
-		System.err.println("stack trace:");
+		err.println("stack trace:");
 		Inst inst = insts[pc];
 		if (inst.loc != null) {
-			System.err.println("\t" + inst.loc + ", tac = " + inst.tac);
+			err.println("\t" + inst.loc + ", tac = " + inst.tac);
 		} else {
-			System.err.println("\ttac = " + inst.tac);
+			err.println("\ttac = " + inst.tac);
 		}
 		while (fp != stack.length - 1) {
 			inst = insts[stack[fp - 1] - 1];
 			if (inst.loc != null) {
-				System.err.println("\t" + inst.loc + ", tac = " + inst.tac);
+				err.println("\t" + inst.loc + ", tac = " + inst.tac);
 			} else {
-				System.err.println("\ttac = " + inst.tac);
+				err.println("\ttac = " + inst.tac);
 			}
 			fp = stack[fp];
 		}
@@ -415,7 +1023,7 @@ public final class Executor {
 	
 	public void dumpInsts() {
 		for (Inst inst : insts) {
-			System.out.println(inst);
+			out.println(inst);
 		}
 	}
 }
@@ -0,0 +1,18 @@
+package decaf.tacvm.exec;
+
+/**
+ * Unwinds a running program back to Executor.exec, through the interpreter
+ * and compiled code alike, once it has stopped for good.
+ */
+final class Halt extends RuntimeException {
+
+	private static final long serialVersionUID = -3141309616823417514L;
+
+	final ExecutionResult.Status status;
+
+	Halt(ExecutionResult.Status status, String message) {
+		// thrown once per run and never printed, no stack trace needed
+		super(message, null, false, false);
+		this.status = status;
+	}
+}
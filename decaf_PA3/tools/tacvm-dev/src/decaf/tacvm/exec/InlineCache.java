@@ -0,0 +1,103 @@
+package decaf.tacvm.exec;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Per call site inline caches for method address loads (LOAD_METHOD).
+ *
+ * A virtual call loads the method address from the receiver's vtable, and
+ * the vtable is identified by the (negative) tag stored in the object
+ * header. Vtables never change, so once a site has seen a tag, the loaded
+ * address can be replayed without going through Memory's vtable checks.
+ * Each site holds up to WAYS tags: one makes it monomorphic, more make it
+ * polymorphic. A site that sees more receivers than that is megamorphic and
+ * stops caching.
+ */
+final class InlineCache {
+
+	static final int WAYS = 4;
+
+	private final Inst[] insts;
+
+	// WAYS entries per instruction, an empty entry has tag 0
+	private final int[] tags;
+
+	private final int[] targets;
+
+	private final int[] sizes;
+
+	private final boolean[] megamorphic;
+
+	private final long[] hits;
+
+	private final long[] misses;
+
+	InlineCache(Inst[] insts) {
+		this.insts = insts;
+		tags = new int[insts.length * WAYS];
+		targets = new int[insts.length * WAYS];
+		sizes = new int[insts.length];
+		megamorphic = new boolean[insts.length];
+		hits = new long[insts.length];
+		misses = new long[insts.length];
+	}
+
+	int load(Memory memory, int site, int base, int offset) {
+		int first = site * WAYS;
+		int size = sizes[site];
+		for (int k = first; k < first + size; k++) {
+			if (tags[k] == base) {
+				hits[site]++;
+				return targets[k];
+			}
+		}
+		misses[site]++;
+		int result = memory.load(base, offset);
+		// only vtables are immutable, heap words must be reloaded every time
+		if (base < 0 && !megamorphic[site]) {
+			if (size < WAYS) {
+				tags[first + size] = base;
+				targets[first + size] = result;
+				sizes[site]++;
+			} else {
+				megamorphic[site] = true;
+			}
+		}
+		return result;
+	}
+
+	void printStats(PrintStream out) {
+		List<Integer> sites = new ArrayList<Integer>();
+		long totalHits = 0;
+		long totalMisses = 0;
+		for (int i = 0; i < insts.length; i++) {
+			if (hits[i] + misses[i] > 0) {
+				sites.add(i);
+				totalHits += hits[i];
+				totalMisses += misses[i];
+			}
+		}
+		Collections.sort(sites, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(hits[o2] + misses[o2], hits[o1]
+						+ misses[o1]);
+			}
+
+		});
+		out.println("=== inline caches ===");
+		out.println("call sites: " + sites.size() + ", hits: " + totalHits
+				+ ", misses: " + totalMisses);
+		for (int i : sites) {
+			String state = megamorphic[i] ? "mega" : sizes[i] > 1 ? "poly"
+					: "mono";
+			out.printf("%-10s %-5s hits %10d misses %6d  %s%n",
+					insts[i].loc, state, hits[i], misses[i], insts[i].tac);
+		}
+	}
+}
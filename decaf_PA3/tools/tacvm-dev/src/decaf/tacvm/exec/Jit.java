@@ -0,0 +1,519 @@
+package decaf.tacvm.exec;
+
+import static decaf.tacvm.exec.ClassFileWriter.*;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+
+import decaf.tacvm.exec.ClassFileWriter.Label;
+import decaf.tacvm.exec.ClassFileWriter.MethodWriter;
+
+/**
+ * Second execution tier. Counts calls and backward branches per function
+ * and, once a function gets hot, translates its TAC into a hidden JVM class
+ * so that HotSpot compiles it to native code.
+ *
+ * Compiled code keeps every temp in the VM stack, exactly where the
+ * interpreter keeps it, and goes through the same Memory and Intrinsic
+ * objects. That way the collector still finds all roots, and a function can
+ * be entered from or return to the interpreter at any call or backward
+ * branch.
+ */
+final class Jit {
+
+	public static final int DEFAULT_CALL_THRESHOLD = 1000;
+
+	public static final int DEFAULT_BACKEDGE_THRESHOLD = 10000;
+
+	// HotSpot refuses to compile huge methods, and branch offsets are 16 bit
+	private static final int MAX_CODE_LENGTH = 8000;
+
+	private static final String EXECUTOR = "decaf/tacvm/exec/Executor";
+
+	private static final String MEMORY = "decaf/tacvm/exec/Memory";
+
+	private static final String INTRINSIC = "decaf/tacvm/exec/Executor$Intrinsic";
+
+	private static final String COMPILED = "decaf/tacvm/exec/CompiledFunction";
+
+	private static final String CACHE = "decaf/tacvm/exec/InlineCache";
+
+	private static final String FAULT = "decaf/tacvm/exec/JitFault";
+
+	// locals of the generated run method
+	private static final int L_VM = 1;
+
+	private static final int L_ENTRY = 2;
+
+	private static final int L_STACK = 3;
+
+	private static final int L_FP = 4;
+
+	private static final int L_SP = 5;
+
+	private final Inst[] insts;
+
+	private final int[] code;
+
+	// for every instruction, the index of the ENTER_FUNC of its function
+	private final int[] funcOf;
+
+	private final int[] callCounts;
+
+	private final int[] backEdgeCounts;
+
+	private final boolean[] failed;
+
+	final CompiledFunction[] compiled;
+
+	private int callThreshold = DEFAULT_CALL_THRESHOLD;
+
+	private int backEdgeThreshold = DEFAULT_BACKEDGE_THRESHOLD;
+
+	private int compiledCount = 0;
+
+	private int failedCount = 0;
+
+	private int osrEntries = 0;
+
+	private long compileNanos = 0;
+
+	private int classCounter = 0;
+
+	Jit(Inst[] insts, int[] code) {
+		this.insts = insts;
+		this.code = code;
+		funcOf = new int[insts.length];
+		int func = 0;
+		for (int i = 0; i < insts.length; i++) {
+			if (code[i * Code.WIDTH] == Code.ENTER_FUNC) {
+				func = i;
+			}
+			funcOf[i] = func;
+		}
+		callCounts = new int[insts.length];
+		backEdgeCounts = new int[insts.length];
+		failed = new boolean[insts.length];
+		compiled = new CompiledFunction[insts.length];
+	}
+
+	void setCallThreshold(int callThreshold) {
+		this.callThreshold = callThreshold;
+	}
+
+	void setBackEdgeThreshold(int backEdgeThreshold) {
+		this.backEdgeThreshold = backEdgeThreshold;
+	}
+
+	/**
+	 * Called by the interpreter for every call. Returns the compiled callee
+	 * if there is one (possibly compiled just now), or null.
+	 */
+	CompiledFunction onCall(int target) {
+		CompiledFunction f = compiled[target];
+		if (f == null && !failed[target]
+				&& ++callCounts[target] >= callThreshold) {
+			f = compile(target);
+		}
+		return f;
+	}
+
+	/**
+	 * Called by the interpreter for every taken backward branch. Returns the
+	 * compiled function to continue in (at target) or null.
+	 */
+	CompiledFunction onBackEdge(int pc, int target) {
+		int func = funcOf[pc];
+		CompiledFunction f = compiled[func];
+		if (f == null && !failed[func]
+				&& ++backEdgeCounts[func] >= backEdgeThreshold) {
+			f = compile(func);
+		}
+		if (f != null) {
+			osrEntries++;
+		}
+		return f;
+	}
+
+	private CompiledFunction compile(int func) {
+		long begin = System.nanoTime();
+		CompiledFunction f = null;
+		try {
+			byte[] bytes = translate(func);
+			if (bytes != null) {
+				Class<?> c = MethodHandles.lookup()
+						.defineHiddenClass(bytes, true).lookupClass();
+				f = (CompiledFunction) c.getDeclaredConstructor()
+						.newInstance();
+			}
+		} catch (ReflectiveOperationException | LinkageError
+				| IllegalStateException e) {
+			f = null;
+		}
+		compileNanos += System.nanoTime() - begin;
+		if (f == null) {
+			failed[func] = true;
+			failedCount++;
+		} else {
+			compiled[func] = f;
+			compiledCount++;
+		}
+		return f;
+	}
+
+	void printStats(PrintStream out) {
+		out.println("=== jit ===");
+		out.println("compiled functions: " + compiledCount);
+		out.println("failed functions:   " + failedCount);
+		out.println("osr entries:        " + osrEntries);
+		out.printf("compile time:       %.3f ms%n", compileNanos / 1e6);
+	}
+
+	private int end(int func) {
+		int i = func + 1;
+		while (code[i * Code.WIDTH] != Code.LEAVE_FUNC) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isBranch(int op) {
+		return op == Code.BRANCH || op == Code.BEQZ || op == Code.BNEZ;
+	}
+
+	private static boolean isCall(int op) {
+		return op == Code.DIRECT_CALL || op == Code.INDIRECT_CALL
+				|| op == Code.LIB_CALL;
+	}
+
+	private int branchTarget(int i) {
+		int op = code[i * Code.WIDTH];
+		return op == Code.BRANCH ? code[i * Code.WIDTH + 1]
+				: code[i * Code.WIDTH + 2];
+	}
+
+	/**
+	 * Translate the function starting at func into a class file, or return
+	 * null if it is too large.
+	 */
+	private byte[] translate(int func) {
+		int last = end(func);
+		int first = func + 1;
+		int n = last - func + 1;
+
+		// basic block leaders and OSR entries
+		boolean[] leader = new boolean[n + 1];
+		List<Integer> osr = new ArrayList<Integer>();
+		leader[first - func] = true;
+		for (int i = first; i <= last; i++) {
+			int op = code[i * Code.WIDTH];
+			if (isBranch(op)) {
+				int t = branchTarget(i);
+				if (t < func || t > last) {
+					return null;
+				}
+				leader[t - func] = true;
+				leader[i + 1 - func] = true;
+				if (t <= i && !osr.contains(t)) {
+					osr.add(t);
+				}
+			} else if (isCall(op)) {
+				leader[i + 1 - func] = true;
+			}
+		}
+
+		String name = "decaf/tacvm/exec/Jit$F" + (classCounter++);
+		ClassFileWriter cw = new ClassFileWriter(name, COMPILED);
+		MethodWriter m = cw.method(0, "run", "(L" + EXECUTOR + ";I)V", 8, 6);
+
+		Label[] labels = new Label[n + 1];
+		for (int i = 0; i <= n; i++) {
+			labels[i] = new Label();
+		}
+		Label osrDispatch = new Label();
+		Label badEntry = new Label();
+		Label prologueEnd = new Label();
+		Label prologue = new Label();
+
+		// prologue: either build the frame or pick up the interpreter's
+		m.mark(prologue);
+		m.load(ILOAD, L_ENTRY);
+		m.pushInt(func);
+		m.jump(IF_ICMPNE, osrDispatch);
+		m.load(ALOAD, L_VM);
+		m.pushInt(code[func * Code.WIDTH + 1]);
+		m.invoke(INVOKEVIRTUAL, EXECUTOR, "jitEnter", "(I)V");
+		loadRegisters(m);
+		m.jump(GOTO, labels[first - func]);
+		m.mark(osrDispatch);
+		loadRegisters(m);
+		m.load(ILOAD, L_ENTRY);
+		int[] keys = new int[osr.size()];
+		Label[] targets = new Label[osr.size()];
+		for (int k = 0; k < keys.length; k++) {
+			keys[k] = osr.get(k);
+			targets[k] = labels[keys[k] - func];
+		}
+		m.lookupSwitch(keys, targets, badEntry);
+		m.mark(badEntry);
+		m.type(NEW, "java/lang/IllegalStateException");
+		m.op(DUP);
+		m.invoke(INVOKESPECIAL, "java/lang/IllegalStateException", "<init>",
+				"()V");
+		m.op(ATHROW);
+		m.mark(prologueEnd);
+
+		for (int i = first; i <= last; i++) {
+			m.mark(labels[i - func]);
+			if (leader[i - func]) {
+				int len = 1;
+				while (i + len <= last && !leader[i + len - func]) {
+					len++;
+				}
+				m.load(ALOAD, L_VM);
+				m.pushInt(len);
+				m.invoke(INVOKEVIRTUAL, EXECUTOR, "jitCount", "(I)V");
+			}
+			translate(m, i, labels, func);
+			if (m.length() > MAX_CODE_LENGTH) {
+				return null;
+			}
+		}
+		m.mark(labels[n]);
+
+		// every instruction gets a handler that tags what went wrong
+		m.tryCatch(prologue, prologueEnd, handler(m, func));
+		for (int i = first; i <= last; i++) {
+			m.tryCatch(labels[i - func], labels[i + 1 - func], handler(m, i));
+		}
+		m.finish();
+		return cw.toByteArray();
+	}
+
+	private Label handler(MethodWriter m, int index) {
+		Label h = new Label();
+		m.mark(h);
+		m.pushInt(index);
+		m.invoke(INVOKESTATIC, FAULT, "wrap",
+				"(Ljava/lang/Throwable;I)Ljava/lang/RuntimeException;");
+		m.op(ATHROW);
+		return h;
+	}
+
+	private void loadRegisters(MethodWriter m) {
+		m.load(ALOAD, L_VM);
+		m.field(GETFIELD, EXECUTOR, "stack", "[I");
+		m.store(ASTORE, L_STACK);
+		m.load(ALOAD, L_VM);
+		m.field(GETFIELD, EXECUTOR, "fp", "I");
+		m.store(ISTORE, L_FP);
+		m.load(ALOAD, L_VM);
+		m.field(GETFIELD, EXECUTOR, "sp", "I");
+		m.store(ISTORE, L_SP);
+	}
+
+	// push stack, fp + slot: the first half of an iastore into a temp
+	private void slotAddress(MethodWriter m, int slot) {
+		m.load(ALOAD, L_STACK);
+		m.load(ILOAD, L_FP);
+		m.pushInt(slot);
+		m.op(IADD);
+	}
+
+	private void loadSlot(MethodWriter m, int slot) {
+		slotAddress(m, slot);
+		m.op(IALOAD);
+	}
+
+	private void compare(MethodWriter m, int opcode) {
+		Label yes = new Label();
+		Label done = new Label();
+		m.jump(opcode, yes);
+		m.op(ICONST_0);
+		m.jump(GOTO, done);
+		m.mark(yes);
+		m.op(ICONST_1);
+		m.mark(done);
+	}
+
+	private void call(MethodWriter m, int i) {
+		m.load(ALOAD, L_VM);
+		m.pushInt(i + 1);
+		m.field(PUTFIELD, EXECUTOR, "ra", "I");
+	}
+
+	private void translate(MethodWriter m, int i, Label[] labels, int func) {
+		int base = i * Code.WIDTH;
+		int op = code[base];
+		int a = code[base + 1];
+		int b = code[base + 2];
+		int c = code[base + 3];
+		switch (op) {
+		case Code.ASSIGN:
+			slotAddress(m, a);
+			loadSlot(m, b);
+			m.op(IASTORE);
+			break;
+		case Code.ADD:
+		case Code.SUB:
+		case Code.MUL:
+		case Code.DIV:
+		case Code.MOD:
+		case Code.LAND:
+		case Code.LOR:
+			slotAddress(m, a);
+			loadSlot(m, b);
+			loadSlot(m, c);
+			m.op(op == Code.ADD ? IADD : op == Code.SUB ? ISUB
+					: op == Code.MUL ? IMUL : op == Code.DIV ? IDIV
+							: op == Code.MOD ? IREM : op == Code.LAND ? IAND
+									: IOR);
+			m.op(IASTORE);
+			break;
+		case Code.EQU:
+		case Code.NEQ:
+		case Code.LES:
+		case Code.LEQ:
+		case Code.GTR:
+		case Code.GEQ:
+			slotAddress(m, a);
+			loadSlot(m, b);
+			loadSlot(m, c);
+			compare(m, op == Code.EQU ? IF_ICMPEQ : op == Code.NEQ ? IF_ICMPNE
+					: op == Code.LES ? IF_ICMPLT : op == Code.LEQ ? IF_ICMPLE
+							: op == Code.GTR ? IF_ICMPGT : IF_ICMPGE);
+			m.op(IASTORE);
+			break;
+		case Code.NEG:
+			slotAddress(m, a);
+			loadSlot(m, b);
+			m.op(INEG);
+			m.op(IASTORE);
+			break;
+		case Code.LNOT:
+			slotAddress(m, a);
+			m.op(ICONST_1);
+			loadSlot(m, b);
+			m.op(ISUB);
+			m.op(IASTORE);
+			break;
+		case Code.PARM:
+			m.load(ALOAD, L_STACK);
+			m.load(ILOAD, L_SP);
+			m.pushInt(b);
+			m.op(IADD);
+			loadSlot(m, a);
+			m.op(IASTORE);
+			break;
+		case Code.LOAD_VTBL:
+		case Code.LOAD_IMM4:
+		case Code.LOAD_STR:
+			slotAddress(m, a);
+			m.pushInt(b);
+			m.op(IASTORE);
+			break;
+		case Code.BRANCH:
+			m.jump(GOTO, labels[a - func]);
+			break;
+		case Code.BEQZ:
+			loadSlot(m, a);
+			m.jump(IFEQ, labels[b - func]);
+			break;
+		case Code.BNEZ:
+			loadSlot(m, a);
+			m.jump(IFNE, labels[b - func]);
+			break;
+		case Code.LOAD:
+			slotAddress(m, a);
+			m.load(ALOAD, L_VM);
+			m.field(GETFIELD, EXECUTOR, "memory", "L" + MEMORY + ";");
+			loadSlot(m, b);
+			m.pushInt(c);
+			m.invoke(INVOKEVIRTUAL, MEMORY, "load", "(II)I");
+			m.op(IASTORE);
+			break;
+		case Code.LOAD_METHOD:
+			slotAddress(m, a);
+			m.load(ALOAD, L_VM);
+			m.field(GETFIELD, EXECUTOR, "inlineCache", "L" + CACHE + ";");
+			m.load(ALOAD, L_VM);
+			m.field(GETFIELD, EXECUTOR, "memory", "L" + MEMORY + ";");
+			m.pushInt(i);
+			loadSlot(m, b);
+			m.pushInt(c);
+			m.invoke(INVOKEVIRTUAL, CACHE, "load", "(L" + MEMORY + ";III)I");
+			m.op(IASTORE);
+			break;
+		case Code.STORE:
+			m.load(ALOAD, L_VM);
+			m.field(GETFIELD, EXECUTOR, "memory", "L" + MEMORY + ";");
+			loadSlot(m, a);
+			loadSlot(m, b);
+			m.pushInt(c);
+			m.invoke(INVOKEVIRTUAL, MEMORY, "store", "(III)V");
+			break;
+		case Code.LIB_CALL:
+			m.load(ALOAD, L_VM);
+			m.load(ALOAD, L_VM);
+			m.field(GETFIELD, EXECUTOR, "intrinsic", "L" + INTRINSIC + ";");
+			m.pushInt(a);
+			m.invoke(INVOKEVIRTUAL, INTRINSIC, "callIntrinsic", "(I)I");
+			m.field(PUTFIELD, EXECUTOR, "rv", "I");
+			break;
+		case Code.MOVE_FROM_RV:
+			slotAddress(m, a);
+			m.load(ALOAD, L_VM);
+			m.field(GETFIELD, EXECUTOR, "rv", "I");
+			m.op(IASTORE);
+			break;
+		case Code.RETURN:
+			m.load(ALOAD, L_VM);
+			loadSlot(m, a);
+			m.field(PUTFIELD, EXECUTOR, "rv", "I");
+			break;
+		case Code.DIRECT_CALL: {
+			// call the compiled callee directly when there is one
+			Label slow = new Label();
+			Label done = new Label();
+			call(m, i);
+			m.load(ALOAD, L_VM);
+			m.field(GETFIELD, EXECUTOR, "jit", "Ldecaf/tacvm/exec/Jit;");
+			m.field(GETFIELD, "decaf/tacvm/exec/Jit", "compiled", "[L"
+					+ COMPILED + ";");
+			m.pushInt(a);
+			m.op(AALOAD);
+			m.op(DUP);
+			m.jump(IFNULL, slow);
+			m.load(ALOAD, L_VM);
+			m.pushInt(a);
+			m.invoke(INVOKEVIRTUAL, COMPILED, "run", "(L" + EXECUTOR + ";I)V");
+			m.jump(GOTO, done);
+			m.mark(slow);
+			m.op(POP);
+			m.load(ALOAD, L_VM);
+			m.pushInt(a);
+			m.invoke(INVOKEVIRTUAL, EXECUTOR, "jitCall", "(I)V");
+			m.mark(done);
+			loadRegisters(m);
+			break;
+		}
+		case Code.INDIRECT_CALL:
+			call(m, i);
+			m.load(ALOAD, L_VM);
+			loadSlot(m, a);
+			m.invoke(INVOKEVIRTUAL, EXECUTOR, "jitCall", "(I)V");
+			loadRegisters(m);
+			break;
+		case Code.LEAVE_FUNC:
+			m.load(ALOAD, L_VM);
+			m.invoke(INVOKEVIRTUAL, EXECUTOR, "jitLeave", "()V");
+			m.op(ClassFileWriter.RETURN);
+			break;
+		default:
+			throw new IllegalStateException("cannot compile "
+					+ insts[i].opc);
+		}
+	}
+}
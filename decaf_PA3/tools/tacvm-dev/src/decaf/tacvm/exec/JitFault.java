@@ -0,0 +1,30 @@
+package decaf.tacvm.exec;
+
+/**
+ * Raised out of JIT-compiled code, carrying the index of the TAC instruction
+ * that failed so the error is reported exactly as the interpreter would.
+ */
+final class JitFault extends RuntimeException {
+
+	private static final long serialVersionUID = 4419210546316437702L;
+
+	final int index;
+
+	private JitFault(Throwable cause, int index) {
+		super(cause);
+		this.index = index;
+	}
+
+	// Called from the exception handlers of compiled code. The innermost
+	// compiled frame tags the exception, outer frames pass it on untouched,
+	// as they do with a Halt.
+	static RuntimeException wrap(Throwable cause, int index) {
+		if (cause instanceof JitFault) {
+			return (JitFault) cause;
+		}
+		if (cause instanceof Halt) {
+			return (Halt) cause;
+		}
+		return new JitFault(cause, index);
+	}
+}
@@ -1,44 +1,334 @@
 package decaf.tacvm.exec;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.PrintStream;
+import java.util.Arrays;
 
 public class Memory {
 
+	/**
+	 * Supplies the collector with every value the program can still reach
+	 * without going through the heap.
+	 */
+	public interface RootSet {
+		void scanRoots(Memory memory);
+	}
+
+	private static final int INITIAL_HEAP_SIZE = 1024;
+
+	private static final int INITIAL_BLOCK_COUNT = 64;
+
+	public static final int DEFAULT_MAX_HEAP_SIZE = 64 * 1024 * 1024;
+
+	public static final int DEFAULT_GC_TRIGGER = 4 * 1024 * 1024;
+
 	private int[] vtable;
 
+	// Top of the arena (in words), everything above it has never been used
 	private int currentSize = 0;
 
-	private static class Block implements Comparable<Block> {
+	// All blocks live in one arena, a heap address (in words) is the index
+	private int[] heap = new int[INITIAL_HEAP_SIZE];
 
-		public int start;
+	// For every word of the arena, the index of the block containing it, or
+	// -1 if the word is free
+	private int[] blockOf = new int[INITIAL_HEAP_SIZE];
 
-		public int[] mem;
+	private int[] blockStart = new int[INITIAL_BLOCK_COUNT];
 
-		@Override
-		public int compareTo(Block o) {
-			return start > o.start ? 1 : start == o.start ? 0 : -1;
-		}
-	}
+	private int[] blockEnd = new int[INITIAL_BLOCK_COUNT];
+
+	private boolean[] blockMarked = new boolean[INITIAL_BLOCK_COUNT];
+
+	private int blockCount = 0;
+
+	// Indices of block table entries released by the collector
+	private int[] freeBlockIds = new int[INITIAL_BLOCK_COUNT];
+
+	private int freeBlockIdCount = 0;
+
+	// Free chunks below currentSize, as [start, end) word ranges
+	private int[] freeStart = new int[INITIAL_BLOCK_COUNT];
+
+	private int[] freeEnd = new int[INITIAL_BLOCK_COUNT];
+
+	private int freeCount = 0;
+
+	// Upper bound of the largest free chunk
+	private int maxFreeChunk = 0;
+
+	private int freeRover = 0;
+
+	private RootSet roots;
+
+	private boolean gcEnabled = true;
+
+	private int maxHeapWords = DEFAULT_MAX_HEAP_SIZE / 4;
 
-	private List<Block> heap = new ArrayList<Block>();
+	private int gcTriggerWords = DEFAULT_GC_TRIGGER / 4;
+
+	private int allocatedSinceGc = 0;
+
+	private int[] markStack = new int[INITIAL_BLOCK_COUNT];
+
+	private int markStackTop = 0;
+
+	private int liveWords = 0;
+
+	private int collections = 0;
+
+	private long totalPauseNanos = 0;
+
+	private long maxPauseNanos = 0;
+
+	private long allocatedWords = 0;
+
+	private long freedWords = 0;
+
+	private int peakLiveWords = 0;
 
 	public void setVTable(int[] vtable) {
 		this.vtable = vtable;
 	}
 
+	public void setRootSet(RootSet roots) {
+		this.roots = roots;
+	}
+
+	public void setGcEnabled(boolean gcEnabled) {
+		this.gcEnabled = gcEnabled;
+	}
+
+	public void setMaxHeapSize(int bytes) {
+		maxHeapWords = bytes / 4;
+	}
+
+	public void setGcTrigger(int bytes) {
+		gcTriggerWords = bytes / 4;
+	}
+
+	private void ensureHeapCapacity(int size) {
+		if (size > heap.length) {
+			int newLength = heap.length;
+			while (newLength < size) {
+				newLength *= 2;
+			}
+			heap = Arrays.copyOf(heap, newLength);
+			blockOf = Arrays.copyOf(blockOf, newLength);
+		}
+	}
+
+	private int newBlockId() {
+		if (freeBlockIdCount > 0) {
+			return freeBlockIds[--freeBlockIdCount];
+		}
+		if (blockCount == blockStart.length) {
+			int newLength = blockStart.length * 2;
+			blockStart = Arrays.copyOf(blockStart, newLength);
+			blockEnd = Arrays.copyOf(blockEnd, newLength);
+			blockMarked = Arrays.copyOf(blockMarked, newLength);
+		}
+		return blockCount++;
+	}
+
 	public int alloc(int size) {
 		if (size < 0 || size % 4 != 0) {
 			throw new ExecuteException("bad alloc size = " + size);
 		}
 		size /= 4;
-		Block block = new Block();
-		block.start = currentSize;
-		currentSize += size;
-		block.mem = new int[size];
-		heap.add(block);
-		return block.start * 4;
+		if (size == 0) {
+			return currentSize * 4;
+		}
+		if (gcEnabled && roots != null
+				&& allocatedSinceGc + size > gcTriggerWords) {
+			collect();
+		}
+		int start = takeFreeChunk(size);
+		if (start < 0) {
+			if (currentSize + size > maxHeapWords && gcEnabled
+					&& roots != null && allocatedSinceGc > 0) {
+				collect();
+				start = takeFreeChunk(size);
+			}
+			if (start < 0) {
+				if (currentSize + size > maxHeapWords) {
+					throw new ExecuteException("out of memory, alloc size = "
+							+ size * 4 + " live = " + liveWords * 4);
+				}
+				start = currentSize;
+				ensureHeapCapacity(start + size);
+				currentSize += size;
+			}
+		}
+		int id = newBlockId();
+		blockStart[id] = start;
+		blockEnd[id] = start + size;
+		blockMarked[id] = false;
+		Arrays.fill(blockOf, start, start + size, id);
+		Arrays.fill(heap, start, start + size, 0);
+		allocatedSinceGc += size;
+		allocatedWords += size;
+		liveWords += size;
+		if (liveWords > peakLiveWords) {
+			peakLiveWords = liveWords;
+		}
+		return start * 4;
+	}
+
+	/**
+	 * Next-fit search over the free chunks left by the last sweep.
+	 *
+	 * @return the start of the carved range, or -1 if no chunk is large enough
+	 */
+	private int takeFreeChunk(int size) {
+		if (size > maxFreeChunk) {
+			return -1;
+		}
+		for (int n = 0; n < freeCount; n++) {
+			if (freeRover >= freeCount) {
+				freeRover = 0;
+			}
+			int i = freeRover;
+			if (freeEnd[i] - freeStart[i] >= size) {
+				int start = freeStart[i];
+				freeStart[i] += size;
+				if (freeStart[i] == freeEnd[i]) {
+					freeCount--;
+					freeStart[i] = freeStart[freeCount];
+					freeEnd[i] = freeEnd[freeCount];
+				}
+				return start;
+			}
+			freeRover++;
+		}
+		// nothing fits, remember it so the next request of this size is cheap
+		maxFreeChunk = size - 1;
+		return -1;
+	}
+
+	/**
+	 * Mark the block that value points into, if it looks like a heap address.
+	 * TAC carries no type information, so every stack slot and every heap
+	 * word is treated as a potential pointer. Negative values (vtable tags
+	 * and negative integers) never are.
+	 */
+	public void markValue(int value) {
+		if (value < 0 || value % 4 != 0) {
+			return;
+		}
+		int word = value / 4;
+		if (word >= currentSize) {
+			return;
+		}
+		int id = blockOf[word];
+		if (id < 0 || blockMarked[id]) {
+			return;
+		}
+		blockMarked[id] = true;
+		push(id);
+	}
+
+	private void push(int id) {
+		if (markStackTop == markStack.length) {
+			markStack = Arrays.copyOf(markStack, markStack.length * 2);
+		}
+		markStack[markStackTop++] = id;
+	}
+
+	public void collect() {
+		if (roots == null) {
+			return;
+		}
+		long begin = System.nanoTime();
+
+		// mark
+		markStackTop = 0;
+		roots.scanRoots(this);
+		while (markStackTop > 0) {
+			int id = markStack[--markStackTop];
+			for (int i = blockStart[id]; i < blockEnd[id]; i++) {
+				markValue(heap[i]);
+			}
+		}
+
+		// sweep
+		for (int id = 0; id < blockCount; id++) {
+			if (blockEnd[id] == blockStart[id]) {
+				continue;
+			}
+			if (blockMarked[id]) {
+				blockMarked[id] = false;
+			} else {
+				int size = blockEnd[id] - blockStart[id];
+				Arrays.fill(blockOf, blockStart[id], blockEnd[id], -1);
+				blockEnd[id] = blockStart[id];
+				if (freeBlockIdCount == freeBlockIds.length) {
+					freeBlockIds = Arrays.copyOf(freeBlockIds,
+							freeBlockIds.length * 2);
+				}
+				freeBlockIds[freeBlockIdCount++] = id;
+				liveWords -= size;
+				freedWords += size;
+			}
+		}
+		rebuildFreeChunks();
+		allocatedSinceGc = 0;
+
+		long pause = System.nanoTime() - begin;
+		collections++;
+		totalPauseNanos += pause;
+		if (pause > maxPauseNanos) {
+			maxPauseNanos = pause;
+		}
+	}
+
+	private void rebuildFreeChunks() {
+		freeCount = 0;
+		freeRover = 0;
+		maxFreeChunk = 0;
+		int i = 0;
+		while (i < currentSize) {
+			if (blockOf[i] >= 0) {
+				i = blockEnd[blockOf[i]];
+				continue;
+			}
+			int start = i;
+			while (i < currentSize && blockOf[i] < 0) {
+				i++;
+			}
+			if (i == currentSize) {
+				// trailing free space goes back to the bump pointer
+				currentSize = start;
+				break;
+			}
+			if (freeCount == freeStart.length) {
+				freeStart = Arrays.copyOf(freeStart, freeStart.length * 2);
+				freeEnd = Arrays.copyOf(freeEnd, freeEnd.length * 2);
+			}
+			freeStart[freeCount] = start;
+			freeEnd[freeCount] = i;
+			freeCount++;
+			maxFreeChunk = Math.max(maxFreeChunk, i - start);
+		}
+	}
+
+	public void printStats(PrintStream out, long elapsedNanos) {
+		out.println("=== heap ===");
+		out.println("collections:     " + collections);
+		out.println("allocated bytes: " + allocatedWords * 4);
+		out.println("freed bytes:     " + freedWords * 4);
+		out.println("live bytes:      " + liveWords * 4);
+		out.println("peak live bytes: " + (long) peakLiveWords * 4);
+		out.println("arena bytes:     " + (long) currentSize * 4);
+		out.printf("total pause:     %.3f ms%n", totalPauseNanos / 1e6);
+		out.printf("max pause:       %.3f ms%n", maxPauseNanos / 1e6);
+		if (collections > 0) {
+			out.printf("mean pause:      %.3f ms%n", totalPauseNanos / 1e6
+					/ collections);
+		}
+		if (elapsedNanos > 0) {
+			out.printf("throughput:      %.2f%%%n",
+					100.0 * (elapsedNanos - totalPauseNanos) / elapsedNanos);
+		}
 	}
 
 	private int accessVTable(int base, int offset) {
@@ -55,7 +345,12 @@ public class Memory {
 		return vtable[base + offset + 1];
 	}
 
-	private Block checkHeapAccess(int base, int offset) {
+	/**
+	 * Check that base + offset stays inside the block that base points into.
+	 *
+	 * @return the arena index of the accessed word
+	 */
+	private int checkHeapAccess(int base, int offset) {
 		if (base < 0 || base % 4 != 0 || offset % 4 != 0) {
 			throw new ExecuteException("bad memory access base = " + base
 					+ " offset = " + offset);
@@ -66,29 +361,25 @@ public class Memory {
 			throw new ExecuteException("memory access base = " + base * 4
 					+ " out of bounds");
 		}
-		Block temp = new Block();
-		temp.start = base;
-		int index = Collections.binarySearch(heap, temp);
-		Block block = index >= 0 ? heap.get(index) : heap.get(-index - 2);
-		int accessIndex = base - block.start + offset;
-		if (accessIndex < 0 || accessIndex >= block.mem.length) {
+		int block = blockOf[base];
+		int accessIndex = base + offset;
+		if (block < 0 || accessIndex < blockStart[block]
+				|| accessIndex >= blockEnd[block]) {
 			throw new ExecuteException("memory access base = " + base * 4
 					+ " offset = " + offset * 4 + " out of bounds");
 		}
-		return block;
+		return accessIndex;
 	}
 
 	public int load(int base, int offset) {
 		if (base < 0) {
 			return accessVTable(-base - 1, offset);
 		} else {
-			Block block = checkHeapAccess(base, offset);
-			return block.mem[base / 4 - block.start + offset / 4];
+			return heap[checkHeapAccess(base, offset)];
 		}
 	}
 
 	public void store(int val, int base, int offset) {
-		Block block = checkHeapAccess(base, offset);
-		block.mem[base / 4 - block.start + offset / 4] = val;
+		heap[checkHeapAccess(base, offset)] = val;
 	}
 }
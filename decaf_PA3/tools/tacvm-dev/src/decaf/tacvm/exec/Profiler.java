@@ -0,0 +1,301 @@
+package decaf.tacvm.exec;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import decaf.tacvm.Opcode;
+
+/**
+ * Instruction level profile of one run.
+ *
+ * Every executed instruction is counted where it stands, which also gives
+ * the exclusive count of each function and source line. A shadow call stack,
+ * pushed at ENTER_FUNC and popped at LEAVE_FUNC, maintains a calling
+ * context tree: each node is a distinct chain of calls from main and owns
+ * the instructions run while it was on top. Inclusive counts and the
+ * folded stacks written for flamegraph tools come from that tree.
+ *
+ * The executor passes its instruction count as the clock, so the counts
+ * seen here are exactly the ones checked against maxRunInsts.
+ */
+final class Profiler {
+
+	// rows per section of the text report
+	private static final int TOP = 30;
+
+	private final Inst[] insts;
+
+	final long[] counts;
+
+	// function id of every instruction, -1 before the first function
+	private final int[] funcOf;
+
+	private final List<String> funcNames = new ArrayList<String>();
+
+	private final long[] calls;
+
+	private final long[] inclusive;
+
+	// number of activations of each function on the shadow stack
+	private final int[] active;
+
+	// calling context tree, node 0 is the root above main
+	private int[] nodeFunc = new int[64];
+
+	private int[] nodeParent = new int[64];
+
+	private int[] nodeChild = new int[64];
+
+	private int[] nodeSibling = new int[64];
+
+	private long[] nodeSelf = new long[64];
+
+	private int nodeCount = 1;
+
+	private int[] stackNode = new int[64];
+
+	private long[] stackStart = new long[64];
+
+	private int depth = 0;
+
+	private int current = 0;
+
+	private long lastClock = 0;
+
+	private int maxDepth = 0;
+
+	Profiler(Inst[] insts) {
+		this.insts = insts;
+		counts = new long[insts.length];
+		funcOf = new int[insts.length];
+		int func = -1;
+		for (int i = 0; i < insts.length; i++) {
+			if (insts[i].opc == Opcode.ENTER_FUNC) {
+				func = funcNames.size();
+				String name = insts[i].tac;
+				funcNames.add(name.startsWith("enterFunc ") ? name
+						.substring("enterFunc ".length()) : name);
+			}
+			funcOf[i] = func;
+		}
+		calls = new long[funcNames.size()];
+		inclusive = new long[funcNames.size()];
+		active = new int[funcNames.size()];
+		nodeFunc[0] = -1;
+		nodeParent[0] = -1;
+		nodeChild[0] = -1;
+		nodeSibling[0] = -1;
+	}
+
+	private void charge(long clock) {
+		nodeSelf[current] += clock - lastClock;
+		lastClock = clock;
+	}
+
+	private int child(int parent, int func) {
+		for (int n = nodeChild[parent]; n >= 0; n = nodeSibling[n]) {
+			if (nodeFunc[n] == func) {
+				return n;
+			}
+		}
+		if (nodeCount == nodeFunc.length) {
+			int newLength = nodeCount * 2;
+			nodeFunc = Arrays.copyOf(nodeFunc, newLength);
+			nodeParent = Arrays.copyOf(nodeParent, newLength);
+			nodeChild = Arrays.copyOf(nodeChild, newLength);
+			nodeSibling = Arrays.copyOf(nodeSibling, newLength);
+			nodeSelf = Arrays.copyOf(nodeSelf, newLength);
+		}
+		int n = nodeCount++;
+		nodeFunc[n] = func;
+		nodeParent[n] = parent;
+		nodeChild[n] = -1;
+		nodeSibling[n] = nodeChild[parent];
+		nodeChild[parent] = n;
+		return n;
+	}
+
+	/**
+	 * Called before the ENTER_FUNC at entry executes.
+	 */
+	void enter(int entry, long clock) {
+		charge(clock);
+		int func = funcOf[entry];
+		if (depth == stackNode.length) {
+			stackNode = Arrays.copyOf(stackNode, depth * 2);
+			stackStart = Arrays.copyOf(stackStart, depth * 2);
+		}
+		stackNode[depth] = current;
+		stackStart[depth] = clock;
+		depth++;
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+		current = child(current, func);
+		calls[func]++;
+		active[func]++;
+	}
+
+	/**
+	 * Called after a LEAVE_FUNC executes.
+	 */
+	void leave(long clock) {
+		if (depth == 0) {
+			return;
+		}
+		charge(clock);
+		int func = nodeFunc[current];
+		depth--;
+		// recursive activations are already inside the outermost one
+		if (--active[func] == 0) {
+			inclusive[func] += clock - stackStart[depth];
+		}
+		current = stackNode[depth];
+	}
+
+	/**
+	 * Unwind whatever is still on the shadow stack (the program may stop in
+	 * _Halt or on an error) and write the report and the folded stacks.
+	 */
+	void finish(String prefix, PrintStream err) {
+		long clock = 0;
+		for (long c : counts) {
+			clock += c;
+		}
+		while (depth > 0) {
+			leave(clock);
+		}
+		try {
+			PrintWriter out = new PrintWriter(prefix + ".prof");
+			printReport(out);
+			out.close();
+			out = new PrintWriter(prefix + ".folded");
+			printFolded(out);
+			out.close();
+		} catch (FileNotFoundException e) {
+			err.println("cannot write profile: " + e.getMessage());
+		}
+	}
+
+	private static String percent(long n, long total) {
+		return String.format("%6.2f%%", total == 0 ? 0.0 : 100.0 * n / total);
+	}
+
+	private static List<Integer> ranked(final long[] values) {
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] > 0) {
+				order.add(i);
+			}
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer a, Integer b) {
+				int c = Long.compare(values[b], values[a]);
+				return c != 0 ? c : Integer.compare(a, b);
+			}
+
+		});
+		return order;
+	}
+
+	private String funcName(int func) {
+		return func < 0 ? "<none>" : funcNames.get(func);
+	}
+
+	private void printReport(PrintWriter out) {
+		long total = 0;
+		long[] exclusive = new long[funcNames.size()];
+		for (int i = 0; i < counts.length; i++) {
+			total += counts[i];
+			if (funcOf[i] >= 0) {
+				exclusive[funcOf[i]] += counts[i];
+			}
+		}
+		out.println("=== profile ===");
+		out.println("instructions:    " + total);
+		out.println("functions:       " + funcNames.size());
+		out.println("max call depth:  " + maxDepth);
+		out.println("calling contexts: " + (nodeCount - 1));
+
+		out.println();
+		out.println("=== functions, by exclusive instructions ===");
+		out.printf("%12s %7s %12s %7s %10s  %s%n", "exclusive", "", "inclusive",
+				"", "calls", "function");
+		for (int f : ranked(exclusive)) {
+			out.printf("%12d %s %12d %s %10d  %s%n", exclusive[f], percent(
+					exclusive[f], total), inclusive[f], percent(inclusive[f],
+					total), calls[f], funcNames.get(f));
+		}
+
+		// one source line may hold several instructions
+		Map<Integer, long[]> byLine = new TreeMap<Integer, long[]>();
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0 && insts[i].loc != null) {
+				long[] c = byLine.get(insts[i].loc.getLine());
+				if (c == null) {
+					c = new long[] { 0, i };
+					byLine.put(insts[i].loc.getLine(), c);
+				}
+				c[0] += counts[i];
+			}
+		}
+		long[] lineCounts = new long[byLine.size()];
+		int[] lineNumbers = new int[byLine.size()];
+		int[] lineFirst = new int[byLine.size()];
+		int k = 0;
+		for (Map.Entry<Integer, long[]> e : byLine.entrySet()) {
+			lineNumbers[k] = e.getKey();
+			lineCounts[k] = e.getValue()[0];
+			lineFirst[k] = (int) e.getValue()[1];
+			k++;
+		}
+		out.println();
+		out.println("=== hottest lines (top " + TOP + ") ===");
+		out.printf("%12s %7s  %-8s %s%n", "count", "", "line", "function");
+		List<Integer> lines = ranked(lineCounts);
+		for (int l : lines.subList(0, Math.min(TOP, lines.size()))) {
+			out.printf("%12d %s  %-8d %s%n", lineCounts[l], percent(
+					lineCounts[l], total), lineNumbers[l],
+					funcName(funcOf[lineFirst[l]]));
+		}
+
+		out.println();
+		out.println("=== hottest instructions (top " + TOP + ") ===");
+		out.printf("%12s %7s  %-12s %s%n", "count", "", "location", "tac");
+		List<Integer> hot = ranked(counts);
+		for (int i : hot.subList(0, Math.min(TOP, hot.size()))) {
+			out.printf("%12d %s  %-12s %s%n", counts[i], percent(counts[i],
+					total), insts[i].loc != null ? insts[i].loc : "-",
+					insts[i].tac);
+		}
+	}
+
+	/**
+	 * One line per calling context: the chain of function names from main,
+	 * separated by ';', and the instructions run in that context.
+	 */
+	private void printFolded(PrintWriter out) {
+		StringBuilder sb = new StringBuilder();
+		for (int n = 1; n < nodeCount; n++) {
+			if (nodeSelf[n] == 0) {
+				continue;
+			}
+			sb.setLength(0);
+			for (int p = n; p > 0; p = nodeParent[p]) {
+				String name = funcNames.get(nodeFunc[p]);
+				sb.insert(0, p == n ? name : name + ";");
+			}
+			out.println(sb + " " + nodeSelf[n]);
+		}
+	}
+}
@@ -7,7 +7,15 @@ import java.util.List;
 import decaf.tacvm.Location;
 
 public final class Errs {
-	private static List<String> errs = new ArrayList<String>();
+	// per thread, so that programs can be parsed concurrently
+	private static final ThreadLocal<List<String>> errs = new ThreadLocal<List<String>>() {
+
+		@Override
+		protected List<String> initialValue() {
+			return new ArrayList<String>();
+		}
+
+	};
 
 	public static final String UNRECOG_CHAR1 = "unrecognized char: '%c'";
 
@@ -25,17 +33,27 @@ public final class Errs {
 
 	public static void issue(Location loc, String msg, Object... args) {
 		if (loc == null) {
-			errs.add(String.format("*** Error: " + msg, args));
+			errs.get().add(String.format("*** Error: " + msg, args));
 		} else {
-			errs.add(String.format("*** Error at " + loc + ": " + msg, args));
+			errs.get().add(
+					String.format("*** Error at " + loc + ": " + msg, args));
 		}
 	}
 
+	/**
+	 * Take the errors issued so far on this thread.
+	 */
+	public static List<String> drain() {
+		List<String> list = errs.get();
+		errs.set(new ArrayList<String>());
+		return list;
+	}
+
 	public static void checkPoint(PrintWriter pw) {
-		if (errs.isEmpty()) {
+		if (errs.get().isEmpty()) {
 			return;
 		}
-		for (String s : errs) {
+		for (String s : errs.get()) {
 			pw.println(s);
 		}
 		pw.close();
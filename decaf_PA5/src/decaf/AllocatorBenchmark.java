@@ -0,0 +1,89 @@
+package decaf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import decaf.error.DecafError;
+
+/**
+ * Compile time and the loads and stores emitted with each register
+ * allocator, over a set of programs.
+ *
+ * Each program is compiled to assembly the given number of times with
+ * every allocator, on one thread, after as many rounds to warm up. The
+ * time is the best round; lw and sw are counted in the output text.
+ *
+ * usage: AllocatorBenchmark [-r ROUNDS] FILE...
+ */
+public final class AllocatorBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int rounds = 10;
+		List<String> sources = new ArrayList<String>();
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-r")) {
+				rounds = Integer.parseInt(args[++i]);
+			} else {
+				names.add(Paths.get(args[i]).getFileName().toString());
+				sources.add(new String(Files.readAllBytes(Paths.get(args[i]))));
+			}
+		}
+
+		System.out.printf("%-20s %-8s %10s %8s %8s%n", "program", "ra",
+				"time (ms)", "lw", "sw");
+		long[] total = new long[3 * Option.Allocator.values().length];
+		for (int p = 0; p < sources.size(); p++) {
+			for (Option.Allocator ra : Option.Allocator.values()) {
+				Option option = new Option();
+				option.setThreads(1);
+				option.setAllocator(ra);
+				long best = Long.MAX_VALUE;
+				Compilation result = null;
+				for (int r = 0; r < 2 * rounds; r++) {
+					long begin = System.nanoTime();
+					result = Driver.compile(sources.get(p), option);
+					long nanos = System.nanoTime() - begin;
+					if (r >= rounds) {
+						best = Math.min(best, nanos);
+					}
+				}
+				for (DecafError e : result.getErrors()) {
+					System.err.println(names.get(p) + ": " + e);
+				}
+				if (result.hasErrors()) {
+					break;
+				}
+				int loads = count(result.asm, "lw");
+				int stores = count(result.asm, "sw");
+				int k = 3 * ra.ordinal();
+				total[k] += best;
+				total[k + 1] += loads;
+				total[k + 2] += stores;
+				System.out.printf("%-20s %-8s %10.2f %8d %8d%n", names.get(p),
+						ra.name().toLowerCase(), best / 1e6, loads, stores);
+			}
+		}
+		for (Option.Allocator ra : Option.Allocator.values()) {
+			int k = 3 * ra.ordinal();
+			System.out.printf("%-20s %-8s %10.2f %8d %8d%n", "total", ra
+					.name().toLowerCase(), total[k] / 1e6, total[k + 1],
+					total[k + 2]);
+		}
+	}
+
+	// Lines of asm whose instruction is opc
+	private static int count(String asm, String opc) {
+		int n = 0;
+		for (String line : asm.split("\n")) {
+			String s = line.trim();
+			if (s.startsWith(opc + " ")) {
+				n++;
+			}
+		}
+		return n;
+	}
+}
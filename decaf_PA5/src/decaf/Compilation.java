@@ -0,0 +1,82 @@
+package decaf;
+
+import java.util.Collections;
+import java.util.List;
+
+import decaf.error.DecafError;
+import decaf.translate.Translater;
+import decaf.tree.Tree;
+
+/**
+ * What one call of Driver.compile produced. Phases after the first one
+ * reporting errors do not run, so their results are null.
+ */
+public final class Compilation {
+
+	private final List<DecafError> errors;
+
+	Tree.TopLevel tree;
+
+	Translater tac;
+
+	String output;
+
+	String asm;
+
+	final Stats stats;
+
+	Compilation(List<DecafError> errors, Stats stats) {
+		this.errors = errors;
+		this.stats = stats;
+	}
+
+	/**
+	 * Errors sorted by location, empty if the compilation succeeded.
+	 */
+	public List<DecafError> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+
+	/**
+	 * The syntax tree, attributed with symbols and types from LEVEL1 on.
+	 */
+	public Tree.TopLevel getTree() {
+		return tree;
+	}
+
+	/**
+	 * The virtual tables and functions in TAC, from LEVEL2 on. At LEVEL3
+	 * the function bodies have been split into basic blocks. At LEVEL4 each
+	 * function is let go once it is emitted, so only the virtual tables are
+	 * left.
+	 */
+	public Translater getTac() {
+		return tac;
+	}
+
+	/**
+	 * The assembly program, at LEVEL4.
+	 */
+	public String getAsm() {
+		return asm;
+	}
+
+	/**
+	 * Time, allocation and counts of the phases that ran. Only filled in
+	 * with -stats, or when JFR records the events.
+	 */
+	public Stats getStats() {
+		return stats;
+	}
+
+	/**
+	 * What the command line compiler would print at the requested level.
+	 */
+	public String getOutput() {
+		return output;
+	}
+}
@@ -0,0 +1,246 @@
+package decaf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import decaf.error.DecafError;
+
+/**
+ * A resident compiler, so that class loading and JIT warm-up are paid once.
+ *
+ * A client connects once per compilation and sends its working directory
+ * and its command line. The server answers with the exit status and the
+ * bytes the command line compiler would have written to stdout and to
+ * stderr. Strings are written with writeUTF, byte arrays as their length
+ * followed by the bytes.
+ *
+ * Requests are served concurrently, and the backends of all of them share
+ * one fork/join pool. The server logs one line per request with its
+ * latency to stderr.
+ */
+final class CompileServer {
+
+	private static final Charset CHARSET = Charset.defaultCharset();
+
+	private CompileServer() {
+	}
+
+	/**
+	 * A port number means TCP on the loopback interface, anything else is
+	 * the path of a UNIX domain socket.
+	 */
+	private static boolean isPort(String address) {
+		return address.matches("[0-9]+");
+	}
+
+	private static SocketAddress socketAddress(String address) {
+		if (isPort(address)) {
+			return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+					Integer.parseInt(address));
+		}
+		return UnixDomainSocketAddress.of(address);
+	}
+
+	public static void serve(String address) throws IOException {
+		ServerSocketChannel server;
+		if (isPort(address)) {
+			server = ServerSocketChannel.open();
+		} else {
+			// left behind by a server that was killed
+			Path path = Paths.get(address);
+			Files.deleteIfExists(path);
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException e) {
+					// nothing left to do
+				}
+			}));
+		}
+		server.bind(socketAddress(address));
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService requests = Executors.newFixedThreadPool(threads);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		AtomicLong served = new AtomicLong();
+		System.err.println("decaf server listening on " + address);
+		for (;;) {
+			SocketChannel channel = server.accept();
+			requests.execute(() -> {
+				try (SocketChannel c = channel) {
+					serve(c, pool, served.incrementAndGet());
+				} catch (IOException e) {
+					System.err.println("request failed: " + e);
+				}
+			});
+		}
+	}
+
+	private static void serve(SocketChannel channel, ForkJoinPool pool,
+			long id) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				Channels.newInputStream(channel)));
+		String dir = in.readUTF();
+		String[] args = new String[in.readInt()];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = in.readUTF();
+		}
+
+		long begin = System.nanoTime();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		int status = compile(Paths.get(dir), args, pool, out, err);
+		long nanos = System.nanoTime() - begin;
+
+		DataOutputStream reply = new DataOutputStream(
+				new BufferedOutputStream(Channels.newOutputStream(channel)));
+		reply.writeInt(status);
+		writeBytes(reply, out.toByteArray());
+		writeBytes(reply, err.toByteArray());
+		reply.flush();
+		System.err.printf("#%d %8.2f ms  status %d  %s%n", id, nanos / 1e6,
+				status, String.join(" ", args));
+	}
+
+	/**
+	 * Do what Driver.main does for args, resolving paths against dir.
+	 *
+	 * @return the exit status
+	 */
+	private static int compile(Path dir, String[] args, ForkJoinPool pool,
+			ByteArrayOutputStream out, ByteArrayOutputStream err) {
+		PrintStream errStream = new PrintStream(err, true);
+		if (args.length == 0) {
+			out.writeBytes((Option.usage() + System.lineSeparator())
+					.getBytes(CHARSET));
+			return 0;
+		}
+		try {
+			Option option = new Option();
+			option.parse(args);
+			option.setPool(pool);
+			if (option.getCacheFileName() != null) {
+				try {
+					option.openCache(dir);
+				} catch (IOException e) {
+					errStream.println("Can not open cache "
+							+ option.getCacheFileName() + ": " + e.getMessage());
+					return 1;
+				}
+			}
+			if (option.getSrcFileName() == null) {
+				// there is no stdin to read the program from
+				errStream.println("No source file given");
+				return 1;
+			}
+			String source;
+			try {
+				source = new String(Files.readAllBytes(dir.resolve(option
+						.getSrcFileName())), CHARSET);
+			} catch (IOException e) {
+				errStream.println("File " + option.getSrcFileName()
+						+ " not found");
+				return 1;
+			}
+			Compilation result = Driver.compile(source, option);
+			byte[] output = result.hasErrors() ? new byte[0] : result
+					.getOutput().getBytes(CHARSET);
+			if (option.getDstFileName() != null) {
+				try {
+					Files.write(dir.resolve(option.getDstFileName()), output);
+				} catch (IOException e) {
+					errStream.println("Can not open file "
+							+ option.getDstFileName() + " for write");
+					return 1;
+				}
+			} else {
+				out.writeBytes(output);
+			}
+			if (option.isStats()) {
+				result.getStats().printTo(errStream);
+			}
+			for (DecafError error : result.getErrors()) {
+				errStream.println(error);
+			}
+			return result.hasErrors() ? 1 : 0;
+		} catch (RuntimeException | StackOverflowError e) {
+			// the compiler crashed on this input, keep serving the others
+			StringWriter trace = new StringWriter();
+			e.printStackTrace(new PrintWriter(trace));
+			errStream.print(trace);
+			return 1;
+		}
+	}
+
+	/**
+	 * Send args to the server at address and copy what it returns to stdout
+	 * and stderr.
+	 *
+	 * @return the exit status of the compilation
+	 */
+	public static int forward(String address, String[] args)
+			throws IOException {
+		SocketChannel channel;
+		try {
+			channel = SocketChannel.open(socketAddress(address));
+		} catch (IOException e) {
+			System.err.println("Can not connect to decaf server at "
+					+ address + ": " + e.getMessage());
+			return 1;
+		}
+		try (SocketChannel c = channel) {
+			DataOutputStream request = new DataOutputStream(
+					new BufferedOutputStream(Channels.newOutputStream(c)));
+			request.writeUTF(Paths.get("").toAbsolutePath().toString());
+			request.writeInt(args.length);
+			for (String arg : args) {
+				request.writeUTF(arg);
+			}
+			request.flush();
+
+			DataInputStream reply = new DataInputStream(
+					new BufferedInputStream(Channels.newInputStream(c)));
+			int status = reply.readInt();
+			System.out.write(readBytes(reply));
+			System.out.flush();
+			System.err.write(readBytes(reply));
+			System.err.flush();
+			return status;
+		}
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes)
+			throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
@@ -1,30 +1,40 @@
 package decaf;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import decaf.tree.Tree;
+import decaf.tree.TreeCounter;
 import decaf.backend.mips.Mips;
+import decaf.cache.IncrementalCache;
 import decaf.dataflow.FlowGraph;
+import decaf.dataflow.Optimizer;
 import decaf.error.DecafError;
 import decaf.frontend.Lexer;
 import decaf.frontend.Parser;
-import decaf.machdesc.MachineDescription;
 import decaf.scope.ScopeStack;
 import decaf.tac.Functy;
+import decaf.tac.Tac;
 import decaf.translate.Translater;
 import decaf.typecheck.BuildSym;
 import decaf.typecheck.TypeCheck;
 import decaf.utils.IndentPrintWriter;
+import decaf.utils.MiscUtils;
 
 public final class Driver {
 
-	private static Driver driver;
-
 	private Option option;
 
 	private List<DecafError> errors;
@@ -39,10 +49,6 @@ public final class Driver {
 		return table;
 	}
 
-	public static Driver getDriver() {
-		return driver;
-	}
-
 	public Option getOption() {
 		return option;
 	}
@@ -51,14 +57,15 @@ public final class Driver {
 		errors.add(error);
 	}
 
-	// Only allow construction by Driver.main
-	private Driver() {
+	// All the state of one compilation lives in its Driver
+	private Driver(Option option) {
+		this.option = option;
 	}
 
 	/**
-	 * 如果有错误，输出错误并退出
+	 * 如果有错误，将错误按位置排序并返回true
 	 */
-	private void checkPoint() {
+	private boolean checkPoint() {
 		if (errors.size() > 0) {
 			Collections.sort(errors, new Comparator<DecafError>() {
 
@@ -68,79 +75,255 @@ public final class Driver {
 				}
 
 			});
-			for (DecafError error : errors) {
-				option.getErr().println(error);
-			}
-			System.exit(1);
+			return true;
 		}
+		return false;
 	}
 
-	private void init() {
-		lexer = new Lexer(option.getInput());
+	private void init(Reader input) {
+		lexer = new Lexer(input);
 		parser = new Parser();
 		lexer.setParser(parser);
 		parser.setLexer(lexer);
+		parser.setDriver(this);
 		errors = new ArrayList<DecafError>();
 		table = new ScopeStack();
 	}
 
-	private void compile() {
+	private Compilation compile(Reader input, Writer out) {
+		init(input);
+		Stats stats = new Stats(option.isStats());
+		Compilation result = new Compilation(errors, stats);
 
+		stats.begin("parse");
 		Tree.TopLevel tree = parser.parseFile();
-		checkPoint();
+		stats.end();
+		result.tree = tree;
+		if (checkPoint()) {
+			return result;
+		}
+		stats.count("ast nodes", TreeCounter.count(tree));
 		if (option.getLevel() == Option.Level.LEVEL0) {
-			IndentPrintWriter pw = new IndentPrintWriter(option.getOutput(), 4);
+			IndentPrintWriter pw = new IndentPrintWriter(out, 4);
 			tree.printTo(pw);
-			pw.close();
-			return;
+			pw.flush();
+			return result;
+		}
+		stats.begin("build symbols");
+		BuildSym.buildSymbol(this, tree);
+		stats.end();
+		stats.count("symbols", table.getDeclaredCount());
+		if (checkPoint()) {
+			return result;
+		}
+		stats.begin("type check");
+		TypeCheck.checkType(this, tree);
+		stats.end();
+		if (checkPoint()) {
+			return result;
 		}
-		BuildSym.buildSymbol(tree);
-		checkPoint();
-		TypeCheck.checkType(tree);
-		checkPoint();
 		if (option.getLevel() == Option.Level.LEVEL1) {
-			IndentPrintWriter pw = new IndentPrintWriter(option.getOutput(), 4);
+			IndentPrintWriter pw = new IndentPrintWriter(out, 4);
 			tree.globalScope.printTo(pw);
-			pw.close();
-			return;
+			pw.flush();
+			return result;
 		}
-		PrintWriter pw = new PrintWriter(option.getOutput());
-		Translater tr = Translater.translate(tree);
-		checkPoint();
-		if (option.getLevel() == Option.Level.LEVEL2) {
-			tr.printTo(pw);
-			pw.close();
-			return;
+		PrintWriter pw = new PrintWriter(out);
+		IncrementalCache cache = null;
+		if (option.getCache() != null) {
+			cache = new IncrementalCache(option.getCache(), option
+					.getCodeOptions());
 		}
-
-		List<FlowGraph> graphs = new ArrayList<FlowGraph>();
-		for (Functy func : tr.getFuncs()) {
-			graphs.add(new FlowGraph(func));
+		// Functions are independent from here on
+		ForkJoinPool pool = option.getPool();
+		if (pool == null) {
+			pool = new ForkJoinPool(option.getThreads());
 		}
+		try {
+			if (option.getLevel() == Option.Level.LEVEL4) {
+				emitAsm(tree, cache, pool, pw, stats, result);
+				return result;
+			}
+			stats.begin("translate");
+			Translater tr = Translater.translate(tree, cache, option
+					.getOptimizeLevel() >= 2);
+			stats.end();
+			result.tac = tr;
+			if (checkPoint()) {
+				return result;
+			}
+			int tacs = 0;
+			for (Functy f : tr.getFuncs()) {
+				for (Tac t = f.head; t != null; t = t.next) {
+					tacs++;
+				}
+			}
+			stats.count("tac instructions", tacs);
+			stats.count("temps", tr.getTempCount());
+			countCalls(tr, stats);
+			if (cache != null) {
+				stats.count("cached classes", cache.getHits());
+			}
+			if (option.getLevel() == Option.Level.LEVEL2) {
+				tr.printTo(pw);
+				pw.flush();
+				return result;
+			}
 
-		if (option.getLevel() == Option.Level.LEVEL3) {
+			Optimizer optimizer = new Optimizer(option.getOptimizeLevel());
+			stats.begin("flow graph");
+			List<FlowGraph> graphs = MiscUtils.parallelMap(pool, tr
+					.getFuncs(), f -> {
+				FlowGraph g = new FlowGraph(f);
+				optimizer.optimize(g);
+				return g;
+			});
+			stats.end();
+			int blocks = 0;
+			int visits = 0;
+			int rounds = 0;
+			for (FlowGraph g : graphs) {
+				blocks += g.size();
+				visits += g.getLivenessVisits();
+				rounds = Math.max(rounds, g.getLivenessRounds());
+			}
+			stats.count("basic blocks", blocks);
+			stats.count("liveness visits", visits);
+			stats.count("liveness rounds", rounds);
+			countOptimizer(optimizer, stats);
 			for (FlowGraph g : graphs) {
 				g.printLivenessTo(pw);
 				pw.println();
 			}
-			pw.close();
-			return;
+			pw.flush();
+			return result;
+		} finally {
+			if (pool != option.getPool()) {
+				pool.shutdown();
+			}
 		}
+	}
 
-		MachineDescription md = new Mips();
+	/**
+	 * Translate, compile and emit the functions one after another, so that
+	 * only those in flight are held in memory.
+	 */
+	private void emitAsm(Tree.TopLevel tree, IncrementalCache cache,
+			ForkJoinPool pool, PrintWriter pw, Stats stats, Compilation result) {
+		stats.begin("layout");
+		Translater tr = Translater.layout(tree,
+				option.getOptimizeLevel() >= 2);
+		stats.end();
+		result.tac = tr;
+		Mips md = new Mips(pool, option.getAllocator());
 		md.setOutputStream(pw);
 		md.emitVTable(tr.getVtables());
 		for (int i = 0; i < 3; i++) {
 			pw.println();
 		}
-		md.emitAsm(graphs);
-		pw.close();
+
+		stats.begin("compile functions");
+		md.beginText();
+		Optimizer optimizer = new Optimizer(option.getOptimizeLevel());
+		FunctionPipeline pipeline = new FunctionPipeline(pool, md, optimizer,
+				cache);
+		tr.translateClasses(tree, cache, pipeline);
+		pipeline.finish();
+		md.endText();
+		pw.flush();
+		stats.end();
+		stats.count("tac instructions", pipeline.getTacCount());
+		stats.count("temps", tr.getTempCount());
+		countCalls(tr, stats);
+		if (cache != null) {
+			stats.count("cached classes", cache.getHits());
+		}
+		stats.count("basic blocks", pipeline.getBlockCount());
+		stats.count("liveness visits", pipeline.getLivenessVisits());
+		stats.count("liveness rounds", pipeline.getLivenessRounds());
+		countOptimizer(optimizer, stats);
+		stats.count("interference edges", md.getInterferenceEdgeCount());
+		stats.count("spills", md.getSpillCount());
+		stats.count("instructions", md.getInstructionCount());
+	}
+
+	private static void countCalls(Translater tr, Stats stats) {
+		if (tr.getHierarchy() == null) {
+			return;
+		}
+		stats.count("virtual calls", tr.getVirtualCallCount());
+		stats.count("devirtualized calls", tr.getDirectCallCount());
+		if (!tr.getCallSites().isEmpty()) {
+			stats.note(String.format("%-10s %-30s %s", "call", "method",
+					"decision"));
+		}
+		for (String site : tr.getCallSites()) {
+			stats.note(site);
+		}
+	}
+
+	private static void countOptimizer(Optimizer optimizer, Stats stats) {
+		if (optimizer.getLevel() < 1) {
+			return;
+		}
+		for (Map.Entry<String, Long> e : optimizer.getCounts().entrySet()) {
+			stats.count(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Compile a program held in memory. No global state is touched, so
+	 * any number of compilations may run at once on different threads.
+	 * 
+	 * @param source
+	 *            the program text
+	 * @param option
+	 *            only the level, the thread count, the pool, the cache and
+	 *            -stats are used, the streams are not touched
+	 */
+	public static Compilation compile(String source, Option option) {
+		StringWriter out = new StringWriter();
+		Compilation result = compile(new StringReader(source), out, option);
+		if (!result.hasErrors()) {
+			result.output = out.toString();
+			if (option.getLevel() == Option.Level.LEVEL4) {
+				result.asm = result.output;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Like compile(String, Option), but the output is written to out as it
+	 * is produced, so the Compilation holds no output text.
+	 */
+	public static Compilation compile(Reader source, Writer out,
+			Option option) {
+		return new Driver(option).compile(source, out);
 	}
 
 	public static void main(String[] args) throws IOException {
-		driver = new Driver();
-		driver.option = new Option(args);
-		driver.init();
-		driver.compile();
+		if (args.length == 2 && args[0].equals("--server")) {
+			CompileServer.serve(args[1]);
+			return;
+		}
+		if (args.length >= 2 && args[0].equals("--client")) {
+			System.exit(CompileServer.forward(args[1], Arrays.copyOfRange(
+					args, 2, args.length)));
+		}
+		Option option = new Option(args);
+		PrintWriter out = new PrintWriter(option.getOutput());
+		Compilation result = new Driver(option).compile(new InputStreamReader(
+				option.getInput()), out);
+		if (option.isStats()) {
+			result.getStats().printTo(option.getErr());
+		}
+		if (result.hasErrors()) {
+			for (DecafError error : result.getErrors()) {
+				option.getErr().println(error);
+			}
+			System.exit(1);
+		}
+		out.close();
 	}
 }
@@ -0,0 +1,150 @@
+package decaf;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import decaf.backend.mips.Mips;
+import decaf.cache.IncrementalCache;
+import decaf.dataflow.FlowGraph;
+import decaf.dataflow.Optimizer;
+import decaf.machdesc.AsmFunction;
+import decaf.tac.Functy;
+import decaf.tac.Tac;
+
+/**
+ * Compiles functions to assembly as Translater hands them over, and emits
+ * them in the same order.
+ *
+ * Functions are compiled on the pool, a few at a time, and the oldest one
+ * is emitted as soon as it is done. Its TAC, flow graph and assembly are
+ * then garbage, so the memory of the backend grows with the largest
+ * functions rather than with the program.
+ */
+final class FunctionPipeline implements Consumer<Functy> {
+
+	private static final class Job {
+
+		Functy functy;
+
+		// set if taken from the cache
+		AsmFunction asm;
+
+		ForkJoinTask<AsmFunction> task;
+	}
+
+	private final ForkJoinPool pool;
+
+	private final Mips md;
+
+	private final Optimizer optimizer;
+
+	private final IncrementalCache cache;
+
+	// How many functions may be compiled or waiting to be emitted
+	private final int window;
+
+	private final ArrayDeque<Job> jobs = new ArrayDeque<Job>();
+
+	private long tacCount;
+
+	private final LongAdder blockCount = new LongAdder();
+
+	private final LongAdder livenessVisits = new LongAdder();
+
+	private final LongAccumulator livenessRounds = new LongAccumulator(
+			Math::max, 0);
+
+	/**
+	 * @param cache
+	 *            may be null
+	 */
+	FunctionPipeline(ForkJoinPool pool, Mips md, Optimizer optimizer,
+			IncrementalCache cache) {
+		this.pool = pool;
+		this.md = md;
+		this.optimizer = optimizer;
+		this.cache = cache;
+		window = 2 * pool.getParallelism();
+	}
+
+	@Override
+	public void accept(Functy f) {
+		for (Tac t = f.head; t != null; t = t.next) {
+			tacCount++;
+		}
+		Job job = new Job();
+		job.functy = f;
+		if (cache != null) {
+			job.asm = cache.takeAsm(f);
+		}
+		if (job.asm != null) {
+			release(f);
+		} else {
+			job.task = pool.submit(() -> compile(f));
+		}
+		jobs.add(job);
+		while (jobs.size() > window) {
+			emitOldest();
+		}
+	}
+
+	/**
+	 * Emit the functions still in flight.
+	 */
+	void finish() {
+		while (!jobs.isEmpty()) {
+			emitOldest();
+		}
+	}
+
+	private AsmFunction compile(Functy f) {
+		FlowGraph g = new FlowGraph(f);
+		optimizer.optimize(g);
+		blockCount.add(g.size());
+		livenessVisits.add(g.getLivenessVisits());
+		livenessRounds.accumulate(g.getLivenessRounds());
+		AsmFunction asm = md.genAsm(g);
+		release(f);
+		return asm;
+	}
+
+	private void emitOldest() {
+		Job job = jobs.remove();
+		if (job.asm != null) {
+			md.emitFunction(job.asm);
+			return;
+		}
+		AsmFunction asm = job.task.join();
+		md.emitFunction(asm);
+		if (cache != null) {
+			cache.store(job.functy, asm);
+		}
+	}
+
+	// The symbol of f and the labels calling it keep f alive
+	private static void release(Functy f) {
+		f.head = f.tail = null;
+		f.label.where = null;
+	}
+
+	long getTacCount() {
+		return tacCount;
+	}
+
+	long getBlockCount() {
+		return blockCount.sum();
+	}
+
+	long getLivenessVisits() {
+		return livenessVisits.sum();
+	}
+
+	// The most rounds any function needed
+	long getLivenessRounds() {
+		return livenessRounds.get();
+	}
+}
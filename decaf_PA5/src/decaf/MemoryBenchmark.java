@@ -0,0 +1,151 @@
+package decaf;
+
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import decaf.error.DecafError;
+
+/**
+ * Peak heap of compiling a large synthetic program to assembly.
+ *
+ * The peak is the largest heap in use right after a garbage collection, so
+ * it counts what the compiler keeps alive rather than its garbage. Running
+ * with a small young generation, e.g. -Xmn8m, makes collections frequent
+ * and the figure sharper. The output is written to a Writer that drops it.
+ *
+ * usage: MemoryBenchmark [classes] [methods per class] [threads]
+ */
+public final class MemoryBenchmark {
+
+	private static final AtomicLong peak = new AtomicLong();
+
+	private static final NotificationListener listener = new NotificationListener() {
+
+		@Override
+		public void handleNotification(Notification n, Object handback) {
+			if (!n.getType().equals(
+					GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+				return;
+			}
+			GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+					.from((CompositeData) n.getUserData());
+			long used = 0;
+			for (Map.Entry<String, MemoryUsage> e : info.getGcInfo()
+					.getMemoryUsageAfterGc().entrySet()) {
+				used += e.getValue().getUsed();
+			}
+			peak.accumulateAndGet(used, Math::max);
+		}
+	};
+
+	private static final Writer sink = new Writer() {
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	/**
+	 * A program of classes in chains of five, each method with a loop, an
+	 * array and branches, and a main calling into some of them.
+	 */
+	static String program(int classes, int methods) {
+		StringBuilder sb = new StringBuilder();
+		for (int c = 0; c < classes; c++) {
+			sb.append("class C" + c
+					+ (c % 5 != 0 ? " extends C" + (c - 1) : "") + " {\n");
+			sb.append("\tint f" + c + ";\n");
+			sb.append("\tint[] a" + c + ";\n");
+			for (int k = 0; k < methods; k++) {
+				sb.append("\tint m" + c + "_" + k + "(int n) {\n");
+				sb.append("\t\tint i; int s; int[] t;\n");
+				sb.append("\t\tt = new int[n + 1];\n");
+				sb.append("\t\ts = " + k + ";\n");
+				sb.append("\t\tfor (i = 0; i < n; i = i + 1) {\n");
+				sb.append("\t\t\tt[i] = i * " + (k + 1) + " + s;\n");
+				sb.append("\t\t\tif (t[i] % 3 == 0) s = s + t[i]; else s = s - 1;\n");
+				sb.append("\t\t\tf" + c + " = f" + c + " + s % 7;\n");
+				sb.append("\t\t}\n");
+				sb.append("\t\twhile (s > 100) s = s / 2;\n");
+				sb.append("\t\treturn s + t.length() + f" + c + ";\n");
+				sb.append("\t}\n");
+			}
+			sb.append("}\n");
+		}
+		sb.append("class Main {\n");
+		sb.append("\tstatic void main() {\n");
+		sb.append("\t\tint total;\n");
+		sb.append("\t\ttotal = 0;\n");
+		for (int c = 0; c < classes; c += Math.max(1, classes / 20)) {
+			sb.append("\t\ttotal = total + (new C" + c + "()).m" + c
+					+ "_0(10);\n");
+		}
+		sb.append("\t\tPrint(total, \"\\n\");\n");
+		sb.append("\t}\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	private static long usedAfterGc() {
+		System.gc();
+		System.gc();
+		Runtime rt = Runtime.getRuntime();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	public static void main(String[] args) {
+		int classes = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		int methods = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime
+				.getRuntime().availableProcessors();
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) gc).addNotificationListener(listener, null,
+					null);
+		}
+
+		String source = program(classes, methods);
+		Option option = new Option();
+		option.setThreads(threads);
+		long base = usedAfterGc();
+		peak.set(0);
+		long begin = System.nanoTime();
+		Compilation result = Driver.compile(new StringReader(source), sink,
+				option);
+		long nanos = System.nanoTime() - begin;
+		for (DecafError e : result.getErrors()) {
+			System.err.println(e);
+		}
+		long retained = usedAfterGc() - base;
+
+		System.out.println("program:        " + classes + " classes, "
+				+ methods + " methods each, " + source.length() + " chars");
+		System.out.printf("compile time:   %.2f ms%n", nanos / 1e6);
+		System.out.println("baseline heap:  " + (base >> 10) + " KB");
+		System.out.println("peak heap:      "
+				+ (Math.max(peak.get() - base, 0) >> 10)
+				+ " KB above baseline");
+		System.out.println("retained:       " + (retained >> 10)
+				+ " KB above baseline");
+	}
+}
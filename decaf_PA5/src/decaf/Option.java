@@ -4,8 +4,14 @@ import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import decaf.cache.CacheFile;
 
 public final class Option {
 
@@ -13,6 +19,10 @@ public final class Option {
 		LEVEL0, LEVEL1, LEVEL2, LEVEL3, LEVEL4
 	}
 
+	public enum Allocator {
+		COLOR, LINEAR, BRUTE
+	}
+
 	private String srcFileName;
 
 	private String dstFileName;
@@ -25,6 +35,20 @@ public final class Option {
 
 	private Level level = Level.LEVEL4;
 
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private ForkJoinPool pool;
+
+	private boolean stats;
+
+	private Allocator allocator = Allocator.COLOR;
+
+	private int optimizeLevel;
+
+	private String cacheFileName;
+
+	private CacheFile cache;
+
 	private static final String mainClassName = "Main";
 
 	private static final String mainFuncName = "main";
@@ -37,39 +61,87 @@ public final class Option {
 		return mainClassName;
 	}
 
+	/**
+	 * Defaults for compiling through Driver.compile: the final output,
+	 * one thread per processor.
+	 */
+	public Option() {
+	}
+
 	public Option(String[] args) {
 		if (args.length == 0) {
 			output.println(usage());
 			System.exit(0);
 		}
+		parse(args);
+		if (dstFileName != null) {
+			try {
+				output = new PrintStream(new FileOutputStream(dstFileName));
+			} catch (FileNotFoundException e) {
+				err.println("Can not open file " + dstFileName + " for write");
+				System.exit(1);
+			}
+		}
+		if (srcFileName != null) {
+			try {
+				input = new BufferedInputStream(new FileInputStream(
+						srcFileName));
+			} catch (FileNotFoundException e) {
+				err.println("File " + srcFileName + " not found");
+				System.exit(1);
+			}
+		}
+		if (cacheFileName != null) {
+			try {
+				openCache(Paths.get(""));
+			} catch (IOException e) {
+				err.println("Can not open cache " + cacheFileName + ": "
+						+ e.getMessage());
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * Open the cache file given with -cache, relative to dir.
+	 */
+	void openCache(Path dir) throws IOException {
+		cache = CacheFile.open(dir.resolve(cacheFileName));
+	}
+
+	/**
+	 * Read the options in args without opening any file.
+	 */
+	void parse(String[] args) {
 		for (int i = 0; i < args.length; i++) {
 			if (args[i].equals("-o")) {
 				dstFileName = args[++i];
-				try {
-					output = new PrintStream(new FileOutputStream(dstFileName));
-				} catch (FileNotFoundException e) {
-					err.println("Can not open file " + dstFileName
-							+ " for write");
-					System.exit(1);
-				}
 			} else if (args[i].equals("-l")) {
 				level = Level.valueOf("LEVEL" + args[++i]);
+			} else if (args[i].equals("-j")) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-ra")) {
+				allocator = Allocator.valueOf(args[++i].toUpperCase());
+			} else if (args[i].equals("-O")) {
+				optimizeLevel = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-stats")) {
+				stats = true;
+			} else if (args[i].equals("-cache")) {
+				cacheFileName = args[++i];
 			} else {
 				srcFileName = args[i];
-				try {
-					input = new BufferedInputStream(new FileInputStream(
-							srcFileName));
-				} catch (FileNotFoundException e) {
-					err.println("File " + srcFileName + " not found");
-					System.exit(1);
-				}
 			}
 		}
 	}
 
-	private String usage() {
+	static String usage() {
 		return ("\n"
-				+ "Usage:  java -jar decaf.jar [-l LEVEL] [-o OUTPUT] SOURCE\n"
+				+ "Usage:  java -jar decaf.jar [-l LEVEL] [-o OUTPUT] [-j THREADS]  \n"
+				+ "                            [-ra ALLOCATOR] [-O LEVEL] [-stats]  \n"
+				+ "                            [-cache FILE]                       \n"
+				+ "                            SOURCE                              \n"
+				+ "        java -jar decaf.jar --server ADDRESS                    \n"
+				+ "        java -jar decaf.jar --client ADDRESS [OPTIONS] SOURCE   \n"
 				+ "Options:\n"
 				+ "    -l  Developing level of the compiler, values of LEVEL are:  \n"
 				+ "        0  AST Construction                                     \n"
@@ -80,6 +152,33 @@ public final class Option {
 				+ "                                                                \n"
 				+ "    -o  Specifying the output file name. stdout if omitted.     \n"
 				+ "                                                                \n"
+				+ "    -j  Number of threads compiling functions in parallel,      \n"
+				+ "        the number of processors if omitted.                    \n"
+				+ "                                                                \n"
+				+ "    -ra  Register allocator, values of ALLOCATOR are:           \n"
+				+ "        color   graph coloring over each function (default) \n"
+				+ "        linear  linear scan, faster on huge functions       \n"
+				+ "        brute   greedy, block by block                      \n"
+				+ "                                                                \n"
+				+ "    -O  Optimization of TAC before code generation, values of   \n"
+				+ "        LEVEL are:                                              \n"
+				+ "        0  None (default)                                       \n"
+				+ "        1  SSA, constant propagation and dead code deletion     \n"
+				+ "        2  1, devirtualization, value numbering, bounds check   \n"
+				+ "           deletion and loop-invariant code motion              \n"
+				+ "                                                                \n"
+				+ "    -stats  Print the time and memory each phase took and the   \n"
+				+ "        number of objects it made to stderr.                    \n"
+				+ "                                                                \n"
+				+ "    -cache  Reuse the code of classes that did not change since \n"
+				+ "        an earlier compilation with the same FILE.              \n"
+				+ "                                                                \n"
+				+ "    --server  Stay resident and compile requests sent to        \n"
+				+ "        ADDRESS, a port on localhost or the path of a UNIX      \n"
+				+ "        domain socket.                                          \n"
+				+ "    --client  Send the rest of the command line to the server   \n"
+				+ "        at ADDRESS and print what it returns.                   \n"
+				+ "                                                                \n"
 				+ "\n");
 	}
 
@@ -99,10 +198,82 @@ public final class Option {
 		return level;
 	}
 
+	public void setLevel(Level level) {
+		this.level = level;
+	}
+
 	public PrintStream getOutput() {
 		return output;
 	}
 
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Run the backend on pool, shared with other compilations, instead of
+	 * on a pool of its own with getThreads() threads.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public Allocator getAllocator() {
+		return allocator;
+	}
+
+	public void setAllocator(Allocator allocator) {
+		this.allocator = allocator;
+	}
+
+	public int getOptimizeLevel() {
+		return optimizeLevel;
+	}
+
+	public void setOptimizeLevel(int optimizeLevel) {
+		this.optimizeLevel = optimizeLevel;
+	}
+
+	public boolean isStats() {
+		return stats;
+	}
+
+	public void setStats(boolean stats) {
+		this.stats = stats;
+	}
+
+	public String getCacheFileName() {
+		return cacheFileName;
+	}
+
+	/**
+	 * The cache of compiled classes, null if there is none.
+	 */
+	public CacheFile getCache() {
+		return cache;
+	}
+
+	public void setCache(CacheFile cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * The options that change the code generated for a class. Classes are
+	 * only reused from the cache if these were the same.
+	 */
+	public String getCodeOptions() {
+		return "decaf-4 -ra " + allocator.name().toLowerCase() + " -O "
+				+ optimizeLevel;
+	}
+
 	public PrintStream getErr() {
 		return err;
 	}
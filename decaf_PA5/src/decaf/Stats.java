@@ -0,0 +1,206 @@
+package decaf;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.management.ThreadMXBean;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Wall time, allocation and object counts of the phases of one
+ * compilation.
+ *
+ * Each phase is also committed as a JFR event, so that a running compile
+ * server can be profiled with JFR without passing -stats.
+ *
+ * Allocated bytes are summed over all live threads, as the backend runs on
+ * a pool. This is exact for a single compilation and includes the
+ * allocations of any other compilation running at the same time.
+ */
+public final class Stats {
+
+	@Name("decaf.Phase")
+	@Label("Compiler Phase")
+	@Category("Decaf")
+	@StackTrace(false)
+	static final class PhaseEvent extends Event {
+
+		@Label("Phase")
+		String phase;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocated;
+	}
+
+	@Name("decaf.Counts")
+	@Label("Compiler Object Counts")
+	@Description("Counts of key objects, committed when a phase ends")
+	@Category("Decaf")
+	@StackTrace(false)
+	static final class CountEvent extends Event {
+
+		@Label("Phase")
+		String phase;
+
+		@Label("Name")
+		String name;
+
+		@Label("Count")
+		long count;
+	}
+
+	private static final class Phase {
+
+		String name;
+
+		long nanos;
+
+		long allocated;
+	}
+
+	// null if the JVM can not tell how much a thread allocated
+	private static final ThreadMXBean THREADS;
+	static {
+		Object bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof ThreadMXBean
+				&& ((ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			THREADS = (ThreadMXBean) bean;
+		} else {
+			THREADS = null;
+		}
+	}
+
+	private final boolean enabled;
+
+	private final List<Phase> phases = new ArrayList<Phase>();
+
+	private final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+
+	// Printed after the counts, only with -stats
+	private final List<String> notes = new ArrayList<String>();
+
+	private PhaseEvent event;
+
+	// whether the current phase is measured
+	private boolean measuring;
+
+	private long begin;
+
+	private long allocatedBefore;
+
+	/**
+	 * @param enabled
+	 *            whether to measure when JFR is not recording either
+	 */
+	Stats(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	private static long allocatedBytes() {
+		if (THREADS == null) {
+			return 0;
+		}
+		long sum = 0;
+		for (long bytes : THREADS.getThreadAllocatedBytes(THREADS
+				.getAllThreadIds())) {
+			// -1 for a thread that ended in between
+			if (bytes > 0) {
+				sum += bytes;
+			}
+		}
+		return sum;
+	}
+
+	void begin(String name) {
+		event = new PhaseEvent();
+		event.phase = name;
+		measuring = enabled || event.isEnabled();
+		if (measuring) {
+			event.begin();
+			allocatedBefore = allocatedBytes();
+			begin = System.nanoTime();
+		}
+	}
+
+	void end() {
+		if (measuring) {
+			Phase phase = new Phase();
+			phase.nanos = System.nanoTime() - begin;
+			phase.allocated = allocatedBytes() - allocatedBefore;
+			phase.name = event.phase;
+			phases.add(phase);
+			event.allocated = phase.allocated;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Record a count of objects made by the phase that just ended.
+	 */
+	void count(String name, long count) {
+		if (measuring) {
+			counts.put(name, count);
+			CountEvent e = new CountEvent();
+			if (e.shouldCommit()) {
+				e.phase = event.phase;
+				e.name = name;
+				e.count = count;
+				e.commit();
+			}
+		}
+	}
+
+	/**
+	 * Record a line to print after the counts, such as what was decided at
+	 * one place of the program.
+	 */
+	void note(String line) {
+		if (enabled) {
+			notes.add(line);
+		}
+	}
+
+	/**
+	 * Count recorded under name, -1 if that phase did not run.
+	 */
+	public long getCount(String name) {
+		Long count = counts.get(name);
+		return count == null ? -1 : count;
+	}
+
+	public void printTo(PrintStream out) {
+		long nanos = 0;
+		long allocated = 0;
+		out.printf("%-20s %12s %14s%n", "phase", "time (ms)", "allocated (KB)");
+		for (Phase phase : phases) {
+			out.printf("%-20s %12.2f %14d%n", phase.name, phase.nanos / 1e6,
+					phase.allocated >> 10);
+			nanos += phase.nanos;
+			allocated += phase.allocated;
+		}
+		out.printf("%-20s %12.2f %14d%n", "total", nanos / 1e6,
+				allocated >> 10);
+		out.println();
+		for (Map.Entry<String, Long> e : counts.entrySet()) {
+			out.printf("%-20s %12d%n", e.getKey(), e.getValue());
+		}
+		if (!notes.isEmpty()) {
+			out.println();
+			for (String line : notes) {
+				out.println(line);
+			}
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package decaf.backend;
 
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Random;
+import java.util.Map;
+import java.util.Set;
 
 import decaf.Driver;
 import decaf.dataflow.BasicBlock;
@@ -19,6 +21,12 @@ public class BruteRegisterAllocator implements RegisterAllocator {
 
 	private Temp fp;
 
+	// The temp each register holds at the current point of the block
+	private Map<Register, Temp> binding = new HashMap<Register, Temp>();
+
+	// Temps the current tac reads, which must keep their registers
+	private Set<Temp> reading = new HashSet<Temp>();
+
 	public BruteRegisterAllocator(Temp fp, CallingConv callingConv,
 			Register[] regs) {
 		this.fp = fp;
@@ -32,6 +40,7 @@ public class BruteRegisterAllocator implements RegisterAllocator {
 
 		Tac tail = null;
 		for (Tac tac = bb.tacList; tac != null; tail = tac, tac = tac.next) {
+			reading.clear();
 			switch (tac.opc) {
 				case ADD:
 				case SUB:
@@ -46,43 +55,43 @@ public class BruteRegisterAllocator implements RegisterAllocator {
 				case NEQ:
 				case LEQ:
 				case LES:
-					findRegForRead(tac, tac.op1);
-					findRegForRead(tac, tac.op2);
-					findRegForWrite(tac, tac.op0);
+					tac.op1 = findRegForRead(tac, tac.op1);
+					tac.op2 = findRegForRead(tac, tac.op2);
+					tac.op0 = findRegForWrite(tac, tac.op0);
 					break;
 				case NEG:
 				case LNOT:
 				case ASSIGN:
-					findRegForRead(tac, tac.op1);
-					findRegForWrite(tac, tac.op0);
+					tac.op1 = findRegForRead(tac, tac.op1);
+					tac.op0 = findRegForWrite(tac, tac.op0);
 					break;
 				case LOAD_VTBL:
 				case LOAD_IMM4:
 				case LOAD_STR_CONST:
-					findRegForWrite(tac, tac.op0);
+					tac.op0 = findRegForWrite(tac, tac.op0);
 					break;
 				case INDIRECT_CALL:
-					findRegForRead(tac, tac.op1);
+					tac.op1 = findRegForRead(tac, tac.op1);
 					// fallthrough
 				case DIRECT_CALL:
 					if (tac.op0 != null) {
-						findRegForWrite(tac, tac.op0);
+						tac.op0 = findRegForWrite(tac, tac.op0);
 					}
 					callingConv.finishParam();
 					saveLiveOutForTac(tac);
 					break;
 				case PARM:
-					findRegForRead(tac, tac.op0);
+					tac.op0 = findRegForRead(tac, tac.op0);
 					int offset = callingConv.addParam(tac.op0);
 					tac.op1 = Temp.createConstTemp(offset);
 					break;
 				case LOAD:
-					findRegForRead(tac, tac.op1);
-					findRegForWrite(tac, tac.op0);
+					tac.op1 = findRegForRead(tac, tac.op1);
+					tac.op0 = findRegForWrite(tac, tac.op0);
 					break;
 				case STORE:
-					findRegForRead(tac, tac.op1);
-					findRegForRead(tac, tac.op0);
+					tac.op1 = findRegForRead(tac, tac.op1);
+					tac.op0 = findRegForRead(tac, tac.op0);
 					break;
 				case BRANCH:
 				case BEQZ:
@@ -99,15 +108,23 @@ public class BruteRegisterAllocator implements RegisterAllocator {
 			case BY_BEQZ:
 			case BY_BNEZ:
 				if (bb.var != null) {
-					if (bb.var.reg != null && bb.var.equals(bb.var.reg.var)) {
+					if (bb.var.reg != null
+							&& bb.var.equals(binding.get(bb.var.reg))) {
 						bb.varReg = bb.var.reg;
 						return;
 					} else {
 						// all live temps have been spilled out, so use any reg is valid
+						// but the one regs[0] holds, as the saves are stored after
+						// the load. That one is stored before it instead.
+						Temp held = binding.get(regs[0]);
+						if (held != null && bb.saves.remove(held)) {
+							Tac store = Tac.genStore(inReg(held), fp,
+									Temp.createConstTemp(held.offset));
+							bb.insertAfter(store, tail);
+							tail = store;
+						}
 						bb.var.reg = regs[0];
-						if (!bb.var.isOffsetFixed())
-							throw new IllegalArgumentException(bb.var +
-									" may used before define during register allocation");
+						findSlot(bb.var);
 						Tac load = Tac.genLoad(bb.var, fp,
 								Temp.createConstTemp(bb.var.offset));
 						bb.insertAfter(load, tail);
@@ -117,32 +134,40 @@ public class BruteRegisterAllocator implements RegisterAllocator {
 		}
 	}
 
-	private Random random = new Random();
+	// Where the search for a register to spill starts next, so that the
+	// same one is not always taken
+	private int victim;
 
 	private void clear() {
-		for (Register reg : regs) {
-			if (reg.var != null) {
-				reg.var = null;
-			}
-		}
+		binding.clear();
 	}
 
 	private void bind(Register reg, Temp temp) {
-		reg.var = temp;
+		binding.put(reg, temp);
 		temp.reg = reg;
 	}
 
+	// The registers of the temps change along the block, while the code is
+	// only generated after it. So each Tac is given copies of the temps it
+	// reads or writes, in the registers they have at that point.
+	private Temp inReg(Temp temp) {
+		Temp copy = new Temp(temp.id, temp.name, temp.size, temp.offset);
+		copy.reg = temp.reg;
+		return copy;
+	}
+
 	private void findReg(Tac tac, Temp temp, boolean read) {
 		// already in reg
 		if (temp.reg != null) {
-			if (temp.equals(temp.reg.var)) {
+			if (temp.equals(binding.get(temp.reg))) {
 				return;
 			}
 		}
 
 		// find a reg do not need to spill
 		for (Register reg : regs) {
-			if (reg.var == null || !isAlive(tac, reg.var)) {
+			Temp var = binding.get(reg);
+			if (var == null || !isAlive(tac, var)) {
 				bind(reg, temp);
 				if (read) {
 					load(tac, temp);
@@ -153,8 +178,9 @@ public class BruteRegisterAllocator implements RegisterAllocator {
 
 		// find a reg which var's offset already fixed to spill
 		for (Register reg : regs) {
-			if (reg.var.isOffsetFixed()) {
-				spill(tac, reg.var);
+			Temp var = binding.get(reg);
+			if (var.isOffsetFixed() && !reading.contains(var)) {
+				spill(tac, var);
 				bind(reg, temp);
 				if (read) {
 					load(tac, temp);
@@ -163,33 +189,51 @@ public class BruteRegisterAllocator implements RegisterAllocator {
 			}
 		}
 
-		// random select a reg to spill
-		Register reg = regs[random.nextInt(regs.length)];
-		callingConv.spillToStack(reg.var);
-		spill(tac, reg.var);
+		// select a reg to spill, in turn
+		Register reg;
+		do {
+			reg = regs[victim];
+			victim = (victim + 1) % regs.length;
+		} while (reading.contains(binding.get(reg)));
+		Temp var = binding.get(reg);
+		callingConv.spillToStack(var);
+		spill(tac, var);
 		bind(reg, temp);
 		if (read) {
 			load(tac, temp);
 		}
 	}
 
-	private void findRegForRead(Tac tac, Temp temp) {
+	private Temp findRegForRead(Tac tac, Temp temp) {
 		findReg(tac, temp, true);
+		reading.add(temp);
+		return inReg(temp);
 	}
 
 	private void spill(Tac tac, Temp temp) {
-		Tac spill = Tac.genStore(temp, fp, Temp.createConstTemp(temp.offset));
+		Tac spill = Tac.genStore(inReg(temp), fp,
+				Temp.createConstTemp(temp.offset));
 		bb.insertBefore(spill, tac);
 	}
 
 	private void load(Tac tac, Temp temp) {
-		if (!temp.isOffsetFixed())
-			throw new IllegalArgumentException(bb.var +
-					" may used before define during register allocation");
-		Tac load = Tac.genLoad(temp, fp, Temp.createConstTemp(temp.offset));
+		findSlot(temp);
+		Tac load = Tac.genLoad(inReg(temp), fp,
+				Temp.createConstTemp(temp.offset));
 		bb.insertBefore(load, tac);
 	}
 
+	// A temp live into the block may be defined in a block after it, once
+	// the code was optimized, which then saves it to the slot found here
+	private void findSlot(Temp temp) {
+		if (temp.isOffsetFixed())
+			return;
+		if (!bb.liveIn.contains(temp))
+			throw new IllegalArgumentException(temp +
+					" may used before define during register allocation");
+		callingConv.findSlot(temp);
+	}
+
 	private boolean isAlive(Tac tac, Temp temp) {
 		if (tac != null && tac.prev != null) {
 			tac = tac.prev;
@@ -203,25 +247,26 @@ public class BruteRegisterAllocator implements RegisterAllocator {
 		return bb.liveIn.contains(temp);
 	}
 
-	private void findRegForWrite(Tac tac, Temp temp) {
+	private Temp findRegForWrite(Tac tac, Temp temp) {
 		findReg(tac, temp, false);
+		return inReg(temp);
 	}
 
 	private void saveLiveOutForTac(Tac tac) {
 		tac.saves = new HashSet<Temp>();
 		for (Temp t : tac.liveOut)
-			if (t.reg != null && t.equals(t.reg.var) && !t.equals(tac.op0)) {
+			if (t.reg != null && t.equals(binding.get(t.reg)) && !t.equals(tac.op0)) {
 				callingConv.spillToStack(t);
-				tac.saves.add(t);
+				tac.saves.add(inReg(t));
 			}
 	}
 
 	private void saveLiveOutForBB(BasicBlock bb) {
 		bb.saves = new HashSet<Temp>();
 		for (Temp t : bb.liveOut) {
-			if (t.reg != null && t.equals(t.reg.var)) {
+			if (t.reg != null && t.equals(binding.get(t.reg))) {
 				callingConv.spillToStack(t);
-				bb.saves.add(t);
+				bb.saves.add(inReg(t));
 			}
 		}
 	}
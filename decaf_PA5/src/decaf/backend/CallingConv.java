@@ -22,4 +22,7 @@ public interface CallingConv {
 	public void finishParam();
 
 	public void spillToStack(Temp t);
+
+	// Give t a slot in the frame, unless it has one already.
+	public void findSlot(Temp t);
 }
@@ -0,0 +1,620 @@
+package decaf.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import decaf.dataflow.BasicBlock;
+import decaf.dataflow.FlowGraph;
+import decaf.machdesc.Register;
+import decaf.tac.Tac;
+import decaf.tac.Temp;
+
+/**
+ * Graph coloring over the whole function, after Chaitin and Briggs.
+ *
+ * Two temps interfere if one is live where the other is defined anywhere in
+ * the function, so a temp keeps one register in all blocks and nothing is
+ * loaded at the start of a block or stored at its end. Parameters are
+ * loaded once on entry, and values live across a call are saved around it.
+ *
+ * Nodes are removed while some node has fewer neighbours than there are
+ * registers; when none has, the one cheapest to spill for its degree is
+ * removed all the same, and only spilled if no register is left for it
+ * when the nodes are put back. A spilled temp is loaded into a new temp
+ * before each use and stored from one after each definition, and the
+ * function is colored again.
+ *
+ * A value saved around a call is not stored again before a later call if
+ * it was not redefined since on any way there: its slot still holds it.
+ */
+public class ChaitinBriggsRegisterAllocator implements RegisterAllocator {
+
+	// Uses in a loop count this many times those outside
+	private static final double LOOP_WEIGHT = 10;
+
+	private static final int MAX_LOOP_DEPTH = 8;
+
+	private CallingConv callingConv;
+
+	private Register[] regs;
+
+	// The functions are allocated in parallel, each with its own $fp temp,
+	// as the loads and stores of spilled temps take part in liveness
+	private Temp fp;
+
+	// Ids of the temps loaded or stored for spilled ones, below that of $fp
+	private int nextId;
+
+	private List<Temp> entryLoads = new ArrayList<Temp>();
+
+	private int edgeCount;
+
+	private int spillCount;
+
+	// By Temp.index
+	private Temp[] temps;
+
+	private int[][] neighbours;
+
+	private int[] degree;
+
+	private double[] cost;
+
+	// Temps each one is copied from or to, to share a register with
+	private int[][] moves;
+
+	// The temps whose slots hold their values at each call
+	private Map<Tac, BitSet> stored = new HashMap<Tac, BitSet>();
+
+	public ChaitinBriggsRegisterAllocator(Temp fp, CallingConv callingConv,
+			Register[] regs) {
+		this.fp = new Temp(fp.id, fp.name, fp.size, fp.offset);
+		this.fp.reg = fp.reg;
+		this.callingConv = callingConv;
+		this.regs = regs;
+		nextId = fp.id - 1;
+	}
+
+	@Override
+	public void begin(FlowGraph g) {
+		// Temps live into the entry are not live out of the returns, so
+		// they need not hold a register across the whole function
+		g.updateLiveness(false);
+		double[] weight = blockWeights(g);
+		while (true) {
+			build(g, weight);
+			BitSet spilled = color();
+			if (spilled.isEmpty()) {
+				break;
+			}
+			rewrite(g, spilled);
+			g.updateLiveness();
+		}
+		for (Temp t : g.getBlock(0).liveIn) {
+			if (t.isParam && t.reg != null) {
+				entryLoads.add(t);
+			}
+		}
+		findStored(g);
+	}
+
+	@Override
+	public void alloc(BasicBlock bb) {
+		for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+			switch (tac.opc) {
+			case INDIRECT_CALL:
+			case DIRECT_CALL:
+				callingConv.finishParam();
+				saveLiveOutForTac(tac);
+				break;
+			case PARM:
+				int offset = callingConv.addParam(tac.op0);
+				tac.op1 = Temp.createConstTemp(offset);
+				break;
+			default:
+				break;
+			}
+		}
+		bb.saves = new TreeSet<Temp>(Temp.ID_COMPARATOR);
+		if (bb.var != null) {
+			bb.varReg = bb.var.reg;
+		}
+	}
+
+	@Override
+	public List<Temp> getEntryLoads() {
+		return entryLoads;
+	}
+
+	@Override
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * Number of values stored to the stack because they are spilled or live
+	 * across a call.
+	 */
+	@Override
+	public int getSpillCount() {
+		return spillCount;
+	}
+
+	// Saves are visited in id order, as they are given stack slots in turn.
+	private void saveLiveOutForTac(Tac tac) {
+		tac.saves = new TreeSet<Temp>(Temp.ID_COMPARATOR);
+		tac.reloads = new TreeSet<Temp>(Temp.ID_COMPARATOR);
+		BitSet inSlot = stored.get(tac);
+		for (Temp t : tac.liveOut) {
+			if (isSaved(tac, t)) {
+				callingConv.spillToStack(t);
+				if (inSlot.get(t.index)) {
+					tac.reloads.add(t);
+				} else {
+					tac.saves.add(t);
+					spillCount++;
+				}
+			}
+		}
+	}
+
+	private boolean isSaved(Tac call, Temp t) {
+		return t != fp && t.reg != null && !t.equals(call.op0);
+	}
+
+	/**
+	 * Which temps are in their slots at each call, forwards over the
+	 * function: parameters are on entry, the saves of a call are after it,
+	 * and a temp defined is not. A temp is in its slot where it is on every
+	 * way there.
+	 */
+	private void findStored(FlowGraph g) {
+		int n = temps.length;
+		BitSet entry = new BitSet();
+		for (Temp t : g.getBlock(0).liveIn) {
+			if (t.isParam && t != fp) {
+				entry.set(t.index);
+			}
+		}
+		// Blocks not yet visited are left null, as if all were in slots
+		BitSet[] out = new BitSet[g.size()];
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int b : g.getReversePostorder()) {
+				BitSet in = new BitSet();
+				in.set(0, n);
+				if (b == 0) {
+					in.and(entry);
+				}
+				for (int p : g.getPredecessors(b)) {
+					if (out[p] != null) {
+						in.and(out[p]);
+					}
+				}
+				BasicBlock bb = g.getBlock(b);
+				for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+					if (tac.opc == Tac.Kind.DIRECT_CALL
+							|| tac.opc == Tac.Kind.INDIRECT_CALL) {
+						stored.put(tac, (BitSet) in.clone());
+						for (Temp t : tac.liveOut) {
+							if (isSaved(tac, t)) {
+								in.set(t.index);
+							}
+						}
+					}
+					Temp d = defOf(tac);
+					if (d != null && d != fp) {
+						in.clear(d.index);
+					}
+				}
+				if (!in.equals(out[b])) {
+					out[b] = in;
+					changed = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 10 to the number of loops around each block. A jump to a block no
+	 * later in reverse postorder closes a loop, whose body is the block
+	 * jumped to and all blocks reaching the jump without passing it.
+	 */
+	private static double[] blockWeights(FlowGraph g) {
+		int n = g.size();
+		int[] order = g.getReversePostorder();
+		int[] position = new int[n];
+		for (int k = 0; k < n; k++) {
+			position[order[k]] = k;
+		}
+		Map<Integer, BitSet> bodies = new HashMap<Integer, BitSet>();
+		int[] stack = new int[n];
+		for (BasicBlock bb : g) {
+			if (bb.endKind == BasicBlock.EndKind.BY_RETURN) {
+				continue;
+			}
+			for (int i = 0; i < 2; i++) {
+				int header = bb.next[i];
+				if (position[header] > position[bb.bbNum]
+						|| (i == 1 && header == bb.next[0])) {
+					continue;
+				}
+				BitSet body = bodies.computeIfAbsent(header, h -> new BitSet());
+				body.set(header);
+				int depth = 0;
+				if (!body.get(bb.bbNum)) {
+					body.set(bb.bbNum);
+					stack[depth++] = bb.bbNum;
+				}
+				while (depth > 0) {
+					for (int p : g.getPredecessors(stack[--depth])) {
+						if (!body.get(p)) {
+							body.set(p);
+							stack[depth++] = p;
+						}
+					}
+				}
+			}
+		}
+		int[] loops = new int[n];
+		for (BitSet body : bodies.values()) {
+			for (int b = body.nextSetBit(0); b >= 0; b = body.nextSetBit(b + 1)) {
+				loops[b]++;
+			}
+		}
+		double[] weight = new double[n];
+		for (int b = 0; b < n; b++) {
+			weight[b] = Math.pow(LOOP_WEIGHT, Math.min(loops[b],
+					MAX_LOOP_DEPTH));
+		}
+		return weight;
+	}
+
+	// The temp tac defines, or null
+	private static Temp defOf(Tac tac) {
+		switch (tac.opc) {
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV:
+		case MOD:
+		case LAND:
+		case LOR:
+		case GTR:
+		case GEQ:
+		case EQU:
+		case NEQ:
+		case LEQ:
+		case LES:
+		case NEG:
+		case LNOT:
+		case ASSIGN:
+		case LOAD_VTBL:
+		case LOAD_IMM4:
+		case LOAD_STR_CONST:
+		case LOAD:
+		case DIRECT_CALL:
+		case INDIRECT_CALL:
+			return tac.op0;
+		default:
+			return null;
+		}
+	}
+
+	// The temps tac reads, nulls left out
+	private static Temp[] usesOf(Tac tac) {
+		switch (tac.opc) {
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV:
+		case MOD:
+		case LAND:
+		case LOR:
+		case GTR:
+		case GEQ:
+		case EQU:
+		case NEQ:
+		case LEQ:
+		case LES:
+			return new Temp[] { tac.op1, tac.op2 };
+		case NEG:
+		case LNOT:
+		case ASSIGN:
+		case LOAD:
+		case INDIRECT_CALL:
+			return new Temp[] { tac.op1 };
+		case STORE:
+			return new Temp[] { tac.op0, tac.op1 };
+		case PARM:
+			return new Temp[] { tac.op0 };
+		default:
+			return new Temp[0];
+		}
+	}
+
+	/**
+	 * The interference graph and the spill costs, from the liveness of each
+	 * Tac. The temps live on entry are all defined there, by the caller.
+	 */
+	private void build(FlowGraph g, double[] weight) {
+		int n = 0;
+		for (BasicBlock bb : g) {
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				n = Math.max(n, maxIndex(tac.op0, maxIndex(tac.op1, maxIndex(
+						tac.op2, -1))) + 1);
+			}
+			n = Math.max(n, maxIndex(bb.var, -1) + 1);
+		}
+		temps = new Temp[n];
+		cost = new double[n];
+		int[] count = new int[n];
+		neighbours = new int[n][];
+		int[][] copies = new int[n][];
+		int[] copyCount = new int[n];
+
+		for (BasicBlock bb : g) {
+			double w = weight[bb.bbNum];
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				for (Temp u : usesOf(tac)) {
+					if (u != fp) {
+						temps[u.index] = u;
+						cost[u.index] += w;
+					}
+				}
+				Temp d = defOf(tac);
+				if (d == null) {
+					continue;
+				}
+				temps[d.index] = d;
+				cost[d.index] += w;
+				for (Temp t : tac.liveOut) {
+					if (t != d && t != fp
+							&& !(tac.opc == Tac.Kind.ASSIGN && t == tac.op1)) {
+						addEdge(count, d.index, t.index);
+					}
+				}
+				if (tac.opc == Tac.Kind.ASSIGN && tac.op1 != d) {
+					copyCount[d.index] = append(copies, copyCount[d.index],
+							d.index, tac.op1.index);
+					copyCount[tac.op1.index] = append(copies,
+							copyCount[tac.op1.index], tac.op1.index, d.index);
+				}
+			}
+			if (bb.var != null) {
+				temps[bb.var.index] = bb.var;
+				cost[bb.var.index] += w;
+			}
+		}
+		List<Temp> entry = new ArrayList<Temp>();
+		for (Temp t : g.getBlock(0).liveIn) {
+			if (t != fp) {
+				temps[t.index] = t;
+				entry.add(t);
+			}
+		}
+		for (int i = 0; i < entry.size(); i++) {
+			for (int j = i + 1; j < entry.size(); j++) {
+				addEdge(count, entry.get(i).index, entry.get(j).index);
+			}
+		}
+
+		// Duplicate edges are dropped here
+		degree = new int[n];
+		edgeCount = 0;
+		moves = new int[n][];
+		for (int i = 0; i < n; i++) {
+			degree[i] = unique(neighbours, i, count[i]);
+			edgeCount += degree[i];
+			moves[i] = Arrays.copyOf(copies[i] == null ? new int[0]
+					: copies[i], copyCount[i]);
+			if (temps[i] != null && temps[i].id < fp.id) {
+				// Spilling it again would not make its life any shorter
+				cost[i] = Double.POSITIVE_INFINITY;
+			}
+		}
+		edgeCount /= 2;
+	}
+
+	private int maxIndex(Temp t, int max) {
+		return t == null || t.isConst || t == fp ? max : Math.max(max,
+				t.index);
+	}
+
+	private void addEdge(int[] count, int a, int b) {
+		count[a] = append(neighbours, count[a], a, b);
+		count[b] = append(neighbours, count[b], b, a);
+	}
+
+	private static int append(int[][] lists, int size, int i, int value) {
+		if (lists[i] == null) {
+			lists[i] = new int[4];
+		} else if (size == lists[i].length) {
+			lists[i] = Arrays.copyOf(lists[i], size * 2);
+		}
+		lists[i][size] = value;
+		return size + 1;
+	}
+
+	private static int unique(int[][] lists, int i, int size) {
+		if (lists[i] == null) {
+			lists[i] = new int[0];
+			return 0;
+		}
+		int[] list = lists[i];
+		Arrays.sort(list, 0, size);
+		int k = 0;
+		for (int j = 0; j < size; j++) {
+			if (k == 0 || list[k - 1] != list[j]) {
+				list[k++] = list[j];
+			}
+		}
+		lists[i] = Arrays.copyOf(list, k);
+		return k;
+	}
+
+	/**
+	 * Simplify and select. Each temp given a color has its register set.
+	 *
+	 * @return the numbers of the temps left without a register
+	 */
+	private BitSet color() {
+		int n = temps.length;
+		int k = regs.length;
+		boolean[] removed = new boolean[n];
+		int[] stack = new int[n];
+		int top = 0;
+		int[] low = new int[n];
+		int lowCount = 0;
+		int left = 0;
+		for (int i = 0; i < n; i++) {
+			if (temps[i] == null) {
+				removed[i] = true;
+				continue;
+			}
+			left++;
+			if (degree[i] < k) {
+				low[lowCount++] = i;
+			}
+		}
+
+		while (left > 0) {
+			int node = -1;
+			while (lowCount > 0 && node < 0) {
+				int m = low[--lowCount];
+				if (!removed[m]) {
+					node = m;
+				}
+			}
+			if (node < 0) {
+				// Optimistically, it may still find a register
+				double best = Double.POSITIVE_INFINITY;
+				for (int i = 0; i < n; i++) {
+					if (!removed[i]
+							&& (node < 0 || cost[i] / degree[i] < best)) {
+						node = i;
+						best = cost[i] / degree[i];
+					}
+				}
+			}
+			removed[node] = true;
+			stack[top++] = node;
+			left--;
+			for (int m : neighbours[node]) {
+				if (!removed[m] && degree[m]-- == k) {
+					low[lowCount++] = m;
+				}
+			}
+		}
+
+		int[] color = new int[n];
+		Arrays.fill(color, -1);
+		boolean[] taken = new boolean[k];
+		BitSet spilled = new BitSet();
+		while (top > 0) {
+			int node = stack[--top];
+			Arrays.fill(taken, false);
+			for (int m : neighbours[node]) {
+				if (color[m] >= 0) {
+					taken[color[m]] = true;
+				}
+			}
+			// A copy between two temps of one register is left out
+			for (int m : moves[node]) {
+				if (color[m] >= 0 && !taken[color[m]]) {
+					color[node] = color[m];
+					break;
+				}
+			}
+			for (int c = 0; c < k && color[node] < 0; c++) {
+				if (!taken[c]) {
+					color[node] = c;
+				}
+			}
+			if (color[node] < 0) {
+				spilled.set(node);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			if (temps[i] != null) {
+				temps[i].reg = color[i] < 0 ? null : regs[color[i]];
+			}
+		}
+		return spilled;
+	}
+
+	// Each use of a spilled temp loads it into a new temp, each definition
+	// stores a new one.
+	private void rewrite(FlowGraph g, BitSet spilled) {
+		for (int i = spilled.nextSetBit(0); i >= 0; i = spilled
+				.nextSetBit(i + 1)) {
+			callingConv.findSlot(temps[i]);
+		}
+		for (BasicBlock bb : g) {
+			Tac last = null;
+			for (Tac tac = bb.tacList; tac != null; last = tac, tac = tac.next) {
+				Temp[] uses = usesOf(tac);
+				Map<Temp, Temp> loaded = new HashMap<Temp, Temp>();
+				for (Temp u : uses) {
+					if (isSpilled(spilled, u) && !loaded.containsKey(u)) {
+						Temp t = newTemp(u);
+						bb.insertBefore(Tac.genLoad(t, fp, Temp
+								.createConstTemp(u.offset)), tac);
+						loaded.put(u, t);
+					}
+				}
+				Temp d = defOf(tac);
+				if (!loaded.isEmpty()) {
+					replaceUses(tac, loaded);
+				}
+				if (isSpilled(spilled, d)) {
+					Temp t = newTemp(d);
+					tac.op0 = t;
+					Tac store = Tac.genStore(t, fp, Temp
+							.createConstTemp(d.offset));
+					bb.insertAfter(store, tac);
+					spillCount++;
+					tac = store;
+				}
+			}
+			if (isSpilled(spilled, bb.var)) {
+				Temp t = newTemp(bb.var);
+				bb.insertAfter(Tac.genLoad(t, fp, Temp
+						.createConstTemp(bb.var.offset)), last);
+				bb.var = t;
+			}
+		}
+	}
+
+	private boolean isSpilled(BitSet spilled, Temp t) {
+		return t != null && t != fp && !t.isConst && spilled.get(t.index);
+	}
+
+	private Temp newTemp(Temp spilled) {
+		Temp t = Temp.createTempI4(nextId--);
+		t.size = spilled.size;
+		return t;
+	}
+
+	private static void replaceUses(Tac tac, Map<Temp, Temp> loaded) {
+		switch (tac.opc) {
+		case STORE:
+		case PARM:
+			tac.op0 = loaded.getOrDefault(tac.op0, tac.op0);
+			tac.op1 = tac.op1 == null ? null : loaded.getOrDefault(tac.op1,
+					tac.op1);
+			break;
+		default:
+			tac.op1 = loaded.getOrDefault(tac.op1, tac.op1);
+			tac.op2 = tac.op2 == null ? null : loaded.getOrDefault(tac.op2,
+					tac.op2);
+			break;
+		}
+	}
+}
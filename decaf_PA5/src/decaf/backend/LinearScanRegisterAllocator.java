@@ -0,0 +1,299 @@
+package decaf.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import decaf.dataflow.BasicBlock;
+import decaf.dataflow.FlowGraph;
+import decaf.machdesc.Register;
+import decaf.tac.Tac;
+import decaf.tac.Temp;
+
+/**
+ * Linear scan, after Poletto and Sarkar: quick to run on very large
+ * functions, in exchange for some loads and stores.
+ *
+ * The blocks are laid out in reverse postorder and each temp gets a single
+ * interval from its first to its last point of life, block boundaries
+ * included. The intervals are visited by start, with those still active
+ * kept by end; when no register is free, the interval ending last is
+ * spilled. A spilled temp lives in its stack slot for its whole life and is
+ * loaded into a scratch register before each use and stored from one after
+ * each definition, so the function is scanned only once.
+ */
+public class LinearScanRegisterAllocator implements RegisterAllocator {
+
+	// One for each operand read by a Tac
+	private static final int SCRATCH_REGS = 2;
+
+	private CallingConv callingConv;
+
+	// The registers for the intervals
+	private Register[] regs;
+
+	private Register[] scratch;
+
+	private Temp fp;
+
+	private List<Temp> entryLoads = new ArrayList<Temp>();
+
+	private int spillCount;
+
+	private BasicBlock bb;
+
+	public LinearScanRegisterAllocator(Temp fp, CallingConv callingConv,
+			Register[] regs) {
+		this.fp = fp;
+		this.callingConv = callingConv;
+		this.regs = Arrays.copyOf(regs, regs.length - SCRATCH_REGS);
+		scratch = Arrays.copyOfRange(regs, regs.length - SCRATCH_REGS,
+				regs.length);
+	}
+
+	@Override
+	public void begin(FlowGraph g) {
+		// Two points for each Tac, where it reads and where it writes, and
+		// two for the start and the end of each block
+		int n = 0;
+		for (BasicBlock bb : g) {
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				n = Math.max(n, maxIndex(tac.op0, maxIndex(tac.op1, maxIndex(
+						tac.op2, -1))) + 1);
+			}
+			n = Math.max(n, maxIndex(bb.var, -1) + 1);
+		}
+		Temp[] temps = new Temp[n];
+		int[] start = new int[n];
+		int[] end = new int[n];
+		Arrays.fill(start, Integer.MAX_VALUE);
+		Arrays.fill(end, -1);
+
+		int point = 0;
+		for (int b : g.getReversePostorder()) {
+			BasicBlock bb = g.getBlock(b);
+			for (Temp t : bb.liveIn) {
+				temps[t.index] = t;
+				start[t.index] = Math.min(start[t.index], point);
+				end[t.index] = Math.max(end[t.index], point);
+			}
+			point += 2;
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				for (Temp t : new Temp[] { tac.op0, tac.op1, tac.op2 }) {
+					if (t != null && !t.isConst) {
+						int p = t == defOf(tac) ? point + 1 : point;
+						temps[t.index] = t;
+						start[t.index] = Math.min(start[t.index], p);
+						end[t.index] = Math.max(end[t.index], p);
+					}
+				}
+				point += 2;
+			}
+			if (bb.var != null) {
+				temps[bb.var.index] = bb.var;
+				start[bb.var.index] = Math.min(start[bb.var.index], point);
+				end[bb.var.index] = Math.max(end[bb.var.index], point);
+			}
+			for (Temp t : bb.liveOut) {
+				end[t.index] = Math.max(end[t.index], point);
+			}
+			point += 2;
+		}
+
+		List<Integer> intervals = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++) {
+			if (temps[i] != null) {
+				temps[i].reg = null;
+				intervals.add(i);
+			}
+		}
+		intervals.sort((a, b) -> start[a] != start[b] ? Integer.compare(
+				start[a], start[b]) : Integer.compare(a, b));
+
+		// The active intervals, by register
+		int[] active = new int[regs.length];
+		Arrays.fill(active, -1);
+		for (int i : intervals) {
+			int free = -1;
+			int last = -1;
+			for (int r = 0; r < regs.length; r++) {
+				if (active[r] >= 0 && end[active[r]] < start[i]) {
+					active[r] = -1;
+				}
+				if (active[r] < 0) {
+					if (free < 0) {
+						free = r;
+					}
+				} else if (last < 0 || end[active[r]] > end[active[last]]) {
+					last = r;
+				}
+			}
+			if (free >= 0) {
+				active[free] = i;
+				temps[i].reg = regs[free];
+			} else if (end[active[last]] > end[i]) {
+				spill(temps[active[last]]);
+				active[last] = i;
+				temps[i].reg = regs[last];
+			} else {
+				spill(temps[i]);
+			}
+		}
+
+		for (Temp t : g.getBlock(0).liveIn) {
+			if (t.isParam && t.reg != null) {
+				entryLoads.add(t);
+			}
+		}
+	}
+
+	private static int maxIndex(Temp t, int max) {
+		return t == null || t.isConst ? max : Math.max(max, t.index);
+	}
+
+	private void spill(Temp t) {
+		t.reg = null;
+		callingConv.findSlot(t);
+	}
+
+	@Override
+	public void alloc(BasicBlock bb) {
+		this.bb = bb;
+		Tac tail = null;
+		for (Tac tac = bb.tacList; tac != null; tail = tac, tac = tac.next) {
+			switch (tac.opc) {
+			case ADD:
+			case SUB:
+			case MUL:
+			case DIV:
+			case MOD:
+			case LAND:
+			case LOR:
+			case GTR:
+			case GEQ:
+			case EQU:
+			case NEQ:
+			case LEQ:
+			case LES:
+				tac.op1 = load(tac, tac.op1, 0);
+				tac.op2 = load(tac, tac.op2, 1);
+				tac = store(tac);
+				break;
+			case NEG:
+			case LNOT:
+			case ASSIGN:
+			case LOAD:
+				tac.op1 = load(tac, tac.op1, 0);
+				tac = store(tac);
+				break;
+			case LOAD_VTBL:
+			case LOAD_IMM4:
+			case LOAD_STR_CONST:
+				tac = store(tac);
+				break;
+			case INDIRECT_CALL:
+			case DIRECT_CALL:
+				if (tac.opc == Tac.Kind.INDIRECT_CALL) {
+					tac.op1 = load(tac, tac.op1, 0);
+				}
+				callingConv.finishParam();
+				saveLiveOutForTac(tac);
+				if (tac.op0 != null) {
+					tac = store(tac);
+				}
+				break;
+			case PARM:
+				tac.op0 = load(tac, tac.op0, 0);
+				int offset = callingConv.addParam(tac.op0);
+				tac.op1 = Temp.createConstTemp(offset);
+				break;
+			case STORE:
+				tac.op0 = load(tac, tac.op0, 0);
+				tac.op1 = load(tac, tac.op1, 1);
+				break;
+			default:
+				break;
+			}
+		}
+		bb.saves = new TreeSet<Temp>(Temp.ID_COMPARATOR);
+		if (bb.var != null) {
+			if (bb.var.reg == null) {
+				Temp t = inScratch(bb.var, 0);
+				bb.insertAfter(Tac.genLoad(t, fp, Temp
+						.createConstTemp(t.offset)), tail);
+			}
+			bb.varReg = bb.var.reg != null ? bb.var.reg : scratch[0];
+		}
+	}
+
+	// The temp to read in place of t, loaded before tac if t is spilled
+	private Temp load(Tac tac, Temp t, int i) {
+		if (t == fp || t.reg != null) {
+			return t;
+		}
+		Temp s = inScratch(t, i);
+		bb.insertBefore(Tac.genLoad(s, fp, Temp.createConstTemp(t.offset)),
+				tac);
+		return s;
+	}
+
+	// If tac defines a spilled temp, write it to a scratch register and
+	// store it after tac, which is returned
+	private Tac store(Tac tac) {
+		Temp t = tac.op0;
+		if (t.reg != null) {
+			return tac;
+		}
+		tac.op0 = inScratch(t, 0);
+		Tac store = Tac.genStore(tac.op0, fp, Temp.createConstTemp(t.offset));
+		bb.insertAfter(store, tac);
+		spillCount++;
+		return store;
+	}
+
+	// A copy of t in a scratch register, for one Tac
+	private Temp inScratch(Temp t, int i) {
+		Temp s = new Temp(t.id, t.name, t.size, t.offset);
+		s.reg = scratch[i];
+		return s;
+	}
+
+	// The temp tac defines, or null
+	private static Temp defOf(Tac tac) {
+		switch (tac.opc) {
+		case STORE:
+		case PARM:
+			return null;
+		default:
+			return tac.op0;
+		}
+	}
+
+	@Override
+	public List<Temp> getEntryLoads() {
+		return entryLoads;
+	}
+
+	/**
+	 * Number of values stored to the stack because they are spilled or live
+	 * across a call.
+	 */
+	@Override
+	public int getSpillCount() {
+		return spillCount;
+	}
+
+	// Saves are visited in id order, as they are given stack slots in turn.
+	// Spilled temps are in their slots already.
+	private void saveLiveOutForTac(Tac tac) {
+		tac.saves = new TreeSet<Temp>(Temp.ID_COMPARATOR);
+		for (Temp t : tac.liveOut) {
+			if (t.reg != null && !t.equals(tac.op0)) {
+				callingConv.spillToStack(t);
+				tac.saves.add(t);
+				spillCount++;
+			}
+		}
+	}
+}
@@ -1,9 +1,34 @@
 package decaf.backend;
 
+import java.util.Collections;
+import java.util.List;
+
 import decaf.dataflow.BasicBlock;
+import decaf.dataflow.FlowGraph;
+import decaf.tac.Temp;
 
 public interface RegisterAllocator {
+	// Called once for each function, before its blocks are allocated.
+	// An allocator that looks at the whole function decides here.
+	public default void begin(FlowGraph g) {
+	}
+
 	// For each tac in the bb, determine its register assignment.
 	// Possibly it needs inserting spill / load etc instructions.
 	public void alloc(BasicBlock bb);
+
+	// Temps loaded from their stack slots into their registers on entry to
+	// the function, for allocators keeping values in registers across blocks.
+	public default List<Temp> getEntryLoads() {
+		return Collections.emptyList();
+	}
+
+	public default int getEdgeCount() {
+		return 0;
+	}
+
+	// Number of values stored to the stack
+	public default int getSpillCount() {
+		return 0;
+	}
 }
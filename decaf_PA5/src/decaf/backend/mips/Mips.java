@@ -6,11 +6,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
+import decaf.Option;
 import decaf.dataflow.BasicBlock;
 import decaf.dataflow.FlowGraph;
 import decaf.dataflow.BasicBlock.EndKind;
 import decaf.machdesc.Asm;
+import decaf.machdesc.AsmFunction;
 import decaf.machdesc.MachineDescription;
 import decaf.tac.Label;
 import decaf.tac.Tac;
@@ -19,7 +23,8 @@ import decaf.tac.VTable;
 import decaf.utils.MiscUtils;
 import decaf.backend.OffsetCounter;
 import decaf.backend.RegisterAllocator;
-import decaf.backend.GraphColorRegisterAllocator;
+import decaf.backend.ChaitinBriggsRegisterAllocator;
+import decaf.backend.LinearScanRegisterAllocator;
 import decaf.backend.BruteRegisterAllocator;
 
 public class Mips implements MachineDescription {
@@ -67,9 +72,15 @@ public class Mips implements MachineDescription {
 				0, GENERAL_REGS.length);
 	}
 
-	private RegisterAllocator regAllocator;
+	private ForkJoinPool pool;
 
-	private MipsCallingConv callingConv;
+	private Option.Allocator allocator;
+
+	// Labels of basic blocks are named apart from those of the TAC, as
+	// functions may be emitted before the program is fully translated
+	private int blockCount;
+
+	private Temp fpTemp;
 
 	private Map<String, String> stringConst;
 
@@ -84,43 +95,136 @@ public class Mips implements MachineDescription {
 
 	private PrintWriter output;
 
-	public Mips() {
-		callingConv = new MipsCallingConv();
-		Temp fpTemp = Temp.createTempI4();
+	// Statistics of the functions emitted so far
+	private final LongAdder edgeCount = new LongAdder();
+
+	private final LongAdder spillCount = new LongAdder();
+
+	private final LongAdder instructionCount = new LongAdder();
+
+	/**
+	 * @param pool
+	 *            functions are allocated and emitted on it in parallel
+	 * @param allocator
+	 *            the register allocator to use
+	 */
+	public Mips(ForkJoinPool pool, Option.Allocator allocator) {
+		this.pool = pool;
+		this.allocator = allocator;
+		fpTemp = new Temp(-1, "$fp", 4, Integer.MAX_VALUE);
 		fpTemp.reg = REGS[MipsRegister.RegId.FP.ordinal()];
-		regAllocator = new GraphColorRegisterAllocator(fpTemp, callingConv, GENERAL_REGS);
 		stringConst = new HashMap<String, String>();
 	}
 
 	@Override
 	public void emitAsm(List<FlowGraph> gs) {
+		List<AsmFunction> fs = MiscUtils.parallelMap(pool, gs, this::genAsm);
+		beginText();
+		for (AsmFunction f : fs) {
+			emitFunction(f);
+		}
+		endText();
+	}
+
+	public void beginText() {
 		emit(null, ".text", null);
-		for (FlowGraph g : gs) {
-			callingConv.resetFrame();
-			for (BasicBlock bb : g) {
-				bb.label = Label.createLabel();
-			}
-			for (BasicBlock bb : g) {
-				if (bb.cancelled) {
-					continue;
-				}
-				regAllocator.alloc(bb);
-				genAsmForBB(bb);
-				for (Temp t : bb.saves) {
-					bb.appendAsm(new MipsAsm(MipsAsm.FORMAT4, "sw", t.reg,
-							t.offset, "$fp"));
-				}
-			}
-			emitProlog(g.getFuncty().label, callingConv.getStackFrameSize());
-			emitTrace(g.getBlock(0), g);
-			output.println();
+	}
+
+	/**
+	 * Emit the next function of the program. Labels of blocks and string
+	 * constants are numbered here, in program order, so that the output
+	 * does not depend on how or when each function was compiled.
+	 */
+	public void emitFunction(AsmFunction f) {
+		String[] blockLabels = new String[f.blocks];
+		for (int i = 0; i < f.blocks; i++) {
+			blockLabels[i] = "_B" + blockCount++;
 		}
+		String[] stringLabels = new String[f.strings.size()];
+		for (int i = 0; i < stringLabels.length; i++) {
+			stringLabels[i] = getStringConstLabel(f.strings.get(i));
+		}
+		for (AsmFunction.Line l : f.lines) {
+			emit(AsmFunction.resolve(l.label, blockLabels, stringLabels),
+					AsmFunction.resolve(l.body, blockLabels, stringLabels),
+					l.comment);
+		}
+		output.println();
+		edgeCount.add(f.edgeCount);
+		spillCount.add(f.spillCount);
+	}
+
+	// Ends the code with the string constants it uses
+	public void endText() {
 		for (int i = 0; i < 3; i++) {
 			output.println();
 		}
 		emitStringConst();
 	}
 
+	/**
+	 * Allocate registers and select instructions for a function, to be
+	 * placed in the program by emitFunction. Runs concurrently with other
+	 * functions, all state is kept local.
+	 */
+	public AsmFunction genAsm(FlowGraph g) {
+		AsmFunction f = new AsmFunction();
+		f.blocks = g.size();
+		int i = 0;
+		for (BasicBlock bb : g) {
+			bb.label = new Label(i, AsmFunction.blockRef(i), false);
+			i++;
+		}
+		for (BasicBlock bb : g) {
+			if (bb.cancelled) {
+				continue;
+			}
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				if (tac.opc == Tac.Kind.LOAD_STR_CONST) {
+					f.stringRef(tac.str);
+				}
+			}
+		}
+		MipsCallingConv callingConv = new MipsCallingConv();
+		RegisterAllocator regAllocator = newRegisterAllocator(callingConv);
+		callingConv.resetFrame();
+		regAllocator.begin(g);
+		for (BasicBlock bb : g) {
+			if (bb.cancelled) {
+				continue;
+			}
+			regAllocator.alloc(bb);
+			genAsmForBB(bb, f);
+			for (Temp t : bb.saves) {
+				bb.appendAsm(new MipsAsm(MipsAsm.FORMAT4, "sw", t.reg,
+						t.offset, "$fp"));
+			}
+		}
+		f.edgeCount = regAllocator.getEdgeCount();
+		f.spillCount = regAllocator.getSpillCount();
+		emitProlog(f, g.getFuncty().label, callingConv.getStackFrameSize());
+		for (Temp t : regAllocator.getEntryLoads()) {
+			emit(f, null, new MipsAsm(MipsAsm.FORMAT4, "lw", t.reg, t.offset,
+					"$fp").toString(), null);
+		}
+		emitTrace(f, g.getBlock(0), g);
+		return f;
+	}
+
+	private RegisterAllocator newRegisterAllocator(MipsCallingConv callingConv) {
+		switch (allocator) {
+		case LINEAR:
+			return new LinearScanRegisterAllocator(fpTemp, callingConv,
+					GENERAL_REGS);
+		case BRUTE:
+			return new BruteRegisterAllocator(fpTemp, callingConv,
+					GENERAL_REGS);
+		default:
+			return new ChaitinBriggsRegisterAllocator(fpTemp, callingConv,
+					GENERAL_REGS);
+		}
+	}
+
 	private void emitStringConst() {
 		emit(null, ".data", null);
 		for (Entry<String, String> e : stringConst.entrySet()) {
@@ -128,7 +232,7 @@ public class Mips implements MachineDescription {
 		}
 	}
 
-	private void genAsmForBB(BasicBlock bb) {
+	private void genAsmForBB(BasicBlock bb, AsmFunction f) {
 		for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
 			switch (tac.opc) {
 			case ADD:
@@ -205,22 +309,23 @@ public class Mips implements MachineDescription {
 				if (!tac.op1.isConst) {
 					throw new IllegalArgumentException();
 				}
-				int high = tac.op1.value >> 16;
+				int high = tac.op1.value >>> 16;
 				int low = tac.op1.value & 0x0000FFFF;
 				if (high == 0) {
 					bb.appendAsm(new MipsAsm(MipsAsm.FORMAT2, "li",
 							tac.op0.reg, low));
 				} else {
+					// ori, as addiu would sign extend the low half
 					bb.appendAsm(new MipsAsm(MipsAsm.FORMAT2, "lui",
 							tac.op0.reg, high));
 					if (low != 0) {
-						bb.appendAsm(new MipsAsm(MipsAsm.FORMAT2, "addiu",
+						bb.appendAsm(new MipsAsm(MipsAsm.FORMAT3, "ori",
 								tac.op0.reg, tac.op0.reg, low));
 					}
 				}
 				break;
 			case LOAD_STR_CONST:
-				String label = getStringConstLabel(tac.str);
+				String label = f.stringRef(tac.str);
 				bb.appendAsm(new MipsAsm(MipsAsm.FORMAT2, "la", tac.op0.reg,
 						label));
 				break;
@@ -267,70 +372,78 @@ public class Mips implements MachineDescription {
 			bb.appendAsm(new MipsAsm(MipsAsm.FORMAT4, "lw", t.reg, t.offset,
 					"$fp"));
 		}
+		if (call.reloads != null) {
+			for (Temp t : call.reloads) {
+				bb.appendAsm(new MipsAsm(MipsAsm.FORMAT4, "lw", t.reg,
+						t.offset, "$fp"));
+			}
+		}
 	}
 
-	private void emitTrace(BasicBlock bb, FlowGraph graph) {
+	private void emitTrace(AsmFunction out, BasicBlock bb, FlowGraph graph) {
 		if (bb.mark) {
 			return;
 		}
 		bb.mark = true;
-		emit(bb.label.name, null, null);
+		emit(out, bb.label.name, null, null);
 		for (Asm asm : bb.getAsms()) {
-			emit(null, asm.toString(), null);
+			emit(out, null, asm.toString(), null);
 		}
 		BasicBlock directNext;
 		switch (bb.endKind) {
 		case BY_BRANCH:
 			directNext = graph.getBlock(bb.next[0]);
 			if (directNext.mark) {
-				emit(null, String.format(MipsAsm.FORMAT1, "b",
+				emit(out, null, String.format(MipsAsm.FORMAT1, "b",
 						directNext.label.name), null);
 			} else {
-				emitTrace(directNext, graph);
+				emitTrace(out, directNext, graph);
 			}
 			break;
 		case BY_BEQZ:
 		case BY_BNEZ:
 			if (bb.endKind == EndKind.BY_BEQZ) {
-				emit(null, String.format(MipsAsm.FORMAT2, "beqz", bb.varReg,
-						graph.getBlock(bb.next[0]).label.name), null);
+				emit(out, null, String.format(MipsAsm.FORMAT2, "beqz",
+						bb.varReg, graph.getBlock(bb.next[0]).label.name),
+						null);
 			} else {
-				emit(null, String.format(MipsAsm.FORMAT3, "bne", bb.varReg,
-						"$zero", graph.getBlock(bb.next[0]).label.name), null);
+				emit(out, null, String.format(MipsAsm.FORMAT3, "bne",
+						bb.varReg, "$zero",
+						graph.getBlock(bb.next[0]).label.name), null);
 			}
 
 			directNext = graph.getBlock(bb.next[1]);
 			if (directNext.mark) {
-				emit(null, String.format(MipsAsm.FORMAT1, "b",
+				emit(out, null, String.format(MipsAsm.FORMAT1, "b",
 						directNext.label.name), null);
 			} else {
-				emitTrace(directNext, graph);
+				emitTrace(out, directNext, graph);
 			}
-			emitTrace(graph.getBlock(bb.next[0]), graph);
+			emitTrace(out, graph.getBlock(bb.next[0]), graph);
 			break;
 		case BY_RETURN:
 			if (bb.var != null) {
-				emit(null, String.format(MipsAsm.FORMAT2, "move", "$v0",
+				emit(out, null, String.format(MipsAsm.FORMAT2, "move", "$v0",
 						bb.varReg), null);
 			}
-			emit(null, String.format(MipsAsm.FORMAT2, "move", "$sp", "$fp"),
-					null);
-			emit(null, String.format(MipsAsm.FORMAT2, "lw", "$ra", "-4($fp)"),
-					null);
-			emit(null, String.format(MipsAsm.FORMAT2, "lw", "$fp", "0($fp)"),
-					null);
-			emit(null, String.format(MipsAsm.FORMAT1, "jr", "$ra"), null);
+			emit(out, null, String.format(MipsAsm.FORMAT2, "move", "$sp",
+					"$fp"), null);
+			emit(out, null, String.format(MipsAsm.FORMAT2, "lw", "$ra",
+					"-4($fp)"), null);
+			emit(out, null, String.format(MipsAsm.FORMAT2, "lw", "$fp",
+					"0($fp)"), null);
+			emit(out, null, String.format(MipsAsm.FORMAT1, "jr", "$ra"), null);
 			break;
 		}
 	}
 
-	private void emitProlog(Label entryLabel, int frameSize) {
-		emit(entryLabel.name, null, "function entry");
-		emit(null, "sw $fp, 0($sp)", null);
-		emit(null, "sw $ra, -4($sp)", null);
+	private void emitProlog(AsmFunction out, Label entryLabel, int frameSize) {
+		emit(out, entryLabel.name, null, "function entry");
+		emit(out, null, "sw $fp, 0($sp)", null);
+		emit(out, null, "sw $ra, -4($sp)", null);
 
-		emit(null, "move $fp, $sp", null);
-		emit(null, "addiu $sp, $sp, "
+		emit(out, null, "move $fp, $sp", null);
+		emit(out, null, "addiu $sp, $sp, "
 				+ (-frameSize - 2 * OffsetCounter.POINTER_SIZE), null);
 	}
 
@@ -384,7 +497,30 @@ public class Mips implements MachineDescription {
 	}
 
 	private void emit(String label, String body, String comment) {
+		if (body != null && !body.startsWith(".")) {
+			instructionCount.increment();
+		}
 		output.println(emitToString(label, body, comment));
 	}
 
+	private void emit(AsmFunction out, String label, String body,
+			String comment) {
+		out.add(label, body, comment);
+	}
+
+	public long getInterferenceEdgeCount() {
+		return edgeCount.sum();
+	}
+
+	public long getSpillCount() {
+		return spillCount.sum();
+	}
+
+	/**
+	 * Number of instructions emitted, not counting directives.
+	 */
+	public long getInstructionCount() {
+		return instructionCount.sum();
+	}
+
 }
@@ -18,6 +18,9 @@ public class MipsCallingConv implements CallingConv {
 
 	private int currentActualSize;
 
+	private OffsetCounter localOffsetCounter = new OffsetCounter(
+			OffsetCounter.Kind.LOCAL);
+
 	public int getStackFrameSize() {
 		return maxSize + maxActualSize;
 	}
@@ -25,7 +28,7 @@ public class MipsCallingConv implements CallingConv {
 	public void resetFrame() {
 		maxSize = currentSize = 0;
 		maxActualSize = currentActualSize = 4;
-		OffsetCounter.LOCAL_OFFSET_COUNTER.reset();
+		localOffsetCounter.reset();
 	}
 
 	public void findSlot(Set<Temp> saves) {
@@ -38,7 +41,7 @@ public class MipsCallingConv implements CallingConv {
 		if (temp.isOffsetFixed()) {
 			return;
 		}
-		temp.offset = OffsetCounter.LOCAL_OFFSET_COUNTER.next(temp.size);
+		temp.offset = localOffsetCounter.next(temp.size);
 		currentSize += temp.size;
 		if (currentSize > maxSize) {
 			maxSize = currentSize;
@@ -0,0 +1,189 @@
+package decaf.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent map from keys to byte strings, kept in one append-only file.
+ *
+ * The file is a header followed by records:
+ *
+ * <pre>
+ * int length, byte[KEY_SIZE] key, int crc32, byte[length] value
+ * </pre>
+ *
+ * It is memory-mapped, and an index from keys to the offsets of their
+ * values is built by scanning it once, so a lookup is a hash lookup and a
+ * copy out of the mapping. A record is only written after a miss, and
+ * appending takes a file lock, so several compilers may share a file. If a
+ * key occurs twice the later record wins. A record cut short by a crash
+ * fails its checksum and ends the scan; the next append overwrites it.
+ */
+public final class CacheFile {
+
+	public static final int KEY_SIZE = 32;
+
+	private static final int MAGIC = 0x44434331; // "DCC1"
+
+	private static final int HEADER_SIZE = 4;
+
+	private static final int RECORD_HEADER_SIZE = 4 + KEY_SIZE + 4;
+
+	// One instance per file, shared by the compilations of a server
+	private static final Map<Path, CacheFile> OPEN = new ConcurrentHashMap<Path, CacheFile>();
+
+	private final FileChannel channel;
+
+	private MappedByteBuffer map;
+
+	// The end of the last good record
+	private long end;
+
+	private final Map<Key, Long> index = new HashMap<Key, Long>();
+
+	private static final class Key {
+
+		final byte[] bytes;
+
+		Key(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(bytes, ((Key) obj).bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(bytes);
+		}
+	}
+
+	private CacheFile(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		FileLock lock = channel.lock();
+		try {
+			if (channel.size() < HEADER_SIZE) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).flip();
+				channel.truncate(0);
+				channel.write(header, 0);
+			}
+		} finally {
+			lock.release();
+		}
+		end = HEADER_SIZE;
+		remap();
+		if (map.getInt(0) != MAGIC) {
+			throw new IOException(path + " is not a compilation cache");
+		}
+		scan();
+	}
+
+	public static CacheFile open(Path path) throws IOException {
+		path = path.toAbsolutePath().normalize();
+		synchronized (OPEN) {
+			CacheFile file = OPEN.get(path);
+			if (file == null) {
+				file = new CacheFile(path);
+				OPEN.put(path, file);
+			}
+			return file;
+		}
+	}
+
+	private void remap() throws IOException {
+		map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	}
+
+	// Index the records from end on, as far as they are complete
+	private void scan() {
+		CRC32 crc = new CRC32();
+		while (end + RECORD_HEADER_SIZE <= map.capacity()) {
+			int at = (int) end;
+			int length = map.getInt(at);
+			long next = end + RECORD_HEADER_SIZE + length;
+			if (length < 0 || next > map.capacity()) {
+				break;
+			}
+			byte[] key = new byte[KEY_SIZE];
+			ByteBuffer view = map.duplicate();
+			view.position(at + 4);
+			view.get(key);
+			int sum = view.getInt();
+			view.limit((int) next);
+			crc.reset();
+			crc.update(view);
+			if ((int) crc.getValue() != sum) {
+				break;
+			}
+			index.put(new Key(key), end);
+			end = next;
+		}
+	}
+
+	/**
+	 * @return the value stored under key, or null
+	 */
+	public synchronized byte[] get(byte[] key) throws IOException {
+		Long at = index.get(new Key(key));
+		if (at == null && channel.size() > end) {
+			// appended to by another compiler
+			remap();
+			scan();
+			at = index.get(new Key(key));
+		}
+		if (at == null) {
+			return null;
+		}
+		int pos = (int) (long) at;
+		byte[] value = new byte[map.getInt(pos)];
+		ByteBuffer view = map.duplicate();
+		view.position(pos + RECORD_HEADER_SIZE);
+		view.get(value);
+		return value;
+	}
+
+	public synchronized void put(byte[] key, byte[] value) throws IOException {
+		if (key.length != KEY_SIZE) {
+			throw new IllegalArgumentException("bad key size " + key.length);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(value);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE
+				+ value.length);
+		record.putInt(value.length).put(key).putInt((int) crc.getValue())
+				.put(value).flip();
+		FileLock lock = channel.lock();
+		try {
+			// records appended by others are kept, a torn one is not
+			remap();
+			scan();
+			channel.write(record, end);
+			channel.truncate(end + RECORD_HEADER_SIZE + value.length);
+			remap();
+			scan();
+		} finally {
+			lock.release();
+		}
+	}
+
+	/**
+	 * Number of records that can be found.
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+}
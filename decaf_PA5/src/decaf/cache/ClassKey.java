@@ -0,0 +1,287 @@
+package decaf.cache;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import decaf.scope.ClassScope;
+import decaf.symbol.Class;
+import decaf.symbol.Function;
+import decaf.symbol.Symbol;
+import decaf.symbol.Variable;
+import decaf.translate.ClassHierarchy;
+import decaf.tree.Tree;
+import decaf.type.ArrayType;
+import decaf.type.ClassType;
+import decaf.type.Type;
+import decaf.utils.IndentPrintWriter;
+
+/**
+ * The key a class is cached under: a SHA-256 hash of the syntax tree of the
+ * class, as printed at LEVEL0, and of the layouts of all the classes its
+ * code depends on.
+ *
+ * The code of a class depends on the layout of every class it names, or
+ * whose objects it gets from an expression: field offsets, vtable slots,
+ * method labels and return types all end up in its TAC. The layout of a
+ * class includes those of its ancestors, so a change to a superclass moves
+ * every key below it. When calls are devirtualized, which of its calls are
+ * direct depends on classes it may never name, so that is hashed too.
+ *
+ * Must run after TransPass1, which lays out the classes.
+ */
+final class ClassKey extends Tree.Visitor {
+
+	// Classes by name, so that they are hashed in a fixed order
+	private final TreeMap<String, Class> deps = new TreeMap<String, Class>();
+
+	private final ClassHierarchy hierarchy;
+
+	// The calls of methods on objects, and how each is made
+	private final TreeSet<String> calls = new TreeSet<String>();
+
+	private ClassKey(ClassHierarchy hierarchy) {
+		this.hierarchy = hierarchy;
+	}
+
+	/**
+	 * @param config
+	 *            anything else the generated code depends on, such as the
+	 *            options of the compiler
+	 * @param hierarchy
+	 *            the one calls are devirtualized with, or null
+	 */
+	static byte[] of(Tree.ClassDef classDef, String config,
+			ClassHierarchy hierarchy) {
+		ClassKey key = new ClassKey(hierarchy);
+		key.addClass(classDef.symbol);
+		classDef.accept(key);
+
+		StringWriter sw = new StringWriter();
+		IndentPrintWriter pw = new IndentPrintWriter(sw, 1);
+		pw.println(config);
+		classDef.printTo(pw);
+		for (Class c : key.deps.values()) {
+			printLayout(pw, c);
+		}
+		for (String call : key.calls) {
+			pw.println(call);
+		}
+		pw.flush();
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(
+					sw.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void printLayout(IndentPrintWriter pw, Class c) {
+		for (; c != null; c = c.getParent()) {
+			pw.println("layout " + c.getName() + " " + c.getSize());
+			pw.incIndent();
+			Iterator<Symbol> iter = c.getAssociatedScope().iterator();
+			while (iter.hasNext()) {
+				Symbol sym = iter.next();
+				if (sym.isVariable()) {
+					pw.println(sym.getName() + " @" + ((Variable) sym).getOffset());
+				} else {
+					Function f = (Function) sym;
+					pw.println(f.getFuncty().label.name + " "
+							+ (f.isStatik() ? "static " : "#" + f.getOrder() + " ")
+							+ f.getType());
+				}
+			}
+			pw.decIndent();
+		}
+	}
+
+	private void addClass(Class c) {
+		if (c != null) {
+			deps.put(c.getName(), c);
+		}
+	}
+
+	private void addType(Type type) {
+		while (type != null && type.isArrayType()) {
+			type = ((ArrayType) type).getElementType();
+		}
+		if (type != null && type.isClassType()) {
+			addClass(((ClassType) type).getSymbol());
+		}
+	}
+
+	private void addOwner(Symbol sym) {
+		if (sym != null && sym.getScope() != null
+				&& sym.getScope().isClassScope()) {
+			addClass(((ClassScope) sym.getScope()).getOwner());
+		}
+	}
+
+	private void visit(Tree tree) {
+		if (tree != null) {
+			tree.accept(this);
+		}
+	}
+
+	private void visit(List<? extends Tree> trees) {
+		for (Tree tree : trees) {
+			visit(tree);
+		}
+	}
+
+	private void visitExpr(Tree.Expr expr) {
+		addType(expr.type);
+	}
+
+	@Override
+	public void visitTree(Tree that) {
+		if (that instanceof Tree.Expr) {
+			visitExpr((Tree.Expr) that);
+		}
+	}
+
+	@Override
+	public void visitClassDef(Tree.ClassDef that) {
+		visit(that.fields);
+	}
+
+	@Override
+	public void visitMethodDef(Tree.MethodDef that) {
+		addType(that.symbol.getReturnType());
+		visit(that.formals);
+		visit(that.body);
+	}
+
+	@Override
+	public void visitVarDef(Tree.VarDef that) {
+		addType(that.symbol.getType());
+	}
+
+	@Override
+	public void visitBlock(Tree.Block that) {
+		visit(that.block);
+	}
+
+	@Override
+	public void visitWhileLoop(Tree.WhileLoop that) {
+		visit(that.condition);
+		visit(that.loopBody);
+	}
+
+	@Override
+	public void visitForLoop(Tree.ForLoop that) {
+		visit(that.init);
+		visit(that.condition);
+		visit(that.update);
+		visit(that.loopBody);
+	}
+
+	@Override
+	public void visitIf(Tree.If that) {
+		visit(that.condition);
+		visit(that.trueBranch);
+		visit(that.falseBranch);
+	}
+
+	@Override
+	public void visitExec(Tree.Exec that) {
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitPrint(Tree.Print that) {
+		visit(that.exprs);
+	}
+
+	@Override
+	public void visitReturn(Tree.Return that) {
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitApply(Tree.Apply that) {
+		visitExpr(that);
+		addOwner(that.symbol);
+		visit(that.receiver);
+		visit(that.actuals);
+	}
+
+	@Override
+	public void visitNewClass(Tree.NewClass that) {
+		visitExpr(that);
+		addClass(that.symbol);
+	}
+
+	@Override
+	public void visitNewArray(Tree.NewArray that) {
+		visitExpr(that);
+		visit(that.length);
+	}
+
+	@Override
+	public void visitAssign(Tree.Assign that) {
+		visit(that.left);
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitUnary(Tree.Unary that) {
+		visitExpr(that);
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitBinary(Tree.Binary that) {
+		visitExpr(that);
+		visit(that.left);
+		visit(that.right);
+	}
+
+	@Override
+	public void visitCallExpr(Tree.CallExpr that) {
+		visitExpr(that);
+		addOwner(that.symbol);
+		if (hierarchy != null && that.receiver != null && !that.isArrayLength) {
+			Class c = ((ClassType) that.receiver.type).getSymbol();
+			boolean direct = hierarchy.isFinal(c, that.symbol);
+			calls.add("call " + c.getName() + "." + that.method
+					+ (direct ? " direct" : " virtual"));
+		}
+		visit(that.receiver);
+		visit(that.actuals);
+	}
+
+	@Override
+	public void visitTypeCast(Tree.TypeCast that) {
+		visitExpr(that);
+		addClass(that.symbol);
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitTypeTest(Tree.TypeTest that) {
+		visitExpr(that);
+		addClass(that.symbol);
+		visit(that.instance);
+	}
+
+	@Override
+	public void visitIndexed(Tree.Indexed that) {
+		visitExpr(that);
+		visit(that.array);
+		visit(that.index);
+	}
+
+	@Override
+	public void visitIdent(Tree.Ident that) {
+		visitExpr(that);
+		addOwner(that.symbol);
+		visit(that.owner);
+	}
+}
@@ -0,0 +1,71 @@
+package decaf.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import decaf.machdesc.AsmFunction;
+
+/**
+ * Reading and writing of the values kept in the cache.
+ */
+final class Codec {
+
+	private Codec() {
+	}
+
+	// Unlike writeUTF, allows null and strings longer than 64K
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static void writeAsm(DataOutputStream out, AsmFunction f)
+			throws IOException {
+		out.writeInt(f.blocks);
+		out.writeInt(f.edgeCount);
+		out.writeInt(f.spillCount);
+		out.writeInt(f.strings.size());
+		for (String s : f.strings) {
+			writeString(out, s);
+		}
+		out.writeInt(f.lines.size());
+		for (AsmFunction.Line l : f.lines) {
+			writeString(out, l.label);
+			writeString(out, l.body);
+			writeString(out, l.comment);
+		}
+	}
+
+	static AsmFunction readAsm(DataInputStream in) throws IOException {
+		AsmFunction f = new AsmFunction();
+		f.blocks = in.readInt();
+		f.edgeCount = in.readInt();
+		f.spillCount = in.readInt();
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			f.strings.add(readString(in));
+		}
+		n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			f.add(readString(in), readString(in), readString(in));
+		}
+		return f;
+	}
+}
@@ -0,0 +1,272 @@
+package decaf.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import decaf.machdesc.AsmFunction;
+import decaf.machdesc.Intrinsic;
+import decaf.symbol.Class;
+import decaf.symbol.Function;
+import decaf.symbol.Symbol;
+import decaf.symbol.Variable;
+import decaf.tac.Functy;
+import decaf.tac.Label;
+import decaf.tac.Temp;
+import decaf.tac.VTable;
+import decaf.translate.Translater;
+import decaf.tree.Tree;
+
+/**
+ * Reuses the TAC and the assembly of classes from earlier compilations.
+ *
+ * For each class Translater first asks restore; on a miss it translates
+ * the class and calls record. As the backend produces the assembly of the
+ * functions, it hands each to store, and a class that missed is written
+ * to the cache file once all its functions are in. Functions of New are
+ * cheap and always compiled.
+ *
+ * A value in the file holds the number of temps and labels the class
+ * created, so that the classes after it are numbered as if it had been
+ * translated, then for each method its TAC and its assembly. With those
+ * the output is the same as without the cache, byte for byte.
+ *
+ * One instance serves one compilation.
+ */
+public final class IncrementalCache {
+
+	private final CacheFile file;
+
+	private final String config;
+
+	// Assembly of the functions taken from the cache
+	private final Map<Functy, AsmFunction> reused = new HashMap<Functy, AsmFunction>();
+
+	// Classes not in the cache by their functions, until all are stored
+	private final Map<Functy, Miss> misses = new HashMap<Functy, Miss>();
+
+	private Map<String, Label> globals;
+
+	private Map<String, VTable> vtables;
+
+	private int hits;
+
+	private static final class Miss {
+
+		byte[] key;
+
+		int temps;
+
+		int labels;
+
+		List<Functy> funcs;
+
+		List<byte[]> tac = new ArrayList<byte[]>();
+
+		AsmFunction[] asm;
+
+		int stored;
+	}
+
+	/**
+	 * @param config
+	 *            the options the generated code depends on
+	 */
+	public IncrementalCache(CacheFile file, String config) {
+		this.file = file;
+		this.config = config;
+	}
+
+	/**
+	 * Take the functions of classDef from the cache, if it holds them for
+	 * the current source and layouts.
+	 *
+	 * @return false if classDef has to be translated
+	 */
+	public boolean restore(Translater tr, Tree.ClassDef classDef) {
+		byte[] value;
+		try {
+			value = file.get(ClassKey.of(classDef, config, tr.getHierarchy()));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (value == null) {
+			return false;
+		}
+		if (globals == null) {
+			indexGlobals(tr, classDef);
+		}
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+					value));
+			int temps = in.readInt();
+			int labels = in.readInt();
+			TacCodec codec = new TacCodec(tr.getTempCount(),
+					tr.getLabelCount(), tr.getLabelCount() + labels);
+			Map<Integer, Temp> classTemps = new HashMap<Integer, Temp>();
+			Map<Integer, Label> classLabels = new HashMap<Integer, Label>();
+			List<Functy> funcs = new ArrayList<Functy>();
+			for (Tree f : classDef.fields) {
+				if (!(f instanceof Tree.MethodDef)) {
+					continue;
+				}
+				Function func = ((Tree.MethodDef) f).symbol;
+				Functy functy = func.getFuncty();
+				if (!in.readUTF().equals(functy.label.name)) {
+					throw new IOException("function out of order");
+				}
+				codec.read(in, functy, params(func), classTemps, classLabels,
+						globals, vtables);
+				reused.put(functy, Codec.readAsm(in));
+				funcs.add(functy);
+			}
+			tr.reserve(temps, labels);
+			for (Functy functy : funcs) {
+				tr.addFuncty(functy);
+			}
+		} catch (IOException e) {
+			// a broken value is as good as none
+			for (Tree f : classDef.fields) {
+				if (f instanceof Tree.MethodDef) {
+					Functy functy = ((Tree.MethodDef) f).symbol.getFuncty();
+					functy.head = functy.tail = null;
+					reused.remove(functy);
+				}
+			}
+			return false;
+		}
+		hits++;
+		return true;
+	}
+
+	/**
+	 * Remember the TAC of a class that was just translated, to be stored
+	 * with its assembly.
+	 *
+	 * @param tempBase
+	 *            the temp count before classDef was translated
+	 * @param labelBase
+	 *            the label count before classDef was translated
+	 * @param funcs
+	 *            the functions of classDef
+	 */
+	public void record(Translater tr, Tree.ClassDef classDef, int tempBase,
+			int labelBase, List<Functy> funcs) {
+		Miss miss = new Miss();
+		miss.key = ClassKey.of(classDef, config, tr.getHierarchy());
+		miss.temps = tr.getTempCount() - tempBase;
+		miss.labels = tr.getLabelCount() - labelBase;
+		miss.funcs = new ArrayList<Functy>(funcs);
+		miss.asm = new AsmFunction[funcs.size()];
+		TacCodec codec = new TacCodec(tempBase, labelBase, tr.getLabelCount());
+		try {
+			for (Functy functy : miss.funcs) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				codec.write(new DataOutputStream(bytes), functy,
+						params(functy.sym));
+				miss.tac.add(bytes.toByteArray());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		for (Functy functy : miss.funcs) {
+			misses.put(functy, miss);
+		}
+		if (miss.funcs.isEmpty()) {
+			write(miss);
+		}
+	}
+
+	/**
+	 * Hand over the assembly of f if it was taken from the cache. Each
+	 * function is handed over once, after which the cache lets go of it.
+	 *
+	 * @return null if f has to be compiled
+	 */
+	public AsmFunction takeAsm(Functy f) {
+		return reused.remove(f);
+	}
+
+	/**
+	 * Keep the assembly of a compiled function. The class of f is written
+	 * to the cache file when the last of its functions comes in.
+	 */
+	public void store(Functy f, AsmFunction asm) {
+		Miss miss = misses.remove(f);
+		if (miss == null) {
+			return;
+		}
+		miss.asm[miss.funcs.indexOf(f)] = asm;
+		if (++miss.stored == miss.funcs.size()) {
+			write(miss);
+		}
+	}
+
+	private void write(Miss miss) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(miss.temps);
+			out.writeInt(miss.labels);
+			for (int i = 0; i < miss.funcs.size(); i++) {
+				out.writeUTF(miss.funcs.get(i).label.name);
+				out.write(miss.tac.get(i));
+				Codec.writeAsm(out, miss.asm[i]);
+			}
+			out.flush();
+			file.put(miss.key, bytes.toByteArray());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Number of classes taken from the cache.
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+	// this first, then the formals, as in the memo of the function
+	private static Temp[] params(Function func) {
+		List<Temp> params = new ArrayList<Temp>();
+		Iterator<Symbol> iter = func.getAssociatedScope().iterator();
+		while (iter.hasNext()) {
+			params.add(((Variable) iter.next()).getTemp());
+		}
+		return params.toArray(new Temp[params.size()]);
+	}
+
+	// Labels a function may call or load, by name
+	private void indexGlobals(Translater tr, Tree.ClassDef classDef) {
+		globals = new HashMap<String, Label>();
+		for (Intrinsic i : Intrinsic.values()) {
+			globals.put(i.label.name, i.label);
+		}
+		Iterator<Symbol> classes = classDef.symbol.getScope().iterator();
+		while (classes.hasNext()) {
+			Class c = (Class) classes.next();
+			globals.put(c.getNewFuncLabel().name, c.getNewFuncLabel());
+			Iterator<Symbol> iter = c.getAssociatedScope().iterator();
+			while (iter.hasNext()) {
+				Symbol sym = iter.next();
+				if (sym.isFunction()) {
+					Label l = ((Function) sym).getFuncty().label;
+					globals.put(l.name, l);
+				}
+			}
+		}
+		vtables = new HashMap<String, VTable>();
+		for (VTable vt : tr.getVtables()) {
+			vtables.put(vt.name, vt);
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package decaf.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import decaf.tac.Functy;
+import decaf.tac.Label;
+import decaf.tac.Tac;
+import decaf.tac.Temp;
+import decaf.tac.VTable;
+
+/**
+ * Writes the TAC of the functions of one class so that it can be read
+ * back at other temp and label numbers.
+ *
+ * The temps and labels a class creates are numbered from where the class
+ * before it stopped, so they are stored relative to the first of them.
+ * Parameters are created by TransPass1 and are stored by their position.
+ * Labels of other functions and virtual tables are stored by name.
+ */
+final class TacCodec {
+
+	private static final int NULL = 0;
+
+	private static final int CONST = 1;
+
+	private static final int LOCAL = 2;
+
+	private static final int PARAM = 3;
+
+	private final int tempBase;
+
+	private final int labelBase;
+
+	private final int labelEnd;
+
+	/**
+	 * @param tempBase
+	 *            the first temp the class created
+	 * @param labelBase
+	 *            the first label the class created
+	 * @param labelEnd
+	 *            the label after the last one the class created
+	 */
+	TacCodec(int tempBase, int labelBase, int labelEnd) {
+		this.tempBase = tempBase;
+		this.labelBase = labelBase;
+		this.labelEnd = labelEnd;
+	}
+
+	void write(DataOutputStream out, Functy f, Temp[] params)
+			throws IOException {
+		int n = 0;
+		for (Tac t = f.head; t != null; t = t.next) {
+			n++;
+		}
+		out.writeInt(n);
+		for (Tac t = f.head; t != null; t = t.next) {
+			out.writeByte(t.opc.ordinal());
+			writeTemp(out, t.op0, params);
+			writeTemp(out, t.op1, params);
+			writeTemp(out, t.op2, params);
+			writeLabel(out, t.label);
+			out.writeBoolean(t.vt != null);
+			if (t.vt != null) {
+				out.writeUTF(t.vt.name);
+			}
+			Codec.writeString(out, t.str);
+			out.writeBoolean(t.readOnly);
+		}
+	}
+
+	private void writeTemp(DataOutputStream out, Temp t, Temp[] params)
+			throws IOException {
+		if (t == null) {
+			out.writeByte(NULL);
+		} else if (t.isConst) {
+			out.writeByte(CONST);
+			out.writeInt(t.value);
+		} else if (t.isParam) {
+			for (int i = 0; i < params.length; i++) {
+				if (params[i] == t) {
+					out.writeByte(PARAM);
+					out.writeInt(i);
+					return;
+				}
+			}
+			throw new IllegalArgumentException(t + " is not a parameter");
+		} else {
+			out.writeByte(LOCAL);
+			out.writeInt(t.id - tempBase);
+		}
+	}
+
+	private void writeLabel(DataOutputStream out, Label l) throws IOException {
+		if (l == null) {
+			out.writeByte(NULL);
+		} else if (l.id >= labelBase && l.id < labelEnd) {
+			out.writeByte(LOCAL);
+			out.writeInt(l.id - labelBase);
+			out.writeBoolean(l.target);
+		} else {
+			out.writeByte(CONST);
+			out.writeUTF(l.name);
+		}
+	}
+
+	/**
+	 * Reads the TAC back into f, numbering from the bases of this codec.
+	 *
+	 * @param temps
+	 *            temps of the class read so far, by id
+	 * @param labels
+	 *            labels of the class read so far, by id
+	 * @param globals
+	 *            labels of functions by name
+	 * @param vtables
+	 *            virtual tables by name
+	 */
+	void read(DataInputStream in, Functy f, Temp[] params,
+			Map<Integer, Temp> temps, Map<Integer, Label> labels,
+			Map<String, Label> globals, Map<String, VTable> vtables)
+			throws IOException {
+		Tac.Kind[] kinds = Tac.Kind.values();
+		int n = in.readInt();
+		Tac tail = null;
+		for (int i = 0; i < n; i++) {
+			Tac.Kind opc = kinds[in.readByte()];
+			Temp op0 = readTemp(in, params, temps);
+			Temp op1 = readTemp(in, params, temps);
+			Temp op2 = readTemp(in, params, temps);
+			Label label = readLabel(in, labels, globals);
+			VTable vt = in.readBoolean() ? vtables.get(in.readUTF()) : null;
+			String str = Codec.readString(in);
+			Tac t = make(opc, op0, op1, op2, label, vt, str);
+			t.readOnly = in.readBoolean();
+			if (tail == null) {
+				f.head = t;
+			} else {
+				tail.next = t;
+				t.prev = tail;
+			}
+			tail = t;
+		}
+		f.tail = tail;
+	}
+
+	private Temp readTemp(DataInputStream in, Temp[] params,
+			Map<Integer, Temp> temps) throws IOException {
+		switch (in.readByte()) {
+		case NULL:
+			return null;
+		case CONST:
+			return Temp.createConstTemp(in.readInt());
+		case PARAM:
+			return params[in.readInt()];
+		default:
+			int id = tempBase + in.readInt();
+			Temp t = temps.get(id);
+			if (t == null) {
+				t = Temp.createTempI4(id);
+				temps.put(id, t);
+			}
+			return t;
+		}
+	}
+
+	private Label readLabel(DataInputStream in, Map<Integer, Label> labels,
+			Map<String, Label> globals) throws IOException {
+		switch (in.readByte()) {
+		case NULL:
+			return null;
+		case CONST:
+			String name = in.readUTF();
+			Label g = globals.get(name);
+			if (g == null) {
+				throw new IOException("unknown label " + name);
+			}
+			return g;
+		default:
+			int id = labelBase + in.readInt();
+			boolean target = in.readBoolean();
+			Label l = labels.get(id);
+			if (l == null) {
+				l = Label.createLabel(id, target);
+				labels.put(id, l);
+			}
+			return l;
+		}
+	}
+
+	// Through the factories, so that marks and targets are set up as usual
+	private static Tac make(Tac.Kind opc, Temp op0, Temp op1, Temp op2,
+			Label label, VTable vt, String str) {
+		switch (opc) {
+		case ADD:
+			return Tac.genAdd(op0, op1, op2);
+		case SUB:
+			return Tac.genSub(op0, op1, op2);
+		case MUL:
+			return Tac.genMul(op0, op1, op2);
+		case DIV:
+			return Tac.genDiv(op0, op1, op2);
+		case MOD:
+			return Tac.genMod(op0, op1, op2);
+		case NEG:
+			return Tac.genNeg(op0, op1);
+		case LAND:
+			return Tac.genLAnd(op0, op1, op2);
+		case LOR:
+			return Tac.genLOr(op0, op1, op2);
+		case LNOT:
+			return Tac.genLNot(op0, op1);
+		case GTR:
+			return Tac.genGtr(op0, op1, op2);
+		case GEQ:
+			return Tac.genGeq(op0, op1, op2);
+		case EQU:
+			return Tac.genEqu(op0, op1, op2);
+		case NEQ:
+			return Tac.genNeq(op0, op1, op2);
+		case LEQ:
+			return Tac.genLeq(op0, op1, op2);
+		case LES:
+			return Tac.genLes(op0, op1, op2);
+		case ASSIGN:
+			return Tac.genAssign(op0, op1);
+		case LOAD_VTBL:
+			return Tac.genLoadVtbl(op0, vt);
+		case INDIRECT_CALL:
+			return Tac.genIndirectCall(op0, op1);
+		case DIRECT_CALL:
+			return Tac.genDirectCall(op0, label);
+		case RETURN:
+			return Tac.genReturn(op0);
+		case BRANCH:
+			return Tac.genBranch(label);
+		case BEQZ:
+			return Tac.genBeqz(op0, label);
+		case BNEZ:
+			return Tac.genBnez(op0, label);
+		case LOAD:
+			return Tac.genLoad(op0, op1, op2);
+		case STORE:
+			return Tac.genStore(op0, op1, op2);
+		case LOAD_IMM4:
+			return Tac.genLoadImm4(op0, op1);
+		case LOAD_STR_CONST:
+			return Tac.genLoadStrConst(op0, str);
+		case MEMO:
+			return Tac.genMemo(str);
+		case MARK:
+			return Tac.genMark(label);
+		case PARM:
+			return Tac.genParm(op0);
+		default:
+			throw new IllegalArgumentException("unknown opc " + opc);
+		}
+	}
+}
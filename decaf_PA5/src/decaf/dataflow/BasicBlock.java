@@ -2,10 +2,11 @@ package decaf.dataflow;
 
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.HashSet;
 
 import decaf.machdesc.Asm;
 import decaf.machdesc.Register;
@@ -38,28 +39,43 @@ public class BasicBlock {
 
 	public boolean mark;
 
-	public Set<Temp> def;
+	public LiveSet def;
 
-	public Set<Temp> liveUse;
+	public LiveSet liveUse;
 
-	public Set<Temp> liveIn;
+	public LiveSet liveIn;
 
-	public Set<Temp> liveOut;
+	public LiveSet liveOut;
 
 	public Set<Temp> saves;
 
 	private List<Asm> asms;
 
 	public BasicBlock() {
-		def = new TreeSet<Temp>(Temp.ID_COMPARATOR);
-		liveUse = new TreeSet<Temp>(Temp.ID_COMPARATOR);
-		liveIn = new TreeSet<Temp>(Temp.ID_COMPARATOR);
-		liveOut = new TreeSet<Temp>(Temp.ID_COMPARATOR);
 		next = new int[2];
 		asms = new ArrayList<Asm>();
 	}
 
-	public void computeDefAndLiveUse() {
+	/**
+	 * Numbers of the blocks control may go to from this one, each once.
+	 */
+	public int[] getSuccessors() {
+		switch (endKind) {
+		case BY_RETURN:
+			return new int[0];
+		case BY_BRANCH:
+			return new int[] { next[0] };
+		default:
+			return next[0] == next[1] ? new int[] { next[0] } : new int[] {
+					next[0], next[1] };
+		}
+	}
+
+	void computeDefAndLiveUse(TempIndex index) {
+		def = new LiveSet(index);
+		liveUse = new LiveSet(index);
+		liveIn = new LiveSet(index);
+		liveOut = new LiveSet(index);
 		for (Tac tac = tacList; tac != null; tac = tac.next) {
 			switch (tac.opc) {
 			case ADD:
@@ -76,18 +92,9 @@ public class BasicBlock {
 			case LEQ:
 			case LES:
 				/* use op1 and op2, def op0 */
-				if (tac.op1.lastVisitedBB != bbNum) {
-					liveUse.add (tac.op1);
-					tac.op1.lastVisitedBB = bbNum;
-				}
-				if (tac.op2.lastVisitedBB != bbNum) {
-					liveUse.add (tac.op2);
-					tac.op2.lastVisitedBB = bbNum;
-				}
-				if (tac.op0.lastVisitedBB != bbNum) {
-					def.add (tac.op0);
-					tac.op0.lastVisitedBB = bbNum;
-				}
+				use(tac.op1);
+				use(tac.op2);
+				define(tac.op0);
 				break;
 			case NEG:
 			case LNOT:
@@ -95,14 +102,10 @@ public class BasicBlock {
 			case INDIRECT_CALL:
 			case LOAD:
 				/* use op1, def op0 */
-				if (tac.op1.lastVisitedBB != bbNum) {
-					liveUse.add (tac.op1);
-					tac.op1.lastVisitedBB = bbNum;
-				}
-				if (tac.op0 != null && tac.op0.lastVisitedBB != bbNum) {  // in INDIRECT_CALL with return type VOID,
+				use(tac.op1);
+				if (tac.op0 != null) {  // in INDIRECT_CALL with return type VOID,
 					// tac.op0 is null
-					def.add (tac.op0);
-					tac.op0.lastVisitedBB = bbNum;
+					define(tac.op0);
 				}
 				break;
 			case LOAD_VTBL:
@@ -111,104 +114,120 @@ public class BasicBlock {
 			case LOAD_STR_CONST:
 			case LOAD_IMM4:
 				/* def op0 */
-				if (tac.op0 != null && tac.op0.lastVisitedBB != bbNum) {  // in DIRECT_CALL with return type VOID,
+				if (tac.op0 != null) {  // in DIRECT_CALL with return type VOID,
 					// tac.op0 is null
-					def.add (tac.op0);
-					tac.op0.lastVisitedBB = bbNum;
+					define(tac.op0);
 				}
 				break;
 			case STORE:
 				/* use op0 and op1*/
-				if (tac.op0.lastVisitedBB != bbNum) {
-					liveUse.add (tac.op0);
-					tac.op0.lastVisitedBB = bbNum;
-				}
-				if (tac.op1.lastVisitedBB != bbNum) {
-					liveUse.add (tac.op1);
-					tac.op1.lastVisitedBB = bbNum;
-				}
+				use(tac.op0);
+				use(tac.op1);
 				break;
 			case PARM:
 				/* use op0 */
-				if (tac.op0.lastVisitedBB != bbNum) {
-					liveUse.add (tac.op0);
-					tac.op0.lastVisitedBB = bbNum;
-				}
+				use(tac.op0);
 				break;
 			default:
 				/* BRANCH MEMO MARK PARM*/
 				break;
 			}
 		}
-		if (var != null && var.lastVisitedBB != bbNum) {
-			liveUse.add (var);
-			var.lastVisitedBB = bbNum;
+		if (var != null) {
+			use(var);
 		}
 		liveIn.addAll (liveUse);
 	}
 
+	// Only the first occurrence of a temp in the block counts
+	private void use(Temp t) {
+		if (!def.contains(t)) {
+			liveUse.add(t);
+		}
+	}
+
+	private void define(Temp t) {
+		if (!liveUse.contains(t)) {
+			def.add(t);
+		}
+	}
+
+	/**
+	 * Live-out of each Tac. Each one gets a copy of the bitset, a few words
+	 * long.
+	 */
 	public void analyzeLiveness() {
 		if (tacList == null)
 			return;
 		Tac tac = tacList;
 		for (; tac.next != null; tac = tac.next); 
 
-		tac.liveOut = new HashSet<Temp> (liveOut);
+		LiveSet live = new LiveSet(liveOut);
 		if (var != null)
-			tac.liveOut.add (var);
+			live.add (var);
+		tac.liveOut = new LiveSet(live);
 		for (; tac != tacList; tac = tac.prev) {
-			tac.prev.liveOut = new HashSet<Temp> (tac.liveOut);
-			switch (tac.opc) {
-			case ADD:
-			case SUB:
-			case MUL:
-			case DIV:
-			case MOD:
-			case LAND:
-			case LOR:
-			case GTR:
-			case GEQ:
-			case EQU:
-			case NEQ:
-			case LEQ:
-			case LES:
-				/* use op1 and op2, def op0 */
-				tac.prev.liveOut.remove (tac.op0);
-				tac.prev.liveOut.add (tac.op1);
-				tac.prev.liveOut.add (tac.op2);
-				break;
-			case NEG:
-			case LNOT:
-			case ASSIGN:
-			case INDIRECT_CALL:
-			case LOAD:
-				/* use op1, def op0 */
-				tac.prev.liveOut.remove (tac.op0);
-				tac.prev.liveOut.add (tac.op1);
-				break;
-			case LOAD_VTBL:
-			case DIRECT_CALL:
-			case RETURN:
-			case LOAD_STR_CONST:
-			case LOAD_IMM4:
-				/* def op0 */
-				tac.prev.liveOut.remove (tac.op0);
-				break;
-			case STORE:
-				/* use op0 and op1*/
-				tac.prev.liveOut.add (tac.op0);
-				tac.prev.liveOut.add (tac.op1);
-				break;
-			case BEQZ:
-			case BNEZ:
-			case PARM:
-				/* use op0 */
-				tac.prev.liveOut.add (tac.op0);
-				break;
-			default:
-				/* BRANCH MEMO MARK PARM*/
-				break;
+			transfer(tac, live);
+			tac.prev.liveOut = new LiveSet(live);
+		}
+	}
+
+	// From the temps live after tac to those live before it
+	private static void transfer(Tac tac, Set<Temp> live) {
+		switch (tac.opc) {
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV:
+		case MOD:
+		case LAND:
+		case LOR:
+		case GTR:
+		case GEQ:
+		case EQU:
+		case NEQ:
+		case LEQ:
+		case LES:
+			/* use op1 and op2, def op0 */
+			live.remove (tac.op0);
+			live.add (tac.op1);
+			live.add (tac.op2);
+			break;
+		case NEG:
+		case LNOT:
+		case ASSIGN:
+		case INDIRECT_CALL:
+		case LOAD:
+			/* use op1, def op0 */
+			if (tac.op0 != null) {
+				live.remove (tac.op0);
+			}
+			live.add (tac.op1);
+			break;
+		case LOAD_VTBL:
+		case DIRECT_CALL:
+		case RETURN:
+		case LOAD_STR_CONST:
+		case LOAD_IMM4:
+			/* def op0 */
+			if (tac.op0 != null) {
+				live.remove (tac.op0);
 			}
+			break;
+		case STORE:
+			/* use op0 and op1*/
+			live.add (tac.op0);
+			live.add (tac.op1);
+			break;
+		case BEQZ:
+		case BNEZ:
+		case PARM:
+			/* use op0 */
+			live.add (tac.op0);
+			break;
+		default:
+			/* BRANCH MEMO MARK PARM*/
+			break;
 		}
 	}
 
@@ -246,8 +265,23 @@ public class BasicBlock {
 		pw.println("  liveIn  = " + toString(liveIn));
 		pw.println("  liveOut = " + toString(liveOut));
 
+		// Recomputed in hash sets, whose order has always been printed here
+		Map<Tac, Set<Temp>> tacLiveOut = new HashMap<Tac, Set<Temp>>();
+		if (tacList != null) {
+			Tac tac = tacList;
+			for (; tac.next != null; tac = tac.next);
+			Set<Temp> live = new HashSet<Temp>(liveOut);
+			if (var != null)
+				live.add (var);
+			tacLiveOut.put(tac, live);
+			for (; tac != tacList; tac = tac.prev) {
+				live = new HashSet<Temp>(live);
+				transfer(tac, live);
+				tacLiveOut.put(tac.prev, live);
+			}
+		}
 		for (Tac t = tacList; t != null; t = t.next) {
-			pw.println("    " + t + " " + toString(t.liveOut));
+			pw.println("    " + t + " " + toString(tacLiveOut.get(t)));
 		}
 
 		switch (endKind) {
@@ -0,0 +1,382 @@
+package decaf.dataflow;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import decaf.tac.Tac;
+import decaf.tac.Temp;
+
+/**
+ * Deletion of the array bounds checks, and of other branches, whose result
+ * is known from the branches taken before, on a graph in SSA form.
+ *
+ * A block that alone follows a branch on a compare knows the compare, or
+ * its opposite, to hold; so do the blocks it dominates. A check of a[i]
+ * is i < length(a), then 0 <= i, so a second check of a[i] is known to
+ * pass, and so is one inside a loop on i < a.length(). The length of an
+ * array never changes, so all loads of it from the same temp are one
+ * value.
+ *
+ * A temp is known not negative if it is a constant that is not, a length,
+ * a phi of such temps, or one of them plus 1 where it is below some
+ * other value, so that the sum does not wrap. An induction variable
+ * counting up from 0 in a loop on i < n is one.
+ *
+ * The branches known to go one way jump there, and the blocks no longer
+ * reached, those printing the error mostly, are deleted.
+ */
+public final class BoundsCheckElimination {
+
+	// lo < hi, or lo <= hi if not strict
+	private static final class Fact {
+
+		final Temp lo;
+
+		final Temp hi;
+
+		final boolean strict;
+
+		final Fact next;
+
+		Fact(Temp lo, Temp hi, boolean strict, Fact next) {
+			this.lo = lo;
+			this.hi = hi;
+			this.strict = strict;
+			this.next = next;
+		}
+	}
+
+	private final Ssa ssa;
+
+	private final FlowGraph graph;
+
+	private final Map<Temp, Tac> defs = new HashMap<Temp, Tac>();
+
+	private final Map<Temp, Integer> uses = new HashMap<Temp, Integer>();
+
+	// What holds at the start of each block
+	private Fact[] facts;
+
+	private final Set<Temp> nonNegative = new HashSet<Temp>();
+
+	private int removedCount;
+
+	private int blockCount;
+
+	public BoundsCheckElimination(Ssa ssa) {
+		this.ssa = ssa;
+		graph = ssa.getGraph();
+	}
+
+	public void run() {
+		Map<Temp, Phi> phiDefs = new HashMap<Temp, Phi>();
+		Map<Temp, BasicBlock> defBlocks = new HashMap<Temp, BasicBlock>();
+		for (BasicBlock bb : graph) {
+			for (Phi phi : ssa.getPhis(bb)) {
+				phiDefs.put(phi.dst, phi);
+				defBlocks.put(phi.dst, bb);
+				for (Temp t : phi.args.values()) {
+					uses.merge(t, 1, Integer::sum);
+				}
+			}
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				Temp d = Ssa.defOf(tac);
+				if (d != null) {
+					defs.put(d, tac);
+					defBlocks.put(d, bb);
+				}
+				for (Temp t : Ssa.usesOf(tac)) {
+					uses.merge(t, 1, Integer::sum);
+				}
+			}
+			if (bb.var != null) {
+				uses.merge(bb.var, 1, Integer::sum);
+			}
+		}
+
+		findFacts();
+		findNonNegative(phiDefs, defBlocks);
+
+		for (BasicBlock bb : graph) {
+			if (bb.endKind != BasicBlock.EndKind.BY_BEQZ
+					&& bb.endKind != BasicBlock.EndKind.BY_BNEZ) {
+				continue;
+			}
+			Tac cmp = defs.get(bb.var);
+			if (cmp == null) {
+				continue;
+			}
+			Fact f = facts[bb.bbNum];
+			int known;
+			if (holds(cmp.opc, cmp.op1, cmp.op2, f)) {
+				known = 1;
+			} else if (holds(negate(cmp.opc), cmp.op1, cmp.op2, f)) {
+				known = 0;
+			} else {
+				continue;
+			}
+			boolean jump = bb.endKind == BasicBlock.EndKind.BY_BEQZ ? known == 0
+					: known != 0;
+			int target = bb.next[jump ? 0 : 1];
+			bb.endKind = BasicBlock.EndKind.BY_BRANCH;
+			bb.next[0] = bb.next[1] = target;
+			removeUnused(bb.var, defBlocks);
+			bb.var = null;
+			removedCount++;
+		}
+		if (removedCount > 0) {
+			blockCount = graph.removeUnreachableBlocks();
+		}
+	}
+
+	// Facts of the idom, and of the branch into the block if it is the
+	// only way in
+	private void findFacts() {
+		Dominators dom = new Dominators(graph);
+		facts = new Fact[graph.size()];
+		for (int b : graph.getReversePostorder()) {
+			int idom = dom.getIdom(b);
+			if (b == 0 || idom < 0) {
+				continue;
+			}
+			Fact f = facts[idom];
+			int[] preds = graph.getPredecessors(b);
+			if (preds.length == 1) {
+				BasicBlock p = graph.getBlock(preds[0]);
+				Tac cmp = p.var == null ? null : defs.get(p.var);
+				if (cmp != null && p.next[0] != p.next[1]
+						&& (p.endKind == BasicBlock.EndKind.BY_BEQZ
+								|| p.endKind == BasicBlock.EndKind.BY_BNEZ)) {
+					boolean zero = (p.next[0] == b)
+							== (p.endKind == BasicBlock.EndKind.BY_BEQZ);
+					f = addFact(zero ? negate(cmp.opc) : cmp.opc, cmp.op1,
+							cmp.op2, f);
+				}
+			}
+			facts[b] = f;
+		}
+	}
+
+	private static Fact addFact(Tac.Kind opc, Temp x, Temp y, Fact f) {
+		if (opc == null) {
+			return f;
+		}
+		switch (opc) {
+		case LES:
+			return new Fact(x, y, true, f);
+		case LEQ:
+			return new Fact(x, y, false, f);
+		case GTR:
+			return new Fact(y, x, true, f);
+		case GEQ:
+			return new Fact(y, x, false, f);
+		default:
+			return f;
+		}
+	}
+
+	// The compare true when that of opc is false, or null if none
+	private static Tac.Kind negate(Tac.Kind opc) {
+		switch (opc) {
+		case LES:
+			return Tac.Kind.GEQ;
+		case LEQ:
+			return Tac.Kind.GTR;
+		case GTR:
+			return Tac.Kind.LEQ;
+		case GEQ:
+			return Tac.Kind.LES;
+		default:
+			return null;
+		}
+	}
+
+	// Whether x opc y is known from f
+	private boolean holds(Tac.Kind opc, Temp x, Temp y, Fact f) {
+		if (opc == null) {
+			return false;
+		}
+		switch (opc) {
+		case LES:
+			return less(x, y, true, f);
+		case LEQ:
+			return less(x, y, false, f);
+		case GTR:
+			return less(y, x, true, f);
+		case GEQ:
+			return less(y, x, false, f);
+		default:
+			return false;
+		}
+	}
+
+	private boolean less(Temp x, Temp y, boolean strict, Fact f) {
+		Integer k = constantOf(x);
+		if (k != null && k < (strict ? 0 : 1) && isNonNegative(y, f)) {
+			return true;
+		}
+		for (; f != null; f = f.next) {
+			if ((f.strict || !strict) && same(f.lo, x) && same(f.hi, y)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isNonNegative(Temp t, Fact f) {
+		if (nonNegative.contains(t)) {
+			return true;
+		}
+		for (; f != null; f = f.next) {
+			Integer k = constantOf(f.lo);
+			if (k != null && f.hi.equals(t) && k >= (f.strict ? -1 : 0)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Whether some value below t is known where it is defined
+	private boolean isBounded(Temp t, Fact f) {
+		for (; f != null; f = f.next) {
+			if (f.strict && f.lo.equals(t)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Start from all the temps that may be found not negative and take
+	 * away those that are not, until none is: every temp left is by an
+	 * induction on the order the values are computed in.
+	 */
+	private void findNonNegative(Map<Temp, Phi> phiDefs,
+			Map<Temp, BasicBlock> defBlocks) {
+		nonNegative.addAll(phiDefs.keySet());
+		for (Map.Entry<Temp, Tac> e : defs.entrySet()) {
+			switch (e.getValue().opc) {
+			case LOAD_IMM4:
+			case LOAD:
+			case ASSIGN:
+			case ADD:
+			case DIV:
+			case MOD:
+				nonNegative.add(e.getKey());
+				break;
+			default:
+				break;
+			}
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Temp t : nonNegative.toArray(new Temp[0])) {
+				boolean keep;
+				Phi phi = phiDefs.get(t);
+				if (phi != null) {
+					keep = nonNegative.containsAll(phi.args.values());
+				} else {
+					keep = staysNonNegative(defs.get(t), facts[defBlocks
+							.get(t).bbNum]);
+				}
+				if (!keep) {
+					nonNegative.remove(t);
+					changed = true;
+				}
+			}
+		}
+	}
+
+	private boolean staysNonNegative(Tac tac, Fact f) {
+		switch (tac.opc) {
+		case LOAD_IMM4:
+			return tac.op1.value >= 0;
+		case LOAD:
+			return isLength(tac);
+		case ASSIGN:
+			return nonNegative.contains(tac.op1);
+		case ADD:
+			return increments(tac.op1, tac.op2, f)
+					|| increments(tac.op2, tac.op1, f);
+		case DIV:
+			return nonNegative.contains(tac.op1)
+					&& nonNegative.contains(tac.op2);
+		case MOD:
+			// The remainder has the sign of the dividend
+			return nonNegative.contains(tac.op1);
+		default:
+			return false;
+		}
+	}
+
+	private boolean increments(Temp t, Temp step, Fact f) {
+		Integer k = constantOf(step);
+		return k != null && nonNegative.contains(t)
+				&& (k == 0 || k == 1 && isBounded(t, f));
+	}
+
+	private Integer constantOf(Temp t) {
+		if (t.isConst) {
+			return t.value;
+		}
+		Tac def = defs.get(t);
+		return def != null && def.opc == Tac.Kind.LOAD_IMM4 ? def.op1.value
+				: null;
+	}
+
+	// Whether tac loads the length of an array
+	private static boolean isLength(Tac tac) {
+		return tac.opc == Tac.Kind.LOAD && tac.readOnly && tac.op2.value == -4;
+	}
+
+	// Whether a and b are the same value
+	private boolean same(Temp a, Temp b) {
+		if (a.equals(b)) {
+			return true;
+		}
+		Tac da = defs.get(a);
+		Tac db = defs.get(b);
+		return da != null && db != null && isLength(da) && isLength(db)
+				&& da.op1.equals(db.op1);
+	}
+
+	/*
+	 * Delete the compare of a folded branch, if nothing else reads it, and
+	 * then the lengths it alone read. These are not pure, but the fact
+	 * that folded the branch read the length of the same array, so a load
+	 * that would fault on a null array still runs before.
+	 */
+	private void removeUnused(Temp t, Map<Temp, BasicBlock> defBlocks) {
+		Tac def = defs.get(t);
+		if (def == null || uses.merge(t, -1, Integer::sum) > 0
+				|| !Ssa.isPure(def) && !isLength(def)) {
+			return;
+		}
+		Ssa.remove(defBlocks.get(t), def);
+		defs.remove(t);
+		if (!isLength(def)) {
+			for (Temp u : Ssa.usesOf(def)) {
+				if (defs.containsKey(u) && isLength(defs.get(u))) {
+					removeUnused(u, defBlocks);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Number of conditional branches made unconditional.
+	 */
+	public int getRemovedCount() {
+		return removedCount;
+	}
+
+	/**
+	 * Number of blocks deleted as no longer reached.
+	 */
+	public int getBlockCount() {
+		return blockCount;
+	}
+}
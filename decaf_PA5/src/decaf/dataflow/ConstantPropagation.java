@@ -0,0 +1,416 @@
+package decaf.dataflow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import decaf.machdesc.Intrinsic;
+import decaf.tac.Tac;
+import decaf.tac.Temp;
+
+/**
+ * Sparse conditional constant propagation, after Wegman and Zadeck, on a
+ * graph in SSA form.
+ *
+ * Values are found optimistically: only the edges a branch may take with
+ * the values known so far are followed, and a phi only merges the
+ * arguments from edges followed. Then instructions and phis with a
+ * constant value become loads of it, branches on a constant go one way and
+ * the blocks never reached are deleted. Control does not go on after a
+ * call to _Halt.
+ *
+ * The arithmetic is that of the MIPS code: 32 bit, division truncated, LNOT
+ * bitwise. ADD, SUB and NEG become the trapping add and sub, and on
+ * overflow spim leaves the destination as it was, so these are not folded
+ * when they overflow. MUL wraps. Division by zero is left to run.
+ */
+public final class ConstantPropagation {
+
+	// A value not known yet, then a constant, then any value
+	private static final int TOP = 0;
+
+	private static final int CONST = 1;
+
+	private static final int BOTTOM = 2;
+
+	private static final class Value {
+
+		final int kind;
+
+		final int value;
+
+		Value(int kind, int value) {
+			this.kind = kind;
+			this.value = value;
+		}
+	}
+
+	private static final Value UNKNOWN = new Value(TOP, 0);
+
+	private static final Value VARYING = new Value(BOTTOM, 0);
+
+	// Where a temp is read: by a phi, a Tac, or the end of the block
+	private static final class Use {
+
+		final BasicBlock bb;
+
+		final Phi phi;
+
+		final Tac tac;
+
+		Use(BasicBlock bb, Phi phi, Tac tac) {
+			this.bb = bb;
+			this.phi = phi;
+			this.tac = tac;
+		}
+	}
+
+	private final Ssa ssa;
+
+	private final FlowGraph graph;
+
+	private final Map<Temp, Value> values = new HashMap<Temp, Value>();
+
+	private final Map<Temp, List<Use>> uses = new HashMap<Temp, List<Use>>();
+
+	private final Set<Long> executable = new HashSet<Long>();
+
+	private boolean[] visited;
+
+	// Blocks calling _Halt
+	private boolean[] halts;
+
+	private final ArrayDeque<int[]> flowWork = new ArrayDeque<int[]>();
+
+	private final ArrayDeque<Use> ssaWork = new ArrayDeque<Use>();
+
+	private int foldedCount;
+
+	private int branchCount;
+
+	private int blockCount;
+
+	public ConstantPropagation(Ssa ssa) {
+		this.ssa = ssa;
+		graph = ssa.getGraph();
+	}
+
+	public void run() {
+		halts = new boolean[graph.size()];
+		for (BasicBlock bb : graph) {
+			for (Phi phi : ssa.getPhis(bb)) {
+				values.put(phi.dst, UNKNOWN);
+				for (Temp t : phi.args.values()) {
+					addUse(t, new Use(bb, phi, null));
+				}
+			}
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				Temp d = Ssa.defOf(tac);
+				if (d != null) {
+					values.put(d, UNKNOWN);
+				}
+				for (Temp t : Ssa.usesOf(tac)) {
+					addUse(t, new Use(bb, null, tac));
+				}
+				if (tac.opc == Tac.Kind.DIRECT_CALL
+						&& tac.label == Intrinsic.HALT.label) {
+					halts[bb.bbNum] = true;
+				}
+			}
+			if (bb.var != null) {
+				addUse(bb.var, new Use(bb, null, null));
+			}
+		}
+
+		visited = new boolean[graph.size()];
+		flowWork.add(new int[] { -1, 0 });
+		while (!flowWork.isEmpty() || !ssaWork.isEmpty()) {
+			if (!flowWork.isEmpty()) {
+				int[] edge = flowWork.remove();
+				if (edge[0] >= 0 && !executable.add(key(edge[0], edge[1]))) {
+					continue;
+				}
+				BasicBlock bb = graph.getBlock(edge[1]);
+				for (Phi phi : ssa.getPhis(bb)) {
+					visitPhi(bb, phi);
+				}
+				if (!visited[bb.bbNum]) {
+					visited[bb.bbNum] = true;
+					for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+						visitTac(tac);
+					}
+					visitEnd(bb);
+				}
+			} else {
+				Use use = ssaWork.remove();
+				if (!visited[use.bb.bbNum]) {
+					continue;
+				}
+				if (use.phi != null) {
+					visitPhi(use.bb, use.phi);
+				} else if (use.tac != null) {
+					visitTac(use.tac);
+				} else {
+					visitEnd(use.bb);
+				}
+			}
+		}
+
+		rewrite();
+	}
+
+	private void addUse(Temp t, Use use) {
+		uses.computeIfAbsent(t, k -> new ArrayList<Use>()).add(use);
+	}
+
+	private long key(int from, int to) {
+		return (long) from * graph.size() + to;
+	}
+
+	private Value valueOf(Temp t) {
+		if (t.isConst) {
+			return new Value(CONST, t.value);
+		}
+		Value v = values.get(t);
+		// Defined outside the function, as parameters are
+		return v == null ? VARYING : v;
+	}
+
+	private void lower(Temp t, Value v) {
+		Value old = values.get(t);
+		if (old.kind == v.kind && (v.kind != CONST || old.value == v.value)) {
+			return;
+		}
+		values.put(t, v);
+		List<Use> list = uses.get(t);
+		if (list != null) {
+			ssaWork.addAll(list);
+		}
+	}
+
+	private void visitPhi(BasicBlock bb, Phi phi) {
+		Value v = UNKNOWN;
+		for (Map.Entry<BasicBlock, Temp> arg : phi.args.entrySet()) {
+			if (!executable.contains(key(arg.getKey().bbNum, bb.bbNum))) {
+				continue;
+			}
+			Value a = valueOf(arg.getValue());
+			if (a.kind == TOP) {
+				continue;
+			}
+			if (v.kind == TOP) {
+				v = a;
+			} else if (a.kind == BOTTOM || a.value != v.value) {
+				v = VARYING;
+				break;
+			}
+		}
+		lower(phi.dst, v);
+	}
+
+	private void visitTac(Tac tac) {
+		Temp d = Ssa.defOf(tac);
+		if (d != null) {
+			lower(d, evaluate(tac));
+		}
+	}
+
+	private void visitEnd(BasicBlock bb) {
+		if (halts[bb.bbNum]) {
+			return;
+		}
+		switch (bb.endKind) {
+		case BY_BRANCH:
+			flowWork.add(new int[] { bb.bbNum, bb.next[0] });
+			break;
+		case BY_BEQZ:
+		case BY_BNEZ:
+			Value v = valueOf(bb.var);
+			if (v.kind == CONST) {
+				flowWork.add(new int[] { bb.bbNum, bb.next[taken(bb, v.value)] });
+			} else if (v.kind == BOTTOM) {
+				flowWork.add(new int[] { bb.bbNum, bb.next[0] });
+				flowWork.add(new int[] { bb.bbNum, bb.next[1] });
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	// The edge a conditional branch takes on var == value
+	private static int taken(BasicBlock bb, int value) {
+		boolean jump = bb.endKind == BasicBlock.EndKind.BY_BEQZ ? value == 0
+				: value != 0;
+		return jump ? 0 : 1;
+	}
+
+	private Value evaluate(Tac tac) {
+		switch (tac.opc) {
+		case LOAD_IMM4:
+			return new Value(CONST, tac.op1.value);
+		case ASSIGN:
+			return valueOf(tac.op1);
+		case NEG:
+		case LNOT: {
+			Value a = valueOf(tac.op1);
+			if (a.kind != CONST) {
+				return a;
+			}
+			if (tac.opc == Tac.Kind.NEG && a.value == Integer.MIN_VALUE) {
+				return VARYING;
+			}
+			return new Value(CONST, tac.opc == Tac.Kind.NEG ? -a.value
+					: ~a.value);
+		}
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV:
+		case MOD:
+		case LAND:
+		case LOR:
+		case GTR:
+		case GEQ:
+		case EQU:
+		case NEQ:
+		case LEQ:
+		case LES: {
+			Value a = valueOf(tac.op1);
+			Value b = valueOf(tac.op2);
+			if (a.kind == BOTTOM || b.kind == BOTTOM) {
+				return VARYING;
+			}
+			if (a.kind == TOP || b.kind == TOP) {
+				return UNKNOWN;
+			}
+			return fold(tac.opc, a.value, b.value);
+		}
+		default:
+			return VARYING;
+		}
+	}
+
+	private static Value fold(Tac.Kind opc, int x, int y) {
+		int r;
+		switch (opc) {
+		case ADD:
+		case SUB: {
+			long wide = opc == Tac.Kind.ADD ? (long) x + y : (long) x - y;
+			if (wide != (int) wide) {
+				return VARYING;
+			}
+			r = (int) wide;
+			break;
+		}
+		case MUL:
+			r = x * y;
+			break;
+		case DIV:
+		case MOD:
+			if (y == 0 || (x == Integer.MIN_VALUE && y == -1)) {
+				return VARYING;
+			}
+			r = opc == Tac.Kind.DIV ? x / y : x % y;
+			break;
+		case LAND:
+			r = x & y;
+			break;
+		case LOR:
+			r = x | y;
+			break;
+		case GTR:
+			r = x > y ? 1 : 0;
+			break;
+		case GEQ:
+			r = x >= y ? 1 : 0;
+			break;
+		case EQU:
+			r = x == y ? 1 : 0;
+			break;
+		case NEQ:
+			r = x != y ? 1 : 0;
+			break;
+		case LEQ:
+			r = x <= y ? 1 : 0;
+			break;
+		default:
+			r = x < y ? 1 : 0;
+			break;
+		}
+		return new Value(CONST, r);
+	}
+
+	private void rewrite() {
+		for (BasicBlock bb : graph) {
+			if (!visited[bb.bbNum]) {
+				continue;
+			}
+			List<Phi> phis = ssa.getPhis(bb);
+			for (int i = phis.size() - 1; i >= 0; i--) {
+				Phi phi = phis.get(i);
+				Value v = values.get(phi.dst);
+				if (v.kind == CONST) {
+					bb.insertBefore(Tac.genLoadImm4(phi.dst, Temp
+							.createConstTemp(v.value)), bb.tacList);
+					phis.remove(i);
+					foldedCount++;
+				}
+			}
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				Temp d = Ssa.defOf(tac);
+				if (d == null || tac.opc == Tac.Kind.LOAD_IMM4) {
+					continue;
+				}
+				Value v = values.get(d);
+				if (v.kind == CONST) {
+					tac.opc = Tac.Kind.LOAD_IMM4;
+					tac.op1 = Temp.createConstTemp(v.value);
+					tac.op2 = null;
+					foldedCount++;
+				}
+			}
+			if (halts[bb.bbNum]) {
+				bb.endKind = BasicBlock.EndKind.BY_RETURN;
+				bb.next[0] = bb.next[1] = 0;
+				bb.var = null;
+			} else if (bb.endKind == BasicBlock.EndKind.BY_BEQZ
+					|| bb.endKind == BasicBlock.EndKind.BY_BNEZ) {
+				Value v = valueOf(bb.var);
+				if (v.kind == CONST) {
+					int target = bb.next[taken(bb, v.value)];
+					bb.endKind = BasicBlock.EndKind.BY_BRANCH;
+					bb.next[0] = bb.next[1] = target;
+					bb.var = null;
+					branchCount++;
+				}
+			}
+		}
+		blockCount = graph.removeUnreachableBlocks();
+	}
+
+	/**
+	 * Number of instructions and phis replaced by a constant.
+	 */
+	public int getFoldedCount() {
+		return foldedCount;
+	}
+
+	/**
+	 * Number of conditional branches made unconditional.
+	 */
+	public int getBranchCount() {
+		return branchCount;
+	}
+
+	/**
+	 * Number of blocks deleted as never reached.
+	 */
+	public int getBlockCount() {
+		return blockCount;
+	}
+}
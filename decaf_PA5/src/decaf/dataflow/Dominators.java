@@ -0,0 +1,173 @@
+package decaf.dataflow;
+
+import java.util.Arrays;
+
+/**
+ * Dominator tree and dominance frontiers of a flow graph, by the iterative
+ * algorithm of Cooper, Harvey and Kennedy over the reverse postorder.
+ *
+ * Blocks are known by number and the tree only holds those the entry
+ * reaches. It describes the graph as it was when built.
+ */
+public final class Dominators {
+
+	private final int[] idom;
+
+	private final int[][] children;
+
+	private final int[][] frontier;
+
+	// Numbers of a depth first walk of the tree, for dominates()
+	private final int[] enter;
+
+	private final int[] exit;
+
+	public Dominators(FlowGraph g) {
+		int n = g.size();
+		int[] order = g.getReversePostorder();
+		int[] position = new int[n];
+		for (int k = 0; k < n; k++) {
+			position[order[k]] = k;
+		}
+
+		idom = new int[n];
+		Arrays.fill(idom, -1);
+		idom[0] = 0;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int k = 1; k < n; k++) {
+				int b = order[k];
+				int next = -1;
+				for (int p : g.getPredecessors(b)) {
+					if (idom[p] < 0) {
+						continue;
+					}
+					if (next < 0) {
+						next = p;
+					} else {
+						next = intersect(p, next, position);
+					}
+				}
+				if (next >= 0 && idom[b] != next) {
+					idom[b] = next;
+					changed = true;
+				}
+			}
+		}
+
+		int[] childCount = new int[n];
+		for (int b = 1; b < n; b++) {
+			if (idom[b] >= 0) {
+				childCount[idom[b]]++;
+			}
+		}
+		children = new int[n][];
+		for (int b = 0; b < n; b++) {
+			children[b] = new int[childCount[b]];
+			childCount[b] = 0;
+		}
+		// In reverse postorder, so that the tree is walked in a stable order
+		for (int k = 1; k < n; k++) {
+			int b = order[k];
+			if (idom[b] >= 0) {
+				children[idom[b]][childCount[idom[b]]++] = b;
+			}
+		}
+
+		int[][] df = new int[n][];
+		int[] dfCount = new int[n];
+		for (int b = 0; b < n; b++) {
+			int[] preds = g.getPredecessors(b);
+			if (idom[b] < 0 || preds.length < 2) {
+				continue;
+			}
+			for (int p : preds) {
+				for (int r = p; idom[p] >= 0 && r != idom[b]; r = idom[r]) {
+					if (dfCount[r] > 0 && df[r][dfCount[r] - 1] == b) {
+						break;
+					}
+					if (df[r] == null) {
+						df[r] = new int[2];
+					} else if (dfCount[r] == df[r].length) {
+						df[r] = Arrays.copyOf(df[r], 2 * dfCount[r]);
+					}
+					df[r][dfCount[r]++] = b;
+				}
+			}
+		}
+		frontier = new int[n][];
+		for (int b = 0; b < n; b++) {
+			frontier[b] = df[b] == null ? new int[0] : Arrays.copyOf(df[b],
+					dfCount[b]);
+		}
+
+		enter = new int[n];
+		exit = new int[n];
+		int[] stack = new int[n];
+		int[] next = new int[n];
+		int depth = 0;
+		int clock = 0;
+		stack[0] = 0;
+		enter[0] = clock++;
+		while (depth >= 0) {
+			int b = stack[depth];
+			if (next[depth] < children[b].length) {
+				int c = children[b][next[depth]++];
+				stack[++depth] = c;
+				next[depth] = 0;
+				enter[c] = clock++;
+			} else {
+				exit[b] = clock++;
+				depth--;
+			}
+		}
+	}
+
+	private int intersect(int a, int b, int[] position) {
+		while (a != b) {
+			while (position[a] > position[b]) {
+				a = idom[a];
+			}
+			while (position[b] > position[a]) {
+				b = idom[b];
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * The immediate dominator of block b, b itself for the entry and -1
+	 * for a block the entry does not reach.
+	 */
+	public int getIdom(int b) {
+		return idom[b];
+	}
+
+	public boolean isReachable(int b) {
+		return idom[b] >= 0;
+	}
+
+	/**
+	 * Blocks immediately dominated by b.
+	 */
+	public int[] getChildren(int b) {
+		return children[b];
+	}
+
+	/**
+	 * Blocks where the dominance of b ends.
+	 */
+	public int[] getFrontier(int b) {
+		return frontier[b];
+	}
+
+	/**
+	 * Whether every path from the entry to b passes through a. A block
+	 * dominates itself.
+	 */
+	public boolean dominates(int a, int b) {
+		return idom[a] >= 0 && idom[b] >= 0 && enter[a] <= enter[b]
+				&& exit[b] <= exit[a];
+	}
+}
@@ -2,10 +2,13 @@ package decaf.dataflow;
 
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import decaf.tac.Functy;
 import decaf.tac.Tac;
@@ -17,6 +20,22 @@ public class FlowGraph implements Iterable<BasicBlock> {
 
 	private List<BasicBlock> bbs;
 
+	// Blocks flowing into each block, by number
+	private int[][] preds;
+
+	// Numbers of the blocks in reverse postorder from the entry, followed by
+	// any block the entry does not reach
+	private int[] order;
+
+	// How many blocks of the order the entry reaches
+	private int reachedCount;
+
+	private int livenessRounds;
+
+	private int livenessVisits;
+
+	private boolean returnsReachEntry = true;
+
 	public FlowGraph(Functy func) {
 		this.functy = func;
 		deleteMemo(func);
@@ -24,10 +43,7 @@ public class FlowGraph implements Iterable<BasicBlock> {
 		markBasicBlocks(func.head);
 		gatherBasicBlocks(func.head);
 		simplify();
-		analyzeLiveness();
-		for (BasicBlock bb : bbs) {
-			bb.analyzeLiveness();
-		}
+		updateLiveness();
 	}
 
 	private void deleteMemo(Functy func) {
@@ -169,25 +185,391 @@ public class FlowGraph implements Iterable<BasicBlock> {
 		return bbs.size();
 	}
 
+	/**
+	 * Solve liveness with a worklist. Blocks are visited in postorder, so
+	 * that a block mostly comes after its successors, and once a block has
+	 * been visited only the predecessors of blocks whose live-in grew are
+	 * visited again.
+	 *
+	 * A block ending by RETURN keeps next = {0, 0}, so it takes the live-in
+	 * of the entry as its live-out, as it always has. Unless returns reach
+	 * the entry, nothing is live out of it.
+	 */
 	public void analyzeLiveness() {
+		TempIndex index = new TempIndex(bbs);
 		for (BasicBlock bb : bbs) {
-			bb.computeDefAndLiveUse();
+			bb.computeDefAndLiveUse(index);
 		}
-		boolean changed = true;
-		do {
-			changed = false;
-			for (BasicBlock bb: bbs) {
-				for (int i = 0; i < 2; i++) {
-					bb.liveOut.addAll (bbs.get(bb.next[i]).liveIn);
+		computeOrder();
+
+		List<Integer> returns = new ArrayList<Integer>();
+		for (BasicBlock bb : bbs) {
+			if (bb.endKind == BasicBlock.EndKind.BY_RETURN) {
+				returns.add(bb.bbNum);
+			}
+		}
+		boolean[] pending = new boolean[bbs.size()];
+		Arrays.fill(pending, true);
+		int left = bbs.size();
+		livenessRounds = 0;
+		livenessVisits = 0;
+		while (left > 0) {
+			livenessRounds++;
+			for (int k = order.length - 1; k >= 0; k--) {
+				int b = order[k];
+				if (!pending[b]) {
+					continue;
+				}
+				pending[b] = false;
+				left--;
+				livenessVisits++;
+				BasicBlock bb = bbs.get(b);
+				if (returnsReachEntry
+						|| bb.endKind != BasicBlock.EndKind.BY_RETURN) {
+					for (int i = 0; i < 2; i++) {
+						bb.liveOut.addAll (bbs.get(bb.next[i]).liveIn);
+					}
+				}
+				if (bb.liveIn.addDifference(bb.liveOut, bb.def)) {
+					for (int p : preds[b]) {
+						if (!pending[p]) {
+							pending[p] = true;
+							left++;
+						}
+					}
+					if (b == 0 && returnsReachEntry) {
+						for (int p : returns) {
+							if (!pending[p]) {
+								pending[p] = true;
+								left++;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Redo liveness, of the blocks and of each Tac, after the code of the
+	 * blocks was changed.
+	 */
+	public void updateLiveness() {
+		analyzeLiveness();
+		for (BasicBlock bb : bbs) {
+			bb.analyzeLiveness();
+		}
+	}
+
+	/**
+	 * Redo liveness, and keep whether the live-in of the entry is live out
+	 * of the blocks ending by RETURN, as it is by default, for the analyses
+	 * done after.
+	 */
+	public void updateLiveness(boolean returnsReachEntry) {
+		this.returnsReachEntry = returnsReachEntry;
+		updateLiveness();
+	}
+
+	private void computeOrder() {
+		int n = bbs.size();
+		int[] predCount = new int[n];
+		for (BasicBlock bb : bbs) {
+			if (bb.endKind == BasicBlock.EndKind.BY_RETURN) {
+				continue;
+			}
+			predCount[bb.next[0]]++;
+			if (bb.next[1] != bb.next[0]) {
+				predCount[bb.next[1]]++;
+			}
+		}
+		preds = new int[n][];
+		for (int i = 0; i < n; i++) {
+			preds[i] = new int[predCount[i]];
+			predCount[i] = 0;
+		}
+		for (BasicBlock bb : bbs) {
+			if (bb.endKind == BasicBlock.EndKind.BY_RETURN) {
+				continue;
+			}
+			preds[bb.next[0]][predCount[bb.next[0]]++] = bb.bbNum;
+			if (bb.next[1] != bb.next[0]) {
+				preds[bb.next[1]][predCount[bb.next[1]]++] = bb.bbNum;
+			}
+		}
+
+		// Iterative depth first search, the postorder filled from the end
+		order = new int[n];
+		int k = n;
+		boolean[] seen = new boolean[n];
+		int[] stack = new int[n];
+		int[] edge = new int[n];
+		int depth = 0;
+		stack[0] = 0;
+		seen[0] = true;
+		while (depth >= 0) {
+			int b = stack[depth];
+			BasicBlock bb = bbs.get(b);
+			if (edge[depth] < 2 && bb.endKind != BasicBlock.EndKind.BY_RETURN) {
+				int s = bb.next[edge[depth]++];
+				if (!seen[s]) {
+					seen[s] = true;
+					depth++;
+					stack[depth] = s;
+					edge[depth] = 0;
+				}
+			} else {
+				order[--k] = b;
+				depth--;
+			}
+		}
+		// Unreachable blocks, after the others
+		int reached = n - k;
+		reachedCount = reached;
+		System.arraycopy(order, k, order, 0, reached);
+		for (int b = 0; b < n; b++) {
+			if (!seen[b]) {
+				order[reached++] = b;
+			}
+		}
+	}
+
+	/**
+	 * Delete the blocks the entry does not reach, after branches were
+	 * changed. The others are renumbered in the same order.
+	 *
+	 * @return the number of blocks deleted
+	 */
+	public int removeUnreachableBlocks() {
+		computeOrder();
+		int n = bbs.size();
+		boolean[] reached = new boolean[n];
+		for (int k = 0; k < reachedCount; k++) {
+			reached[order[k]] = true;
+		}
+		int[] newNum = new int[n];
+		List<BasicBlock> kept = new ArrayList<BasicBlock>();
+		for (BasicBlock bb : bbs) {
+			if (reached[bb.bbNum]) {
+				newNum[bb.bbNum] = kept.size();
+				kept.add(bb);
+			}
+		}
+		int removed = n - kept.size();
+		if (removed > 0) {
+			renumber(kept, newNum);
+		}
+		return removed;
+	}
+
+	// Make blocks the list of blocks, given their new numbers by old ones
+	private void renumber(List<BasicBlock> blocks, int[] newNum) {
+		bbs = blocks;
+		for (BasicBlock bb : bbs) {
+			bb.bbNum = newNum[bb.bbNum];
+			if (bb.endKind != BasicBlock.EndKind.BY_RETURN) {
+				bb.next[0] = newNum[bb.next[0]];
+				bb.next[1] = newNum[bb.next[1]];
+			}
+		}
+		computeOrder();
+	}
+
+	/**
+	 * Skip the blocks with no code that only jump to another, but the
+	 * entry, and delete them. There must be no phis.
+	 *
+	 * @return the number of blocks deleted
+	 */
+	public int removeEmptyBlocks() {
+		int n = bbs.size();
+		int[] target = new int[n];
+		for (int b = 0; b < n; b++) {
+			target[b] = b;
+		}
+		for (BasicBlock bb : bbs) {
+			// Through chains of empty blocks, but not around empty cycles
+			int t = bb.bbNum;
+			for (int steps = 0; steps < n && t != 0 && isEmpty(bbs.get(t)); steps++) {
+				t = bbs.get(t).next[0];
+			}
+			target[bb.bbNum] = t;
+		}
+		for (BasicBlock bb : bbs) {
+			if (bb.endKind == BasicBlock.EndKind.BY_RETURN) {
+				continue;
+			}
+			bb.next[0] = target[bb.next[0]];
+			bb.next[1] = target[bb.next[1]];
+			if (bb.endKind != BasicBlock.EndKind.BY_BRANCH
+					&& bb.next[0] == bb.next[1]) {
+				bb.endKind = BasicBlock.EndKind.BY_BRANCH;
+				bb.var = null;
+			}
+		}
+		return removeUnreachableBlocks();
+	}
+
+	private static boolean isEmpty(BasicBlock bb) {
+		return bb.endKind == BasicBlock.EndKind.BY_BRANCH && bb.tacList == null
+				&& bb.next[0] != bb.bbNum;
+	}
+
+	/**
+	 * The natural loops, inner ones before those holding them.
+	 */
+	public List<Loop> findLoops() {
+		Dominators dom = new Dominators(this);
+		Map<Integer, BitSet> bodies = new TreeMap<Integer, BitSet>();
+		int[] stack = new int[bbs.size()];
+		for (int k = 0; k < reachedCount; k++) {
+			int t = order[k];
+			for (int h : bbs.get(t).getSuccessors()) {
+				if (!dom.dominates(h, t)) {
+					continue;
+				}
+				BitSet body = bodies.computeIfAbsent(h, x -> new BitSet());
+				body.set(h);
+				int top = 0;
+				if (!body.get(t)) {
+					body.set(t);
+					stack[top++] = t;
 				}
-				bb.liveOut.removeAll(bb.def);
-				if (bb.liveIn.addAll (bb.liveOut))
-					changed = true;
+				while (top > 0) {
+					int b = stack[--top];
+					for (int p : preds[b]) {
+						if (!body.get(p) && dom.isReachable(p)) {
+							body.set(p);
+							stack[top++] = p;
+						}
+					}
+				}
+			}
+		}
+		List<Loop> loops = new ArrayList<Loop>();
+		for (Map.Entry<Integer, BitSet> e : bodies.entrySet()) {
+			int h = e.getKey();
+			// The entry is also entered from outside the function
+			int preheader = h == 0 ? -2 : -1;
+			for (int p : preds[h]) {
+				if (e.getValue().get(p)) {
+					continue;
+				}
+				preheader = preheader == -1
+						&& bbs.get(p).endKind == BasicBlock.EndKind.BY_BRANCH ? p
+						: -2;
+			}
+			loops.add(new Loop(h, e.getValue(), Math.max(preheader, -1)));
+		}
+		loops.sort((a, b) -> Integer.compare(a.size(), b.size()));
+		return loops;
+	}
+
+	/**
+	 * Give each loop without one a preheader, a new empty block the
+	 * entries of the loop go through. It is numbered just before the
+	 * header, so that the blocks stay in the order of the code, where a
+	 * temp is defined before it is read. The liveness of the blocks stays
+	 * right.
+	 */
+	public void insertPreheaders() {
+		int n = bbs.size();
+		int[] preheaders = new int[n];
+		Arrays.fill(preheaders, -1);
+		for (Loop loop : findLoops()) {
+			if (loop.getPreheader() >= 0) {
+				continue;
+			}
+			int h = loop.getHeader();
+			BasicBlock pre = new BasicBlock();
+			pre.bbNum = bbs.size();
+			pre.endKind = BasicBlock.EndKind.BY_BRANCH;
+			pre.next[0] = pre.next[1] = h;
+			// Being empty, it has the liveness of the header at its start
+			BasicBlock header = bbs.get(h);
+			if (header.liveIn != null) {
+				pre.def = new LiveSet(header.def);
+				pre.def.clear();
+				pre.liveUse = new LiveSet(pre.def);
+				pre.liveIn = new LiveSet(header.liveIn);
+				pre.liveOut = new LiveSet(header.liveIn);
+			}
+			for (int p : preds[h]) {
+				if (loop.contains(p)) {
+					continue;
+				}
+				BasicBlock bb = bbs.get(p);
 				for (int i = 0; i < 2; i++) {
-					bb.liveOut.addAll (bbs.get(bb.next[i]).liveIn);
+					if (bb.next[i] == h) {
+						bb.next[i] = pre.bbNum;
+					}
 				}
 			}
-		} while (changed);
+			bbs.add(pre);
+			preheaders[h] = pre.bbNum;
+		}
+		if (bbs.size() == n) {
+			return;
+		}
+		int[] newNum = new int[bbs.size()];
+		List<BasicBlock> blocks = new ArrayList<BasicBlock>(bbs.size());
+		for (int b = 0; b < n; b++) {
+			if (preheaders[b] >= 0) {
+				newNum[preheaders[b]] = blocks.size();
+				blocks.add(bbs.get(preheaders[b]));
+			}
+			newNum[b] = blocks.size();
+			blocks.add(bbs.get(b));
+		}
+		renumber(blocks, newNum);
+	}
+
+	/**
+	 * Put a new empty block on the edge from one block to another, which
+	 * it jumps to. It is numbered after all others.
+	 */
+	public BasicBlock splitEdge(BasicBlock from, BasicBlock to) {
+		BasicBlock bb = new BasicBlock();
+		bb.bbNum = bbs.size();
+		bb.endKind = BasicBlock.EndKind.BY_BRANCH;
+		bb.next[0] = bb.next[1] = to.bbNum;
+		bbs.add(bb);
+		for (int i = 0; i < 2; i++) {
+			if (from.next[i] == to.bbNum) {
+				from.next[i] = bb.bbNum;
+			}
+		}
+		computeOrder();
+		return bb;
+	}
+
+	/**
+	 * Numbers of the blocks that may flow into block i.
+	 */
+	public int[] getPredecessors(int i) {
+		return preds[i];
+	}
+
+	/**
+	 * Numbers of all blocks, in reverse postorder from the entry, then
+	 * those the entry does not reach.
+	 */
+	public int[] getReversePostorder() {
+		return order;
+	}
+
+	/**
+	 * Passes over the worklist the liveness solver made.
+	 */
+	public int getLivenessRounds() {
+		return livenessRounds;
+	}
+
+	/**
+	 * Times the liveness solver visited a block.
+	 */
+	public int getLivenessVisits() {
+		return livenessVisits;
 	}
 
 	public void simplify() {
@@ -0,0 +1,207 @@
+package decaf.dataflow;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import decaf.tac.Temp;
+
+/**
+ * A set of temps of one function, as a bitset over their numbers in the
+ * TempIndex of the function. Iterates in the order of temp ids. The bulk
+ * operations between sets of the same function work word by word, in
+ * place.
+ */
+public final class LiveSet extends AbstractSet<Temp> {
+
+	private final TempIndex index;
+
+	private final long[] words;
+
+	LiveSet(TempIndex index) {
+		this.index = index;
+		words = new long[(index.size() + 63) >>> 6];
+	}
+
+	public LiveSet(LiveSet other) {
+		index = other.index;
+		words = other.words.clone();
+	}
+
+	boolean get(int i) {
+		return (words[i >>> 6] & (1L << i)) != 0;
+	}
+
+	// Whether the bit was clear
+	boolean set(int i) {
+		long old = words[i >>> 6];
+		words[i >>> 6] = old | (1L << i);
+		return (old & (1L << i)) == 0;
+	}
+
+	// Whether the bit was set
+	boolean clear(int i) {
+		long old = words[i >>> 6];
+		words[i >>> 6] = old & ~(1L << i);
+		return (old & (1L << i)) != 0;
+	}
+
+	private boolean sameFunction(Object o) {
+		return o instanceof LiveSet && ((LiveSet) o).index == index;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Temp)) {
+			return false;
+		}
+		int i = index.indexOf((Temp) o);
+		return i >= 0 && get(i);
+	}
+
+	@Override
+	public boolean add(Temp t) {
+		int i = index.indexOf(t);
+		if (i < 0) {
+			throw new IllegalArgumentException(t + " is not of this function");
+		}
+		return set(i);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof Temp)) {
+			return false;
+		}
+		int i = index.indexOf((Temp) o);
+		return i >= 0 && clear(i);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Temp> c) {
+		if (!sameFunction(c)) {
+			return super.addAll(c);
+		}
+		long[] other = ((LiveSet) c).words;
+		boolean changed = false;
+		for (int i = 0; i < words.length; i++) {
+			long w = words[i] | other[i];
+			if (w != words[i]) {
+				words[i] = w;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		if (!sameFunction(c)) {
+			return super.removeAll(c);
+		}
+		long[] other = ((LiveSet) c).words;
+		boolean changed = false;
+		for (int i = 0; i < words.length; i++) {
+			long w = words[i] & ~other[i];
+			if (w != words[i]) {
+				words[i] = w;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Add the temps of a that are not in b, word by word.
+	 * 
+	 * @return whether this set grew
+	 */
+	boolean addDifference(LiveSet a, LiveSet b) {
+		boolean changed = false;
+		for (int i = 0; i < words.length; i++) {
+			long w = words[i] | (a.words[i] & ~b.words[i]);
+			if (w != words[i]) {
+				words[i] = w;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < words.length; i++) {
+			words[i] = 0;
+		}
+	}
+
+	@Override
+	public int size() {
+		int n = 0;
+		for (long w : words) {
+			n += Long.bitCount(w);
+		}
+		return n;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (long w : words) {
+			if (w != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// The first set bit from i on, or -1
+	private int nextSetBit(int i) {
+		int u = i >>> 6;
+		if (u >= words.length) {
+			return -1;
+		}
+		long w = words[u] & (-1L << i);
+		while (w == 0) {
+			if (++u == words.length) {
+				return -1;
+			}
+			w = words[u];
+		}
+		return (u << 6) + Long.numberOfTrailingZeros(w);
+	}
+
+	@Override
+	public Iterator<Temp> iterator() {
+		return new Iterator<Temp>() {
+
+			private int next = nextSetBit(0);
+
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public Temp next() {
+				if (next < 0) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = nextSetBit(next + 1);
+				return index.get(last);
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				clear(last);
+				last = -1;
+			}
+		};
+	}
+}
@@ -0,0 +1,49 @@
+package decaf.dataflow;
+
+import java.util.BitSet;
+
+/**
+ * A natural loop: the header and the blocks that reach a back edge into
+ * it without passing through it. Loops with the same header are one.
+ */
+public final class Loop {
+
+	private final int header;
+
+	private final BitSet blocks;
+
+	private final int preheader;
+
+	Loop(int header, BitSet blocks, int preheader) {
+		this.header = header;
+		this.blocks = blocks;
+		this.preheader = preheader;
+	}
+
+	public int getHeader() {
+		return header;
+	}
+
+	public boolean contains(int b) {
+		return blocks.get(b);
+	}
+
+	/**
+	 * Numbers of the blocks of the loop, the header included.
+	 */
+	public BitSet getBlocks() {
+		return blocks;
+	}
+
+	public int size() {
+		return blocks.cardinality();
+	}
+
+	/**
+	 * The block outside the loop that alone flows into the header, and
+	 * only into it, or -1 if there is none.
+	 */
+	public int getPreheader() {
+		return preheader;
+	}
+}
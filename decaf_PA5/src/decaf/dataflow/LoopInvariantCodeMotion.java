@@ -0,0 +1,210 @@
+package decaf.dataflow;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import decaf.machdesc.Intrinsic;
+import decaf.tac.Tac;
+import decaf.tac.Temp;
+
+/**
+ * Loop-invariant code motion on a graph in SSA form, whose loops have
+ * preheaders.
+ *
+ * An instruction whose operands are all defined outside a loop computes
+ * the same value on every iteration, and is moved to the end of the
+ * preheader. Inner loops go first, so that what leaves them may leave the
+ * loops around them too. Pure instructions always move. A LOAD moves if no
+ * STORE in the loop has its offset, as in ValueNumbering, and if it cannot
+ * fault where it would not have run: its block is on every way out of the
+ * loop, or its base is this or a virtual table.
+ *
+ * Loops with calls are left alone, for the reason ValueNumbering keeps no
+ * value across a call. The calls of a block calling _Halt, as on a failed
+ * bounds check, do not count: control does not come back into the loop,
+ * so such a block is a way out of it, and nothing is moved out of it.
+ * Constant propagation already ends these blocks by RETURN, out of the
+ * loop, but this pass does not rely on it.
+ */
+public final class LoopInvariantCodeMotion {
+
+	private final Ssa ssa;
+
+	private final FlowGraph graph;
+
+	// The block defining each temp of the function
+	private final Map<Temp, Integer> defBlocks = new HashMap<Temp, Integer>();
+
+	private final Map<Temp, Tac> defs = new HashMap<Temp, Tac>();
+
+	private int hoistedCount;
+
+	private int loopCount;
+
+	public LoopInvariantCodeMotion(Ssa ssa) {
+		this.ssa = ssa;
+		graph = ssa.getGraph();
+	}
+
+	public void run() {
+		List<Loop> loops = graph.findLoops();
+		if (loops.isEmpty()) {
+			return;
+		}
+		loopCount = loops.size();
+		Dominators dom = new Dominators(graph);
+		for (BasicBlock bb : graph) {
+			for (Phi phi : ssa.getPhis(bb)) {
+				defBlocks.put(phi.dst, bb.bbNum);
+			}
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				Temp d = Ssa.defOf(tac);
+				if (d != null) {
+					defBlocks.put(d, bb.bbNum);
+					defs.put(d, tac);
+				}
+			}
+		}
+		int[] order = graph.getReversePostorder();
+		for (Loop loop : loops) {
+			if (loop.getPreheader() >= 0) {
+				hoist(loop, dom, order);
+			}
+		}
+	}
+
+	private void hoist(Loop loop, Dominators dom, int[] order) {
+		BitSet blocks = loop.getBlocks();
+		Set<Integer> stored = new HashSet<Integer>();
+		BitSet exiting = new BitSet();
+		BitSet halting = new BitSet();
+		for (int b = blocks.nextSetBit(0); b >= 0; b = blocks.nextSetBit(b + 1)) {
+			BasicBlock bb = graph.getBlock(b);
+			if (halts(bb)) {
+				halting.set(b);
+				exiting.set(b);
+			}
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				switch (tac.opc) {
+				case DIRECT_CALL:
+				case INDIRECT_CALL:
+					if (!halting.get(b)) {
+						return;
+					}
+					break;
+				case STORE:
+					stored.add(tac.op2.value);
+					break;
+				default:
+					break;
+				}
+			}
+			for (int s : bb.getSuccessors()) {
+				if (!blocks.get(s)) {
+					exiting.set(b);
+				}
+			}
+			// Leaving the function also leaves the loop
+			if (bb.endKind == BasicBlock.EndKind.BY_RETURN) {
+				exiting.set(b);
+			}
+		}
+
+		int pre = loop.getPreheader();
+		BasicBlock preheader = graph.getBlock(pre);
+		Tac tail = preheader.tacList;
+		while (tail != null && tail.next != null) {
+			tail = tail.next;
+		}
+		// In reverse postorder, an instruction comes after those defining
+		// its operands, but through phis
+		for (int b : order) {
+			if (!blocks.get(b) || halting.get(b)) {
+				continue;
+			}
+			BasicBlock bb = graph.getBlock(b);
+			boolean onAllExits = !exiting.isEmpty();
+			for (int e = exiting.nextSetBit(0); e >= 0; e = exiting
+					.nextSetBit(e + 1)) {
+				onAllExits &= dom.dominates(b, e);
+			}
+			Tac next;
+			for (Tac tac = bb.tacList; tac != null; tac = next) {
+				next = tac.next;
+				if (!isInvariant(tac, blocks)
+						|| !canMove(tac, stored, onAllExits)) {
+					continue;
+				}
+				Ssa.remove(bb, tac);
+				tac.prev = tac.next = null;
+				preheader.insertAfter(tac, tail);
+				tail = tac;
+				defBlocks.put(tac.op0, pre);
+				hoistedCount++;
+			}
+		}
+	}
+
+	private static boolean halts(BasicBlock bb) {
+		for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+			if (tac.opc == Tac.Kind.DIRECT_CALL
+					&& tac.label == Intrinsic.HALT.label) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isInvariant(Tac tac, BitSet blocks) {
+		if (Ssa.defOf(tac) == null) {
+			return false;
+		}
+		for (Temp t : Ssa.usesOf(tac)) {
+			Integer b = defBlocks.get(t);
+			if (b != null && blocks.get(b)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean canMove(Tac tac, Set<Integer> stored, boolean onAllExits) {
+		if (Ssa.isPure(tac)) {
+			return true;
+		}
+		if (tac.opc != Tac.Kind.LOAD) {
+			return false;
+		}
+		if (!tac.readOnly && stored.contains(tac.op2.value)) {
+			return false;
+		}
+		return onAllExits || isValidBase(tac.op1);
+	}
+
+	// Whether t is surely an address: this, or a virtual table
+	private boolean isValidBase(Temp t) {
+		if (t.isParam && t.sym != null && t.sym.getName().equals("this")) {
+			return true;
+		}
+		Tac def = defs.get(t);
+		return def != null && def.opc == Tac.Kind.LOAD_VTBL;
+	}
+
+	/**
+	 * Number of instructions moved out of a loop.
+	 */
+	public int getHoistedCount() {
+		return hoistedCount;
+	}
+
+	/**
+	 * Number of loops found.
+	 */
+	public int getLoopCount() {
+		return loopCount;
+	}
+}
@@ -0,0 +1,90 @@
+package decaf.dataflow;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The passes over TAC run before code generation, by level:
+ *
+ * 0: none
+ * 1: SSA form, sparse conditional constant propagation and deletion of
+ * dead code
+ * 2: also value numbering, deletion of the array bounds checks known to
+ * pass and loop-invariant code motion
+ *
+ * It may be used by several threads at once; the counts are the sums over
+ * all functions.
+ */
+public final class Optimizer {
+
+	private final int level;
+
+	private final Map<String, LongAdder> counts = new LinkedHashMap<String, LongAdder>();
+
+	public Optimizer(int level) {
+		this.level = level;
+		for (String name : new String[] { "phis placed", "constants folded",
+				"branches folded", "blocks removed", "value numbered tac",
+				"bound checks removed", "loops", "hoisted tac",
+				"dead tac removed", "phi copies", "copies coalesced" }) {
+			counts.put(name, new LongAdder());
+		}
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Optimize the function of g in place, and bring liveness up to date.
+	 */
+	public void optimize(FlowGraph g) {
+		if (level < 1) {
+			return;
+		}
+		if (level >= 2) {
+			g.insertPreheaders();
+		}
+		Ssa ssa = new Ssa(g);
+		count("phis placed", ssa.getPhiCount());
+		ConstantPropagation cp = new ConstantPropagation(ssa);
+		cp.run();
+		count("constants folded", cp.getFoldedCount());
+		count("branches folded", cp.getBranchCount());
+		count("blocks removed", cp.getBlockCount());
+		if (level >= 2) {
+			ValueNumbering vn = new ValueNumbering(ssa);
+			vn.run();
+			count("value numbered tac", vn.getRemovedCount());
+			BoundsCheckElimination bce = new BoundsCheckElimination(ssa);
+			bce.run();
+			count("bound checks removed", bce.getRemovedCount());
+			count("blocks removed", bce.getBlockCount());
+			LoopInvariantCodeMotion licm = new LoopInvariantCodeMotion(ssa);
+			licm.run();
+			count("loops", licm.getLoopCount());
+			count("hoisted tac", licm.getHoistedCount());
+		}
+		count("dead tac removed", ssa.removeDeadCode());
+		count("phi copies", ssa.destruct());
+		count("copies coalesced", ssa.getCoalescedCount());
+		g.removeEmptyBlocks();
+		g.updateLiveness(true);
+	}
+
+	private void count(String name, long n) {
+		counts.get(name).add(n);
+	}
+
+	/**
+	 * What the passes did, by name, in a fixed order.
+	 */
+	public Map<String, Long> getCounts() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, LongAdder> e : counts.entrySet()) {
+			result.put(e.getKey(), e.getValue().sum());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,24 @@
+package decaf.dataflow;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import decaf.tac.Temp;
+
+/**
+ * A phi function at the start of a block: dst takes the version of var
+ * that reaches the end of the predecessor control came from.
+ */
+public final class Phi {
+
+	public final Temp var;
+
+	public Temp dst;
+
+	// By predecessor block
+	public final Map<BasicBlock, Temp> args = new HashMap<BasicBlock, Temp>();
+
+	Phi(Temp var) {
+		this.var = var;
+	}
+}
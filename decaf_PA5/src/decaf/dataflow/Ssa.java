@@ -0,0 +1,637 @@
+package decaf.dataflow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import decaf.tac.Tac;
+import decaf.tac.Temp;
+
+/**
+ * Static single assignment form of a flow graph, built in place.
+ *
+ * Phi functions are placed at the iterated dominance frontier of the blocks
+ * defining a temp, where the temp is live in, and every definition is
+ * renamed to a new temp by a walk of the dominator tree. The temps of the
+ * function stand for their values on entry, so parameters keep their stack
+ * slots. The phis are kept aside, by block, until destruct() turns them
+ * back into copies.
+ *
+ * Liveness of the graph must be up to date when it is built.
+ */
+public final class Ssa {
+
+	private final FlowGraph graph;
+
+	private final Dominators dom;
+
+	// The temps of the function, by their index in liveness
+	private Temp[] vars;
+
+	private int lastId;
+
+	private final Map<BasicBlock, List<Phi>> phis = new HashMap<BasicBlock, List<Phi>>();
+
+	private int phiCount;
+
+	private int coalescedCount;
+
+	public Ssa(FlowGraph g) {
+		graph = g;
+		g.removeUnreachableBlocks();
+		dom = new Dominators(g);
+
+		int n = 0;
+		lastId = 0;
+		for (BasicBlock bb : g) {
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				for (Temp t : new Temp[] { tac.op0, tac.op1, tac.op2 }) {
+					if (t != null && !t.isConst) {
+						n = Math.max(n, t.index + 1);
+						lastId = Math.max(lastId, t.id);
+					}
+				}
+			}
+			if (bb.var != null) {
+				n = Math.max(n, bb.var.index + 1);
+				lastId = Math.max(lastId, bb.var.id);
+			}
+		}
+		vars = new Temp[n];
+		BitSet[] defSites = new BitSet[n];
+		for (BasicBlock bb : g) {
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				Temp d = defOf(tac);
+				if (d != null) {
+					vars[d.index] = d;
+					if (defSites[d.index] == null) {
+						defSites[d.index] = new BitSet();
+					}
+					defSites[d.index].set(bb.bbNum);
+				}
+			}
+		}
+
+		placePhis(defSites);
+		rename();
+	}
+
+	private void placePhis(BitSet[] defSites) {
+		int[] work = new int[graph.size()];
+		for (int v = 0; v < vars.length; v++) {
+			if (defSites[v] == null) {
+				continue;
+			}
+			BitSet hasPhi = new BitSet();
+			BitSet queued = (BitSet) defSites[v].clone();
+			int top = 0;
+			for (int b = queued.nextSetBit(0); b >= 0; b = queued.nextSetBit(b + 1)) {
+				work[top++] = b;
+			}
+			while (top > 0) {
+				int b = work[--top];
+				for (int f : dom.getFrontier(b)) {
+					if (hasPhi.get(f)) {
+						continue;
+					}
+					BasicBlock bb = graph.getBlock(f);
+					if (!bb.liveIn.contains(vars[v])) {
+						continue;
+					}
+					hasPhi.set(f);
+					phis.computeIfAbsent(bb, k -> new ArrayList<Phi>()).add(
+							new Phi(vars[v]));
+					phiCount++;
+					if (!queued.get(f)) {
+						queued.set(f);
+						work[top++] = f;
+					}
+				}
+			}
+		}
+	}
+
+	// Walks the dominator tree with an explicit stack, as it may be deep
+	private void rename() {
+		List<List<Temp>> versions = new ArrayList<List<Temp>>(vars.length);
+		for (int v = 0; v < vars.length; v++) {
+			versions.add(new ArrayList<Temp>());
+		}
+		UnaryOperator<Temp> current = t -> {
+			if (!isVar(t)) {
+				return t;
+			}
+			List<Temp> s = versions.get(t.index);
+			return s.isEmpty() ? t : s.get(s.size() - 1);
+		};
+
+		int n = graph.size();
+		int[] stack = new int[n];
+		int[] child = new int[n];
+		// Vars each block on the stack gave a new version, in order
+		List<List<Integer>> pushed = new ArrayList<List<Integer>>();
+		for (int i = 0; i < n; i++) {
+			pushed.add(new ArrayList<Integer>());
+		}
+		int depth = 0;
+		stack[0] = 0;
+		child[0] = -1;
+		while (depth >= 0) {
+			int b = stack[depth];
+			BasicBlock bb = graph.getBlock(b);
+			if (child[depth] < 0) {
+				child[depth] = 0;
+				List<Integer> defined = pushed.get(depth);
+				for (Phi phi : getPhis(bb)) {
+					phi.dst = newTemp(phi.var);
+					versions.get(phi.var.index).add(phi.dst);
+					defined.add(phi.var.index);
+				}
+				for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+					replaceUses(tac, current);
+					Temp d = defOf(tac);
+					if (d != null) {
+						tac.op0 = newTemp(d);
+						versions.get(d.index).add(tac.op0);
+						defined.add(d.index);
+					}
+				}
+				if (bb.var != null) {
+					bb.var = current.apply(bb.var);
+				}
+				for (int s : bb.getSuccessors()) {
+					BasicBlock succ = graph.getBlock(s);
+					for (Phi phi : getPhis(succ)) {
+						phi.args.put(bb, current.apply(phi.var));
+					}
+				}
+			}
+			int[] children = dom.getChildren(b);
+			if (child[depth] < children.length) {
+				int c = children[child[depth]++];
+				depth++;
+				stack[depth] = c;
+				child[depth] = -1;
+			} else {
+				List<Integer> defined = pushed.get(depth);
+				for (int v : defined) {
+					List<Temp> s = versions.get(v);
+					s.remove(s.size() - 1);
+				}
+				defined.clear();
+				depth--;
+			}
+		}
+	}
+
+	private boolean isVar(Temp t) {
+		return t != null && !t.isConst && t.index >= 0 && t.index < vars.length
+				&& vars[t.index] == t;
+	}
+
+	/**
+	 * A new temp of the function, like t.
+	 */
+	public Temp newTemp(Temp t) {
+		Temp temp = Temp.createTempI4(++lastId);
+		temp.size = t.size;
+		return temp;
+	}
+
+	public FlowGraph getGraph() {
+		return graph;
+	}
+
+	public Dominators getDominators() {
+		return dom;
+	}
+
+	public List<Phi> getPhis(BasicBlock bb) {
+		List<Phi> list = phis.get(bb);
+		return list == null ? Collections.<Phi> emptyList() : list;
+	}
+
+	/**
+	 * Number of phis placed.
+	 */
+	public int getPhiCount() {
+		return phiCount;
+	}
+
+	/**
+	 * Delete the instructions and phis whose values are never used and
+	 * which have no other effect, and those only they used.
+	 *
+	 * @return the number of instructions deleted
+	 */
+	public int removeDeadCode() {
+		Map<Temp, Integer> uses = new HashMap<Temp, Integer>();
+		Map<Temp, Tac> defs = new HashMap<Temp, Tac>();
+		Map<Temp, BasicBlock> defBlocks = new HashMap<Temp, BasicBlock>();
+		Map<Temp, Phi> phiDefs = new HashMap<Temp, Phi>();
+		for (BasicBlock bb : graph) {
+			for (Phi phi : getPhis(bb)) {
+				phiDefs.put(phi.dst, phi);
+				defBlocks.put(phi.dst, bb);
+				for (Temp t : phiArgs(bb, phi)) {
+					uses.merge(t, 1, Integer::sum);
+				}
+			}
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				for (Temp t : usesOf(tac)) {
+					uses.merge(t, 1, Integer::sum);
+				}
+				Temp d = defOf(tac);
+				if (d != null) {
+					defs.put(d, tac);
+					defBlocks.put(d, bb);
+				}
+			}
+			if (bb.var != null) {
+				uses.merge(bb.var, 1, Integer::sum);
+			}
+		}
+
+		List<Temp> work = new ArrayList<Temp>();
+		for (Temp t : defBlocks.keySet()) {
+			if (!uses.containsKey(t)) {
+				work.add(t);
+			}
+		}
+		work.sort(Temp.ID_COMPARATOR);
+		int removed = 0;
+		while (!work.isEmpty()) {
+			Temp t = work.remove(work.size() - 1);
+			BasicBlock bb = defBlocks.get(t);
+			List<Temp> operands;
+			Tac tac = defs.get(t);
+			if (tac != null) {
+				if (!isPure(tac)) {
+					continue;
+				}
+				operands = Arrays.asList(usesOf(tac));
+				remove(bb, tac);
+				removed++;
+			} else {
+				Phi phi = phiDefs.get(t);
+				operands = phiArgs(bb, phi);
+				phis.get(bb).remove(phi);
+			}
+			for (Temp u : operands) {
+				if (uses.merge(u, -1, Integer::sum) == 0) {
+					uses.remove(u);
+					if (defBlocks.containsKey(u)) {
+						work.add(u);
+					}
+				}
+			}
+		}
+		return removed;
+	}
+
+	// The arguments of phi from the current predecessors of bb
+	private List<Temp> phiArgs(BasicBlock bb, Phi phi) {
+		List<Temp> args = new ArrayList<Temp>();
+		for (int p : graph.getPredecessors(bb.bbNum)) {
+			Temp t = phi.args.get(graph.getBlock(p));
+			if (t != null) {
+				args.add(t);
+			}
+		}
+		return args;
+	}
+
+	/**
+	 * Leave SSA form: each phi becomes a copy at the end of every
+	 * predecessor, in a block of its own on edges from blocks with two
+	 * successors. Then the two sides of each copy, of a phi or not, are made
+	 * one temp where they do not interfere, and the copy is deleted, so that
+	 * most phis cost nothing. The blocks left empty are for
+	 * FlowGraph.removeEmptyBlocks(), and liveness must be redone after.
+	 *
+	 * @return the number of copies inserted
+	 */
+	public int destruct() {
+		// The copies of the phis are tried first, then those of the code
+		List<Tac> copies = new ArrayList<Tac>();
+		List<BasicBlock> copyBlocks = new ArrayList<BasicBlock>();
+		List<Tac> otherCopies = new ArrayList<Tac>();
+		List<BasicBlock> otherBlocks = new ArrayList<BasicBlock>();
+		List<BasicBlock> blocks = new ArrayList<BasicBlock>();
+		for (BasicBlock bb : graph) {
+			if (!getPhis(bb).isEmpty()) {
+				blocks.add(bb);
+			}
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				if (tac.opc == Tac.Kind.ASSIGN) {
+					otherCopies.add(tac);
+					otherBlocks.add(bb);
+				}
+			}
+		}
+		for (BasicBlock bb : blocks) {
+			List<Phi> list = getPhis(bb);
+			for (int p : graph.getPredecessors(bb.bbNum).clone()) {
+				BasicBlock pred = graph.getBlock(p);
+				List<Temp> dsts = new ArrayList<Temp>();
+				List<Temp> srcs = new ArrayList<Temp>();
+				boolean overlap = false;
+				for (Phi phi : list) {
+					Temp src = phi.args.get(pred);
+					if (src == null || src.equals(phi.dst)) {
+						continue;
+					}
+					dsts.add(phi.dst);
+					srcs.add(src);
+				}
+				if (dsts.isEmpty()) {
+					continue;
+				}
+				for (Phi phi : list) {
+					overlap |= srcs.contains(phi.dst);
+				}
+
+				BasicBlock at = pred;
+				if (pred.endKind != BasicBlock.EndKind.BY_BRANCH) {
+					at = graph.splitEdge(pred, bb);
+				}
+				Tac tail = at.tacList;
+				while (tail != null && tail.next != null) {
+					tail = tail.next;
+				}
+				// The copies happen all at once, so sources another copy
+				// writes are read into new temps first
+				if (overlap) {
+					for (int i = 0; i < srcs.size(); i++) {
+						Temp t = newTemp(srcs.get(i));
+						tail = append(at, tail, Tac.genAssign(t, srcs.get(i)));
+						srcs.set(i, t);
+						copies.add(tail);
+						copyBlocks.add(at);
+					}
+				}
+				for (int i = 0; i < dsts.size(); i++) {
+					tail = append(at, tail, Tac.genAssign(dsts.get(i), srcs.get(i)));
+					copies.add(tail);
+					copyBlocks.add(at);
+				}
+			}
+		}
+		phis.clear();
+		int inserted = copies.size();
+		copies.addAll(otherCopies);
+		copyBlocks.addAll(otherBlocks);
+		coalescedCount = coalesce(copies, copyBlocks);
+		return inserted;
+	}
+
+	/**
+	 * Number of copies deleted by destruct().
+	 */
+	public int getCoalescedCount() {
+		return coalescedCount;
+	}
+
+	// Two temps interfere if one is live out of a Tac defining the other,
+	// unless that Tac copies one to the other. Temps with a stack slot of
+	// their own, as parameters have, are never made one. Returns the number
+	// of copies deleted.
+	private int coalesce(List<Tac> copies, List<BasicBlock> copyBlocks) {
+		graph.updateLiveness(false);
+		// Liveness numbered the temps of the function from 0
+		List<Temp> found = new ArrayList<Temp>();
+		for (BasicBlock bb : graph) {
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				found.addAll(Arrays.asList(tac.op0, tac.op1, tac.op2));
+			}
+			found.add(bb.var);
+		}
+		int n = 0;
+		for (Temp t : found) {
+			if (t != null && !t.isConst) {
+				n = Math.max(n, t.index + 1);
+			}
+		}
+		Temp[] temps = new Temp[n];
+		BitSet[] interfere = new BitSet[n];
+		int[] root = new int[n];
+		for (int i = 0; i < n; i++) {
+			interfere[i] = new BitSet();
+			root[i] = i;
+		}
+		for (Temp t : found) {
+			if (t != null && !t.isConst) {
+				temps[t.index] = t;
+			}
+		}
+		for (BasicBlock bb : graph) {
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				Temp d = defOf(tac);
+				if (d == null) {
+					continue;
+				}
+				for (Temp t : tac.liveOut) {
+					if (t != d && (tac.opc != Tac.Kind.ASSIGN || t != tac.op1)) {
+						interfere[d.index].set(t.index);
+						interfere[t.index].set(d.index);
+					}
+				}
+			}
+		}
+
+		// Only roots have neighbours, and they are roots
+		int removed = 0;
+		for (int k = 0; k < copies.size(); k++) {
+			Tac copy = copies.get(k);
+			if (copy.op1.isConst) {
+				continue;
+			}
+			int a = find(root, copy.op0.index);
+			int b = find(root, copy.op1.index);
+			if (a != b) {
+				if (interfere[a].get(b)
+						|| (temps[a].isOffsetFixed() && temps[b].isOffsetFixed())) {
+					continue;
+				}
+				if (temps[a].isOffsetFixed()) {
+					int t = a;
+					a = b;
+					b = t;
+				}
+				root[a] = b;
+				BitSet moved = interfere[a];
+				for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+					interfere[i].clear(a);
+					interfere[i].set(b);
+				}
+				interfere[b].or(moved);
+			}
+			remove(copyBlocks.get(k), copy);
+			removed++;
+		}
+		if (removed == 0) {
+			return 0;
+		}
+
+		UnaryOperator<Temp> rep = t -> t == null || t.isConst ? t
+				: temps[find(root, t.index)];
+		for (BasicBlock bb : graph) {
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				replaceUses(tac, rep);
+				if (defOf(tac) != null) {
+					tac.op0 = rep.apply(tac.op0);
+				}
+			}
+			bb.var = rep.apply(bb.var);
+		}
+		return removed;
+	}
+
+	private static int find(int[] root, int i) {
+		while (root[i] != i) {
+			root[i] = root[root[i]];
+			i = root[i];
+		}
+		return i;
+	}
+
+	private static Tac append(BasicBlock bb, Tac tail, Tac tac) {
+		bb.insertAfter(tac, tail);
+		return tac;
+	}
+
+	static void remove(BasicBlock bb, Tac tac) {
+		if (tac.prev == null) {
+			bb.tacList = tac.next;
+		} else {
+			tac.prev.next = tac.next;
+		}
+		if (tac.next != null) {
+			tac.next.prev = tac.prev;
+		}
+	}
+
+	/**
+	 * The temp tac defines, or null.
+	 */
+	static Temp defOf(Tac tac) {
+		switch (tac.opc) {
+		case STORE:
+		case PARM:
+		case BRANCH:
+		case BEQZ:
+		case BNEZ:
+		case RETURN:
+		case MEMO:
+		case MARK:
+			return null;
+		default:
+			return tac.op0;
+		}
+	}
+
+	/**
+	 * The temps tac reads.
+	 */
+	static Temp[] usesOf(Tac tac) {
+		switch (tac.opc) {
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV:
+		case MOD:
+		case LAND:
+		case LOR:
+		case GTR:
+		case GEQ:
+		case EQU:
+		case NEQ:
+		case LEQ:
+		case LES:
+			return new Temp[] { tac.op1, tac.op2 };
+		case NEG:
+		case LNOT:
+		case ASSIGN:
+		case INDIRECT_CALL:
+		case LOAD:
+			return new Temp[] { tac.op1 };
+		case STORE:
+			return new Temp[] { tac.op0, tac.op1 };
+		case PARM:
+			return new Temp[] { tac.op0 };
+		default:
+			return new Temp[0];
+		}
+	}
+
+	static void replaceUses(Tac tac, UnaryOperator<Temp> f) {
+		switch (tac.opc) {
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV:
+		case MOD:
+		case LAND:
+		case LOR:
+		case GTR:
+		case GEQ:
+		case EQU:
+		case NEQ:
+		case LEQ:
+		case LES:
+			tac.op1 = f.apply(tac.op1);
+			tac.op2 = f.apply(tac.op2);
+			break;
+		case NEG:
+		case LNOT:
+		case ASSIGN:
+		case INDIRECT_CALL:
+		case LOAD:
+			tac.op1 = f.apply(tac.op1);
+			break;
+		case STORE:
+			tac.op0 = f.apply(tac.op0);
+			tac.op1 = f.apply(tac.op1);
+			break;
+		case PARM:
+			tac.op0 = f.apply(tac.op0);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Whether tac has no effect but its result. Loads may fault and
+	 * division may trap, so they are kept.
+	 */
+	static boolean isPure(Tac tac) {
+		switch (tac.opc) {
+		case ADD:
+		case SUB:
+		case MUL:
+		case LAND:
+		case LOR:
+		case GTR:
+		case GEQ:
+		case EQU:
+		case NEQ:
+		case LEQ:
+		case LES:
+		case NEG:
+		case LNOT:
+		case ASSIGN:
+		case LOAD_VTBL:
+		case LOAD_IMM4:
+		case LOAD_STR_CONST:
+			return true;
+		default:
+			return false;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package decaf.dataflow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import decaf.tac.Tac;
+import decaf.tac.Temp;
+
+/**
+ * Dense numbering of the temps of one function, from 0 in the order of
+ * their ids, so that the liveness sets can be bitsets. The number of a temp
+ * is kept in Temp.index.
+ */
+final class TempIndex {
+
+	private final Temp[] temps;
+
+	TempIndex(List<BasicBlock> bbs) {
+		List<Temp> found = new ArrayList<Temp>();
+		for (BasicBlock bb : bbs) {
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				add(found, tac.op0);
+				add(found, tac.op1);
+				add(found, tac.op2);
+			}
+			add(found, bb.var);
+		}
+		found.sort(Temp.ID_COMPARATOR);
+		temps = found.toArray(new Temp[found.size()]);
+		for (int i = 0; i < temps.length; i++) {
+			temps[i].index = i;
+		}
+	}
+
+	// Temps found are marked with -2 until they are numbered
+	private static void add(List<Temp> found, Temp t) {
+		if (t != null && !t.isConst && t.index != -2) {
+			t.index = -2;
+			found.add(t);
+		}
+	}
+
+	int size() {
+		return temps.length;
+	}
+
+	Temp get(int i) {
+		return temps[i];
+	}
+
+	/**
+	 * @return the number of t, or -1 if t is not a temp of this function
+	 */
+	int indexOf(Temp t) {
+		int i = t.index;
+		return i >= 0 && i < temps.length && temps[i] == t ? i : -1;
+	}
+}
@@ -0,0 +1,238 @@
+package decaf.dataflow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import decaf.tac.Tac;
+import decaf.tac.Temp;
+
+/**
+ * Value numbering on a graph in SSA form: an instruction computing a value
+ * already held in a temp is deleted and its uses read that temp.
+ *
+ * As a temp is only defined once, the temps are the value numbers. The
+ * values of a block hold on in a successor it alone flows into, so pure
+ * instructions and read only loads are numbered over such chains of
+ * blocks, as the bounds checks of array accesses make. Other loads are
+ * only reused within a block: a STORE at some offset forgets the loads at
+ * the same offset, whatever their base, and keeps the value it wrote as
+ * that of a load from where it wrote.
+ *
+ * Every register is saved around a call, so no value is kept across one:
+ * computing or loading it again costs less than the save and the restore.
+ *
+ * Copies are removed the same way.
+ */
+public final class ValueNumbering {
+
+	private static final class Value {
+
+		final Temp temp;
+
+		// Order in which the values were found
+		final int stamp;
+
+		Value(Temp temp, int stamp) {
+			this.temp = temp;
+			this.stamp = stamp;
+		}
+	}
+
+	private final Ssa ssa;
+
+	private final FlowGraph graph;
+
+	// The temp read in place of each one deleted
+	private final Map<Temp, Temp> replaced = new HashMap<Temp, Temp>();
+
+	// Values found in the block and those dominating it. Only those from
+	// the stamp of the current block on may be reused.
+	private final Map<String, Value> values = new HashMap<String, Value>();
+
+	private int stamp;
+
+	// Loads in the current block, by offset and then base
+	private final Map<Integer, Map<Temp, Temp>> loads = new HashMap<Integer, Map<Temp, Temp>>();
+
+	private int removedCount;
+
+	public ValueNumbering(Ssa ssa) {
+		this.ssa = ssa;
+		graph = ssa.getGraph();
+	}
+
+	public void run() {
+		Dominators dom = new Dominators(graph);
+		UnaryOperator<Temp> find = t -> {
+			Temp r = replaced.get(t);
+			return r == null ? t : r;
+		};
+
+		// Walk the dominator tree, as in Ssa.rename. A block starts with
+		// the values its idom ends with if it is the only predecessor.
+		int n = graph.size();
+		int[] stack = new int[n];
+		int[] child = new int[n];
+		int[] floor = new int[n];
+		List<List<String>> keys = new ArrayList<List<String>>();
+		List<List<Value>> shadowed = new ArrayList<List<Value>>();
+		for (int i = 0; i < n; i++) {
+			keys.add(new ArrayList<String>());
+			shadowed.add(new ArrayList<Value>());
+		}
+		int depth = 0;
+		stack[0] = 0;
+		child[0] = -1;
+		floor[0] = stamp;
+		while (depth >= 0) {
+			int b = stack[depth];
+			if (child[depth] < 0) {
+				child[depth] = 0;
+				if (depth > 0 && graph.getPredecessors(b).length > 1) {
+					floor[depth] = stamp;
+				}
+				floor[depth] = visit(graph.getBlock(b), find, floor[depth],
+						keys.get(depth), shadowed.get(depth));
+			}
+			int[] children = dom.getChildren(b);
+			if (child[depth] < children.length) {
+				depth++;
+				stack[depth] = children[child[depth - 1]++];
+				child[depth] = -1;
+				floor[depth] = floor[depth - 1];
+			} else {
+				List<String> added = keys.get(depth);
+				List<Value> old = shadowed.get(depth);
+				for (int i = added.size() - 1; i >= 0; i--) {
+					if (old.get(i) == null) {
+						values.remove(added.get(i));
+					} else {
+						values.put(added.get(i), old.get(i));
+					}
+				}
+				added.clear();
+				old.clear();
+				depth--;
+			}
+		}
+
+		// Uses in phis, and those reached through a back edge
+		for (BasicBlock bb : graph) {
+			for (Phi phi : ssa.getPhis(bb)) {
+				for (Map.Entry<BasicBlock, Temp> arg : phi.args.entrySet()) {
+					arg.setValue(find.apply(arg.getValue()));
+				}
+			}
+			for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+				Ssa.replaceUses(tac, find);
+			}
+			if (bb.var != null) {
+				bb.var = find.apply(bb.var);
+			}
+		}
+	}
+
+	// Number the values of bb, reusing those from floor on. Returns the
+	// floor at the end of bb.
+	private int visit(BasicBlock bb, UnaryOperator<Temp> find, int floor,
+			List<String> keys, List<Value> shadowed) {
+		loads.clear();
+		for (Tac tac = bb.tacList; tac != null; tac = tac.next) {
+			Ssa.replaceUses(tac, find);
+			Temp same = null;
+			switch (tac.opc) {
+			case ASSIGN:
+				same = tac.op1;
+				break;
+			case LOAD:
+				if (tac.readOnly) {
+					same = lookUp(tac, floor, keys, shadowed);
+				} else {
+					Map<Temp, Temp> at = loads.computeIfAbsent(tac.op2.value,
+							k -> new HashMap<Temp, Temp>());
+					same = at.get(tac.op1);
+					if (same == null) {
+						at.put(tac.op1, tac.op0);
+					}
+				}
+				break;
+			case STORE:
+				Map<Temp, Temp> at = new HashMap<Temp, Temp>();
+				at.put(tac.op1, tac.op0);
+				loads.put(tac.op2.value, at);
+				break;
+			case DIRECT_CALL:
+			case INDIRECT_CALL:
+				loads.clear();
+				floor = stamp;
+				break;
+			case PARM:
+				break;
+			default:
+				same = lookUp(tac, floor, keys, shadowed);
+				break;
+			}
+			if (same != null) {
+				replaced.put(tac.op0, same);
+				Ssa.remove(bb, tac);
+				removedCount++;
+			}
+		}
+		if (bb.var != null) {
+			bb.var = find.apply(bb.var);
+		}
+		return floor;
+	}
+
+	// The temp holding the value tac computes, if any, else tac is noted as
+	// computing it
+	private Temp lookUp(Tac tac, int floor, List<String> keys,
+			List<Value> shadowed) {
+		String key = keyOf(tac);
+		Value same = values.get(key);
+		if (same != null && same.stamp >= floor) {
+			return same.temp;
+		}
+		values.put(key, new Value(tac.op0, stamp++));
+		keys.add(key);
+		shadowed.add(same);
+		return null;
+	}
+
+	private static String keyOf(Tac tac) {
+		switch (tac.opc) {
+		case LOAD_IMM4:
+			return "imm " + tac.op1.value;
+		case LOAD_STR_CONST:
+			return "str " + tac.str;
+		case LOAD_VTBL:
+			return "vtbl " + tac.vt.name;
+		case LOAD:
+			return "load " + tac.op1.id + " " + tac.op2.value;
+		case NEG:
+		case LNOT:
+			return tac.opc + " " + tac.op1.id;
+		case ADD:
+		case MUL:
+		case LAND:
+		case LOR:
+		case EQU:
+		case NEQ:
+			// commutative, so the operands are keyed in order
+			return tac.opc + " " + Math.min(tac.op1.id, tac.op2.id) + " "
+					+ Math.max(tac.op1.id, tac.op2.id);
+		default:
+			return tac.opc + " " + tac.op1.id + " " + tac.op2.id;
+		}
+	}
+
+	/**
+	 * Number of instructions deleted.
+	 */
+	public int getRemovedCount() {
+		return removedCount;
+	}
+}
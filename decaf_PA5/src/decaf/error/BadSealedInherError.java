@@ -0,0 +1,20 @@
+package decaf.error;
+
+import decaf.Location;
+
+/**
+ * example：illegal class inheritance from sealed class<br>
+ * PA2
+ */
+public class BadSealedInherError extends DecafError {
+
+	public BadSealedInherError(Location location) {
+		super(location);
+	}
+
+	@Override
+	protected String getErrMsg() {
+		return "illegal class inheritance from sealed class";
+	}
+
+}
@@ -2,7 +2,6 @@ package decaf.frontend;
 
 import java.io.IOException;
 
-import decaf.Driver;
 import decaf.Location;
 import decaf.error.DecafError;
 import decaf.error.IntTooLargeError;
@@ -21,7 +20,7 @@ public abstract class BaseLexer {
 	abstract Location getLocation();
 
 	protected void issueError(DecafError error) {
-		Driver.getDriver().issueError(error);
+		parser.issueError(error);
 	}
 
 	protected void setSemantic(Location where, SemValue v) {
@@ -54,8 +53,7 @@ public abstract class BaseLexer {
 			setSemantic(getLocation(), SemValue.createLiteral(
 					Tree.INT, Integer.decode(ival)));
 		} catch (NumberFormatException e) {
-			Driver.getDriver().issueError(
-					new IntTooLargeError(getLocation(), ival));
+			issueError(new IntTooLargeError(getLocation(), ival));
 		}
 		return Parser.LITERAL;
 	}
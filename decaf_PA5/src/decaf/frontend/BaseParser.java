@@ -8,23 +8,28 @@ import decaf.error.MsgError;
 public abstract class BaseParser {
 	private Lexer lexer;
 
+	private Driver driver;
+
 	protected Tree.TopLevel tree;
 
 	public void setLexer(Lexer lexer) {
 		this.lexer = lexer;
 	}
 
+	public void setDriver(Driver driver) {
+		this.driver = driver;
+	}
+
 	public Tree.TopLevel getTree() {
 		return tree;
 	}
 
 	protected void issueError(DecafError error) {
-		Driver.getDriver().issueError(error);
+		driver.issueError(error);
 	}
 
 	void yyerror(String msg) {
-		Driver.getDriver().issueError(
-				new MsgError(lexer.getLocation(), msg));
+		driver.issueError(new MsgError(lexer.getLocation(), msg));
 	}
 
 	int yylex() {
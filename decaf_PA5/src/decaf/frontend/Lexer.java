@@ -1,4 +1,4 @@
-/* The following code was generated by JFlex 1.4.1 on 2018/12/28 上午9:21 */
+/* The following code was generated by JFlex 1.4.1 on 10/18/26, 5:06 PM */
 
 /*
  * 本文件是构造Decaf编译器所需要的JFlex输入脚本。
@@ -17,7 +17,7 @@ import decaf.utils.MiscUtils;
 /**
  * This class is a scanner generated by 
  * <a href="http://www.jflex.de/">JFlex</a> 1.4.1
- * on 2018/12/28 上午9:21 from the specification file
+ * on 10/18/26, 5:06 PM from the specification file
  * <tt>src/decaf/frontend/Lexer.l</tt>
  */
 public class Lexer extends BaseLexer {
@@ -58,15 +58,16 @@ public class Lexer extends BaseLexer {
   private static final String ZZ_ACTION_PACKED_0 =
     "\2\0\1\1\2\2\1\3\1\4\1\3\6\5\1\2"+
     "\15\4\2\1\1\6\1\7\2\10\1\11\1\7\2\0"+
-    "\1\12\1\13\1\14\1\15\2\4\1\16\20\4\1\17"+
+    "\1\12\1\13\1\14\1\15\2\4\1\16\21\4\1\17"+
     "\1\20\1\21\1\22\1\23\1\24\1\3\1\4\1\25"+
-    "\1\4\1\26\14\4\1\27\3\4\1\30\1\4\1\31"+
-    "\1\32\1\33\1\34\4\4\1\35\7\4\1\36\4\4"+
+    "\1\4\1\26\15\4\1\27\3\4\1\30\1\4\1\31"+
+    "\1\32\1\33\1\34\5\4\1\35\7\4\1\36\5\4"+
     "\1\37\1\40\1\41\1\42\3\4\1\43\1\44\1\45"+
-    "\4\4\1\46\4\4\1\47\2\4\1\50\1\4\1\51";
+    "\1\46\4\4\1\47\4\4\1\50\2\4\1\51\1\4"+
+    "\1\52";
 
   private static int [] zzUnpackAction() {
-    int [] result = new int[136];
+    int [] result = new int[141];
     int offset = 0;
     offset = zzUnpackAction(ZZ_ACTION_PACKED_0, offset, result);
     return result;
@@ -721,6 +722,7 @@ public class Lexer extends BaseLexer {
             case 20:
               switch (zzInput) {
                 case 21: zzIsFinal = true; zzState = 51; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 52; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -740,7 +742,7 @@ public class Lexer extends BaseLexer {
 
             case 21:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 52; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 53; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -760,8 +762,8 @@ public class Lexer extends BaseLexer {
 
             case 22:
               switch (zzInput) {
-                case 23: zzIsFinal = true; zzState = 53; break zzForNext;
-                case 32: zzIsFinal = true; zzState = 54; break zzForNext;
+                case 23: zzIsFinal = true; zzState = 54; break zzForNext;
+                case 32: zzIsFinal = true; zzState = 55; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -781,7 +783,7 @@ public class Lexer extends BaseLexer {
 
             case 23:
               switch (zzInput) {
-                case 33: zzIsFinal = true; zzState = 55; break zzForNext;
+                case 33: zzIsFinal = true; zzState = 56; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -801,7 +803,7 @@ public class Lexer extends BaseLexer {
 
             case 24:
               switch (zzInput) {
-                case 23: zzIsFinal = true; zzState = 56; break zzForNext;
+                case 23: zzIsFinal = true; zzState = 57; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -821,8 +823,8 @@ public class Lexer extends BaseLexer {
 
             case 25:
               switch (zzInput) {
-                case 17: zzIsFinal = true; zzState = 57; break zzForNext;
-                case 31: zzIsFinal = true; zzState = 58; break zzForNext;
+                case 17: zzIsFinal = true; zzState = 58; break zzForNext;
+                case 31: zzIsFinal = true; zzState = 59; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -842,7 +844,7 @@ public class Lexer extends BaseLexer {
 
             case 26:
               switch (zzInput) {
-                case 25: zzIsFinal = true; zzState = 59; break zzForNext;
+                case 25: zzIsFinal = true; zzState = 60; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -862,7 +864,7 @@ public class Lexer extends BaseLexer {
 
             case 27:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 60; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 61; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -882,13 +884,13 @@ public class Lexer extends BaseLexer {
 
             case 28:
               switch (zzInput) {
-                case 40: zzIsFinal = true; zzNoLookAhead = true; zzState = 61; break zzForNext;
+                case 40: zzIsFinal = true; zzNoLookAhead = true; zzState = 62; break zzForNext;
                 default: break zzForAction;
               }
 
             case 29:
               switch (zzInput) {
-                case 41: zzIsFinal = true; zzNoLookAhead = true; zzState = 62; break zzForNext;
+                case 41: zzIsFinal = true; zzNoLookAhead = true; zzState = 63; break zzForNext;
                 default: break zzForAction;
               }
 
@@ -900,10 +902,10 @@ public class Lexer extends BaseLexer {
 
             case 35:
               switch (zzInput) {
-                case 20: zzIsFinal = true; zzNoLookAhead = true; zzState = 63; break zzForNext;
-                case 21: zzIsFinal = true; zzNoLookAhead = true; zzState = 64; break zzForNext;
-                case 42: zzIsFinal = true; zzNoLookAhead = true; zzState = 65; break zzForNext;
-                case 43: zzIsFinal = true; zzNoLookAhead = true; zzState = 66; break zzForNext;
+                case 20: zzIsFinal = true; zzNoLookAhead = true; zzState = 64; break zzForNext;
+                case 21: zzIsFinal = true; zzNoLookAhead = true; zzState = 65; break zzForNext;
+                case 42: zzIsFinal = true; zzNoLookAhead = true; zzState = 66; break zzForNext;
+                case 43: zzIsFinal = true; zzNoLookAhead = true; zzState = 67; break zzForNext;
                 default: break zzForAction;
               }
 
@@ -917,7 +919,7 @@ public class Lexer extends BaseLexer {
                 case 27: 
                 case 30: 
                 case 31: 
-                case 34: zzIsFinal = true; zzState = 67; break zzForNext;
+                case 34: zzIsFinal = true; zzState = 68; break zzForNext;
                 default: break zzForAction;
               }
 
@@ -930,7 +932,7 @@ public class Lexer extends BaseLexer {
 
             case 42:
               switch (zzInput) {
-                case 18: zzIsFinal = true; zzState = 68; break zzForNext;
+                case 18: zzIsFinal = true; zzState = 69; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -950,8 +952,8 @@ public class Lexer extends BaseLexer {
 
             case 43:
               switch (zzInput) {
-                case 21: zzIsFinal = true; zzState = 69; break zzForNext;
-                case 24: zzIsFinal = true; zzState = 70; break zzForNext;
+                case 21: zzIsFinal = true; zzState = 70; break zzForNext;
+                case 24: zzIsFinal = true; zzState = 71; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -990,7 +992,7 @@ public class Lexer extends BaseLexer {
 
             case 45:
               switch (zzInput) {
-                case 28: zzIsFinal = true; zzState = 71; break zzForNext;
+                case 28: zzIsFinal = true; zzState = 72; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1010,7 +1012,7 @@ public class Lexer extends BaseLexer {
 
             case 46:
               switch (zzInput) {
-                case 23: zzIsFinal = true; zzState = 72; break zzForNext;
+                case 23: zzIsFinal = true; zzState = 73; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1030,7 +1032,7 @@ public class Lexer extends BaseLexer {
 
             case 47:
               switch (zzInput) {
-                case 29: zzIsFinal = true; zzState = 73; break zzForNext;
+                case 29: zzIsFinal = true; zzState = 74; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1050,7 +1052,7 @@ public class Lexer extends BaseLexer {
 
             case 48:
               switch (zzInput) {
-                case 18: zzIsFinal = true; zzState = 74; break zzForNext;
+                case 18: zzIsFinal = true; zzState = 75; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1070,7 +1072,7 @@ public class Lexer extends BaseLexer {
 
             case 49:
               switch (zzInput) {
-                case 17: zzIsFinal = true; zzState = 75; break zzForNext;
+                case 17: zzIsFinal = true; zzState = 76; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1090,7 +1092,7 @@ public class Lexer extends BaseLexer {
 
             case 50:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 76; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 77; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1110,8 +1112,8 @@ public class Lexer extends BaseLexer {
 
             case 51:
               switch (zzInput) {
-                case 25: zzIsFinal = true; zzState = 77; break zzForNext;
-                case 31: zzIsFinal = true; zzState = 78; break zzForNext;
+                case 25: zzIsFinal = true; zzState = 78; break zzForNext;
+                case 31: zzIsFinal = true; zzState = 79; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1131,7 +1133,7 @@ public class Lexer extends BaseLexer {
 
             case 52:
               switch (zzInput) {
-                case 21: zzIsFinal = true; zzState = 79; break zzForNext;
+                case 31: zzIsFinal = true; zzState = 80; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1151,7 +1153,7 @@ public class Lexer extends BaseLexer {
 
             case 53:
               switch (zzInput) {
-                case 24: zzIsFinal = true; zzState = 80; break zzForNext;
+                case 21: zzIsFinal = true; zzState = 81; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1171,7 +1173,7 @@ public class Lexer extends BaseLexer {
 
             case 54:
               switch (zzInput) {
-                case 21: zzIsFinal = true; zzState = 81; break zzForNext;
+                case 24: zzIsFinal = true; zzState = 82; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1191,7 +1193,7 @@ public class Lexer extends BaseLexer {
 
             case 55:
               switch (zzInput) {
-                case 18: zzIsFinal = true; zzState = 82; break zzForNext;
+                case 21: zzIsFinal = true; zzState = 83; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1211,7 +1213,7 @@ public class Lexer extends BaseLexer {
 
             case 56:
               switch (zzInput) {
-                case 31: zzIsFinal = true; zzState = 83; break zzForNext;
+                case 18: zzIsFinal = true; zzState = 84; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1231,7 +1233,7 @@ public class Lexer extends BaseLexer {
 
             case 57:
               switch (zzInput) {
-                case 25: zzIsFinal = true; zzState = 84; break zzForNext;
+                case 31: zzIsFinal = true; zzState = 85; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1251,7 +1253,7 @@ public class Lexer extends BaseLexer {
 
             case 58:
               switch (zzInput) {
-                case 23: zzIsFinal = true; zzState = 85; break zzForNext;
+                case 25: zzIsFinal = true; zzState = 86; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1271,7 +1273,7 @@ public class Lexer extends BaseLexer {
 
             case 59:
               switch (zzInput) {
-                case 18: zzIsFinal = true; zzState = 86; break zzForNext;
+                case 23: zzIsFinal = true; zzState = 87; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1291,7 +1293,7 @@ public class Lexer extends BaseLexer {
 
             case 60:
               switch (zzInput) {
-                case 31: zzIsFinal = true; zzState = 87; break zzForNext;
+                case 18: zzIsFinal = true; zzState = 88; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1309,23 +1311,9 @@ public class Lexer extends BaseLexer {
                 default: zzIsFinal = true; zzState = 6; break zzForNext;
               }
 
-            case 67:
-              switch (zzInput) {
-                case 3: 
-                case 4: 
-                case 5: 
-                case 19: 
-                case 22: 
-                case 27: 
-                case 30: 
-                case 31: 
-                case 34: zzIsFinal = true; break zzForNext;
-                default: break zzForAction;
-              }
-
-            case 68:
+            case 61:
               switch (zzInput) {
-                case 19: zzIsFinal = true; zzState = 88; break zzForNext;
+                case 31: zzIsFinal = true; zzState = 89; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1343,8 +1331,23 @@ public class Lexer extends BaseLexer {
                 default: zzIsFinal = true; zzState = 6; break zzForNext;
               }
 
+            case 68:
+              switch (zzInput) {
+                case 3: 
+                case 4: 
+                case 5: 
+                case 19: 
+                case 22: 
+                case 27: 
+                case 30: 
+                case 31: 
+                case 34: zzIsFinal = true; break zzForNext;
+                default: break zzForAction;
+              }
+
             case 69:
               switch (zzInput) {
+                case 19: zzIsFinal = true; zzState = 90; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1364,7 +1367,6 @@ public class Lexer extends BaseLexer {
 
             case 70:
               switch (zzInput) {
-                case 21: zzIsFinal = true; zzState = 89; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1384,6 +1386,7 @@ public class Lexer extends BaseLexer {
 
             case 71:
               switch (zzInput) {
+                case 21: zzIsFinal = true; zzState = 91; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1403,7 +1406,6 @@ public class Lexer extends BaseLexer {
 
             case 72:
               switch (zzInput) {
-                case 23: zzIsFinal = true; zzState = 90; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1423,7 +1425,7 @@ public class Lexer extends BaseLexer {
 
             case 73:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 91; break zzForNext;
+                case 23: zzIsFinal = true; zzState = 92; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1443,7 +1445,7 @@ public class Lexer extends BaseLexer {
 
             case 74:
               switch (zzInput) {
-                case 24: zzIsFinal = true; zzState = 92; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 93; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1463,7 +1465,7 @@ public class Lexer extends BaseLexer {
 
             case 75:
               switch (zzInput) {
-                case 23: zzIsFinal = true; zzState = 93; break zzForNext;
+                case 24: zzIsFinal = true; zzState = 94; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1483,7 +1485,7 @@ public class Lexer extends BaseLexer {
 
             case 76:
               switch (zzInput) {
-                case 31: zzIsFinal = true; zzState = 94; break zzForNext;
+                case 23: zzIsFinal = true; zzState = 95; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1503,7 +1505,7 @@ public class Lexer extends BaseLexer {
 
             case 77:
               switch (zzInput) {
-                case 18: zzIsFinal = true; zzState = 95; break zzForNext;
+                case 31: zzIsFinal = true; zzState = 96; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1523,7 +1525,7 @@ public class Lexer extends BaseLexer {
 
             case 78:
               switch (zzInput) {
-                case 21: zzIsFinal = true; zzState = 96; break zzForNext;
+                case 18: zzIsFinal = true; zzState = 97; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1543,7 +1545,7 @@ public class Lexer extends BaseLexer {
 
             case 79:
               switch (zzInput) {
-                case 29: zzIsFinal = true; zzState = 97; break zzForNext;
+                case 21: zzIsFinal = true; zzState = 98; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1563,7 +1565,7 @@ public class Lexer extends BaseLexer {
 
             case 80:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 98; break zzForNext;
+                case 23: zzIsFinal = true; zzState = 99; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1583,7 +1585,7 @@ public class Lexer extends BaseLexer {
 
             case 81:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 99; break zzForNext;
+                case 29: zzIsFinal = true; zzState = 100; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1603,7 +1605,7 @@ public class Lexer extends BaseLexer {
 
             case 82:
               switch (zzInput) {
-                case 23: zzIsFinal = true; zzState = 100; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 101; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1623,7 +1625,7 @@ public class Lexer extends BaseLexer {
 
             case 83:
               switch (zzInput) {
-                case 24: zzIsFinal = true; zzState = 101; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 102; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1643,6 +1645,7 @@ public class Lexer extends BaseLexer {
 
             case 84:
               switch (zzInput) {
+                case 23: zzIsFinal = true; zzState = 103; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1662,7 +1665,7 @@ public class Lexer extends BaseLexer {
 
             case 85:
               switch (zzInput) {
-                case 24: zzIsFinal = true; zzState = 102; break zzForNext;
+                case 24: zzIsFinal = true; zzState = 104; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1682,7 +1685,6 @@ public class Lexer extends BaseLexer {
 
             case 86:
               switch (zzInput) {
-                case 20: zzIsFinal = true; zzState = 103; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1702,7 +1704,7 @@ public class Lexer extends BaseLexer {
 
             case 87:
               switch (zzInput) {
-                case 19: zzIsFinal = true; zzState = 104; break zzForNext;
+                case 24: zzIsFinal = true; zzState = 105; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1722,6 +1724,7 @@ public class Lexer extends BaseLexer {
 
             case 88:
               switch (zzInput) {
+                case 20: zzIsFinal = true; zzState = 106; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1741,7 +1744,7 @@ public class Lexer extends BaseLexer {
 
             case 89:
               switch (zzInput) {
-                case 31: zzIsFinal = true; zzState = 105; break zzForNext;
+                case 19: zzIsFinal = true; zzState = 107; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1780,6 +1783,7 @@ public class Lexer extends BaseLexer {
 
             case 91:
               switch (zzInput) {
+                case 31: zzIsFinal = true; zzState = 108; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1837,7 +1841,6 @@ public class Lexer extends BaseLexer {
 
             case 94:
               switch (zzInput) {
-                case 35: zzIsFinal = true; zzState = 106; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1857,7 +1860,6 @@ public class Lexer extends BaseLexer {
 
             case 95:
               switch (zzInput) {
-                case 20: zzIsFinal = true; zzState = 107; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1877,7 +1879,7 @@ public class Lexer extends BaseLexer {
 
             case 96:
               switch (zzInput) {
-                case 18: zzIsFinal = true; zzState = 108; break zzForNext;
+                case 35: zzIsFinal = true; zzState = 109; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1897,7 +1899,7 @@ public class Lexer extends BaseLexer {
 
             case 97:
               switch (zzInput) {
-                case 25: zzIsFinal = true; zzState = 109; break zzForNext;
+                case 20: zzIsFinal = true; zzState = 110; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1917,6 +1919,7 @@ public class Lexer extends BaseLexer {
 
             case 98:
               switch (zzInput) {
+                case 18: zzIsFinal = true; zzState = 111; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1936,7 +1939,7 @@ public class Lexer extends BaseLexer {
 
             case 99:
               switch (zzInput) {
-                case 20: zzIsFinal = true; zzState = 110; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 112; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1956,7 +1959,7 @@ public class Lexer extends BaseLexer {
 
             case 100:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 111; break zzForNext;
+                case 25: zzIsFinal = true; zzState = 113; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1976,7 +1979,6 @@ public class Lexer extends BaseLexer {
 
             case 101:
               switch (zzInput) {
-                case 24: zzIsFinal = true; zzState = 112; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -1996,7 +1998,7 @@ public class Lexer extends BaseLexer {
 
             case 102:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 113; break zzForNext;
+                case 20: zzIsFinal = true; zzState = 114; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2016,7 +2018,7 @@ public class Lexer extends BaseLexer {
 
             case 103:
               switch (zzInput) {
-                case 21: zzIsFinal = true; zzState = 114; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 115; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2036,8 +2038,7 @@ public class Lexer extends BaseLexer {
 
             case 104:
               switch (zzInput) {
-                case 38: zzIsFinal = true; zzState = 115; break zzForNext;
-                case 39: zzIsFinal = true; zzState = 116; break zzForNext;
+                case 24: zzIsFinal = true; zzState = 116; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2057,7 +2058,7 @@ public class Lexer extends BaseLexer {
 
             case 105:
               switch (zzInput) {
-                case 20: zzIsFinal = true; zzState = 117; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 117; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2077,6 +2078,7 @@ public class Lexer extends BaseLexer {
 
             case 106:
               switch (zzInput) {
+                case 21: zzIsFinal = true; zzState = 118; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2096,7 +2098,8 @@ public class Lexer extends BaseLexer {
 
             case 107:
               switch (zzInput) {
-                case 26: zzIsFinal = true; zzState = 118; break zzForNext;
+                case 38: zzIsFinal = true; zzState = 119; break zzForNext;
+                case 39: zzIsFinal = true; zzState = 120; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2116,7 +2119,7 @@ public class Lexer extends BaseLexer {
 
             case 108:
               switch (zzInput) {
-                case 30: zzIsFinal = true; zzState = 119; break zzForNext;
+                case 20: zzIsFinal = true; zzState = 121; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2136,7 +2139,6 @@ public class Lexer extends BaseLexer {
 
             case 109:
               switch (zzInput) {
-                case 20: zzIsFinal = true; zzState = 120; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2156,7 +2158,7 @@ public class Lexer extends BaseLexer {
 
             case 110:
               switch (zzInput) {
-                case 19: zzIsFinal = true; zzState = 121; break zzForNext;
+                case 26: zzIsFinal = true; zzState = 122; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2176,6 +2178,7 @@ public class Lexer extends BaseLexer {
 
             case 111:
               switch (zzInput) {
+                case 30: zzIsFinal = true; zzState = 123; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2195,6 +2198,7 @@ public class Lexer extends BaseLexer {
 
             case 112:
               switch (zzInput) {
+                case 19: zzIsFinal = true; zzState = 124; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2214,6 +2218,7 @@ public class Lexer extends BaseLexer {
 
             case 113:
               switch (zzInput) {
+                case 20: zzIsFinal = true; zzState = 125; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2233,6 +2238,7 @@ public class Lexer extends BaseLexer {
 
             case 114:
               switch (zzInput) {
+                case 19: zzIsFinal = true; zzState = 126; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2252,7 +2258,6 @@ public class Lexer extends BaseLexer {
 
             case 115:
               switch (zzInput) {
-                case 20: zzIsFinal = true; zzState = 122; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2272,7 +2277,6 @@ public class Lexer extends BaseLexer {
 
             case 116:
               switch (zzInput) {
-                case 18: zzIsFinal = true; zzState = 123; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2292,7 +2296,6 @@ public class Lexer extends BaseLexer {
 
             case 117:
               switch (zzInput) {
-                case 30: zzIsFinal = true; zzState = 124; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2331,6 +2334,7 @@ public class Lexer extends BaseLexer {
 
             case 119:
               switch (zzInput) {
+                case 20: zzIsFinal = true; zzState = 127; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2350,6 +2354,7 @@ public class Lexer extends BaseLexer {
 
             case 120:
               switch (zzInput) {
+                case 18: zzIsFinal = true; zzState = 128; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2369,7 +2374,7 @@ public class Lexer extends BaseLexer {
 
             case 121:
               switch (zzInput) {
-                case 24: zzIsFinal = true; zzState = 125; break zzForNext;
+                case 30: zzIsFinal = true; zzState = 129; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2389,7 +2394,6 @@ public class Lexer extends BaseLexer {
 
             case 122:
               switch (zzInput) {
-                case 21: zzIsFinal = true; zzState = 126; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2409,7 +2413,6 @@ public class Lexer extends BaseLexer {
 
             case 123:
               switch (zzInput) {
-                case 20: zzIsFinal = true; zzState = 127; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2429,7 +2432,6 @@ public class Lexer extends BaseLexer {
 
             case 124:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 128; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2468,7 +2470,7 @@ public class Lexer extends BaseLexer {
 
             case 126:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 129; break zzForNext;
+                case 24: zzIsFinal = true; zzState = 130; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2488,7 +2490,7 @@ public class Lexer extends BaseLexer {
 
             case 127:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 130; break zzForNext;
+                case 21: zzIsFinal = true; zzState = 131; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2508,7 +2510,7 @@ public class Lexer extends BaseLexer {
 
             case 128:
               switch (zzInput) {
-                case 17: zzIsFinal = true; zzState = 131; break zzForNext;
+                case 20: zzIsFinal = true; zzState = 132; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2528,7 +2530,7 @@ public class Lexer extends BaseLexer {
 
             case 129:
               switch (zzInput) {
-                case 26: zzIsFinal = true; zzState = 132; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 133; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2567,7 +2569,7 @@ public class Lexer extends BaseLexer {
 
             case 131:
               switch (zzInput) {
-                case 34: zzIsFinal = true; zzState = 133; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 134; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2587,7 +2589,7 @@ public class Lexer extends BaseLexer {
 
             case 132:
               switch (zzInput) {
-                case 27: zzIsFinal = true; zzState = 134; break zzForNext;
+                case 27: zzIsFinal = true; zzState = 135; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2607,6 +2609,7 @@ public class Lexer extends BaseLexer {
 
             case 133:
               switch (zzInput) {
+                case 17: zzIsFinal = true; zzState = 136; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2626,7 +2629,7 @@ public class Lexer extends BaseLexer {
 
             case 134:
               switch (zzInput) {
-                case 25: zzIsFinal = true; zzState = 135; break zzForNext;
+                case 26: zzIsFinal = true; zzState = 137; break zzForNext;
                 case 0: 
                 case 1: 
                 case 2: 
@@ -2663,6 +2666,104 @@ public class Lexer extends BaseLexer {
                 default: zzIsFinal = true; zzState = 6; break zzForNext;
               }
 
+            case 136:
+              switch (zzInput) {
+                case 34: zzIsFinal = true; zzState = 138; break zzForNext;
+                case 0: 
+                case 1: 
+                case 2: 
+                case 9: 
+                case 10: 
+                case 11: 
+                case 12: 
+                case 13: 
+                case 14: 
+                case 15: 
+                case 40: 
+                case 41: 
+                case 42: 
+                case 43: break zzForAction;
+                default: zzIsFinal = true; zzState = 6; break zzForNext;
+              }
+
+            case 137:
+              switch (zzInput) {
+                case 27: zzIsFinal = true; zzState = 139; break zzForNext;
+                case 0: 
+                case 1: 
+                case 2: 
+                case 9: 
+                case 10: 
+                case 11: 
+                case 12: 
+                case 13: 
+                case 14: 
+                case 15: 
+                case 40: 
+                case 41: 
+                case 42: 
+                case 43: break zzForAction;
+                default: zzIsFinal = true; zzState = 6; break zzForNext;
+              }
+
+            case 138:
+              switch (zzInput) {
+                case 0: 
+                case 1: 
+                case 2: 
+                case 9: 
+                case 10: 
+                case 11: 
+                case 12: 
+                case 13: 
+                case 14: 
+                case 15: 
+                case 40: 
+                case 41: 
+                case 42: 
+                case 43: break zzForAction;
+                default: zzIsFinal = true; zzState = 6; break zzForNext;
+              }
+
+            case 139:
+              switch (zzInput) {
+                case 25: zzIsFinal = true; zzState = 140; break zzForNext;
+                case 0: 
+                case 1: 
+                case 2: 
+                case 9: 
+                case 10: 
+                case 11: 
+                case 12: 
+                case 13: 
+                case 14: 
+                case 15: 
+                case 40: 
+                case 41: 
+                case 42: 
+                case 43: break zzForAction;
+                default: zzIsFinal = true; zzState = 6; break zzForNext;
+              }
+
+            case 140:
+              switch (zzInput) {
+                case 0: 
+                case 1: 
+                case 2: 
+                case 9: 
+                case 10: 
+                case 11: 
+                case 12: 
+                case 13: 
+                case 14: 
+                case 15: 
+                case 40: 
+                case 41: 
+                case 42: 
+                case 43: break zzForAction;
+                default: zzIsFinal = true; zzState = 6; break zzForNext;
+              }
+
             default:
               // if this is ever reached, there is a serious bug in JFlex
               zzScanError(ZZ_UNKNOWN_ERROR);
@@ -2682,173 +2783,177 @@ public class Lexer extends BaseLexer {
       zzMarkedPos = zzMarkedPosL;
 
       switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {
+        case 37: 
+          { return keyword(Parser.SEALED);
+          }
+        case 43: break;
         case 18: 
           { buffer.append('\t');
           }
-        case 42: break;
+        case 44: break;
         case 24: 
           { return keyword(Parser.VOID);
           }
-        case 43: break;
+        case 45: break;
         case 33: 
           { return boolConst(false);
           }
-        case 44: break;
+        case 46: break;
         case 30: 
           { return keyword(Parser.BREAK);
           }
-        case 45: break;
+        case 47: break;
         case 19: 
           { buffer.append('"');
           }
-        case 46: break;
+        case 48: break;
         case 31: 
           { return keyword(Parser.WHILE);
           }
-        case 47: break;
+        case 49: break;
         case 29: 
           { return keyword(Parser.ELSE);
           }
-        case 48: break;
+        case 50: break;
         case 4: 
           { return identifier(yytext());
           }
-        case 49: break;
+        case 51: break;
         case 20: 
           { buffer.append('\\');
           }
-        case 50: break;
+        case 52: break;
         case 27: 
           { return keyword(Parser.THIS);
           }
-        case 51: break;
+        case 53: break;
         case 14: 
           { return keyword(Parser.IF);
           }
-        case 52: break;
+        case 54: break;
         case 10: 
           { return operator(Parser.EQUAL);
           }
-        case 53: break;
+        case 55: break;
         case 9: 
           { yybegin(YYINITIAL);
 					  return StringConst(buffer.toString(), sloc);
           }
-        case 54: break;
+        case 56: break;
         case 6: 
           { sloc = getLocation();		  
 					  yybegin(S);
 					  buffer = new StringBuilder();
           }
-        case 55: break;
+        case 57: break;
         case 28: 
           { return keyword(Parser.BOOL);
           }
-        case 56: break;
+        case 58: break;
         case 34: 
           { return keyword(Parser.PRINT);
           }
-        case 57: break;
+        case 59: break;
         case 21: 
           { return keyword(Parser.INT);
           }
-        case 58: break;
+        case 60: break;
         case 11: 
           { return operator(Parser.LESS_EQUAL);
           }
-        case 59: break;
-        case 41: 
+        case 61: break;
+        case 42: 
           { return keyword(Parser.READ_INTEGER);
           }
-        case 60: break;
-        case 37: 
+        case 62: break;
+        case 38: 
           { return keyword(Parser.RETURN);
           }
-        case 61: break;
+        case 63: break;
         case 15: 
           { return operator(Parser.AND);
           }
-        case 62: break;
+        case 64: break;
         case 16: 
           { return operator(Parser.OR);
           }
-        case 63: break;
+        case 65: break;
         case 32: 
           { return keyword(Parser.CLASS);
           }
-        case 64: break;
+        case 66: break;
         case 7: 
           { buffer.append(yytext());
           }
-        case 65: break;
+        case 67: break;
         case 12: 
           { return operator(Parser.GREATER_EQUAL);
           }
-        case 66: break;
+        case 68: break;
         case 17: 
           { buffer.append('\n');
           }
-        case 67: break;
+        case 69: break;
         case 36: 
           { return keyword(Parser.STATIC);
           }
-        case 68: break;
+        case 70: break;
         case 25: 
           { return keyword(Parser.NULL);
           }
-        case 69: break;
-        case 40: 
+        case 71: break;
+        case 41: 
           { return keyword(Parser.INSTANCEOF);
           }
-        case 70: break;
+        case 72: break;
         case 13: 
           { return operator(Parser.NOT_EQUAL);
           }
-        case 71: break;
-        case 38: 
+        case 73: break;
+        case 39: 
           { return keyword(Parser.EXTENDS);
           }
-        case 72: break;
+        case 74: break;
         case 5: 
           { return operator((int)yycharat(0));
           }
-        case 73: break;
+        case 75: break;
         case 26: 
           { return boolConst(true);
           }
-        case 74: break;
-        case 39: 
+        case 76: break;
+        case 40: 
           { return keyword(Parser.READ_LINE);
           }
-        case 75: break;
+        case 77: break;
         case 23: 
           { return keyword(Parser.FOR);
           }
-        case 76: break;
+        case 78: break;
         case 1: 
           { issueError(new UnrecogCharError(getLocation(), yycharat(0)));
           }
-        case 77: break;
+        case 79: break;
         case 2: 
           { /* Just ignore */
           }
-        case 78: break;
+        case 80: break;
         case 22: 
           { return keyword(Parser.NEW);
           }
-        case 79: break;
+        case 81: break;
         case 35: 
           { return keyword(Parser.STRING);
           }
-        case 80: break;
+        case 82: break;
         case 3: 
           { return intConst(yytext());
           }
-        case 81: break;
+        case 83: break;
         case 8: 
           { issueError(new NewlineInStrError(sloc, MiscUtils.quote(buffer.toString())));
           }
-        case 82: break;
+        case 84: break;
         default: 
           if (zzInput == YYEOF && zzStartRead == zzCurrentPos) {
             zzAtEOF = true;
@@ -2858,7 +2963,7 @@ public class Lexer extends BaseLexer {
               issueError(new UntermStrError(sloc, MiscUtils.quote(buffer.toString())));
 					  yybegin(YYINITIAL);
             }
-            case 137: break;
+            case 142: break;
             default:
               { return 0; }
             }
@@ -189,321 +189,317 @@ public final static short LESS_EQUAL=281;
 public final static short GREATER_EQUAL=282;
 public final static short EQUAL=283;
 public final static short NOT_EQUAL=284;
-public final static short UMINUS=285;
-public final static short EMPTY=286;
+public final static short SEALED=285;
+public final static short UMINUS=286;
+public final static short EMPTY=287;
 public final static short YYERRCODE=256;
 final static short yylhs[] = {                           -1,
     0,    1,    1,    3,    4,    5,    5,    5,    5,    5,
-    5,    2,    6,    6,    7,    7,    7,    9,    9,   10,
-   10,    8,    8,   11,   12,   12,   13,   13,   13,   13,
-   13,   13,   13,   13,   13,   14,   14,   14,   24,   24,
-   21,   21,   23,   22,   22,   22,   22,   22,   22,   22,
-   22,   22,   22,   22,   22,   22,   22,   22,   22,   22,
-   22,   22,   22,   22,   22,   22,   22,   22,   22,   26,
-   26,   25,   25,   27,   27,   16,   17,   20,   15,   28,
-   28,   18,   18,   19,
+    5,    2,    6,    6,    7,    7,    8,    8,    8,   10,
+   10,   11,   11,    9,    9,   12,   13,   13,   14,   14,
+   14,   14,   14,   14,   14,   14,   14,   15,   15,   15,
+   25,   25,   22,   22,   24,   23,   23,   23,   23,   23,
+   23,   23,   23,   23,   23,   23,   23,   23,   23,   23,
+   23,   23,   23,   23,   23,   23,   23,   23,   23,   23,
+   23,   27,   27,   26,   26,   28,   28,   17,   18,   21,
+   16,   29,   29,   19,   19,   20,
 };
 final static short yylen[] = {                            2,
     1,    2,    1,    2,    2,    1,    1,    1,    1,    2,
-    3,    6,    2,    0,    2,    2,    0,    1,    0,    3,
-    1,    7,    6,    3,    2,    0,    1,    2,    1,    1,
-    1,    2,    2,    2,    1,    3,    1,    0,    2,    0,
-    2,    4,    5,    1,    1,    1,    3,    3,    3,    3,
+    3,    7,    1,    0,    2,    0,    2,    2,    0,    1,
+    0,    3,    1,    7,    6,    3,    2,    0,    1,    2,
+    1,    1,    1,    2,    2,    2,    1,    3,    1,    0,
+    2,    0,    2,    4,    5,    1,    1,    1,    3,    3,
     3,    3,    3,    3,    3,    3,    3,    3,    3,    3,
-    2,    2,    3,    3,    1,    4,    5,    6,    5,    1,
-    1,    1,    0,    3,    1,    5,    9,    1,    6,    2,
-    0,    2,    1,    4,
+    3,    3,    2,    2,    3,    3,    1,    4,    5,    6,
+    5,    1,    1,    1,    0,    3,    1,    5,    9,    1,
+    6,    2,    0,    2,    1,    4,
 };
 final static short yydefred[] = {                         0,
-    0,    0,    0,    3,    0,    2,    0,    0,   13,   17,
-    0,    7,    8,    6,    9,    0,    0,   12,   15,    0,
-    0,   16,   10,    0,    4,    0,    0,    0,    0,   11,
-    0,   21,    0,    0,    0,    0,    5,    0,    0,    0,
-   26,   23,   20,   22,    0,   71,   65,    0,    0,    0,
-    0,   78,    0,    0,    0,    0,   70,    0,    0,    0,
-    0,   24,   27,   35,   25,    0,   29,   30,   31,    0,
-    0,    0,    0,    0,    0,    0,   46,    0,    0,    0,
-   44,    0,   45,    0,    0,    0,    0,    0,    0,    0,
-    0,    0,    0,   28,   32,   33,   34,    0,    0,    0,
+   13,    0,    0,    3,    0,    2,    0,    0,    0,    0,
+   15,   19,    0,    7,    8,    6,    9,    0,    0,   12,
+   17,    0,    0,   18,   10,    0,    4,    0,    0,    0,
+    0,   11,    0,   23,    0,    0,    0,    0,    5,    0,
+    0,    0,   28,   25,   22,   24,    0,   73,   67,    0,
+    0,    0,    0,   80,    0,    0,    0,    0,   72,    0,
+    0,    0,    0,   26,   29,   37,   27,    0,   31,   32,
+   33,    0,    0,    0,    0,    0,    0,    0,   48,    0,
+    0,    0,   46,    0,   47,    0,    0,    0,    0,    0,
+    0,    0,    0,    0,    0,   30,   34,   35,   36,    0,
     0,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,   39,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,   63,   64,    0,    0,   60,    0,    0,    0,    0,
+    0,    0,    0,   41,    0,    0,    0,    0,    0,    0,
+    0,    0,    0,   65,   66,    0,    0,   62,    0,    0,
     0,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,    0,    0,    0,    0,   66,    0,    0,   84,    0,
-    0,   42,    0,    0,   76,    0,    0,   67,    0,    0,
-   69,   43,    0,    0,   79,   68,    0,   80,    0,   77,
+    0,    0,    0,    0,    0,    0,    0,   68,    0,    0,
+   86,    0,    0,   44,    0,    0,   78,    0,    0,   69,
+    0,    0,   71,   45,    0,    0,   81,   70,    0,   82,
+    0,   79,
 };
 final static short yydgoto[] = {                          2,
-    3,    4,   63,   20,   33,    8,   11,   22,   34,   35,
-   64,   45,   65,   66,   67,   68,   69,   70,   71,   72,
-   81,   74,   83,   76,  153,   77,  121,  165,
+    3,    4,   65,   22,   35,    5,   10,   13,   24,   36,
+   37,   66,   47,   67,   68,   69,   70,   71,   72,   73,
+   74,   83,   76,   85,   78,  155,   79,  123,  167,
 };
-final static short yysindex[] = {                      -247,
- -257,    0, -247,    0, -242,    0, -251,  -67,    0,    0,
-  -76,    0,    0,    0,    0, -217, -214,    0,    0,   24,
-  -88,    0,    0,  -87,    0,   45,   -2,   54, -214,    0,
- -214,    0,  -85,   56,   63,   68,    0,  -15, -214,  -15,
-    0,    0,    0,    0,   -9,    0,    0,   70,   72,   75,
-  495,    0, -183,   81,   88,   90,    0,   91,  495,  495,
-  458,    0,    0,    0,    0,   73,    0,    0,    0,   74,
-   76,   78,   84,  496,    0, -142,    0,  495,  495,  495,
-    0,  496,    0,  107,   48,  495,  116,  123,  495,  -38,
-  -38, -128,  307,    0,    0,    0,    0,  495,  495,  495,
-  495,  495,  495,  495,  495,  495,  495,  495,  495,  495,
-  495,    0,  495,  126,  366,  108,  378,  129,  541,  496,
-  -11,    0,    0,  402,  131,    0,  496,  567,  555,   -5,
-   -5,  579,  579,  -19,  -19,  -38,  -38,  -38,   -5,   -5,
-  413,  495,   15,  495,   15,    0,  434,  495,    0, -103,
-  495,    0,  133,  132,    0,  470,  -89,    0,  496,  145,
-    0,    0,  495,   15,    0,    0,  146,    0,   15,    0,
+final static short yysindex[] = {                      -276,
+    0,    0, -276,    0, -239,    0, -244, -230, -229,  -61,
+    0,    0,  447,    0,    0,    0,    0, -203, -148,    0,
+    0,   19,  -87,    0,    0,  -85,    0,   47,  -19,   51,
+ -148,    0, -148,    0,  -75,   54,   53,   59,    0,  -16,
+ -148,  -16,    0,    0,    0,    0,   -6,    0,    0,   75,
+   78,   84,  520,    0,  -55,   91,   95,   96,    0,   98,
+  520,  520,  340,    0,    0,    0,    0,   80,    0,    0,
+    0,   81,   83,   87,   82,  464,    0, -128,    0,  520,
+  520,  520,    0,  464,    0,  109,   62,  520,  121,  122,
+  520,  -38,  -38, -126,  286,    0,    0,    0,    0,  520,
+  520,  520,  520,  520,  520,  520,  520,  520,  520,  520,
+  520,  520,  520,    0,  520,  129,  312,  112,  376,  131,
+  375,  464,  -23,    0,    0,  400,  134,    0,  464,  537,
+  496,   -2,   -2,  -32,  -32,  288,  288,  -38,  -38,  -38,
+   -2,   -2,  411,  520,   18,  520,   18,    0,  432,  520,
+    0,  -99,  520,    0,  138,  136,    0,  453,  -84,    0,
+  464,  140,    0,    0,  520,   18,    0,    0,  146,    0,
+   18,    0,
 };
-final static short yyrindex[] = {                         0,
-    0,    0,  193,    0,   83,    0,    0,    0,    0,    0,
+final static short yyrindex[] = {                       -71,
+    0,    0,    1,    0,    0,    0,    0,   77,    0,    0,
     0,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,    0,    0,    0,    0,  140,    0,    0,  160,    0,
-  160,    0,    0,    0,  163,    0,    0,    0,    0,    0,
-    0,    0,    0,    0,  -58,    0,    0,    0,    0,    0,
-  -57,    0,    0,    0,    0,    0,    0,    0,  -71,  -71,
-  -71,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,    0,  517,    0,   58,    0,    0,  -71,  -58,  -71,
-    0,  148,    0,    0,    0,  -71,    0,    0,  -71,   82,
-  109,    0,    0,    0,    0,    0,    0,  -71,  -71,  -71,
-  -71,  -71,  -71,  -71,  -71,  -71,  -71,  -71,  -71,  -71,
-  -71,    0,  -71,   20,    0,    0,    0,    0,  -71,   10,
-    0,    0,    0,    0,    0,    0,  -30,   29,  -24,   99,
-  288,   43,  176,  665,  747,  118,  153,  268,  594,  610,
-    0,  -32,  -58,  -71,  -58,    0,    0,  -71,    0,    0,
-  -71,    0,    0,  167,    0,    0,  -33,    0,   27,    0,
-    0,    0,  -31,  -58,    0,    0,    0,    0,  -58,    0,
+    0,    0,    0,    0,    0,    0,    0,  149,    0,    0,
+  168,    0,  168,    0,    0,    0,  171,    0,    0,    0,
+    0,    0,    0,    0,    0,    0,  -57,    0,    0,    0,
+    0,    0,  -56,    0,    0,    0,    0,    0,    0,    0,
+  -62,  -62,  -62,    0,    0,    0,    0,    0,    0,    0,
+    0,    0,    0,    0,  485,    0,   34,    0,    0,  -62,
+  -57,  -62,    0,  156,    0,    0,    0,  -62,    0,    0,
+  -62,   61,   85,    0,    0,    0,    0,    0,    0,  -62,
+  -62,  -62,  -62,  -62,  -62,  -62,  -62,  -62,  -62,  -62,
+  -62,  -62,  -62,    0,  -62,   23,    0,    0,    0,    0,
+  -62,    8,    0,    0,    0,    0,    0,    0,  -17,   93,
+  -21,  444,  559,  603,  631,  581,  658,  114,  123,  151,
+  568,  592,    0,   -5,  -57,  -62,  -57,    0,    0,  -62,
+    0,    0,  -62,    0,    0,  181,    0,    0,  -33,    0,
+   13,    0,    0,    0,   -4,  -57,    0,    0,    0,    0,
+  -57,    0,
 };
 final static short yygindex[] = {                         0,
-    0,  206,  199,   67,    5,    0,    0,    0,  183,    0,
-   12,    0, -130,  -74,    0,    0,    0,    0,    0,    0,
-  592,  822,  620,    0,    0,    0,   79,    0,
+    0,  227,  222,   15,    6,    0,    0,    0,    0,  212,
+    0,   46,    0, -116,  -64,    0,    0,    0,    0,    0,
+    0,   52,  843,  318,    0,    0,    0,  102,    0,
 };
-final static int YYTABLESIZE=1031;
+final static int YYTABLESIZE=996;
 static short yytable[];
 static { yytable();}
 static void yytable(){
-yytable = new short[]{                         81,
-   38,   83,   27,   27,  116,   27,   81,  112,   73,   38,
-   36,   81,  155,    1,  157,   21,   59,  109,    5,   59,
-    7,   24,  107,   60,    9,   81,  112,  108,   36,  149,
-   61,  109,  148,  168,   59,   59,  107,  105,  170,  106,
-  112,  108,   12,   13,   14,   15,   16,   60,   18,   42,
-   75,   44,  113,   75,   61,   10,   41,   85,   23,   59,
-   41,   41,   41,   41,   41,   41,   41,   74,   59,   58,
-   74,  113,   58,   12,   13,   14,   15,   16,   41,   41,
-   41,   41,   25,   52,   29,  113,   52,   58,  167,   81,
-   30,   81,   84,   31,   45,   32,   38,   32,   37,   45,
-   45,   52,   45,   45,   45,   43,   39,   41,   40,   78,
-   41,   79,   41,   41,   80,   62,   37,   45,   61,   45,
-   86,   58,   61,   61,   61,   61,   61,   87,   61,   88,
-   89,   94,   95,  114,   96,   52,   97,   41,  119,   56,
-   61,   61,   56,   61,   98,   62,  118,  125,   45,   62,
-   62,   62,   62,   62,   49,   62,  122,   56,   49,   49,
-   49,   49,   49,  123,   49,  142,  144,   62,   62,  146,
-   62,  151,  160,  162,   61,  148,   49,   49,  164,   49,
-   12,   13,   14,   15,   16,  166,  169,   26,   28,   50,
-   37,   56,    1,   50,   50,   50,   50,   50,    5,   50,
-   19,   62,   17,   18,   40,   14,   82,   72,    6,   19,
-   49,   50,   50,   36,   50,    0,   53,   40,   40,   53,
-  154,    0,    0,   81,   81,   81,   81,   81,   81,    0,
-   81,   81,   81,   81,   53,   81,   81,   81,   81,   81,
-   81,   81,   81,   40,   40,   50,   81,   12,   13,   14,
-   15,   16,   46,   59,   47,   48,   49,   50,    0,   51,
-   52,   53,   54,   55,   56,   57,    0,    0,   53,    0,
-   58,   12,   13,   14,   15,   16,   46,    0,   47,   48,
-   49,   50,    0,   51,   52,   53,   54,   55,   56,   57,
-    0,    0,    0,    0,   58,    0,   41,   41,    0,    0,
-   41,   41,   41,   41,   51,   58,   58,    0,   51,   51,
-   51,   51,   51,    0,   51,    0,    0,    0,    0,   52,
-   52,    0,    0,    0,    0,    0,   51,   51,   57,   51,
-    0,   57,    0,    0,   45,   45,    0,    0,   45,   45,
-   45,   45,    0,  109,    0,    0,   57,  126,  107,  105,
-    0,  106,  112,  108,    0,    0,    0,    0,   61,   61,
-   51,    0,   61,   61,   61,   61,  111,    0,  110,    0,
-    0,    0,    0,    0,    0,   56,   56,    0,    0,    0,
-   57,   56,   56,    0,    0,   62,   62,    0,    0,   62,
-   62,   62,   62,    0,   49,   49,    0,  113,   49,   49,
-   49,   49,  109,    0,    0,    0,  143,  107,  105,    0,
-  106,  112,  108,    0,  109,    0,    0,    0,  145,  107,
-  105,    0,  106,  112,  108,  111,    0,  110,    0,   50,
-   50,    0,    0,   50,   50,   50,   50,  111,  109,  110,
-    0,    0,    0,  107,  105,  150,  106,  112,  108,  109,
-    0,    0,   53,   53,  107,  105,  113,  106,  112,  108,
-    0,  111,    0,  110,    0,    0,    0,    0,  113,    0,
-  109,    0,  111,    0,  110,  107,  105,    0,  106,  112,
-  108,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-   60,    0,  113,  111,    0,  110,    0,   61,    0,    0,
-    0,    0,   59,  113,    0,  152,  109,    0,    0,    0,
-    0,  107,  105,    0,  106,  112,  108,    0,    0,    0,
-    0,    0,    0,    0,  113,    0,  158,   60,  163,  111,
-    0,  110,  109,    0,   61,    0,    0,  107,  105,   59,
-  106,  112,  108,    0,   51,   51,    0,    0,   51,   51,
-   51,   51,    0,   44,    0,  111,    0,  110,   44,   44,
-  113,   44,   44,   44,   57,   57,    0,    0,    0,    0,
-   57,   57,    0,   60,    0,    0,   44,    0,   44,    0,
-   61,    0,    0,   99,  100,   59,  113,  101,  102,  103,
-  104,  109,    0,    0,    0,    0,  107,  105,    0,  106,
-  112,  108,    0,  109,    0,    0,    0,   44,  107,  105,
-    0,  106,  112,  108,  111,  109,  110,    0,    0,    0,
-  107,  105,    0,  106,  112,  108,  111,    0,  110,    0,
-    0,    0,    0,   30,   55,    0,   73,   55,  111,    0,
-  110,    0,   99,  100,    0,  113,  101,  102,  103,  104,
-   54,    0,   55,   54,   99,  100,    0,  113,  101,  102,
-  103,  104,    0,    0,   75,    0,    0,    0,   54,  113,
-   73,    0,    0,    0,    0,    0,    0,    0,   99,  100,
-    0,    0,  101,  102,  103,  104,   55,    0,    0,   99,
-  100,    0,    0,  101,  102,  103,  104,    0,   75,    0,
-    0,    0,   54,    0,    0,   47,    0,   47,   47,   47,
-   99,  100,    0,    0,  101,  102,  103,  104,   92,   46,
-    0,   47,    0,   47,   47,    0,   47,    0,   53,    0,
-   55,   56,   57,    0,   73,    0,   73,   58,    0,    0,
-    0,    0,    0,    0,    0,    0,   99,  100,    0,    0,
-  101,  102,  103,  104,   73,   73,   46,   47,   47,    0,
-   73,    0,   75,    0,   75,   53,    0,   55,   56,   57,
-    0,    0,   99,  100,   58,    0,  101,  102,  103,  104,
-    0,    0,   75,   75,    0,    0,    0,   48,   75,   48,
-   48,   48,    0,   44,   44,    0,    0,   44,   44,   44,
-   44,    0,   46,    0,   47,   48,   48,    0,   48,    0,
-    0,   53,    0,   55,   56,   57,    0,    0,    0,    0,
-   58,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,   99,    0,    0,    0,  101,  102,  103,  104,   48,
-    0,    0,    0,    0,    0,    0,    0,  101,  102,  103,
-  104,    0,    0,    0,    0,    0,    0,    0,    0,  101,
-  102,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-   55,   55,   82,    0,    0,    0,   55,   55,    0,    0,
-   90,   91,   93,    0,    0,    0,   54,   54,    0,    0,
-    0,    0,   54,   54,    0,    0,    0,    0,    0,  115,
-    0,  117,    0,    0,    0,    0,    0,  120,    0,    0,
-  124,    0,    0,    0,    0,    0,    0,    0,    0,  127,
-  128,  129,  130,  131,  132,  133,  134,  135,  136,  137,
-  138,  139,  140,    0,  141,    0,    0,    0,    0,    0,
-  147,   47,   47,    0,    0,   47,   47,   47,   47,    0,
+yytable = new short[]{                         83,
+    1,   40,   85,   29,  111,   29,   83,  114,    1,  109,
+  107,   83,  108,  114,  110,   29,  118,  151,   23,   61,
+  150,    7,   61,   38,   26,   83,   62,  113,  157,  112,
+  159,    8,    9,   63,  111,   75,   40,   61,   61,  109,
+  107,   38,  108,  114,  110,   34,   11,   34,   77,  170,
+   62,   77,  115,   76,  172,   45,   76,   63,  115,   43,
+   87,   12,   61,   43,   43,   43,   43,   43,   43,   43,
+   47,   61,   25,   32,   39,   47,   47,   27,   47,   47,
+   47,   43,   43,   43,   43,   44,   31,   46,  115,   83,
+   33,   83,   39,   47,   40,   47,   41,   63,   75,   42,
+  169,   63,   63,   63,   63,   63,   43,   63,   14,   15,
+   16,   17,   18,   43,   80,   43,   43,   81,   64,   63,
+   63,   64,   63,   82,   47,   64,   64,   64,   64,   64,
+   88,   64,   75,   60,   89,   90,   60,   91,   96,   97,
+   43,   98,  100,   64,   64,   99,   64,  116,  120,  127,
+   51,   60,  121,   63,   51,   51,   51,   51,   51,   52,
+   51,  124,  125,   52,   52,   52,   52,   52,  144,   52,
+  146,  148,   51,   51,  153,   51,  162,   64,  164,  150,
+  168,   52,   52,  166,   52,   60,  171,   53,   28,   14,
+   30,   53,   53,   53,   53,   53,   75,   53,   75,   16,
+   39,   14,   15,   16,   17,   18,   51,    5,   21,   53,
+   53,   20,   53,   42,   84,   52,   75,   75,   42,   42,
+   86,   74,   75,   83,   83,   83,   83,   83,   83,    6,
+   83,   83,   83,   83,   21,   83,   83,   83,   83,   83,
+   83,   83,   83,   53,   38,  156,   83,    0,  103,  104,
+   14,   15,   16,   17,   18,   48,   61,   49,   50,   51,
+   52,   14,   53,   54,   55,   56,   57,   58,   59,    0,
+   42,   42,    0,   60,   14,   15,   16,   17,   18,   48,
+    0,   49,   50,   51,   52,    0,   53,   54,   55,   56,
+   57,   58,   59,    0,    0,    0,    0,   60,    0,   43,
+   43,    0,    0,   43,   43,   43,   43,    0,    0,    0,
+   47,   47,    0,    0,   47,   47,   47,   47,    0,    0,
+    0,    0,  111,    0,  111,    0,  128,  109,  107,  109,
+  108,  114,  110,  114,  110,    0,    0,   63,   63,    0,
+    0,   63,   63,   63,   63,  113,    0,  112,  111,    0,
+    0,    0,  145,  109,  107,    0,  108,  114,  110,    0,
+    0,   64,   64,    0,   77,   64,   64,   64,   64,   60,
+   60,  113,   62,  112,    0,    0,  115,    0,  115,   63,
+    0,    0,    0,    0,   61,    0,    0,    0,    0,    0,
+   51,   51,    0,    0,   51,   51,   51,   51,   77,   52,
+   52,    0,  115,   52,   52,   52,   52,   62,    0,    0,
+    0,    0,  111,    0,   63,    0,  147,  109,  107,   61,
+  108,  114,  110,    0,    0,    0,    0,   53,   53,    0,
+    0,   53,   53,   53,   53,  113,  111,  112,    0,    0,
+    0,  109,  107,  152,  108,  114,  110,  111,    0,    0,
+    0,    0,  109,  107,    0,  108,  114,  110,    0,  113,
+    0,  112,   77,    0,   77,    0,  115,   32,  111,    0,
+  113,    0,  112,  109,  107,    0,  108,  114,  110,    0,
+    0,    0,   77,   77,   58,    0,    0,   58,   77,  111,
+  115,  113,    0,  112,  109,  107,    0,  108,  114,  110,
+  111,  115,   58,  154,    0,  109,  107,    0,  108,  114,
+  110,  165,  113,    0,  112,    0,    0,    0,    0,    0,
+    0,   46,  115,  113,  160,  112,   46,   46,    0,   46,
+   46,   46,  111,    0,    0,    0,   58,  109,  107,    0,
+  108,  114,  110,  115,   46,    0,   46,    0,    0,    0,
+    0,    0,   62,    0,  115,  113,    0,  112,    0,   63,
+    0,    0,  101,  102,   61,    0,  103,  104,  105,  106,
+    0,   20,    0,  111,    0,   46,    0,    0,  109,  107,
+    0,  108,  114,  110,    0,    0,  115,    0,  101,  102,
+    0,    0,  103,  104,  105,  106,  113,    0,  112,   59,
+   94,   48,   59,   49,    0,    0,    0,    0,   57,    0,
+   55,   57,   57,   58,   59,    0,    0,   59,    0,   60,
+    0,   49,    0,   49,   49,   49,   57,  115,    0,    0,
+    0,    0,   56,    0,    0,   56,   48,    0,   49,   49,
+   49,    0,   49,   54,    0,   55,   54,   57,   58,   59,
+   56,   59,  101,  102,   60,    0,  103,  104,  105,  106,
+   57,   54,    0,    0,    0,    0,    0,    0,    0,    0,
+    0,   55,    0,   49,   55,    0,  101,  102,    0,    0,
+  103,  104,  105,  106,   56,    0,    0,  101,  102,   55,
+    0,  103,  104,  105,  106,   54,    0,    0,   50,    0,
+   50,   50,   50,   14,   15,   16,   17,   18,  101,  102,
+    0,    0,  103,  104,  105,  106,   50,   50,    0,   50,
+   58,   58,    0,   55,    0,   19,   58,   58,    0,  101,
+  102,    0,    0,  103,  104,  105,  106,    0,    0,    0,
+  101,  102,    0,    0,  103,  104,  105,  106,    0,    0,
+   50,    0,    0,    0,    0,    0,    0,    0,    0,    0,
+    0,   46,   46,    0,    0,   46,   46,   46,   46,    0,
+    0,    0,  101,    0,    0,    0,  103,  104,  105,  106,
+    0,   48,    0,   49,    0,    0,    0,    0,    0,    0,
+   55,    0,   57,   58,   59,    0,    0,    0,    0,   60,
     0,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,    0,    0,  120,    0,  156,    0,    0,    0,  159,
-    0,    0,  161,    0,    0,    0,    0,    0,    0,    0,
+    0,    0,    0,    0,    0,    0,    0,  103,  104,  105,
+  106,    0,    0,    0,    0,    0,    0,    0,    0,    0,
+    0,    0,    0,    0,    0,   59,   59,    0,    0,    0,
+    0,   59,   59,    0,   57,   57,    0,    0,    0,    0,
+   57,   57,    0,    0,    0,    0,    0,   49,   49,    0,
+    0,   49,   49,   49,   49,    0,    0,    0,   56,   56,
+    0,    0,    0,    0,   56,   56,    0,    0,    0,   54,
+   54,    0,    0,    0,    0,    0,    0,    0,    0,    0,
+    0,    0,    0,    0,    0,   84,    0,    0,    0,    0,
+    0,    0,    0,   92,   93,   95,    0,   55,   55,    0,
     0,    0,    0,    0,    0,    0,    0,    0,    0,    0,
+    0,    0,  117,    0,  119,    0,    0,    0,    0,    0,
+  122,    0,    0,  126,   50,   50,    0,    0,   50,   50,
+   50,   50,  129,  130,  131,  132,  133,  134,  135,  136,
+  137,  138,  139,  140,  141,  142,    0,  143,    0,    0,
+    0,    0,    0,  149,    0,    0,    0,    0,    0,    0,
     0,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,    0,    0,    0,    0,    0,    0,    0,    0,    0,
-    0,    0,    0,   48,   48,    0,    0,   48,   48,   48,
-   48,
+    0,    0,    0,    0,    0,    0,  122,    0,  158,    0,
+    0,    0,  161,    0,    0,  163,
 };
 }
 static short yycheck[];
 static { yycheck(); }
 static void yycheck() {
 yycheck = new short[] {                         33,
-   59,   59,   91,   91,   79,   91,   40,   46,   41,   41,
-   41,   45,  143,  261,  145,   11,   41,   37,  276,   44,
-  263,   17,   42,   33,  276,   59,   46,   47,   59,   41,
-   40,   37,   44,  164,   59,   45,   42,   43,  169,   45,
-   46,   47,  257,  258,  259,  260,  261,   33,  125,   38,
-   41,   40,   91,   44,   40,  123,   37,   53,  276,   45,
-   41,   42,   43,   44,   45,   46,   47,   41,   93,   41,
-   44,   91,   44,  257,  258,  259,  260,  261,   59,   60,
-   61,   62,   59,   41,   40,   91,   44,   59,  163,  123,
-   93,  125,  276,   40,   37,   29,   41,   31,   41,   42,
-   43,   59,   45,   46,   47,   39,   44,  123,   41,   40,
-   91,   40,   93,  123,   40,  125,   59,   60,   37,   62,
-   40,   93,   41,   42,   43,   44,   45,   40,   47,   40,
-   40,   59,   59,  276,   59,   93,   59,  123,   91,   41,
-   59,   60,   44,   62,   61,   37,   40,  276,   91,   41,
-   42,   43,   44,   45,   37,   47,   41,   59,   41,   42,
-   43,   44,   45,   41,   47,   40,   59,   59,   60,   41,
-   62,   41,  276,   41,   93,   44,   59,   60,  268,   62,
-  257,  258,  259,  260,  261,   41,   41,  276,  276,   37,
-  276,   93,    0,   41,   42,   43,   44,   45,   59,   47,
-   41,   93,  279,   41,  276,  123,   59,   41,    3,   11,
-   93,   59,   60,   31,   62,   -1,   41,  276,  276,   44,
-  142,   -1,   -1,  257,  258,  259,  260,  261,  262,   -1,
-  264,  265,  266,  267,   59,  269,  270,  271,  272,  273,
-  274,  275,  276,  276,  276,   93,  280,  257,  258,  259,
-  260,  261,  262,  278,  264,  265,  266,  267,   -1,  269,
-  270,  271,  272,  273,  274,  275,   -1,   -1,   93,   -1,
-  280,  257,  258,  259,  260,  261,  262,   -1,  264,  265,
-  266,  267,   -1,  269,  270,  271,  272,  273,  274,  275,
-   -1,   -1,   -1,   -1,  280,   -1,  277,  278,   -1,   -1,
-  281,  282,  283,  284,   37,  277,  278,   -1,   41,   42,
-   43,   44,   45,   -1,   47,   -1,   -1,   -1,   -1,  277,
-  278,   -1,   -1,   -1,   -1,   -1,   59,   60,   41,   62,
-   -1,   44,   -1,   -1,  277,  278,   -1,   -1,  281,  282,
-  283,  284,   -1,   37,   -1,   -1,   59,   41,   42,   43,
-   -1,   45,   46,   47,   -1,   -1,   -1,   -1,  277,  278,
-   93,   -1,  281,  282,  283,  284,   60,   -1,   62,   -1,
-   -1,   -1,   -1,   -1,   -1,  277,  278,   -1,   -1,   -1,
-   93,  283,  284,   -1,   -1,  277,  278,   -1,   -1,  281,
-  282,  283,  284,   -1,  277,  278,   -1,   91,  281,  282,
-  283,  284,   37,   -1,   -1,   -1,   41,   42,   43,   -1,
-   45,   46,   47,   -1,   37,   -1,   -1,   -1,   41,   42,
-   43,   -1,   45,   46,   47,   60,   -1,   62,   -1,  277,
-  278,   -1,   -1,  281,  282,  283,  284,   60,   37,   62,
-   -1,   -1,   -1,   42,   43,   44,   45,   46,   47,   37,
-   -1,   -1,  277,  278,   42,   43,   91,   45,   46,   47,
-   -1,   60,   -1,   62,   -1,   -1,   -1,   -1,   91,   -1,
-   37,   -1,   60,   -1,   62,   42,   43,   -1,   45,   46,
-   47,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
-   33,   -1,   91,   60,   -1,   62,   -1,   40,   -1,   -1,
-   -1,   -1,   45,   91,   -1,   93,   37,   -1,   -1,   -1,
-   -1,   42,   43,   -1,   45,   46,   47,   -1,   -1,   -1,
-   -1,   -1,   -1,   -1,   91,   -1,   93,   33,   59,   60,
-   -1,   62,   37,   -1,   40,   -1,   -1,   42,   43,   45,
-   45,   46,   47,   -1,  277,  278,   -1,   -1,  281,  282,
-  283,  284,   -1,   37,   -1,   60,   -1,   62,   42,   43,
-   91,   45,   46,   47,  277,  278,   -1,   -1,   -1,   -1,
-  283,  284,   -1,   33,   -1,   -1,   60,   -1,   62,   -1,
-   40,   -1,   -1,  277,  278,   45,   91,  281,  282,  283,
-  284,   37,   -1,   -1,   -1,   -1,   42,   43,   -1,   45,
-   46,   47,   -1,   37,   -1,   -1,   -1,   91,   42,   43,
-   -1,   45,   46,   47,   60,   37,   62,   -1,   -1,   -1,
-   42,   43,   -1,   45,   46,   47,   60,   -1,   62,   -1,
-   -1,   -1,   -1,   93,   41,   -1,   45,   44,   60,   -1,
-   62,   -1,  277,  278,   -1,   91,  281,  282,  283,  284,
-   41,   -1,   59,   44,  277,  278,   -1,   91,  281,  282,
-  283,  284,   -1,   -1,   45,   -1,   -1,   -1,   59,   91,
-   79,   -1,   -1,   -1,   -1,   -1,   -1,   -1,  277,  278,
-   -1,   -1,  281,  282,  283,  284,   93,   -1,   -1,  277,
-  278,   -1,   -1,  281,  282,  283,  284,   -1,   79,   -1,
-   -1,   -1,   93,   -1,   -1,   41,   -1,   43,   44,   45,
-  277,  278,   -1,   -1,  281,  282,  283,  284,  261,  262,
-   -1,  264,   -1,   59,   60,   -1,   62,   -1,  271,   -1,
-  273,  274,  275,   -1,  143,   -1,  145,  280,   -1,   -1,
-   -1,   -1,   -1,   -1,   -1,   -1,  277,  278,   -1,   -1,
-  281,  282,  283,  284,  163,  164,  262,   93,  264,   -1,
-  169,   -1,  143,   -1,  145,  271,   -1,  273,  274,  275,
-   -1,   -1,  277,  278,  280,   -1,  281,  282,  283,  284,
-   -1,   -1,  163,  164,   -1,   -1,   -1,   41,  169,   43,
-   44,   45,   -1,  277,  278,   -1,   -1,  281,  282,  283,
-  284,   -1,  262,   -1,  264,   59,   60,   -1,   62,   -1,
-   -1,  271,   -1,  273,  274,  275,   -1,   -1,   -1,   -1,
-  280,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
-   -1,  277,   -1,   -1,   -1,  281,  282,  283,  284,   93,
-   -1,   -1,   -1,   -1,   -1,   -1,   -1,  281,  282,  283,
-  284,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,  281,
-  282,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
-  277,  278,   51,   -1,   -1,   -1,  283,  284,   -1,   -1,
-   59,   60,   61,   -1,   -1,   -1,  277,  278,   -1,   -1,
-   -1,   -1,  283,  284,   -1,   -1,   -1,   -1,   -1,   78,
-   -1,   80,   -1,   -1,   -1,   -1,   -1,   86,   -1,   -1,
-   89,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   98,
-   99,  100,  101,  102,  103,  104,  105,  106,  107,  108,
-  109,  110,  111,   -1,  113,   -1,   -1,   -1,   -1,   -1,
-  119,  277,  278,   -1,   -1,  281,  282,  283,  284,   -1,
-   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
-   -1,   -1,   -1,  142,   -1,  144,   -1,   -1,   -1,  148,
-   -1,   -1,  151,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
-   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
+    0,   59,   59,   91,   37,   91,   40,   46,  285,   42,
+   43,   45,   45,   46,   47,   91,   81,   41,   13,   41,
+   44,  261,   44,   41,   19,   59,   33,   60,  145,   62,
+  147,  276,  263,   40,   37,   41,   41,   59,   45,   42,
+   43,   59,   45,   46,   47,   31,  276,   33,   41,  166,
+   33,   44,   91,   41,  171,   41,   44,   40,   91,   37,
+   55,  123,   45,   41,   42,   43,   44,   45,   46,   47,
+   37,   93,  276,   93,   41,   42,   43,   59,   45,   46,
+   47,   59,   60,   61,   62,   40,   40,   42,   91,  123,
+   40,  125,   59,   60,   41,   62,   44,   37,   47,   41,
+  165,   41,   42,   43,   44,   45,  123,   47,  257,  258,
+  259,  260,  261,   91,   40,   93,  123,   40,  125,   59,
+   60,   37,   62,   40,   91,   41,   42,   43,   44,   45,
+   40,   47,   81,   41,   40,   40,   44,   40,   59,   59,
+  123,   59,   61,   59,   60,   59,   62,  276,   40,  276,
+   37,   59,   91,   93,   41,   42,   43,   44,   45,   37,
+   47,   41,   41,   41,   42,   43,   44,   45,   40,   47,
+   59,   41,   59,   60,   41,   62,  276,   93,   41,   44,
+   41,   59,   60,  268,   62,   93,   41,   37,  276,  261,
+  276,   41,   42,   43,   44,   45,  145,   47,  147,  123,
+  276,  257,  258,  259,  260,  261,   93,   59,   41,   59,
+   60,   41,   62,  276,   59,   93,  165,  166,  276,  276,
+  276,   41,  171,  257,  258,  259,  260,  261,  262,    3,
+  264,  265,  266,  267,   13,  269,  270,  271,  272,  273,
+  274,  275,  276,   93,   33,  144,  280,   -1,  281,  282,
+  257,  258,  259,  260,  261,  262,  278,  264,  265,  266,
+  267,  261,  269,  270,  271,  272,  273,  274,  275,   -1,
+  276,  276,   -1,  280,  257,  258,  259,  260,  261,  262,
+   -1,  264,  265,  266,  267,   -1,  269,  270,  271,  272,
+  273,  274,  275,   -1,   -1,   -1,   -1,  280,   -1,  277,
+  278,   -1,   -1,  281,  282,  283,  284,   -1,   -1,   -1,
+  277,  278,   -1,   -1,  281,  282,  283,  284,   -1,   -1,
+   -1,   -1,   37,   -1,   37,   -1,   41,   42,   43,   42,
+   45,   46,   47,   46,   47,   -1,   -1,  277,  278,   -1,
+   -1,  281,  282,  283,  284,   60,   -1,   62,   37,   -1,
+   -1,   -1,   41,   42,   43,   -1,   45,   46,   47,   -1,
+   -1,  277,  278,   -1,   47,  281,  282,  283,  284,  277,
+  278,   60,   33,   62,   -1,   -1,   91,   -1,   91,   40,
+   -1,   -1,   -1,   -1,   45,   -1,   -1,   -1,   -1,   -1,
+  277,  278,   -1,   -1,  281,  282,  283,  284,   81,  277,
+  278,   -1,   91,  281,  282,  283,  284,   33,   -1,   -1,
+   -1,   -1,   37,   -1,   40,   -1,   41,   42,   43,   45,
+   45,   46,   47,   -1,   -1,   -1,   -1,  277,  278,   -1,
+   -1,  281,  282,  283,  284,   60,   37,   62,   -1,   -1,
+   -1,   42,   43,   44,   45,   46,   47,   37,   -1,   -1,
+   -1,   -1,   42,   43,   -1,   45,   46,   47,   -1,   60,
+   -1,   62,  145,   -1,  147,   -1,   91,   93,   37,   -1,
+   60,   -1,   62,   42,   43,   -1,   45,   46,   47,   -1,
+   -1,   -1,  165,  166,   41,   -1,   -1,   44,  171,   37,
+   91,   60,   -1,   62,   42,   43,   -1,   45,   46,   47,
+   37,   91,   59,   93,   -1,   42,   43,   -1,   45,   46,
+   47,   59,   60,   -1,   62,   -1,   -1,   -1,   -1,   -1,
+   -1,   37,   91,   60,   93,   62,   42,   43,   -1,   45,
+   46,   47,   37,   -1,   -1,   -1,   93,   42,   43,   -1,
+   45,   46,   47,   91,   60,   -1,   62,   -1,   -1,   -1,
+   -1,   -1,   33,   -1,   91,   60,   -1,   62,   -1,   40,
+   -1,   -1,  277,  278,   45,   -1,  281,  282,  283,  284,
+   -1,  125,   -1,   37,   -1,   91,   -1,   -1,   42,   43,
+   -1,   45,   46,   47,   -1,   -1,   91,   -1,  277,  278,
+   -1,   -1,  281,  282,  283,  284,   60,   -1,   62,   41,
+  261,  262,   44,  264,   -1,   -1,   -1,   -1,   41,   -1,
+  271,   44,  273,  274,  275,   -1,   -1,   59,   -1,  280,
+   -1,   41,   -1,   43,   44,   45,   59,   91,   -1,   -1,
+   -1,   -1,   41,   -1,   -1,   44,  262,   -1,  264,   59,
+   60,   -1,   62,   41,   -1,  271,   44,  273,  274,  275,
+   59,   93,  277,  278,  280,   -1,  281,  282,  283,  284,
+   93,   59,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
+   -1,   41,   -1,   93,   44,   -1,  277,  278,   -1,   -1,
+  281,  282,  283,  284,   93,   -1,   -1,  277,  278,   59,
+   -1,  281,  282,  283,  284,   93,   -1,   -1,   41,   -1,
+   43,   44,   45,  257,  258,  259,  260,  261,  277,  278,
+   -1,   -1,  281,  282,  283,  284,   59,   60,   -1,   62,
+  277,  278,   -1,   93,   -1,  279,  283,  284,   -1,  277,
+  278,   -1,   -1,  281,  282,  283,  284,   -1,   -1,   -1,
+  277,  278,   -1,   -1,  281,  282,  283,  284,   -1,   -1,
+   93,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
+   -1,  277,  278,   -1,   -1,  281,  282,  283,  284,   -1,
+   -1,   -1,  277,   -1,   -1,   -1,  281,  282,  283,  284,
+   -1,  262,   -1,  264,   -1,   -1,   -1,   -1,   -1,   -1,
+  271,   -1,  273,  274,  275,   -1,   -1,   -1,   -1,  280,
    -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
+   -1,   -1,   -1,   -1,   -1,   -1,   -1,  281,  282,  283,
+  284,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
+   -1,   -1,   -1,   -1,   -1,  277,  278,   -1,   -1,   -1,
+   -1,  283,  284,   -1,  277,  278,   -1,   -1,   -1,   -1,
+  283,  284,   -1,   -1,   -1,   -1,   -1,  277,  278,   -1,
+   -1,  281,  282,  283,  284,   -1,   -1,   -1,  277,  278,
+   -1,   -1,   -1,   -1,  283,  284,   -1,   -1,   -1,  277,
+  278,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
+   -1,   -1,   -1,   -1,   -1,   53,   -1,   -1,   -1,   -1,
+   -1,   -1,   -1,   61,   62,   63,   -1,  277,  278,   -1,
    -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
+   -1,   -1,   80,   -1,   82,   -1,   -1,   -1,   -1,   -1,
+   88,   -1,   -1,   91,  277,  278,   -1,   -1,  281,  282,
+  283,  284,  100,  101,  102,  103,  104,  105,  106,  107,
+  108,  109,  110,  111,  112,  113,   -1,  115,   -1,   -1,
+   -1,   -1,   -1,  121,   -1,   -1,   -1,   -1,   -1,   -1,
    -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,   -1,
-   -1,   -1,   -1,  277,  278,   -1,   -1,  281,  282,  283,
-  284,
+   -1,   -1,   -1,   -1,   -1,   -1,  144,   -1,  146,   -1,
+   -1,   -1,  150,   -1,   -1,  153,
 };
 }
 final static short YYFINAL=2;
-final static short YYMAXTOKEN=286;
+final static short YYMAXTOKEN=287;
 final static String yyname[] = {
 "end-of-file",null,null,null,null,null,null,null,null,null,null,null,null,null,
 null,null,null,null,null,null,null,null,null,null,null,null,null,null,null,null,
@@ -524,8 +520,8 @@ null,null,null,null,null,null,null,null,null,null,null,null,null,null,null,null,
 null,null,null,null,null,null,null,null,null,"VOID","BOOL","INT","STRING",
 "CLASS","NULL","EXTENDS","THIS","WHILE","FOR","IF","ELSE","RETURN","BREAK",
 "NEW","PRINT","READ_INTEGER","READ_LINE","LITERAL","IDENTIFIER","AND","OR",
-"STATIC","INSTANCEOF","LESS_EQUAL","GREATER_EQUAL","EQUAL","NOT_EQUAL","UMINUS",
-"EMPTY",
+"STATIC","INSTANCEOF","LESS_EQUAL","GREATER_EQUAL","EQUAL","NOT_EQUAL","SEALED",
+"UMINUS","EMPTY",
 };
 final static String yyrule[] = {
 "$accept : Program",
@@ -540,7 +536,9 @@ final static String yyrule[] = {
 "Type : STRING",
 "Type : CLASS IDENTIFIER",
 "Type : Type '[' ']'",
-"ClassDef : CLASS IDENTIFIER ExtendsClause '{' FieldList '}'",
+"ClassDef : ClassSealed CLASS IDENTIFIER ExtendsClause '{' FieldList '}'",
+"ClassSealed : SEALED",
+"ClassSealed :",
 "ExtendsClause : EXTENDS IDENTIFIER",
 "ExtendsClause :",
 "FieldList : FieldList VariableDef",
@@ -615,7 +613,7 @@ final static String yyrule[] = {
 "PrintStmt : PRINT '(' ExprList ')'",
 };
 
-//#line 423 "Parser.y"
+//#line 435 "Parser.y"
     
 	/**
 	 * 打印当前归约所用的语法规则<br>
@@ -638,7 +636,7 @@ final static String yyrule[] = {
 		addReduceListener(this);
 		yyparse();
 	}
-//#line 581 "Parser.java"
+//#line 579 "Parser.java"
 //###############################################################
 // method: yylexdebug : check lexer state
 //###############################################################
@@ -790,194 +788,207 @@ boolean doaction;
       {
 //########## USER-SUPPLIED ACTIONS ##########
 case 1:
-//#line 52 "Parser.y"
+//#line 53 "Parser.y"
 {
 						tree = new Tree.TopLevel(val_peek(0).clist, val_peek(0).loc);
 					}
 break;
 case 2:
-//#line 58 "Parser.y"
+//#line 59 "Parser.y"
 {
 						yyval.clist.add(val_peek(0).cdef);
 					}
 break;
 case 3:
-//#line 62 "Parser.y"
+//#line 63 "Parser.y"
 {
                 		yyval.clist = new ArrayList<Tree.ClassDef>();
                 		yyval.clist.add(val_peek(0).cdef);
                 	}
 break;
 case 5:
-//#line 72 "Parser.y"
+//#line 73 "Parser.y"
 {
 						yyval.vdef = new Tree.VarDef(val_peek(0).ident, val_peek(1).type, val_peek(0).loc);
 					}
 break;
 case 6:
-//#line 78 "Parser.y"
+//#line 79 "Parser.y"
 {
 						yyval.type = new Tree.TypeIdent(Tree.INT, val_peek(0).loc);
 					}
 break;
 case 7:
-//#line 82 "Parser.y"
+//#line 83 "Parser.y"
 {
                 		yyval.type = new Tree.TypeIdent(Tree.VOID, val_peek(0).loc);
                 	}
 break;
 case 8:
-//#line 86 "Parser.y"
+//#line 87 "Parser.y"
 {
                 		yyval.type = new Tree.TypeIdent(Tree.BOOL, val_peek(0).loc);
                 	}
 break;
 case 9:
-//#line 90 "Parser.y"
+//#line 91 "Parser.y"
 {
                 		yyval.type = new Tree.TypeIdent(Tree.STRING, val_peek(0).loc);
                 	}
 break;
 case 10:
-//#line 94 "Parser.y"
+//#line 95 "Parser.y"
 {
                 		yyval.type = new Tree.TypeClass(val_peek(0).ident, val_peek(1).loc);
                 	}
 break;
 case 11:
-//#line 98 "Parser.y"
+//#line 99 "Parser.y"
 {
                 		yyval.type = new Tree.TypeArray(val_peek(2).type, val_peek(2).loc);
                 	}
 break;
 case 12:
-//#line 104 "Parser.y"
+//#line 105 "Parser.y"
 {
-						yyval.cdef = new Tree.ClassDef(val_peek(4).ident, val_peek(3).ident, val_peek(1).flist, val_peek(5).loc);
+						yyval.cdef = new Tree.ClassDef(val_peek(4).ident, val_peek(3).ident, val_peek(1).flist,
+								(Boolean) val_peek(6).literal, val_peek(5).loc);
 					}
 break;
 case 13:
-//#line 110 "Parser.y"
+//#line 112 "Parser.y"
 {
-						yyval.ident = val_peek(0).ident;
+						yyval.literal = true;
 					}
 break;
 case 14:
-//#line 114 "Parser.y"
+//#line 116 "Parser.y"
 {
-                		yyval = new SemValue();
+                		yyval.literal = false;
                 	}
 break;
 case 15:
-//#line 120 "Parser.y"
+//#line 122 "Parser.y"
 {
-						yyval.flist.add(val_peek(0).vdef);
+						yyval.ident = val_peek(0).ident;
 					}
 break;
 case 16:
-//#line 124 "Parser.y"
+//#line 126 "Parser.y"
+{
+                		yyval = new SemValue();
+                	}
+break;
+case 17:
+//#line 132 "Parser.y"
+{
+						yyval.flist.add(val_peek(0).vdef);
+					}
+break;
+case 18:
+//#line 136 "Parser.y"
 {
 						yyval.flist.add(val_peek(0).fdef);
 					}
 break;
-case 17:
-//#line 128 "Parser.y"
+case 19:
+//#line 140 "Parser.y"
 {
                 		yyval = new SemValue();
                 		yyval.flist = new ArrayList<Tree>();
                 	}
 break;
-case 19:
-//#line 136 "Parser.y"
+case 21:
+//#line 148 "Parser.y"
 {
                 		yyval = new SemValue();
                 		yyval.vlist = new ArrayList<Tree.VarDef>(); 
                 	}
 break;
-case 20:
-//#line 143 "Parser.y"
+case 22:
+//#line 155 "Parser.y"
 {
 						yyval.vlist.add(val_peek(0).vdef);
 					}
 break;
-case 21:
-//#line 147 "Parser.y"
+case 23:
+//#line 159 "Parser.y"
 {
                 		yyval.vlist = new ArrayList<Tree.VarDef>();
 						yyval.vlist.add(val_peek(0).vdef);
                 	}
 break;
-case 22:
-//#line 154 "Parser.y"
+case 24:
+//#line 166 "Parser.y"
 {
 						yyval.fdef = new MethodDef(true, val_peek(4).ident, val_peek(5).type, val_peek(2).vlist, (Block) val_peek(0).stmt, val_peek(4).loc);
 					}
 break;
-case 23:
-//#line 158 "Parser.y"
+case 25:
+//#line 170 "Parser.y"
 {
 						yyval.fdef = new MethodDef(false, val_peek(4).ident, val_peek(5).type, val_peek(2).vlist, (Block) val_peek(0).stmt, val_peek(4).loc);
 					}
 break;
-case 24:
-//#line 164 "Parser.y"
+case 26:
+//#line 176 "Parser.y"
 {
 						yyval.stmt = new Block(val_peek(1).slist, val_peek(2).loc);
 					}
 break;
-case 25:
-//#line 170 "Parser.y"
+case 27:
+//#line 182 "Parser.y"
 {
 						yyval.slist.add(val_peek(0).stmt);
 					}
 break;
-case 26:
-//#line 174 "Parser.y"
+case 28:
+//#line 186 "Parser.y"
 {
                 		yyval = new SemValue();
                 		yyval.slist = new ArrayList<Tree>();
                 	}
 break;
-case 27:
-//#line 181 "Parser.y"
+case 29:
+//#line 193 "Parser.y"
 {
 						yyval.stmt = val_peek(0).vdef;
 					}
 break;
-case 28:
-//#line 186 "Parser.y"
+case 30:
+//#line 198 "Parser.y"
 {
                 		if (yyval.stmt == null) {
                 			yyval.stmt = new Tree.Skip(val_peek(0).loc);
                 		}
                 	}
 break;
-case 36:
-//#line 201 "Parser.y"
+case 38:
+//#line 213 "Parser.y"
 {
 						yyval.stmt = new Tree.Assign(val_peek(2).lvalue, val_peek(0).expr, val_peek(1).loc);
 					}
 break;
-case 37:
-//#line 205 "Parser.y"
+case 39:
+//#line 217 "Parser.y"
 {
                 		yyval.stmt = new Tree.Exec(val_peek(0).expr, val_peek(0).loc);
                 	}
 break;
-case 38:
-//#line 209 "Parser.y"
+case 40:
+//#line 221 "Parser.y"
 {
                 		yyval = new SemValue();
                 	}
 break;
-case 40:
-//#line 216 "Parser.y"
+case 42:
+//#line 228 "Parser.y"
 {
                 		yyval = new SemValue();
                 	}
 break;
-case 41:
-//#line 222 "Parser.y"
+case 43:
+//#line 234 "Parser.y"
 {
 						yyval.lvalue = new Tree.Ident(val_peek(1).expr, val_peek(0).ident, val_peek(0).loc);
 						if (val_peek(1).loc == null) {
@@ -985,14 +996,14 @@ case 41:
 						}
 					}
 break;
-case 42:
-//#line 229 "Parser.y"
+case 44:
+//#line 241 "Parser.y"
 {
                 		yyval.lvalue = new Tree.Indexed(val_peek(3).expr, val_peek(1).expr, val_peek(3).loc);
                 	}
 break;
-case 43:
-//#line 235 "Parser.y"
+case 45:
+//#line 247 "Parser.y"
 {
 						yyval.expr = new Tree.CallExpr(val_peek(4).expr, val_peek(3).ident, val_peek(1).elist, val_peek(3).loc);
 						if (val_peek(4).loc == null) {
@@ -1000,237 +1011,237 @@ case 43:
 						}
 					}
 break;
-case 44:
-//#line 244 "Parser.y"
+case 46:
+//#line 256 "Parser.y"
 {
 						yyval.expr = val_peek(0).lvalue;
 					}
 break;
-case 47:
-//#line 250 "Parser.y"
+case 49:
+//#line 262 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.PLUS, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 48:
-//#line 254 "Parser.y"
+case 50:
+//#line 266 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.MINUS, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 49:
-//#line 258 "Parser.y"
+case 51:
+//#line 270 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.MUL, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 50:
-//#line 262 "Parser.y"
+case 52:
+//#line 274 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.DIV, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 51:
-//#line 266 "Parser.y"
+case 53:
+//#line 278 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.MOD, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 52:
-//#line 270 "Parser.y"
+case 54:
+//#line 282 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.EQ, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 53:
-//#line 274 "Parser.y"
+case 55:
+//#line 286 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.NE, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 54:
-//#line 278 "Parser.y"
+case 56:
+//#line 290 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.LT, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 55:
-//#line 282 "Parser.y"
+case 57:
+//#line 294 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.GT, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 56:
-//#line 286 "Parser.y"
+case 58:
+//#line 298 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.LE, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 57:
-//#line 290 "Parser.y"
+case 59:
+//#line 302 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.GE, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 58:
-//#line 294 "Parser.y"
+case 60:
+//#line 306 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.AND, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 59:
-//#line 298 "Parser.y"
+case 61:
+//#line 310 "Parser.y"
 {
                 		yyval.expr = new Tree.Binary(Tree.OR, val_peek(2).expr, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 60:
-//#line 302 "Parser.y"
+case 62:
+//#line 314 "Parser.y"
 {
                 		yyval = val_peek(1);
                 	}
 break;
-case 61:
-//#line 306 "Parser.y"
+case 63:
+//#line 318 "Parser.y"
 {
                 		yyval.expr = new Tree.Unary(Tree.NEG, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 62:
-//#line 310 "Parser.y"
+case 64:
+//#line 322 "Parser.y"
 {
                 		yyval.expr = new Tree.Unary(Tree.NOT, val_peek(0).expr, val_peek(1).loc);
                 	}
 break;
-case 63:
-//#line 314 "Parser.y"
+case 65:
+//#line 326 "Parser.y"
 {
                 		yyval.expr = new Tree.ReadIntExpr(val_peek(2).loc);
                 	}
 break;
-case 64:
-//#line 318 "Parser.y"
+case 66:
+//#line 330 "Parser.y"
 {
                 		yyval.expr = new Tree.ReadLineExpr(val_peek(2).loc);
                 	}
 break;
-case 65:
-//#line 322 "Parser.y"
+case 67:
+//#line 334 "Parser.y"
 {
                 		yyval.expr = new Tree.ThisExpr(val_peek(0).loc);
                 	}
 break;
-case 66:
-//#line 326 "Parser.y"
+case 68:
+//#line 338 "Parser.y"
 {
                 		yyval.expr = new Tree.NewClass(val_peek(2).ident, val_peek(3).loc);
                 	}
 break;
-case 67:
-//#line 330 "Parser.y"
+case 69:
+//#line 342 "Parser.y"
 {
                 		yyval.expr = new Tree.NewArray(val_peek(3).type, val_peek(1).expr, val_peek(4).loc);
                 	}
 break;
-case 68:
-//#line 334 "Parser.y"
+case 70:
+//#line 346 "Parser.y"
 {
                 		yyval.expr = new Tree.TypeTest(val_peek(3).expr, val_peek(1).ident, val_peek(5).loc);
                 	}
 break;
-case 69:
-//#line 338 "Parser.y"
+case 71:
+//#line 350 "Parser.y"
 {
                 		yyval.expr = new Tree.TypeCast(val_peek(2).ident, val_peek(0).expr, val_peek(0).loc);
                 	}
 break;
-case 70:
-//#line 344 "Parser.y"
+case 72:
+//#line 356 "Parser.y"
 {
 						yyval.expr = new Tree.Literal(val_peek(0).typeTag, val_peek(0).literal, val_peek(0).loc);
 					}
 break;
-case 71:
-//#line 348 "Parser.y"
+case 73:
+//#line 360 "Parser.y"
 {
 						yyval.expr = new Null(val_peek(0).loc);
 					}
 break;
-case 73:
-//#line 355 "Parser.y"
+case 75:
+//#line 367 "Parser.y"
 {
                 		yyval = new SemValue();
                 		yyval.elist = new ArrayList<Tree.Expr>();
                 	}
 break;
-case 74:
-//#line 362 "Parser.y"
+case 76:
+//#line 374 "Parser.y"
 {
 						yyval.elist.add(val_peek(0).expr);
 					}
 break;
-case 75:
-//#line 366 "Parser.y"
+case 77:
+//#line 378 "Parser.y"
 {
                 		yyval.elist = new ArrayList<Tree.Expr>();
 						yyval.elist.add(val_peek(0).expr);
                 	}
 break;
-case 76:
-//#line 373 "Parser.y"
+case 78:
+//#line 385 "Parser.y"
 {
 						yyval.stmt = new Tree.WhileLoop(val_peek(2).expr, val_peek(0).stmt, val_peek(4).loc);
 					}
 break;
-case 77:
-//#line 379 "Parser.y"
+case 79:
+//#line 391 "Parser.y"
 {
 						yyval.stmt = new Tree.ForLoop(val_peek(6).stmt, val_peek(4).expr, val_peek(2).stmt, val_peek(0).stmt, val_peek(8).loc);
 					}
 break;
-case 78:
-//#line 385 "Parser.y"
+case 80:
+//#line 397 "Parser.y"
 {
 						yyval.stmt = new Tree.Break(val_peek(0).loc);
 					}
 break;
-case 79:
-//#line 391 "Parser.y"
+case 81:
+//#line 403 "Parser.y"
 {
 						yyval.stmt = new Tree.If(val_peek(3).expr, val_peek(1).stmt, val_peek(0).stmt, val_peek(5).loc);
 					}
 break;
-case 80:
-//#line 397 "Parser.y"
+case 82:
+//#line 409 "Parser.y"
 {
 						yyval.stmt = val_peek(0).stmt;
 					}
 break;
-case 81:
-//#line 401 "Parser.y"
+case 83:
+//#line 413 "Parser.y"
 {
 						yyval = new SemValue();
 					}
 break;
-case 82:
-//#line 407 "Parser.y"
+case 84:
+//#line 419 "Parser.y"
 {
 						yyval.stmt = new Tree.Return(val_peek(0).expr, val_peek(1).loc);
 					}
 break;
-case 83:
-//#line 411 "Parser.y"
+case 85:
+//#line 423 "Parser.y"
 {
                 		yyval.stmt = new Tree.Return(null, val_peek(0).loc);
                 	}
 break;
-case 84:
-//#line 417 "Parser.y"
+case 86:
+//#line 429 "Parser.y"
 {
 						yyval.stmt = new Print(val_peek(1).elist, val_peek(3).loc);
 					}
 break;
-//#line 1168 "Parser.java"
+//#line 1179 "Parser.java"
 //########## END OF USER-SUPPLIED ACTIONS ##########
     }//switch
     //#### Now let's reduce... ####
@@ -33,6 +33,7 @@ import java.util.*;
 %token LESS_EQUAL   GREATER_EQUAL  EQUAL   NOT_EQUAL
 %token '+'  '-'  '*'  '/'  '%'  '='  '>'  '<'  '.'
 %token ','  ';'  '!'  '('  ')'  '['  ']'  '{'  '}'
+%token SEALED
 
 %left OR
 %left AND 
@@ -100,12 +101,23 @@ Type            :	INT
                 	}
                 ;
 
-ClassDef        :	CLASS IDENTIFIER ExtendsClause '{' FieldList '}'
+ClassDef        :	ClassSealed CLASS IDENTIFIER ExtendsClause '{' FieldList '}'
 					{
-						$$.cdef = new Tree.ClassDef($2.ident, $3.ident, $5.flist, $1.loc);
+						$$.cdef = new Tree.ClassDef($3.ident, $4.ident, $6.flist,
+								(Boolean) $1.literal, $2.loc);
 					}
                 ;
 
+ClassSealed     :	SEALED
+					{
+						$$.literal = true;
+					}
+                |	/* empty */
+                	{
+                		$$.literal = false;
+                	}
+                ;
+
 ExtendsClause	:	EXTENDS IDENTIFIER
 					{
 						$$.ident = $2.ident;
@@ -167,6 +167,9 @@ public class SemValue {
 		case Parser.RETURN:
 			msg = "keyword  : return";
 			break;
+		case Parser.SEALED:
+			msg = "keyword  : sealed";
+			break;
 		case Parser.STRING:
 			msg = "keyword  : string";
 			break;
@@ -0,0 +1,110 @@
+package decaf.machdesc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The assembly of one function before it is placed in the program.
+ *
+ * Labels of basic blocks and of string constants are numbered over the
+ * whole program, so a line refers to them with blockRef and stringRef
+ * instead. The machine description fills in the numbers when the function
+ * is emitted, which lets the same function be reused at any position.
+ */
+public final class AsmFunction {
+
+	private static final char BLOCK = '\u0001';
+
+	private static final char STRING = '\u0002';
+
+	private static final char END = '\u0003';
+
+	/**
+	 * One line: any of the label, the body and the comment may be null.
+	 */
+	public static final class Line {
+
+		public final String label;
+
+		public final String body;
+
+		public final String comment;
+
+		public Line(String label, String body, String comment) {
+			this.label = label;
+			this.body = body;
+			this.comment = comment;
+		}
+	}
+
+	public final List<Line> lines = new ArrayList<Line>();
+
+	// String constants used, in the order they first appear
+	public final List<String> strings = new ArrayList<String>();
+
+	public int blocks;
+
+	// What register allocation counted, kept for -stats
+	public int edgeCount;
+
+	public int spillCount;
+
+	public static String blockRef(int i) {
+		return BLOCK + Integer.toString(i) + END;
+	}
+
+	public String stringRef(String s) {
+		int i = strings.indexOf(s);
+		if (i < 0) {
+			i = strings.size();
+			strings.add(s);
+		}
+		return STRING + Integer.toString(i) + END;
+	}
+
+	public void add(String label, String body, String comment) {
+		lines.add(new Line(label, body, comment));
+	}
+
+	/**
+	 * Replace the references in text by real names.
+	 *
+	 * @param blockLabels
+	 *            names of the labels of the blocks of this function
+	 * @param stringLabels
+	 *            names of the labels of strings, in the order of strings
+	 */
+	public static String resolve(String text, String[] blockLabels,
+			String[] stringLabels) {
+		if (text == null) {
+			return null;
+		}
+		int start = indexOfRef(text, 0);
+		if (start < 0) {
+			return text;
+		}
+		StringBuilder sb = new StringBuilder();
+		int done = 0;
+		while (start >= 0) {
+			int end = text.indexOf(END, start);
+			int i = Integer.parseInt(text.substring(start + 1, end));
+			sb.append(text, done, start);
+			sb.append(text.charAt(start) == BLOCK ? blockLabels[i]
+					: stringLabels[i]);
+			done = end + 1;
+			start = indexOfRef(text, done);
+		}
+		sb.append(text, done, text.length());
+		return sb.toString();
+	}
+
+	private static int indexOfRef(String text, int from) {
+		for (int i = from; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == BLOCK || c == STRING) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
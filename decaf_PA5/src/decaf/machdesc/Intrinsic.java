@@ -4,6 +4,9 @@ import decaf.tac.Label;
 import decaf.type.BaseType;
 
 public final class Intrinsic {
+	// 预定义函数占用最前面的标号编号，须在下列常量之前声明
+	private static int labelCount = 0;
+
 	/**
 	 * 分配内存，如果失败则自动退出程序<br>
 	 * 参数: 为要分配的内存块大小（单位为字节）<br>
@@ -82,9 +85,24 @@ public final class Intrinsic {
 	 *            返回类型
 	 */
 	private Intrinsic(String name, int numArgs, BaseType type) {
-		this.label = Label.createLabel(name, false);
+		this.label = new Label(labelCount++, name, false);
 		this.numArgs = numArgs;
 		this.type = type;
 	}
 
+	/**
+	 * 预定义函数占用的标号个数，编译时新建的标号从这里开始编号
+	 */
+	public static int getLabelCount() {
+		return labelCount;
+	}
+
+	/**
+	 * 所有的预定义函数
+	 */
+	public static Intrinsic[] values() {
+		return new Intrinsic[] { ALLOCATE, READ_LINE, READ_INT, STRING_EQUAL,
+				PRINT_INT, PRINT_STRING, PRINT_BOOL, HALT };
+	}
+
 }
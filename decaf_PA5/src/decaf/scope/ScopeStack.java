@@ -13,6 +13,8 @@ public class ScopeStack {
 	
 	private GlobalScope globalScope;
 
+	private int declared;
+
 	public Symbol lookup(String name, boolean through) {
 		if (through) {
 			ListIterator<Scope> iter = scopeStack.listIterator(scopeStack
@@ -47,6 +49,14 @@ public class ScopeStack {
 
 	public void declare(Symbol symbol) {
 		scopeStack.peek().declare(symbol);
+		declared++;
+	}
+
+	/**
+	 * Number of symbols declared through this stack so far.
+	 */
+	public int getDeclaredCount() {
+		return declared;
 	}
 
 	public void open(Scope scope) {
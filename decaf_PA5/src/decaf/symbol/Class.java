@@ -2,7 +2,6 @@ package decaf.symbol;
 
 import java.util.Iterator;
 
-import decaf.Driver;
 import decaf.Location;
 import decaf.backend.OffsetCounter;
 import decaf.scope.ClassScope;
@@ -15,12 +14,17 @@ public class Class extends Symbol {
 
 	private String parentName;
 
+	// where the parent is looked up
+	private GlobalScope globalScope;
+
 	private ClassScope associatedScope;
 
 	private int order;
 
 	private boolean check;
 
+	private boolean sealed;
+
 	private int numNonStaticFunc;
 
 	private int numVar;
@@ -71,9 +75,12 @@ public class Class extends Symbol {
 		this.numVar = numVar;
 	}
 
-	public Class(String name, String parentName, Location location) {
+	public Class(String name, String parentName, Location location,
+			boolean sealed, GlobalScope globalScope) {
 		this.name = name;
 		this.parentName = parentName;
+		this.sealed = sealed;
+		this.globalScope = globalScope;
 		this.location = location;
 		this.order = -1;
 		this.check = false;
@@ -116,7 +123,7 @@ public class Class extends Symbol {
 	}
 
 	public Class getParent() {
-		return Driver.getDriver().getTable().lookupClass(parentName);
+		return (Class) globalScope.lookup(parentName);
 	}
 
 	@Override
@@ -141,6 +148,13 @@ public class Class extends Symbol {
 		parentName = null;
 	}
 
+	/**
+	 * Whether no class may extend this one.
+	 */
+	public boolean isSealed() {
+		return sealed;
+	}
+
 	public boolean isCheck() {
 		return check;
 	}
@@ -9,8 +9,6 @@ public class Label {
 
 	public Tac where;
 
-	private static int labelCount = 0;
-
 	public Label() {
 	}
 
@@ -20,20 +18,10 @@ public class Label {
 		this.target = target;
 	}
 
-	public static Label createLabel() {
-		return createLabel(false);
-	}
-
-	public static Label createLabel(boolean target) {
-		int id = labelCount++;
+	public static Label createLabel(int id, boolean target) {
 		return new Label(id, "_L" + id, target);
 	}
 
-	public static Label createLabel(String name, boolean target) {
-		int id = labelCount++;
-		return new Label(id, name, target);
-	}
-
 	@Override
 	public String toString() {
 		return name;
@@ -39,6 +39,14 @@ public class Tac {
 	
 	public Set<Temp> saves;
 
+	// Registers of a call loaded after it like the saves, but not stored
+	// before it, as their slots already hold them
+	public Set<Temp> reloads;
+
+	// A LOAD of memory never written once it can be read: virtual table
+	// pointers, virtual tables and array lengths
+	public boolean readOnly;
+
 	private Tac(Kind opc, Temp op0) {
 		this(opc, op0, null, null);
 	}
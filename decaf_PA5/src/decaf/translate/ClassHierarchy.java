@@ -0,0 +1,55 @@
+package decaf.translate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import decaf.symbol.Class;
+import decaf.symbol.Function;
+import decaf.tree.Tree;
+
+/**
+ * The subclasses of each class of the program, to find the virtual calls
+ * that can only reach one method. A program is compiled whole, so if no
+ * class below the static type of the receiver declares the method again,
+ * the call always reaches the method the type sees, and may call it
+ * directly.
+ *
+ * A sealed class has no subclass, so every call on it is one of those.
+ */
+public final class ClassHierarchy {
+
+	private final Map<Class, List<Class>> children = new HashMap<Class, List<Class>>();
+
+	public ClassHierarchy(Tree.TopLevel tree) {
+		for (Tree.ClassDef cd : tree.classes) {
+			Class parent = cd.symbol.getParent();
+			if (parent != null) {
+				children.computeIfAbsent(parent, k -> new ArrayList<Class>())
+						.add(cd.symbol);
+			}
+		}
+	}
+
+	/**
+	 * Whether a call of method on an object whose static type is c always
+	 * reaches method itself.
+	 */
+	public boolean isFinal(Class c, Function method) {
+		if (c.isSealed()) {
+			return true;
+		}
+		List<Class> subs = children.get(c);
+		if (subs == null) {
+			return true;
+		}
+		for (Class sub : subs) {
+			if (sub.getAssociatedScope().lookup(method.getName()) != null
+					|| !isFinal(sub, method)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
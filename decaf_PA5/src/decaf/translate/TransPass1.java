@@ -19,9 +19,16 @@ public class TransPass1 extends Tree.Visitor {
 
 	private List<Variable> vars;
 
+	private OffsetCounter varfieldOffsetCounter;
+
+	private OffsetCounter parameterOffsetCounter;
+
 	public TransPass1(Translater tr) {
 		this.tr = tr;
 		vars = new ArrayList<Variable>();
+		varfieldOffsetCounter = new OffsetCounter(OffsetCounter.Kind.VARFIELD);
+		parameterOffsetCounter = new OffsetCounter(
+				OffsetCounter.Kind.PARAMETER);
 	}
 
 	@Override
@@ -50,7 +57,7 @@ public class TransPass1 extends Tree.Visitor {
 			f.accept(this);
 		}
 		Collections.sort(vars, Symbol.ORDER_COMPARATOR);
-		OffsetCounter oc = OffsetCounter.VARFIELD_OFFSET_COUNTER;
+		OffsetCounter oc = varfieldOffsetCounter;
 		Class c = classDef.symbol.getParent();
 		if (c != null) {
 			oc.set(c.getSize());
@@ -70,13 +77,13 @@ public class TransPass1 extends Tree.Visitor {
 					* OffsetCounter.POINTER_SIZE);
 		}
 		tr.createFuncty(func);
-		OffsetCounter oc = OffsetCounter.PARAMETER_OFFSET_COUNTER;
+		OffsetCounter oc = parameterOffsetCounter;
 		oc.reset();
 		int order;
 		if (!func.isStatik()) {
 			Variable v = (Variable) func.getAssociatedScope().lookup("this");
 			v.setOrder(0);
-			Temp t = Temp.createTempI4();
+			Temp t = tr.createTempI4();
 			t.sym = v;
 			t.isParam = true;
 			v.setTemp(t);
@@ -87,7 +94,7 @@ public class TransPass1 extends Tree.Visitor {
 		}
 		for (Tree.VarDef vd : funcDef.formals) {
 			vd.symbol.setOrder(order++);
-			Temp t = Temp.createTempI4();
+			Temp t = tr.createTempI4();
 			t.sym = vd.symbol;
 			t.isParam = true;
 			vd.symbol.setTemp(t);
@@ -9,6 +9,7 @@ import decaf.symbol.Variable;
 import decaf.tac.Label;
 import decaf.tac.Temp;
 import decaf.type.BaseType;
+import decaf.type.ClassType;
 
 public class TransPass2 extends Tree.Visitor {
 
@@ -52,7 +53,7 @@ public class TransPass2 extends Tree.Visitor {
 	@Override
 	public void visitVarDef(Tree.VarDef varDef) {
 		if (varDef.symbol.isLocalVar()) {
-			Temp t = Temp.createTempI4();
+			Temp t = tr.createTempI4();
 			t.sym = varDef.symbol;
 			varDef.symbol.setTemp(t);
 		}
@@ -267,7 +268,7 @@ public class TransPass2 extends Tree.Visitor {
 	public void visitCallExpr(Tree.CallExpr callExpr) {
 		if (callExpr.isArrayLength) {
 			callExpr.receiver.accept(this);
-			callExpr.val = tr.genLoad(callExpr.receiver.val,
+			callExpr.val = tr.genLoadReadOnly(callExpr.receiver.val,
 					-OffsetCounter.WORD_SIZE);
 		} else {
 			if (callExpr.receiver != null) {
@@ -287,10 +288,9 @@ public class TransPass2 extends Tree.Visitor {
 						callExpr.symbol.getFuncty().label, callExpr.symbol
 								.getReturnType());
 			} else {
-				Temp vt = tr.genLoad(callExpr.receiver.val, 0);
-				Temp func = tr.genLoad(vt, callExpr.symbol.getOffset());
-				callExpr.val = tr.genIndirectCall(func, callExpr.symbol
-						.getReturnType());
+				callExpr.val = tr.genMethodCall(callExpr.getLocation(),
+						callExpr.receiver.val, ((ClassType) callExpr.receiver.type)
+								.getSymbol(), callExpr.symbol);
 			}
 		}
 
@@ -301,8 +301,8 @@ public class TransPass2 extends Tree.Visitor {
 		if (forLoop.init != null) {
 			forLoop.init.accept(this);
 		}
-		Label cond = Label.createLabel();
-		Label loop = Label.createLabel();
+		Label cond = tr.createLabel();
+		Label loop = tr.createLabel();
 		tr.genBranch(cond);
 		tr.genMark(loop);
 		if (forLoop.update != null) {
@@ -310,7 +310,7 @@ public class TransPass2 extends Tree.Visitor {
 		}
 		tr.genMark(cond);
 		forLoop.condition.accept(this);
-		Label exit = Label.createLabel();
+		Label exit = tr.createLabel();
 		tr.genBeqz(forLoop.condition.val, exit);
 		loopExits.push(exit);
 		if (forLoop.loopBody != null) {
@@ -325,16 +325,16 @@ public class TransPass2 extends Tree.Visitor {
 	public void visitIf(Tree.If ifStmt) {
 		ifStmt.condition.accept(this);
 		if (ifStmt.falseBranch != null) {
-			Label falseLabel = Label.createLabel();
+			Label falseLabel = tr.createLabel();
 			tr.genBeqz(ifStmt.condition.val, falseLabel);
 			ifStmt.trueBranch.accept(this);
-			Label exit = Label.createLabel();
+			Label exit = tr.createLabel();
 			tr.genBranch(exit);
 			tr.genMark(falseLabel);
 			ifStmt.falseBranch.accept(this);
 			tr.genMark(exit);
 		} else if (ifStmt.trueBranch != null) {
-			Label exit = Label.createLabel();
+			Label exit = tr.createLabel();
 			tr.genBeqz(ifStmt.condition.val, exit);
 			if (ifStmt.trueBranch != null) {
 				ifStmt.trueBranch.accept(this);
@@ -357,10 +357,10 @@ public class TransPass2 extends Tree.Visitor {
 
 	@Override
 	public void visitWhileLoop(Tree.WhileLoop whileLoop) {
-		Label loop = Label.createLabel();
+		Label loop = tr.createLabel();
 		tr.genMark(loop);
 		whileLoop.condition.accept(this);
-		Label exit = Label.createLabel();
+		Label exit = tr.createLabel();
 		tr.genBeqz(whileLoop.condition.val, exit);
 		loopExits.push(exit);
 		if (whileLoop.loopBody != null) {
@@ -4,9 +4,12 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 import decaf.tree.Tree;
 import decaf.backend.OffsetCounter;
+import decaf.cache.IncrementalCache;
+import decaf.Location;
 import decaf.error.RuntimeError;
 import decaf.machdesc.Intrinsic;
 import decaf.scope.ClassScope;
@@ -27,22 +30,100 @@ public class Translater {
 
 	private List<Functy> funcs;
 
+	// Functions made since they were last handed to a sink
+	private List<Functy> classFuncs;
+
 	private Functy currentFuncty;
 
+	private int tempCount;
+
+	private int labelCount;
+
+	// Null unless virtual calls are made direct where they can be
+	private ClassHierarchy hierarchy;
+
+	private int virtualCallCount;
+
+	private int directCallCount;
+
+	// Where each method call is, on what and whether it is direct
+	private List<String> callSites = new ArrayList<String>();
+
 	public Translater() {
 		vtables = new ArrayList<VTable>();
 		funcs = new ArrayList<Functy>();
+		classFuncs = new ArrayList<Functy>();
+		tempCount = 0;
+		labelCount = Intrinsic.getLabelCount();
 	}
 
 	public static Translater translate(Tree.TopLevel tree) {
+		return translate(tree, null, false);
+	}
+
+	/**
+	 * Translate the classes not found in cache, take the others from it.
+	 * 
+	 * @param cache
+	 *            may be null
+	 * @param devirtualize
+	 *            whether virtual calls only one method can answer call it
+	 *            directly
+	 */
+	public static Translater translate(Tree.TopLevel tree,
+			IncrementalCache cache, boolean devirtualize) {
+		Translater tr = layout(tree, devirtualize);
+		tr.translateClasses(tree, cache, tr.funcs::add);
+		return tr;
+	}
+
+	/**
+	 * Lay out the classes and build their virtual tables and New functions.
+	 * The methods are left to translateClasses.
+	 */
+	public static Translater layout(Tree.TopLevel tree, boolean devirtualize) {
 		Translater tr = new Translater();
 		TransPass1 tp1 = new TransPass1(tr);
 		tp1.visitTopLevel(tree);
-		TransPass2 tp2 = new TransPass2(tr);
-		tp2.visitTopLevel(tree);
+		if (devirtualize) {
+			tr.hierarchy = new ClassHierarchy(tree);
+		}
 		return tr;
 	}
 
+	/**
+	 * Translate the methods class by class, handing the functions of each
+	 * class to sink as soon as the class is done. The functions are not
+	 * kept here, unless sink keeps them in getFuncs().
+	 * 
+	 * @param cache
+	 *            may be null
+	 */
+	public void translateClasses(Tree.TopLevel tree, IncrementalCache cache,
+			Consumer<Functy> sink) {
+		// the New functions made by layout come first
+		flush(sink);
+		TransPass2 tp2 = new TransPass2(this);
+		for (Tree.ClassDef cd : tree.classes) {
+			if (cache == null) {
+				cd.accept(tp2);
+			} else if (!cache.restore(this, cd)) {
+				int temps = tempCount;
+				int labels = labelCount;
+				cd.accept(tp2);
+				cache.record(this, cd, temps, labels, classFuncs);
+			}
+			flush(sink);
+		}
+	}
+
+	private void flush(Consumer<Functy> sink) {
+		for (Functy f : classFuncs) {
+			sink.accept(f);
+		}
+		classFuncs.clear();
+	}
+
 	public void printTo(PrintWriter pw) {
 		for (VTable vt : vtables) {
 			pw.println("VTABLE(" + vt.name + ") {");
@@ -83,12 +164,85 @@ public class Translater {
 		return funcs;
 	}
 
+	public Temp createTempI4() {
+		return Temp.createTempI4(tempCount++);
+	}
+
+	public Label createLabel() {
+		return createLabel(false);
+	}
+
+	public Label createLabel(boolean target) {
+		return Label.createLabel(labelCount++, target);
+	}
+
+	public Label createLabel(String name, boolean target) {
+		return new Label(labelCount++, name, target);
+	}
+
+	/**
+	 * Skip the temps and labels a class taken from the cache would have
+	 * created.
+	 */
+	public void reserve(int temps, int labels) {
+		tempCount += temps;
+		labelCount += labels;
+	}
+
+	/**
+	 * Add a function whose TAC was made elsewhere.
+	 */
+	public void addFuncty(Functy functy) {
+		functy.paramMemo = memoOf(functy.sym);
+		classFuncs.add(functy);
+	}
+
+	public int getTempCount() {
+		return tempCount;
+	}
+
+	/**
+	 * The class hierarchy calls are devirtualized with, or null if they
+	 * are not.
+	 */
+	public ClassHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	/**
+	 * Number of calls of methods on an object translated.
+	 */
+	public int getVirtualCallCount() {
+		return virtualCallCount;
+	}
+
+	/**
+	 * Number of those calling the method directly.
+	 */
+	public int getDirectCallCount() {
+		return directCallCount;
+	}
+
+	/**
+	 * One line for each of those calls: its location, the static type of
+	 * its receiver, the method and whether it was made direct. Empty if
+	 * calls are not devirtualized.
+	 */
+	public List<String> getCallSites() {
+		return callSites;
+	}
+
+	// The first label id not taken by this program
+	public int getLabelCount() {
+		return labelCount;
+	}
+
 	public void createFuncty(Function func) {
 		Functy functy = new Functy();
 		if (func.isMain()) {
-			functy.label = Label.createLabel("main", true);
+			functy.label = createLabel("main", true);
 		} else {
-			functy.label = Label.createLabel("_"
+			functy.label = createLabel("_"
 					+ ((ClassScope) func.getScope()).getOwner().getName() + "."
 					+ func.getName(), true);
 		}
@@ -103,7 +257,7 @@ public class Translater {
 	}
 
 	public void endFunc() {
-		funcs.add(currentFuncty);
+		classFuncs.add(currentFuncty);
 		currentFuncty = null;
 	}
 
@@ -162,91 +316,91 @@ public class Translater {
 	}
 
 	public Temp genAdd(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genAdd(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genSub(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genSub(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genMul(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genMul(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genDiv(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genDiv(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genMod(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genMod(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genNeg(Temp src) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genNeg(dst, src));
 		return dst;
 	}
 
 	public Temp genLAnd(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genLAnd(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genLOr(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genLOr(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genLNot(Temp src) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genLNot(dst, src));
 		return dst;
 	}
 
 	public Temp genGtr(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genGtr(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genGeq(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genGeq(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genEqu(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genEqu(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genNeq(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genNeq(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genLeq(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genLeq(dst, src1, src2));
 		return dst;
 	}
 
 	public Temp genLes(Temp src1, Temp src2) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genLes(dst, src1, src2));
 		return dst;
 	}
@@ -256,7 +410,7 @@ public class Translater {
 	}
 
 	public Temp genLoadVTable(VTable vtbl) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genLoadVtbl(dst, vtbl));
 		return dst;
 	}
@@ -266,7 +420,7 @@ public class Translater {
 		if (retType.equal(BaseType.VOID)) {
 			dst = null;
 		} else {
-			dst = Temp.createTempI4();
+			dst = createTempI4();
 		}
 		append(Tac.genIndirectCall(dst, func));
 		return dst;
@@ -277,18 +431,50 @@ public class Translater {
 		if (retType.equal(BaseType.VOID)) {
 			dst = null;
 		} else {
-			dst = Temp.createTempI4();
+			dst = createTempI4();
 		}
 		append(Tac.genDirectCall(dst, func));
 		return dst;
 	}
 
+	/**
+	 * Call method on receiver, whose static type is c: directly if no
+	 * class below c overrides it, through the virtual table otherwise. A
+	 * direct call still loads the virtual table of a receiver other than
+	 * this, so that a null receiver faults as it would have.
+	 */
+	public Temp genMethodCall(Location loc, Temp receiver, Class c,
+			Function method) {
+		virtualCallCount++;
+		boolean direct = false;
+		if (hierarchy != null) {
+			direct = hierarchy.isFinal(c, method);
+			callSites.add(String.format("%-10s %-30s %s", loc, c.getName()
+					+ "." + method.getName(), direct ? "direct" : "virtual"));
+		}
+		if (direct) {
+			directCallCount++;
+			if (!isThis(receiver)) {
+				genLoadReadOnly(receiver, 0);
+			}
+			return genDirectCall(method.getFuncty().label, method
+					.getReturnType());
+		}
+		Temp vt = genLoadReadOnly(receiver, 0);
+		Temp func = genLoadReadOnly(vt, method.getOffset());
+		return genIndirectCall(func, method.getReturnType());
+	}
+
+	private static boolean isThis(Temp t) {
+		return t.isParam && t.sym != null && t.sym.getName().equals("this");
+	}
+
 	public Temp genIntrinsicCall(Intrinsic intrn) {
 		Temp dst;
 		if (intrn.type.equal(BaseType.VOID)) {
 			dst = null;
 		} else {
-			dst = Temp.createTempI4();
+			dst = createTempI4();
 		}
 		append(Tac.genDirectCall(dst, intrn.label));
 		return dst;
@@ -311,23 +497,35 @@ public class Translater {
 	}
 
 	public Temp genLoad(Temp base, int offset) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genLoad(dst, base, Temp.createConstTemp(offset)));
 		return dst;
 	}
 
+	/**
+	 * A load no store can change the result of, such as of the virtual
+	 * table of an object, an entry of it or the length of an array.
+	 */
+	public Temp genLoadReadOnly(Temp base, int offset) {
+		Temp dst = createTempI4();
+		Tac load = Tac.genLoad(dst, base, Temp.createConstTemp(offset));
+		load.readOnly = true;
+		append(load);
+		return dst;
+	}
+
 	public void genStore(Temp src, Temp base, int offset) {
 		append(Tac.genStore(src, base, Temp.createConstTemp(offset)));
 	}
 
 	public Temp genLoadImm4(int imm) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genLoadImm4(dst, Temp.createConstTemp(imm)));
 		return dst;
 	}
 
 	public Temp genLoadStrConst(String value) {
-		Temp dst = Temp.createTempI4();
+		Temp dst = createTempI4();
 		append(Tac.genLoadStrConst(dst, value));
 		return dst;
 	}
@@ -345,12 +543,12 @@ public class Translater {
 	}
 
 	public void genCheckArrayIndex(Temp array, Temp index) {
-		Temp length = genLoad(array, -OffsetCounter.WORD_SIZE);
+		Temp length = genLoadReadOnly(array, -OffsetCounter.WORD_SIZE);
 		Temp cond = genLes(index, length);
-		Label err = Label.createLabel();
+		Label err = createLabel();
 		genBeqz(cond, err);
 		cond = genLes(index, genLoadImm4(0));
-		Label exit = Label.createLabel();
+		Label exit = createLabel();
 		genBeqz(cond, exit);
 		genMark(err);
 		Temp msg = genLoadStrConst(RuntimeError.ARRAY_INDEX_OUT_OF_BOUND);
@@ -361,7 +559,7 @@ public class Translater {
 	}
 
 	public void genCheckNewArraySize(Temp size) {
-		Label exit = Label.createLabel();
+		Label exit = createLabel();
 		Temp cond = genLes(size, genLoadImm4(0));
 		genBeqz(cond, exit);
 		Temp msg = genLoadStrConst(RuntimeError.NEGATIVE_ARR_SIZE);
@@ -378,8 +576,8 @@ public class Translater {
 		genParm(size);
 		Temp obj = genIntrinsicCall(Intrinsic.ALLOCATE);
 		genStore(length, obj, 0);
-		Label loop = Label.createLabel();
-		Label exit = Label.createLabel();
+		Label loop = createLabel();
+		Label exit = createLabel();
 		Temp zero = genLoadImm4(0);
 		append(Tac.genAdd(obj, obj, size));
 		genMark(loop);
@@ -394,7 +592,7 @@ public class Translater {
 
 	public void genNewForClass(Class c) {
 		currentFuncty = new Functy();
-		currentFuncty.label = Label.createLabel(
+		currentFuncty.label = createLabel(
 				"_" + c.getName() + "_" + "New", true);
 		c.setNewFuncLabel(currentFuncty.label);
 		currentFuncty.paramMemo = Tac.genMemo("");
@@ -411,8 +609,8 @@ public class Translater {
 				}
 			} else {
 				Temp unit = genLoadImm4(OffsetCounter.WORD_SIZE);
-				Label loop = Label.createLabel();
-				Label exit = Label.createLabel();
+				Label loop = createLabel();
+				Label exit = createLabel();
 				newObj = genAdd(newObj, size);
 				genMark(loop);
 				genAssign(newObj, genSub(newObj, unit));
@@ -429,15 +627,17 @@ public class Translater {
 	}
 
 	public Temp genInstanceof(Temp instance, Class c) {
-		Temp dst = Temp.createTempI4();
-		Label loop = Label.createLabel();
-		Label exit = Label.createLabel();
+		Temp dst = createTempI4();
+		Label loop = createLabel();
+		Label exit = createLabel();
 		Temp targetVp = genLoadVTable(c.getVtable());
-		Temp vp = genLoad(instance, 0);
+		Temp vp = genLoadReadOnly(instance, 0);
 		genMark(loop);
 		append(Tac.genEqu(dst, targetVp, vp));
 		genBnez(dst, exit);
-		append(Tac.genLoad(vp, vp, Temp.createConstTemp(0)));
+		Tac parent = Tac.genLoad(vp, vp, Temp.createConstTemp(0));
+		parent.readOnly = true;
+		append(parent);
 		genBnez(vp, loop);
 		append(Tac.genLoadImm4(dst, Temp.createConstTemp(0)));
 		genMark(exit);
@@ -445,26 +645,29 @@ public class Translater {
 	}
 
 	public void genClassCast(Temp val, Class c) {
-		Label loop = Label.createLabel();
-		Label exit = Label.createLabel();
-		Temp cond = Temp.createTempI4();
+		Label loop = createLabel();
+		Label exit = createLabel();
+		Temp cond = createTempI4();
 		Temp targetVp = genLoadVTable(c.getVtable());
-		Temp vp = genLoad(val, 0);
+		Temp vp = genLoadReadOnly(val, 0);
 		genMark(loop);
 		append(Tac.genEqu(cond, targetVp, vp));
 		genBnez(cond, exit);
-		append(Tac.genLoad(vp, vp, Temp.createConstTemp(0)));
+		Tac parent = Tac.genLoad(vp, vp, Temp.createConstTemp(0));
+		parent.readOnly = true;
+		append(parent);
 		genBnez(vp, loop);
 		Temp msg = genLoadStrConst(RuntimeError.CLASS_CAST_ERROR1);
 		genParm(msg);
 		genIntrinsicCall(Intrinsic.PRINT_STRING);
-		Temp instanceClassName = genLoad(genLoad(val, 0), 4);
+		Temp instanceClassName = genLoadReadOnly(genLoadReadOnly(val, 0), 4);
 		genParm(instanceClassName);
 		genIntrinsicCall(Intrinsic.PRINT_STRING);
 		msg = genLoadStrConst(RuntimeError.CLASS_CAST_ERROR2);
 		genParm(msg);
 		genIntrinsicCall(Intrinsic.PRINT_STRING);
-		Temp targetClassName = genLoad(genLoadVTable(c.getVtable()), 4);
+		Temp targetClassName = genLoadReadOnly(genLoadVTable(c
+				.getVtable()), 4);
 		genParm(targetClassName);
 		genIntrinsicCall(Intrinsic.PRINT_STRING);
 		msg = genLoadStrConst(RuntimeError.CLASS_CAST_ERROR3);
@@ -371,14 +371,16 @@ public abstract class Tree {
     	public String name;
     	public String parent;
     	public List<Tree> fields;
+    	public boolean sealed;
     	public Class symbol;
 
         public ClassDef(String name, String parent, List<Tree> fields,
-    			Location loc) {
+    			boolean sealed, Location loc) {
     		super(CLASSDEF, loc);
     		this.name = name;
     		this.parent = parent;
     		this.fields = fields;
+    		this.sealed = sealed;
         }
 
     	@Override
@@ -388,7 +390,7 @@ public abstract class Tree {
         
     	@Override
     	public void printTo(IndentPrintWriter pw) {
-    		pw.println("class " + name + " "
+    		pw.println((sealed ? "sealed " : "") + "class " + name + " "
     				+ (parent != null ? parent : "<empty>"));
     		pw.incIndent();
     		for (Tree f : fields) {
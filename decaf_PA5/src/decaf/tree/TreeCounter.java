@@ -0,0 +1,184 @@
+package decaf.tree;
+
+import java.util.List;
+
+/**
+ * Count the nodes of a syntax tree. Leaves are counted by visitTree, inner
+ * nodes count themselves and then visit their children.
+ */
+public final class TreeCounter extends Tree.Visitor {
+
+	private int count;
+
+	private TreeCounter() {
+	}
+
+	public static int count(Tree tree) {
+		TreeCounter counter = new TreeCounter();
+		tree.accept(counter);
+		return counter.count;
+	}
+
+	private void visit(Tree tree) {
+		if (tree != null) {
+			tree.accept(this);
+		}
+	}
+
+	private void visit(List<? extends Tree> trees) {
+		for (Tree tree : trees) {
+			visit(tree);
+		}
+	}
+
+	@Override
+	public void visitTree(Tree that) {
+		count++;
+	}
+
+	@Override
+	public void visitTopLevel(Tree.TopLevel that) {
+		visitTree(that);
+		visit(that.classes);
+	}
+
+	@Override
+	public void visitClassDef(Tree.ClassDef that) {
+		visitTree(that);
+		visit(that.fields);
+	}
+
+	@Override
+	public void visitMethodDef(Tree.MethodDef that) {
+		visitTree(that);
+		visit(that.returnType);
+		visit(that.formals);
+		visit(that.body);
+	}
+
+	@Override
+	public void visitVarDef(Tree.VarDef that) {
+		visitTree(that);
+		visit(that.type);
+	}
+
+	@Override
+	public void visitBlock(Tree.Block that) {
+		visitTree(that);
+		visit(that.block);
+	}
+
+	@Override
+	public void visitWhileLoop(Tree.WhileLoop that) {
+		visitTree(that);
+		visit(that.condition);
+		visit(that.loopBody);
+	}
+
+	@Override
+	public void visitForLoop(Tree.ForLoop that) {
+		visitTree(that);
+		visit(that.init);
+		visit(that.condition);
+		visit(that.update);
+		visit(that.loopBody);
+	}
+
+	@Override
+	public void visitIf(Tree.If that) {
+		visitTree(that);
+		visit(that.condition);
+		visit(that.trueBranch);
+		visit(that.falseBranch);
+	}
+
+	@Override
+	public void visitExec(Tree.Exec that) {
+		visitTree(that);
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitPrint(Tree.Print that) {
+		visitTree(that);
+		visit(that.exprs);
+	}
+
+	@Override
+	public void visitReturn(Tree.Return that) {
+		visitTree(that);
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitApply(Tree.Apply that) {
+		visitTree(that);
+		visit(that.receiver);
+		visit(that.actuals);
+	}
+
+	@Override
+	public void visitNewArray(Tree.NewArray that) {
+		visitTree(that);
+		visit(that.elementType);
+		visit(that.length);
+	}
+
+	@Override
+	public void visitAssign(Tree.Assign that) {
+		visitTree(that);
+		visit(that.left);
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitUnary(Tree.Unary that) {
+		visitTree(that);
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitBinary(Tree.Binary that) {
+		visitTree(that);
+		visit(that.left);
+		visit(that.right);
+	}
+
+	@Override
+	public void visitCallExpr(Tree.CallExpr that) {
+		visitTree(that);
+		visit(that.receiver);
+		visit(that.actuals);
+	}
+
+	@Override
+	public void visitTypeCast(Tree.TypeCast that) {
+		visitTree(that);
+		visit(that.expr);
+	}
+
+	@Override
+	public void visitTypeTest(Tree.TypeTest that) {
+		visitTree(that);
+		visit(that.instance);
+	}
+
+	@Override
+	public void visitIndexed(Tree.Indexed that) {
+		visitTree(that);
+		visit(that.array);
+		visit(that.index);
+	}
+
+	@Override
+	public void visitIdent(Tree.Ident that) {
+		visitTree(that);
+		visit(that.owner);
+	}
+
+	@Override
+	public void visitTypeArray(Tree.TypeArray that) {
+		visitTree(that);
+		visit(that.elementType);
+	}
+}
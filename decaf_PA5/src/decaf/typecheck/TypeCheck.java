@@ -45,19 +45,22 @@ import decaf.type.*;
 
 public class TypeCheck extends Tree.Visitor {
 
+	private Driver driver;
+
 	private ScopeStack table;
 
 	private Stack<Tree> breaks;
 
 	private Function currentFunction;
 
-	public TypeCheck(ScopeStack table) {
-		this.table = table;
+	public TypeCheck(Driver driver) {
+		this.driver = driver;
+		this.table = driver.getTable();
 		breaks = new Stack<Tree>();
 	}
 
-	public static void checkType(Tree.TopLevel tree) {
-		new TypeCheck(Driver.getDriver().getTable()).visitTopLevel(tree);
+	public static void checkType(Driver driver, Tree.TopLevel tree) {
+		new TypeCheck(driver).visitTopLevel(tree);
 	}
 
 	@Override
@@ -573,7 +576,7 @@ public class TypeCheck extends Tree.Visitor {
 	}
 
 	private void issueError(DecafError error) {
-		Driver.getDriver().issueError(error);
+		driver.issueError(error);
 	}
 
 	private Type checkBinaryOp(Tree.Expr left, Tree.Expr right, int op, Location location) {
@@ -1,5 +1,11 @@
 package decaf.utils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
 public final class MiscUtils {
 	/**
 	 * 返回带转义符格式的字符串
@@ -31,4 +37,26 @@ public final class MiscUtils {
 		}
 		return ('"' + sb.toString() + '"');
 	}
+
+	/**
+	 * 在线程池中对每个元素分别求值
+	 * 
+	 * @param pool
+	 *            执行求值的线程池
+	 * @param items
+	 *            互相独立的输入
+	 * @return 与输入顺序一致的结果，不受调度影响
+	 */
+	public static <T, R> List<R> parallelMap(ForkJoinPool pool,
+			List<T> items, Function<T, R> f) {
+		List<ForkJoinTask<R>> tasks = new ArrayList<ForkJoinTask<R>>();
+		for (T item : items) {
+			tasks.add(pool.submit(() -> f.apply(item)));
+		}
+		List<R> results = new ArrayList<R>(tasks.size());
+		for (ForkJoinTask<R> task : tasks) {
+			results.add(task.join());
+		}
+		return results;
+	}
 }